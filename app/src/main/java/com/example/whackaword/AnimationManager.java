@@ -4,24 +4,27 @@ import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
 import android.animation.ObjectAnimator;
 import android.content.Context;
-import android.graphics.drawable.AnimationDrawable;
-import android.os.Handler;
+import android.os.SystemClock;
 import android.util.DisplayMetrics;
-import android.view.View;
 import android.widget.FrameLayout;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 
 /**
  * The AnimationManager class is responsible for managing animations
  * in the Whack-A-Word game
  *
+ * The cards are translated by ObjectAnimators, which are run by the main thread,
+ * so their motion stutters if the main thread stalls (e.g. while a media player is being created).
+ * They are tracked by the ResourceManager class, so that they are paused while the activity is stopped
+ *
  * It contains nine constant class variables
  * for managing time- and space-related animation properties,
  * such as durations, delays, and translations
  *
- * It also contains three other class variables:
+ * It also contains eight other class variables:
  *
  * firstCardIsAboutToPopUp, which records whether the first card is about to pop up
  *
@@ -30,6 +33,18 @@ import java.util.concurrent.CountDownLatch;
  * popUpBeingManaged, which keeps track of
  * which pop-up is currently being managed.
  * This is necessary in order to limit the duration of pop-ups
+ *
+ * timeOfLatestPopUp and popUpDurationLimitOfLatestPopUp, which record when cards last popped up
+ * (in milliseconds of uptime) and the duration limit that they were given,
+ * so that the time remaining until the pop-up duration limit can be saved
+ *
+ * skyView, which is the view of the sky,
+ * whose cadence is set whenever the quality tier changes,
+ * and which is stopped while the activity is stopped
+ * via the skyAnimation managed resource
+ *
+ * runningPopUpAnimations, which are the pop-up animations that have not yet ended,
+ * so that their translation can be updated if the playfield is relaid out while they are running
  */
 public class AnimationManager extends DisplayManager
 {
@@ -37,10 +52,10 @@ public class AnimationManager extends DisplayManager
     private static final int HIDE_CARDS_ANIMATION_DURATION = 500;
     // The animation for cards popping up or hiding lasts for half a second (500 milliseconds)
 
-    private static final int POP_UP_ANIMATION_DELAY = 1450;
+    private static final int POP_UP_ANIMATION_DELAY = RoundSequencer.POP_UP_SOUND_EFFECT_LEAD;
     public static final int HIDE_CARDS_ANIMATION_DELAY_WHEN_CORRECT_FOOD_CARD_IS_TAPPED = 400;
     // The delay before starting the pop-up animation (after the start() method is called)
-    // is one and nine twentieths seconds (1450 milliseconds),
+    // lets the pop-up sound effect lead it (see the RoundSequencer class),
     // while the delay before starting the hide cards animation (after the start() method is called)
     // is two fifths of a second (400 milliseconds).
     // The latter delay is only implemented whenever a correct food card is tapped
@@ -52,17 +67,53 @@ public class AnimationManager extends DisplayManager
     // These values refer to pixels that are to be
     // converted to dp (density-independent pixels) via the getUpwardsTranslation method
 
-    private static final int POP_UP_DURATION_LIMIT = 8000;
+    public static final int POP_UP_DURATION_LIMIT = 8000;
     // The duration limit for cards to remain popped up is eight seconds (8000 milliseconds)
 
-    private static final int SKY_FADE_IN_DURATION = 2500;
-    private static final int SKY_FADE_OUT_DURATION = 2500;
-    // It takes two and a half seconds (2500 milliseconds) for
-    // the current sky colours to fully fade in or out
-
     public static boolean firstCardIsAboutToPopUp;
     public static int numberOfPopUpTimes;
     public static int popUpBeingManaged;
+    public static long timeOfLatestPopUp;
+    public static int popUpDurationLimitOfLatestPopUp;
+    private static SkyView skyView;
+    private static final List<ObjectAnimator> runningPopUpAnimations = new ArrayList<>();
+
+    private static final ManagedResource skyAnimation = new ManagedResource()
+    {
+        @Override
+        public void pause()
+        {
+            AnimationManager.skyView.stop();
+        }
+
+        @Override
+        public void resume()
+        {
+            AnimationManager.updateSkyAnimation();
+        }
+
+        @Override
+        public void release()
+        {
+            AnimationManager.skyView.stop();
+            AnimationManager.skyView = null;
+            // The view belongs to the activity,
+            // so a reference to it must not outlive the activity
+        }
+
+        @Override
+        public boolean survivesConfigurationChanges()
+        {
+            return false;
+        }
+
+        @Override
+        public String describe()
+        {
+            return "Sky animation (" + (AnimationManager.skyView.isRunning() ? "running" : "stopped") + ")";
+        }
+
+    };
 
     /**
      * Initialises the animation properties
@@ -77,20 +128,54 @@ public class AnimationManager extends DisplayManager
     /**
      * Causes each card set for display to pop up
      * while playing the pop-up sound effect
-     * and placing a duration limit for cards to remain popped up.
+     * and placing a duration limit for cards to remain popped up
+     * (scaled by the cadence of stress mode, see the StressMode class).
      * After cards have popped up, ensures firstCardIsAboutToPopUp is false
      */
-    public static void cardsPopUp(WhackAWordActivity aWhackAWordActivity)
+    public static void cardsPopUp(WhackAWordActivity aWhackAWordActivity, RoundSnapshot aRoundSnapshot)
     {
+        AnimationManager.cardsPopUp(aWhackAWordActivity, aRoundSnapshot, StressMode.applyCadence(POP_UP_DURATION_LIMIT));
+    }
+
+    /**
+     * Implements the cardsPopUp method
+     * with a duration limit of popUpDurationLimit milliseconds,
+     * e.g. the time that remained for a round that has been restored
+     *
+     * The cards don't pop up straight away, but as soon as they are ready to
+     * (see the RoundSequencer class), i.e. once the cards of the previous round have hidden
+     * and the food items of this round have been displayed on them.
+     * If no cards have popped up yet, the food items are displayed straight away,
+     * otherwise they are displayed once the cards of the previous round have hidden
+     */
+    public static void cardsPopUp(WhackAWordActivity aWhackAWordActivity, RoundSnapshot aRoundSnapshot, int popUpDurationLimit)
+    {
+        RoundSequencer.awaitPopUp(aWhackAWordActivity, aRoundSnapshot, popUpDurationLimit);
+
         if (AnimationManager.firstCardIsAboutToPopUp)
         {
-            DisplayManager.displayFoodItemsOnCards(aWhackAWordActivity);
+            DisplayManager.displayFoodItemsOnCards(aWhackAWordActivity, aRoundSnapshot);
         }
 
-        for (FoodItem foodItem : Collections.mapOfFoodItemsToTheirFoodCards.keySet())
+    }
+
+    /**
+     * Causes each card of aRoundSnapshot to pop up straight away
+     * (with the pop-up animation shifted by the output latency that the AudioLatencyEstimator class estimates),
+     * playing the pop-up sound effect, arming the cards so that they can be tapped
+     * and placing a duration limit of popUpDurationLimit milliseconds for them to remain popped up.
+     * Called by the RoundSequencer class once the cards are ready to pop up
+     */
+    public static void popUpCardsOfRound(WhackAWordActivity aWhackAWordActivity, RoundSnapshot aRoundSnapshot, int popUpDurationLimit)
+    {
+        int outputLatency = AudioLatencyEstimator.getOutputLatency();
+
+        for (FoodCard foodCard : aRoundSnapshot.getFoodCards())
         {
-            AnimationManager.startPopUpAnimation(aWhackAWordActivity, foodItem);
+            AnimationManager.startPopUpAnimation(aWhackAWordActivity, foodCard, outputLatency);
         }
+        // The animation is shifted by the output latency of the audio route in use,
+        // so that it stays in step with the pop-up sound effect as it is heard
 
         TapManager.correctFoodCardWasJustTapped = false;
 
@@ -98,57 +183,117 @@ public class AnimationManager extends DisplayManager
 
         AnimationManager.numberOfPopUpTimes++;
 
+        long timeOfThisPopUp = SystemClock.uptimeMillis();
+
+        GameEventPipeline.publish(GameEvent.TYPE_CARDS_SHOWN, aRoundSnapshot.getCorrectFoodItem())
+                .setNumberOfCards(aRoundSnapshot.getFoodCards().size())
+                .setDuration(AnimationManager.timeOfLatestPopUp == 0 ? -1 : timeOfThisPopUp - AnimationManager.timeOfLatestPopUp);
+
+        AnimationManager.timeOfLatestPopUp = timeOfThisPopUp;
+        AnimationManager.popUpDurationLimitOfLatestPopUp = popUpDurationLimit;
+
         Collections.mapOfPopUpTimesToWhetherACardHasBeenTappedOnTime.put(AnimationManager.numberOfPopUpTimes, false);
         // The value of the map (false) is changed to true if a card is tapped on time
-        // (via the setClickListenerForFoodCard method in the TapManager class)
+        // (via the handleTap method in the TapManager class)
+
+        AnimationManager.limitPopUpDuration(aWhackAWordActivity, popUpDurationLimit);
+        TapManager.armFoodCards(aRoundSnapshot);
+        // The cards are only armed once they start popping up, so no tap can settle a round before its cards are shown
+    }
 
-        AnimationManager.limitPopUpDuration(aWhackAWordActivity);
+    /**
+     * Returns the time (in milliseconds) from the pop-up sound effect being played
+     * until audio that is started would be heard just as the cards finish popping up.
+     * Since the pop-up animation is shifted by the output latency of the audio route in use,
+     * and audio started now is heard that same latency later, this doesn't depend on the latency
+     */
+    public static int getTimeUntilAudioIsInStepWithCardsPoppingUp()
+    {
+        return POP_UP_ANIMATION_DELAY + POP_UP_ANIMATION_DURATION;
     }
 
     /**
-     * Causes each card on display to hide
+     * Causes each card of aRoundSnapshot (i.e. each card on display) to hide
      * while playing the hide cards sound effect,
-     * and clears their click listeners
+     * and disarms them so that they can no longer be tapped
      */
-    public static void hideCards(WhackAWordActivity aWhackAWordActivity)
+    public static void hideCards(WhackAWordActivity aWhackAWordActivity, RoundSnapshot aRoundSnapshot)
     {
-        CountDownLatch countDownLatch = new CountDownLatch(Collections.mapOfFoodItemsToTheirFoodCards.size());
+        CountDownLatch countDownLatch = new CountDownLatch(aRoundSnapshot.getFoodCards().size());
 
-        for (FoodItem foodItem : Collections.mapOfFoodItemsToTheirFoodCards.keySet())
+        for (FoodCard foodCard : aRoundSnapshot.getFoodCards())
         {
-            AnimationManager.startHideCardsAnimation(aWhackAWordActivity, foodItem, countDownLatch);
+            AnimationManager.startHideCardsAnimation(aWhackAWordActivity, foodCard, countDownLatch);
         }
 
         SoundEffectsManager.playHideCardsSoundEffect();
 
-        Collections.availableFoodCards = new ArrayList<>(Collections.foodCards);
-
-        TapManager.clearClickListeners();
+        TapManager.disarmFoodCards();
     }
 
     /**
      * Causes the sky to change colour every six seconds
-     * (as set out in background_sky_changing.xml
-     * which is set as the background of the sky_view View element
-     * in activity_whack_a_word.xml)
+     * (as set out in background_sky_changing.xml,
+     * which is read by the SkyView sky_view
+     * that the PlayfieldBuilder class builds),
+     * scaled by the current quality tier
      */
     public static void animateSky(WhackAWordActivity aWhackAWordActivity)
     {
-        View skyView = aWhackAWordActivity.findViewById(R.id.sky_view);
-        AnimationDrawable animationDrawable = (AnimationDrawable) skyView.getBackground();
+        AnimationManager.skyView = aWhackAWordActivity.getPlayfieldViews().getSkyView();
+        ResourceManager.register(AnimationManager.skyAnimation);
 
-        animationDrawable.setEnterFadeDuration(SKY_FADE_IN_DURATION);
-        animationDrawable.setExitFadeDuration(SKY_FADE_OUT_DURATION);
+        AnimationManager.applySkyQualityTier();
+    }
+
+    /**
+     * Sets the cadence of the sky for the current quality tier,
+     * which scales how long each sky lasts, whether its colours are interpolated into the next,
+     * and how often the sky is redrawn while they are.
+     * The sky continues from the colour that is currently shown
+     */
+    public static void applySkyQualityTier()
+    {
+        if (AnimationManager.skyView == null)
+        {
+            return;
+        }
+
+        AnimationManager.skyView.setCadence(QualityTierController.getSkyFrameDurationMultiplier(),
+                QualityTierController.skyCrossFades(), QualityTierController.getSkyFrameInterval());
+
+        AnimationManager.updateSkyAnimation();
+    }
+
+    /**
+     * Starts the animation of the sky if decorative animation is allowed
+     * and the activity isn't stopped,
+     * otherwise stops it on the colour it is showing
+     */
+    public static void updateSkyAnimation()
+    {
+        if (AnimationManager.skyView == null)
+        {
+            return;
+        }
+
+        if (QualityTierController.decorativeAnimationIsAllowed() && !ResourceManager.areResourcesPaused())
+        {
+            AnimationManager.skyView.start();
+        }
+        else
+        {
+            AnimationManager.skyView.stop();
+        }
 
-        animationDrawable.start();
     }
 
     /**
-     * Helper method that limits the cards' pop-up duration to POP_UP_DURATION_LIMIT milliseconds
+     * Helper method that limits the cards' pop-up duration to popUpDurationLimit milliseconds
      */
-    private static void limitPopUpDuration(WhackAWordActivity aWhackAWordActivity)
+    private static void limitPopUpDuration(WhackAWordActivity aWhackAWordActivity, int popUpDurationLimit)
     {
-        new Handler().postDelayed(() ->
+        ResourceManager.postDelayed(() ->
         {
             boolean aCardHasBeenTappedOnTime = Boolean.TRUE.equals(Collections.mapOfPopUpTimesToWhetherACardHasBeenTappedOnTime.get(AnimationManager.popUpBeingManaged));
             // Boolean.TRUE.equals() checks that what is in the brackets is equal to true,
@@ -156,7 +301,12 @@ public class AnimationManager extends DisplayManager
 
             if (!aCardHasBeenTappedOnTime)
             {
-                WhackAWordActivity.tryAgain(aWhackAWordActivity);
+                GameEventPipeline.publish(GameEvent.TYPE_TIMED_OUT, GameLogic.getRenderedRoundSnapshot().getCorrectFoodItem());
+                QualityTierController.checkForIdleness();
+                TapManager.disarmFoodCards();
+                GameLogic.onTimeout();
+                // The game logic thread selects the same food items to be displayed again,
+                // and the cards are hidden and pop up again once it has published the round
             }
 
             AnimationManager.popUpBeingManaged++;
@@ -169,21 +319,22 @@ public class AnimationManager extends DisplayManager
             // to be incremented,
             // ensuring that you are always managing the appropriate pop-up
 
-        }, POP_UP_DURATION_LIMIT);
+        }, popUpDurationLimit);
 
     }
 
     /**
      * Helper method that starts the pop-up animation
      * after having set its duration to POP_UP_ANIMATION_DURATION milliseconds
-     * and after a delay of POP_UP_ANIMATION_DELAY milliseconds.
+     * and after a delay of POP_UP_ANIMATION_DELAY milliseconds plus outputLatency milliseconds,
+     * i.e. the time it takes for the pop-up sound effect to be heard.
      * Sets firstCardIsAboutToPopUp to false upon the end of the animation
      */
-    private static void startPopUpAnimation(WhackAWordActivity aWhackAWordActivity, FoodItem foodItem)
+    private static void startPopUpAnimation(WhackAWordActivity aWhackAWordActivity, FoodCard foodCard, int outputLatency)
     {
         float upwardsTranslation = AnimationManager.getUpwardsTranslation(aWhackAWordActivity);
 
-        ObjectAnimator popUpAnimation = AnimationManager.createCardTranslation(aWhackAWordActivity, foodItem, upwardsTranslation, POP_UP_ANIMATION_DURATION, POP_UP_ANIMATION_DELAY);
+        ObjectAnimator popUpAnimation = AnimationManager.createCardTranslation(aWhackAWordActivity, foodCard, upwardsTranslation, POP_UP_ANIMATION_DURATION, POP_UP_ANIMATION_DELAY + outputLatency);
 
         popUpAnimation.addListener(new AnimatorListenerAdapter()
         {
@@ -191,9 +342,13 @@ public class AnimationManager extends DisplayManager
             public void onAnimationEnd(Animator animation)
             {
                 AnimationManager.firstCardIsAboutToPopUp = false;
+                AnimationManager.runningPopUpAnimations.remove(popUpAnimation);
             }
         });
 
+        AnimationManager.runningPopUpAnimations.add(popUpAnimation);
+
+        GameTrace.tracePopUpAnimation(popUpAnimation);
         popUpAnimation.start();
     }
 
@@ -205,14 +360,14 @@ public class AnimationManager extends DisplayManager
      * While the cards are hidden, displays food items on them,
      * using a CountDownLatch to ensure that this happens only after the last card has been hidden
      */
-    private static void startHideCardsAnimation(WhackAWordActivity aWhackAWordActivity, FoodItem foodItem, CountDownLatch countDownLatch)
+    private static void startHideCardsAnimation(WhackAWordActivity aWhackAWordActivity, FoodCard foodCard, CountDownLatch countDownLatch)
     {
         float amountTranslatedFromInitialPosition = 0;
         // 'Initial position' refers to the position of the card before runtime
 
         int startDelay = TapManager.correctFoodCardWasJustTapped ? HIDE_CARDS_ANIMATION_DELAY_WHEN_CORRECT_FOOD_CARD_IS_TAPPED : 0;
 
-        ObjectAnimator hideCardsAnimation = AnimationManager.createCardTranslation(aWhackAWordActivity, foodItem, amountTranslatedFromInitialPosition, HIDE_CARDS_ANIMATION_DURATION, startDelay);
+        ObjectAnimator hideCardsAnimation = AnimationManager.createCardTranslation(aWhackAWordActivity, foodCard, amountTranslatedFromInitialPosition, HIDE_CARDS_ANIMATION_DURATION, startDelay);
 
         hideCardsAnimation.addListener(new AnimatorListenerAdapter()
         {
@@ -223,7 +378,8 @@ public class AnimationManager extends DisplayManager
 
                 if (countDownLatch.getCount() == 0) // I.e. If there are no more cards to be hidden
                 {
-                    DisplayManager.displayFoodItemsOnCards(aWhackAWordActivity);
+                    DisplayManager.displayFoodItemsOnCards(aWhackAWordActivity, GameLogic.getRenderedRoundSnapshot());
+                    // By then the round that follows has been rendered, so its food items are displayed
                 }
 
             }
@@ -234,6 +390,7 @@ public class AnimationManager extends DisplayManager
 
         });
 
+        GameTrace.traceHideCardsAnimation(hideCardsAnimation);
         hideCardsAnimation.start();
     }
 
@@ -244,25 +401,63 @@ public class AnimationManager extends DisplayManager
      * Additional parameters control the duration of the animation
      * and the delay before it starts
      */
-    private static ObjectAnimator createCardTranslation(WhackAWordActivity aWhackAWordActivity, FoodItem foodItem, float finalPositionRelativeToInitialPosition, int duration, int startDelay)
+    private static ObjectAnimator createCardTranslation(WhackAWordActivity aWhackAWordActivity, FoodCard foodCard, float finalPositionRelativeToInitialPosition, int duration, int startDelay)
     {
-        FoodCard foodCard = Collections.mapOfFoodItemsToTheirFoodCards.get(foodItem);
-        FrameLayout foodCardFrameLayout = aWhackAWordActivity.findViewById(foodCard.getID());
+        FrameLayout foodCardFrameLayout = aWhackAWordActivity.getPlayfieldViews().getCardView(foodCard);
         ObjectAnimator cardTranslation = ObjectAnimator.ofFloat(foodCardFrameLayout, "translationY", finalPositionRelativeToInitialPosition);
 
         cardTranslation.setDuration(duration);
         cardTranslation.setStartDelay(startDelay);
+        ResourceManager.trackAnimator(cardTranslation);
 
         return cardTranslation;
     }
 
     /**
-     * Helper method that returns the amount
+     * Updates the translation of the cards to the upwards translation for the current screen size,
+     * after the playfield has been relaid out upon a configuration change
+     * (see the PlayfieldRelayout class).
+     * Pop-up animations that are running (or waiting for their delay) are retargeted,
+     * and cards that have already popped up by previousUpwardsTranslation are moved straight away,
+     * so that no card is left above or below where it would now pop up to.
+     * Cards that are hidden, or that are being hidden, are left alone,
+     * since they translate back to their initial position whatever the screen size
+     */
+    public static void updateUpwardsTranslation(WhackAWordActivity aWhackAWordActivity, float previousUpwardsTranslation)
+    {
+        float upwardsTranslation = AnimationManager.getUpwardsTranslation(aWhackAWordActivity);
+
+        if (upwardsTranslation == previousUpwardsTranslation)
+        {
+            return;
+        }
+
+        for (ObjectAnimator popUpAnimation : AnimationManager.runningPopUpAnimations)
+        {
+            popUpAnimation.setFloatValues(0, upwardsTranslation);
+            // A pop-up always starts from the initial (hidden) position
+        }
+
+        for (FoodCard foodCard : Collections.foodCards)
+        {
+            FrameLayout foodCardFrameLayout = aWhackAWordActivity.getPlayfieldViews().getCardView(foodCard);
+
+            if (foodCardFrameLayout.getTranslationY() == previousUpwardsTranslation)
+            {
+                foodCardFrameLayout.setTranslationY(upwardsTranslation);
+            }
+
+        }
+
+    }
+
+    /**
+     * Returns the amount
      * in density-independent pixels (dp)
      * that a card needs to translate upwards from its initial (hidden) position
      * in order for it to pop up
      */
-    private static float getUpwardsTranslation(Context aContext)
+    public static float getUpwardsTranslation(Context aContext)
     {
         float amountTranslatedFromInitialPositionInPixels, amountTranslatedFromInitialPositionInDP;
 
@@ -279,7 +474,7 @@ public class AnimationManager extends DisplayManager
         }
         // Determines the translation amount based on screen width,
         // since screens of width 1200dp and above have a different layout,
-        // as shown in app/src/main/res/layout-w1200dp/activity_whack_a_word.xml
+        // as described in the PlayfieldBuilder class
 
         amountTranslatedFromInitialPositionInDP = amountTranslatedFromInitialPositionInPixels * displayMetrics.density;
         // DP refers to density-independent pixels
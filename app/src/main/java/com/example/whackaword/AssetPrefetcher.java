@@ -0,0 +1,258 @@
+package com.example.whackaword;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.media.MediaPlayer;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The AssetPrefetcher class is responsible for warming the assets of the rounds
+ * that have been planned ahead by the RoundPlanner class, on the planner's thread,
+ * so that they are ready before the rounds begin:
+ *
+ * the images of every food item in a planned round are inflated,
+ * and the DisplayManager class creates each card's drawable from the inflated image's constant state
+ * rather than inflating the image's resource on the main thread.
+ * Raster images are left to the CardImageDecoder class, which decodes them at the size of their card,
+ * since inflating them here would decode them at their full resolution
+ *
+ * the audio of each planned round's correct food item is loaded into a prepared media player,
+ * which the AudioManager class takes instead of creating and preparing one on the main thread
+ *
+ * Nothing ever waits for the prefetcher: if an asset hasn't been prefetched by the time it is needed,
+ * it is loaded on the main thread as before.
+ * Each time rounds are planned, the assets that are no longer needed by any planned round
+ * are discarded (and their media players released)
+ *
+ * It contains the following class variables, which are shared between the planner's thread
+ * and the main thread, and are only accessed while holding lock:
+ *
+ * prefetchedImages, which maps the ID of each prefetched image to the constant state of its drawable
+ *
+ * preparedMediaPlayers, which maps the ID of each prefetched audio file to its prepared media player
+ *
+ * isReleased, which records whether the prefetcher has been released,
+ * so that a media player that is still being prepared when it is released is released too
+ */
+public class AssetPrefetcher
+{
+    private static final Object lock = new Object();
+    private static final Map<Integer, Drawable.ConstantState> prefetchedImages = new HashMap<>();
+    private static final Map<Integer, MediaPlayer> preparedMediaPlayers = new HashMap<>();
+    private static boolean isReleased;
+
+    /**
+     * Prefetches the assets of somePlannedRounds, discarding any others.
+     * Runs on the planner's thread
+     */
+    public static void prefetch(Context anApplicationContext, List<RoundPlan> somePlannedRounds)
+    {
+        Set<Integer> imageIDsNeeded = new HashSet<>();
+        Set<Integer> audioIDsNeeded = new HashSet<>();
+
+        for (RoundPlan plannedRound : somePlannedRounds)
+        {
+            for (FoodItem foodItem : plannedRound.getFoodItems())
+            {
+                imageIDsNeeded.add(foodItem.getImageID());
+            }
+
+            audioIDsNeeded.add(plannedRound.getCorrectFoodItem().getAudioID());
+        }
+
+        AssetPrefetcher.discardAssetsNotNeeded(imageIDsNeeded, audioIDsNeeded);
+
+        for (int imageID : imageIDsNeeded)
+        {
+            if (!AssetPrefetcher.hasPrefetchedImage(imageID) && !CardImageDecoder.isRasterImage(anApplicationContext.getResources(), imageID))
+            {
+                Drawable image = anApplicationContext.getDrawable(imageID);
+
+                if (image != null && image.getConstantState() != null)
+                {
+                    synchronized (AssetPrefetcher.lock)
+                    {
+                        AssetPrefetcher.prefetchedImages.put(imageID, image.getConstantState());
+                    }
+
+                }
+
+            }
+
+        }
+
+        for (int audioID : audioIDsNeeded)
+        {
+            if (!AssetPrefetcher.hasPreparedMediaPlayer(audioID))
+            {
+                MediaPlayer preparedMediaPlayer = MediaPlayer.create(anApplicationContext, audioID);
+                // Created on the planner's thread, which has no Looper,
+                // so the media player's events are delivered to the main thread
+
+                if (preparedMediaPlayer != null)
+                {
+                    AssetPrefetcher.storePreparedMediaPlayer(audioID, preparedMediaPlayer);
+                }
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Returns a new drawable of the image whose ID is imageID if it has been prefetched,
+     * otherwise returns null
+     */
+    public static Drawable getPrefetchedImage(Resources someResources, int imageID)
+    {
+        Drawable.ConstantState prefetchedImage;
+
+        synchronized (AssetPrefetcher.lock)
+        {
+            prefetchedImage = AssetPrefetcher.prefetchedImages.get(imageID);
+        }
+
+        return prefetchedImage == null ? null : prefetchedImage.newDrawable(someResources);
+    }
+
+    /**
+     * Removes and returns the prepared media player of the audio file whose ID is audioID
+     * if it has been prefetched, otherwise returns null.
+     * The caller becomes responsible for releasing the media player
+     */
+    public static MediaPlayer takePreparedMediaPlayer(int audioID)
+    {
+        synchronized (AssetPrefetcher.lock)
+        {
+            return AssetPrefetcher.preparedMediaPlayers.remove(audioID);
+        }
+
+    }
+
+    /**
+     * Allows assets to be prefetched again after the prefetcher has been released
+     */
+    public static void reset()
+    {
+        synchronized (AssetPrefetcher.lock)
+        {
+            AssetPrefetcher.isReleased = false;
+        }
+
+    }
+
+    /**
+     * Discards every prefetched asset and releases every prepared media player
+     */
+    public static void release()
+    {
+        synchronized (AssetPrefetcher.lock)
+        {
+            AssetPrefetcher.isReleased = true;
+            AssetPrefetcher.prefetchedImages.clear();
+
+            for (MediaPlayer preparedMediaPlayer : AssetPrefetcher.preparedMediaPlayers.values())
+            {
+                preparedMediaPlayer.release();
+            }
+
+            AssetPrefetcher.preparedMediaPlayers.clear();
+        }
+
+    }
+
+    /**
+     * Returns a description of the assets that have been prefetched
+     */
+    public static String describe()
+    {
+        synchronized (AssetPrefetcher.lock)
+        {
+            return AssetPrefetcher.prefetchedImages.size() + " images and "
+                    + AssetPrefetcher.preparedMediaPlayers.size() + " audio files prefetched";
+        }
+
+    }
+
+    /**
+     * Helper method that discards the prefetched images whose IDs are not in imageIDsNeeded,
+     * and releases the prepared media players whose audio IDs are not in audioIDsNeeded
+     */
+    private static void discardAssetsNotNeeded(Set<Integer> imageIDsNeeded, Set<Integer> audioIDsNeeded)
+    {
+        synchronized (AssetPrefetcher.lock)
+        {
+            AssetPrefetcher.prefetchedImages.keySet().retainAll(imageIDsNeeded);
+
+            Iterator<Map.Entry<Integer, MediaPlayer>> preparedMediaPlayerIterator = AssetPrefetcher.preparedMediaPlayers.entrySet().iterator();
+
+            while (preparedMediaPlayerIterator.hasNext())
+            {
+                Map.Entry<Integer, MediaPlayer> preparedMediaPlayer = preparedMediaPlayerIterator.next();
+
+                if (!audioIDsNeeded.contains(preparedMediaPlayer.getKey()))
+                {
+                    preparedMediaPlayer.getValue().release();
+                    preparedMediaPlayerIterator.remove();
+                }
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Helper method that returns true if the image whose ID is imageID has been prefetched,
+     * otherwise returns false
+     */
+    private static boolean hasPrefetchedImage(int imageID)
+    {
+        synchronized (AssetPrefetcher.lock)
+        {
+            return AssetPrefetcher.prefetchedImages.containsKey(imageID);
+        }
+
+    }
+
+    /**
+     * Helper method that returns true if a prepared media player of the audio file whose ID is audioID
+     * is waiting to be taken, otherwise returns false
+     */
+    private static boolean hasPreparedMediaPlayer(int audioID)
+    {
+        synchronized (AssetPrefetcher.lock)
+        {
+            return AssetPrefetcher.preparedMediaPlayers.containsKey(audioID);
+        }
+
+    }
+
+    /**
+     * Helper method that stores aPreparedMediaPlayer for the audio file whose ID is audioID,
+     * unless the prefetcher has been released in the meantime, in which case it is released
+     */
+    private static void storePreparedMediaPlayer(int audioID, MediaPlayer aPreparedMediaPlayer)
+    {
+        synchronized (AssetPrefetcher.lock)
+        {
+            if (AssetPrefetcher.isReleased)
+            {
+                aPreparedMediaPlayer.release();
+                return;
+            }
+
+            AssetPrefetcher.preparedMediaPlayers.put(audioID, aPreparedMediaPlayer);
+        }
+
+    }
+
+}
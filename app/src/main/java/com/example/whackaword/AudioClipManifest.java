@@ -0,0 +1,127 @@
+package com.example.whackaword;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.util.Log;
+import android.util.SparseIntArray;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * The AudioClipManifest class is responsible for telling the rest of the Whack-A-Word game
+ * how long each audio clip lasts, and how long it is silent for before its first sound (its onset offset),
+ * so that audio can be scheduled by when it is heard rather than by when it is started
+ *
+ * Both are measured at build time, when the clips are trimmed of their silence and normalised
+ * (see audio-preprocessing.gradle), and written to the MANIFEST_FILE_NAME asset,
+ * which is read once when the activity is first created
+ *
+ * If the manifest can't be read, or doesn't contain a clip
+ * (e.g. because ffmpeg wasn't available when the game was built, so the clips weren't preprocessed),
+ * the default that the caller passes in is used instead,
+ * which is the estimate that the game relied on before the clips were preprocessed
+ *
+ * It contains the following class variables:
+ *
+ * durationsOfClips and onsetOffsetsOfClips, which map the audio ID of each clip
+ * to its duration and onset offset (in milliseconds)
+ *
+ * manifestHasBeenLoaded, which records whether the manifest has been read,
+ * so that it is only read once however many times the activity is recreated
+ */
+public class AudioClipManifest
+{
+    private static final String TAG = "AudioClipManifest";
+    private static final String MANIFEST_FILE_NAME = "audio_manifest.json";
+
+    private static final SparseIntArray durationsOfClips = new SparseIntArray();
+    private static final SparseIntArray onsetOffsetsOfClips = new SparseIntArray();
+    private static boolean manifestHasBeenLoaded;
+
+    /**
+     * Reads the durations and onset offsets of the audio clips from the manifest,
+     * unless they have already been read
+     */
+    public static void load(Context aContext)
+    {
+        if (AudioClipManifest.manifestHasBeenLoaded)
+        {
+            return;
+        }
+
+        AudioClipManifest.manifestHasBeenLoaded = true;
+        Resources resources = aContext.getResources();
+
+        try (InputStream inputStream = aContext.getAssets().open(MANIFEST_FILE_NAME))
+        {
+            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int numberOfBytesRead;
+
+            while ((numberOfBytesRead = inputStream.read(buffer)) != -1)
+            {
+                byteArrayOutputStream.write(buffer, 0, numberOfBytesRead);
+            }
+
+            JSONObject clips = new JSONObject(byteArrayOutputStream.toString(StandardCharsets.UTF_8.name())).getJSONObject("clips");
+            Iterator<String> namesOfClips = clips.keys();
+
+            while (namesOfClips.hasNext())
+            {
+                String nameOfClip = namesOfClips.next();
+                int audioID = resources.getIdentifier(nameOfClip, "raw", aContext.getPackageName());
+
+                if (audioID == 0)
+                {
+                    continue;
+                    // The clip is no longer one of the raw resources of the game
+                }
+
+                JSONObject clip = clips.getJSONObject(nameOfClip);
+                AudioClipManifest.durationsOfClips.put(audioID, clip.getInt("durationMs"));
+                AudioClipManifest.onsetOffsetsOfClips.put(audioID, clip.getInt("onsetMs"));
+            }
+
+        }
+        catch (IOException | JSONException e)
+        {
+            Log.w(TAG, "Could not read " + MANIFEST_FILE_NAME + ", so the default timings of the audio clips are used", e);
+        }
+
+    }
+
+    /**
+     * Returns the duration (in milliseconds) of the audio clip with the ID anAudioID,
+     * or aDefaultDuration if the manifest doesn't contain it
+     */
+    public static int getDuration(int anAudioID, int aDefaultDuration)
+    {
+        return AudioClipManifest.durationsOfClips.get(anAudioID, aDefaultDuration);
+    }
+
+    /**
+     * Returns the onset offset (in milliseconds) of the audio clip with the ID anAudioID,
+     * i.e. how long after it is started its first sound is heard (output latency aside),
+     * or aDefaultOnsetOffset if the manifest doesn't contain it
+     */
+    public static int getOnsetOffset(int anAudioID, int aDefaultOnsetOffset)
+    {
+        return AudioClipManifest.onsetOffsetsOfClips.get(anAudioID, aDefaultOnsetOffset);
+    }
+
+    /**
+     * Returns the number of audio clips whose timings have been read from the manifest
+     */
+    public static int getNumberOfClips()
+    {
+        return AudioClipManifest.durationsOfClips.size();
+    }
+
+}
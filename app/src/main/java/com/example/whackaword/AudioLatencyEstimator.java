@@ -0,0 +1,300 @@
+package com.example.whackaword;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioDeviceCallback;
+import android.media.AudioDeviceInfo;
+import android.media.AudioFormat;
+import android.media.AudioTimestamp;
+import android.media.AudioTrack;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.util.SparseIntArray;
+
+import java.util.Arrays;
+
+/**
+ * The AudioLatencyEstimator class is responsible for estimating the output latency of the audio route in use
+ * (e.g. the speaker, wired headphones or Bluetooth headphones), i.e. how long after audio is started it is heard,
+ * so that the pop-up animation can be shifted by that amount
+ * and the sounds of a round are heard in step with what is shown (see the AnimationManager class)
+ *
+ * The latency is measured on a background thread by playing a short stream of silence through an AudioTrack
+ * and comparing the number of frames that have been written with the frame that the AudioTrack's timestamp
+ * reports as being presented at a given time.
+ * The median of several such samples is taken as a measurement,
+ * and each measurement is blended into the estimate of the route that the AudioTrack was routed to,
+ * keyed by the ID of its output device, so that each route keeps its own estimate
+ *
+ * The routes are watched via an AudioDeviceCallback,
+ * and the latency is measured again whenever an output device is added or removed
+ * (including straight away when the callback is first registered).
+ * Until the first measurement is complete, or on devices whose AudioTrack can't report timestamps,
+ * the latency is estimated as 0
+ *
+ * (android.media.AudioManager is written out in full
+ * since AudioManager refers to the game's own AudioManager class)
+ *
+ * It contains the following class variables:
+ *
+ * mapOfRoutesToTheirLatencies, which maps the ID of each output device that has been measured
+ * to its estimated latency in milliseconds, and is only accessed on the main thread
+ *
+ * currentRoute, which is the ID of the output device that the latest measurement was routed to
+ *
+ * measurementThread and measurementHandler, which are the background thread that the latency is measured on
+ *
+ * systemAudioManager, which is the system service that the AudioDeviceCallback is registered with
+ */
+public class AudioLatencyEstimator
+{
+    private static final int MEASUREMENT_DURATION = 600;
+    // Each measurement plays three fifths of a second (600 milliseconds) of silence
+    private static final int SETTLING_TIME = 200;
+    // Timestamps are only sampled after the first fifth of a second (200 milliseconds),
+    // once the AudioTrack has started presenting frames steadily
+    private static final int CHUNK_DURATION = 10;
+    // Silence is written in chunks of a hundredth of a second (10 milliseconds)
+    private static final int MAXIMUM_NUMBER_OF_SAMPLES = 16;
+
+    private static final int MAXIMUM_PLAUSIBLE_LATENCY = 1000;
+    // Samples of a second (1000 milliseconds) or more are discarded as glitches
+
+    private static final float WEIGHT_OF_NEW_MEASUREMENT = 0.5f;
+    // Each measurement counts for half of the estimate of its route
+
+    private static final int ROUTE_CHANGE_DEBOUNCE = 500;
+    // Routes are measured half a second (500 milliseconds) after the last change,
+    // since connecting headphones can add and remove several devices at once
+
+    private static final int UNKNOWN_ROUTE = 0;
+    private static final String TAG = "AudioLatencyEstimator";
+
+    private static final SparseIntArray mapOfRoutesToTheirLatencies = new SparseIntArray();
+    private static int currentRoute = UNKNOWN_ROUTE;
+    private static HandlerThread measurementThread;
+    private static Handler measurementHandler;
+    private static android.media.AudioManager systemAudioManager;
+    private static final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+
+    private static final Runnable latencyMeasurer = AudioLatencyEstimator::measureLatency;
+
+    private static final AudioDeviceCallback routeWatcher = new AudioDeviceCallback()
+    {
+        @Override
+        public void onAudioDevicesAdded(AudioDeviceInfo[] addedDevices)
+        {
+            AudioLatencyEstimator.scheduleMeasurement();
+        }
+
+        @Override
+        public void onAudioDevicesRemoved(AudioDeviceInfo[] removedDevices)
+        {
+            AudioLatencyEstimator.scheduleMeasurement();
+        }
+
+    };
+
+    private static final ManagedResource latencyEstimator = new ManagedResource()
+    {
+        @Override
+        public void pause()
+        {
+        }
+
+        @Override
+        public void resume()
+        {
+        }
+
+        @Override
+        public void release()
+        {
+            AudioLatencyEstimator.systemAudioManager.unregisterAudioDeviceCallback(AudioLatencyEstimator.routeWatcher);
+            AudioLatencyEstimator.systemAudioManager = null;
+            AudioLatencyEstimator.measurementHandler.removeCallbacks(AudioLatencyEstimator.latencyMeasurer);
+            AudioLatencyEstimator.measurementThread.quitSafely();
+            AudioLatencyEstimator.measurementThread = null;
+            AudioLatencyEstimator.measurementHandler = null;
+        }
+
+        @Override
+        public boolean survivesConfigurationChanges()
+        {
+            return true;
+            // The estimator only refers to the application context
+        }
+
+        @Override
+        public String describe()
+        {
+            return "Audio latency estimator (" + AudioLatencyEstimator.getOutputLatency() + "ms on route " + AudioLatencyEstimator.currentRoute
+                    + ", " + AudioLatencyEstimator.mapOfRoutesToTheirLatencies.size() + " routes measured)";
+        }
+
+    };
+
+    /**
+     * Starts watching the audio routes and measuring their output latency,
+     * unless the estimator has already been started (e.g. before a configuration change)
+     */
+    public static void start(Context aContext)
+    {
+        if (AudioLatencyEstimator.measurementThread != null)
+        {
+            return;
+        }
+
+        AudioLatencyEstimator.measurementThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        AudioLatencyEstimator.measurementThread.start();
+        AudioLatencyEstimator.measurementHandler = new Handler(AudioLatencyEstimator.measurementThread.getLooper());
+
+        AudioLatencyEstimator.systemAudioManager = (android.media.AudioManager) aContext.getApplicationContext().getSystemService(Context.AUDIO_SERVICE);
+        AudioLatencyEstimator.systemAudioManager.registerAudioDeviceCallback(AudioLatencyEstimator.routeWatcher, AudioLatencyEstimator.mainThreadHandler);
+        // The callback is called straight away with the devices that are already connected,
+        // which schedules the first measurement
+
+        ResourceManager.register(AudioLatencyEstimator.latencyEstimator);
+    }
+
+    /**
+     * Returns the estimated output latency (in milliseconds) of the audio route in use,
+     * or 0 if it hasn't been measured
+     */
+    public static int getOutputLatency()
+    {
+        return AudioLatencyEstimator.mapOfRoutesToTheirLatencies.get(AudioLatencyEstimator.currentRoute, 0);
+    }
+
+    /**
+     * Helper method that measures the latency on the background thread
+     * once the routes have stopped changing
+     */
+    private static void scheduleMeasurement()
+    {
+        if (AudioLatencyEstimator.measurementHandler == null)
+        {
+            return;
+        }
+
+        AudioLatencyEstimator.measurementHandler.removeCallbacks(AudioLatencyEstimator.latencyMeasurer);
+        AudioLatencyEstimator.measurementHandler.postDelayed(AudioLatencyEstimator.latencyMeasurer, ROUTE_CHANGE_DEBOUNCE);
+    }
+
+    /**
+     * Helper method, run on the background thread, that plays silence through an AudioTrack,
+     * samples its timestamps, and reports the median latency of the samples
+     * for the route that it was played through
+     */
+    private static void measureLatency()
+    {
+        int sampleRate = AudioTrack.getNativeOutputSampleRate(android.media.AudioManager.STREAM_MUSIC);
+        int framesPerChunk = sampleRate * CHUNK_DURATION / 1000;
+        int bufferSize = Math.max(AudioTrack.getMinBufferSize(sampleRate, AudioFormat.CHANNEL_OUT_MONO, AudioFormat.ENCODING_PCM_16BIT), framesPerChunk * 2);
+        // Each frame of 16-bit mono audio takes two bytes
+
+        AudioTrack audioTrack = null;
+
+        try
+        {
+            audioTrack = new AudioTrack.Builder()
+                    .setAudioAttributes(new AudioAttributes.Builder()
+                            .setUsage(AudioAttributes.USAGE_GAME)
+                            .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                            .build())
+                    .setAudioFormat(new AudioFormat.Builder()
+                            .setSampleRate(sampleRate)
+                            .setChannelMask(AudioFormat.CHANNEL_OUT_MONO)
+                            .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                            .build())
+                    .setBufferSizeInBytes(bufferSize)
+                    .setTransferMode(AudioTrack.MODE_STREAM)
+                    .build();
+
+            short[] silence = new short[framesPerChunk];
+            AudioTimestamp audioTimestamp = new AudioTimestamp();
+            long[] samples = new long[MAXIMUM_NUMBER_OF_SAMPLES];
+            int numberOfSamples = 0;
+            long framesWritten = 0;
+            long framesToWrite = (long) sampleRate * MEASUREMENT_DURATION / 1000;
+            long framesBeforeSampling = (long) sampleRate * SETTLING_TIME / 1000;
+
+            audioTrack.play();
+
+            while (framesWritten < framesToWrite && numberOfSamples < MAXIMUM_NUMBER_OF_SAMPLES)
+            {
+                int framesWrittenNow = audioTrack.write(silence, 0, silence.length);
+
+                if (framesWrittenNow <= 0)
+                {
+                    break;
+                }
+
+                framesWritten += framesWrittenNow;
+
+                if (framesWritten >= framesBeforeSampling && audioTrack.getTimestamp(audioTimestamp) && audioTimestamp.framePosition > 0)
+                {
+                    long timeUntilLastFrameWrittenIsPresented = (framesWritten - audioTimestamp.framePosition) * 1000000000L / sampleRate
+                            - (System.nanoTime() - audioTimestamp.nanoTime);
+                    // The frame reported by the timestamp was presented at its nanoTime,
+                    // and every frame written after it is presented one frame later than the one before it
+
+                    long latency = timeUntilLastFrameWrittenIsPresented / 1000000;
+
+                    if (latency >= 0 && latency < MAXIMUM_PLAUSIBLE_LATENCY)
+                    {
+                        samples[numberOfSamples++] = latency;
+                    }
+
+                }
+
+            }
+
+            AudioDeviceInfo routedDevice = audioTrack.getRoutedDevice();
+            int route = routedDevice == null ? UNKNOWN_ROUTE : routedDevice.getId();
+
+            if (numberOfSamples == 0)
+            {
+                return;
+                // The AudioTrack can't report timestamps on this route
+            }
+
+            Arrays.sort(samples, 0, numberOfSamples);
+            int measuredLatency = (int) samples[numberOfSamples / 2];
+
+            AudioLatencyEstimator.mainThreadHandler.post(() -> AudioLatencyEstimator.updateEstimate(route, measuredLatency));
+        }
+        catch (RuntimeException e)
+        {
+            Log.w(TAG, "Could not measure the audio output latency", e);
+            // E.g. if no AudioTrack can be created while another app is using the audio hardware
+        }
+        finally
+        {
+            if (audioTrack != null)
+            {
+                audioTrack.release();
+            }
+
+        }
+
+    }
+
+    /**
+     * Helper method, run on the main thread, that blends aMeasuredLatency (in milliseconds)
+     * into the estimate for aRoute, and makes aRoute the route in use
+     */
+    private static void updateEstimate(int aRoute, int aMeasuredLatency)
+    {
+        int previousEstimate = AudioLatencyEstimator.mapOfRoutesToTheirLatencies.get(aRoute, -1);
+        int estimate = previousEstimate == -1 ? aMeasuredLatency
+                : Math.round(previousEstimate + WEIGHT_OF_NEW_MEASUREMENT * (aMeasuredLatency - previousEstimate));
+
+        AudioLatencyEstimator.mapOfRoutesToTheirLatencies.put(aRoute, estimate);
+        AudioLatencyEstimator.currentRoute = aRoute;
+    }
+
+}
@@ -1,14 +1,18 @@
 package com.example.whackaword;
 
+import android.content.ContentResolver;
 import android.content.Context;
 import android.media.MediaPlayer;
-import android.os.Handler;
+import android.net.Uri;
+import android.os.SystemClock;
+
+import java.io.IOException;
 
 /**
  * The AudioManager class is responsible for managing audio playback in the Whack-A-Word game
  *
  * It contains a constant class variable for the background music volume,
- * as well as two other class variables:
+ * as well as four other class variables:
  *
  * mediaPlayerForSequentialAudio, which maintains a reference to
  * the currently playing MediaPlayer that deals with
@@ -17,22 +21,199 @@ import android.os.Handler;
  * mediaPlayerForBackgroundMusic, which maintains a reference to
  * the currently playing MediaPlayer that deals with
  * the playback of background music
+ *
+ * sequentialAudioWasPaused, which records whether
+ * mediaPlayerForSequentialAudio was paused when the activity was stopped,
+ * so that it is only resumed if it was playing
+ *
+ * sequentialAudioIsPrepared, sequentialAudioMayStart and sequentialAudioHasStarted,
+ * which record whether the audio file being played in sequence has been prepared,
+ * whether the stage of the round that it belongs to has been reached (see the RoundSequencer class),
+ * and whether it has started; it starts as soon as it has been prepared and may start.
+ * audioIDOfSequentialAudio is the ID of that audio file
+ *
+ * timeSequentialAudioWasDequeued, which records when the audio file being played in sequence
+ * was taken off the audio queue, so that its whole lifecycle can be timed
+ *
+ * Each audio file that is played in sequence is also traced through its lifecycle
+ * (see the GameTrace class): queued, then created, then waiting to start, then playing until completion.
+ * Audio files are numbered in the order that they are queued
+ * (numberOfClipsQueued and numberOfClipsDequeued, which match since the queue is first-in, first-out),
+ * and each number is the cookie of the async sections of that audio file.
+ * traceSectionOfCurrentClip is the async section that the audio file being played is in, if any
+ *
+ * Both media players are managed resources (backgroundMusic and sequentialAudio),
+ * paused when the activity is stopped and released when it is destroyed.
+ * The background music survives configuration changes,
+ * whereas the sequential audio is released since its completion listener refers to the activity
  */
 public class AudioManager
 {
     private static final float BACKGROUND_MUSIC_VOLUME = 0.3f;
+
+    private static final int MINIMUM_TIME_BEFORE_FEEDBACK_AUDIO = 800;
+    // Audio other than that of a food item (i.e. the 'well done' audio) is heard
+    // at least four fifths of a second (800 milliseconds) after it is queued,
+    // so that it follows the tick of the correct tap that triggered it.
+    // It is started early by its onset offset (see the AudioClipManifest class)
     private static MediaPlayer mediaPlayerForSequentialAudio;
     private static MediaPlayer mediaPlayerForBackgroundMusic;
+    private static boolean sequentialAudioWasPaused;
+    private static boolean sequentialAudioIsPrepared;
+    private static boolean sequentialAudioMayStart;
+    private static boolean sequentialAudioHasStarted;
+    private static int audioIDOfSequentialAudio;
+    private static long timeSequentialAudioWasDequeued;
+    private static int numberOfClipsQueued;
+    private static int numberOfClipsDequeued;
+    private static String traceSectionOfCurrentClip;
+
+    private static final ManagedResource backgroundMusic = new ManagedResource()
+    {
+        @Override
+        public void pause()
+        {
+            AudioManager.mediaPlayerForBackgroundMusic.pause();
+        }
+
+        @Override
+        public void resume()
+        {
+            AudioManager.mediaPlayerForBackgroundMusic.start();
+        }
+
+        @Override
+        public void release()
+        {
+            AudioManager.mediaPlayerForBackgroundMusic.release();
+            AudioManager.mediaPlayerForBackgroundMusic = null;
+        }
+
+        @Override
+        public boolean survivesConfigurationChanges()
+        {
+            return true;
+        }
+
+        @Override
+        public String describe()
+        {
+            return "Background music media player";
+        }
+
+    };
+
+    private static final ManagedResource sequentialAudio = new ManagedResource()
+    {
+        @Override
+        public void pause()
+        {
+            MediaPlayer mediaPlayer = AudioManager.mediaPlayerForSequentialAudio;
+            AudioManager.sequentialAudioWasPaused = mediaPlayer != null && AudioManager.sequentialAudioHasStarted && mediaPlayer.isPlaying();
+
+            if (AudioManager.sequentialAudioWasPaused)
+            {
+                mediaPlayer.pause();
+            }
+
+        }
+
+        @Override
+        public void resume()
+        {
+            boolean sequentialAudioWasPaused = AudioManager.sequentialAudioWasPaused;
+            AudioManager.sequentialAudioWasPaused = false;
+
+            if (sequentialAudioWasPaused && AudioManager.mediaPlayerForSequentialAudio != null)
+            {
+                if (AudioManager.sequentialAudioHasStarted)
+                {
+                    AudioManager.mediaPlayerForSequentialAudio.start();
+                }
+                else
+                {
+                    AudioManager.startSequentialAudioIfReady();
+                    // The audio became ready to start while the activity was stopped
+                }
+
+            }
+
+        }
+
+        @Override
+        public void release()
+        {
+            if (AudioManager.mediaPlayerForSequentialAudio != null)
+            {
+                AudioManager.mediaPlayerForSequentialAudio.release();
+                AudioManager.mediaPlayerForSequentialAudio = null;
+            }
+
+            AudioManager.sequentialAudioWasPaused = false;
+            AudioManager.sequentialAudioIsPrepared = false;
+            AudioManager.sequentialAudioMayStart = false;
+            AudioManager.sequentialAudioHasStarted = false;
+            AudioManager.endTraceSectionOfCurrentClip();
+
+            while (AudioManager.numberOfClipsDequeued < AudioManager.numberOfClipsQueued)
+            {
+                AudioManager.numberOfClipsDequeued++;
+                GameTrace.endAsyncSection(GameTrace.ASYNC_SECTION_AUDIO_CLIP_QUEUED, AudioManager.numberOfClipsDequeued);
+            }
+
+            Collections.audioQueue.clear();
+            MetricsRegistry.setGauge(MetricsRegistry.GAUGE_AUDIO_QUEUE_DEPTH, 0);
+        }
+
+        @Override
+        public boolean survivesConfigurationChanges()
+        {
+            return false;
+        }
+
+        @Override
+        public String describe()
+        {
+            return "Sequential audio media player (" + (AudioManager.mediaPlayerForSequentialAudio == null ? "idle" : "active") + ", " + Collections.audioQueue.size() + " queued)";
+        }
+
+    };
+
+    /**
+     * Plays background music from startPosition milliseconds.
+     * If the background music is still resident from before the activity was recreated,
+     * continues playing it from where it is instead of creating a second media player
+     */
+    public static void playBackgroundMusic(Context aContext, int startPosition)
+    {
+        if (AudioManager.mediaPlayerForBackgroundMusic == null)
+        {
+            AudioManager.mediaPlayerForBackgroundMusic = MediaPlayer.create(aContext.getApplicationContext(), R.raw.background_music);
+            mediaPlayerForBackgroundMusic.setLooping(true);
+            mediaPlayerForBackgroundMusic.setVolume(BACKGROUND_MUSIC_VOLUME,BACKGROUND_MUSIC_VOLUME);
+            mediaPlayerForBackgroundMusic.seekTo(startPosition);
+            ResourceManager.register(AudioManager.backgroundMusic);
+        }
+
+        if (!AudioManager.mediaPlayerForBackgroundMusic.isPlaying())
+        {
+            AudioManager.mediaPlayerForBackgroundMusic.start();
+        }
+
+    }
 
     /**
-     * Plays background music
+     * Returns the playback position of the background music in milliseconds,
+     * or 0 if there is no background music
      */
-    public static void playBackgroundMusic(Context aContext)
+    public static int getBackgroundMusicPosition()
     {
-        AudioManager.mediaPlayerForBackgroundMusic = MediaPlayer.create(aContext, R.raw.background_music);
-        mediaPlayerForBackgroundMusic.setLooping(true);
-        mediaPlayerForBackgroundMusic.setVolume(BACKGROUND_MUSIC_VOLUME,BACKGROUND_MUSIC_VOLUME);
-        mediaPlayerForBackgroundMusic.start();
+        if (AudioManager.mediaPlayerForBackgroundMusic == null)
+        {
+            return 0;
+        }
+
+        return AudioManager.mediaPlayerForBackgroundMusic.getCurrentPosition();
     }
 
     /**
@@ -44,6 +225,10 @@ public class AudioManager
     public static void playAudioSequentially(WhackAWordActivity aWhackAWordActivity, int audioID, AudioCompletionListener audioCompletionListener)
     {
         Collections.audioQueue.add(audioID);
+        AudioManager.numberOfClipsQueued++;
+        GameTrace.beginAsyncSection(GameTrace.ASYNC_SECTION_AUDIO_CLIP_QUEUED, AudioManager.numberOfClipsQueued);
+        MetricsRegistry.setGauge(MetricsRegistry.GAUGE_AUDIO_QUEUE_DEPTH, Collections.audioQueue.size());
+        ResourceManager.register(AudioManager.sequentialAudio);
         AudioManager.implementSequentialPlayback(aWhackAWordActivity, audioCompletionListener);
     }
 
@@ -80,15 +265,51 @@ public class AudioManager
      */
     private static void implementSequentialPlayback(WhackAWordActivity aWhackAWordActivity, AudioCompletionListener audioCompletionListener)
     {
-        if (AudioManager.mediaPlayerForSequentialAudio != null && AudioManager.mediaPlayerForSequentialAudio.isPlaying())
+        if (AudioManager.mediaPlayerForSequentialAudio != null)
         {
             return;
         }
+        // An audio file is being prepared, waiting to start or playing
 
         if (!Collections.audioQueue.isEmpty())
         {
             int audioID = Collections.audioQueue.poll();
-            AudioManager.mediaPlayerForSequentialAudio = MediaPlayer.create(aWhackAWordActivity, audioID);
+            MetricsRegistry.setGauge(MetricsRegistry.GAUGE_AUDIO_QUEUE_DEPTH, Collections.audioQueue.size());
+            AudioManager.timeSequentialAudioWasDequeued = SystemClock.uptimeMillis();
+            AudioManager.numberOfClipsDequeued++;
+            GameTrace.endAsyncSection(GameTrace.ASYNC_SECTION_AUDIO_CLIP_QUEUED, AudioManager.numberOfClipsDequeued);
+
+            AudioManager.audioIDOfSequentialAudio = audioID;
+            AudioManager.sequentialAudioMayStart = false;
+            AudioManager.sequentialAudioHasStarted = false;
+            AudioManager.mediaPlayerForSequentialAudio = AssetPrefetcher.takePreparedMediaPlayer(audioID);
+            // The audio of a planned round's correct food item is prepared ahead of time by the AssetPrefetcher class
+
+            if (AudioManager.mediaPlayerForSequentialAudio != null)
+            {
+                AudioManager.sequentialAudioIsPrepared = true;
+                MetricsRegistry.increment(MetricsRegistry.COUNTER_AUDIO_PREFETCH_HITS);
+            }
+            else
+            {
+                AudioManager.sequentialAudioIsPrepared = false;
+
+                GameTrace.beginSection(GameTrace.SECTION_CREATE_AUDIO_CLIP);
+                AudioManager.mediaPlayerForSequentialAudio = AudioManager.createMediaPlayerAsynchronously(aWhackAWordActivity, audioID);
+                GameTrace.endSection();
+
+                if (GameLogic.getRenderedRoundSnapshot() != null && GameLogic.getRenderedRoundSnapshot().hasNewFoodItems()
+                        && Collections.foodItemAudioIDs.contains(audioID))
+                {
+                    // Only the first playback of a round's correct food item could have been prefetched
+
+                    MetricsRegistry.increment(MetricsRegistry.COUNTER_AUDIO_PREFETCH_MISSES);
+                }
+
+            }
+
+            AudioManager.traceSectionOfCurrentClip = GameTrace.ASYNC_SECTION_AUDIO_CLIP_WAITING;
+            GameTrace.beginAsyncSection(GameTrace.ASYNC_SECTION_AUDIO_CLIP_WAITING, AudioManager.numberOfClipsDequeued);
 
             AudioManager.mediaPlayerForSequentialAudio.setOnCompletionListener(mp ->
             {
@@ -98,6 +319,9 @@ public class AudioManager
                 AudioManager.mediaPlayerForSequentialAudio = null;
                 // Removes the reference to the MediaPlayer
 
+                MetricsRegistry.recordTime(MetricsRegistry.TIMER_AUDIO_CLIP, SystemClock.uptimeMillis() - AudioManager.timeSequentialAudioWasDequeued);
+                AudioManager.endTraceSectionOfCurrentClip();
+
                 AudioManager.implementSequentialPlayback(aWhackAWordActivity, audioCompletionListener);
 
                 if (audioCompletionListener != null)
@@ -113,33 +337,110 @@ public class AudioManager
     }
 
     /**
-     * Helper method that starts playing an audio file
-     * using mediaPlayerForSequentialAudio.
-     * Creates a Runnable for audio playback
-     * and schedules it with a delay if the first card is about to pop up.
-     * If the audio ID is that of a food item,
-     * adjusts the background music during playback
+     * Helper method that creates a media player for the audio file with the ID audioID,
+     * which is prepared asynchronously rather than on the main thread,
+     * and which may start once it has been prepared
      */
-    private static void startSequentialPlayback(int audioID)
+    private static MediaPlayer createMediaPlayerAsynchronously(Context aContext, int audioID)
     {
-        Runnable audioPlaybackRunnable = () ->
+        MediaPlayer mediaPlayer = new MediaPlayer();
+
+        try
         {
-            AudioManager.mediaPlayerForSequentialAudio.start();
+            mediaPlayer.setDataSource(aContext, Uri.parse(ContentResolver.SCHEME_ANDROID_RESOURCE + "://" + aContext.getPackageName() + "/" + audioID));
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Could not open the audio file " + audioID, e);
+            // Audio files are packaged with the game, so this can only happen if the package is corrupt
+        }
 
-            if (Collections.foodItemAudioIDs.contains(audioID))
+        mediaPlayer.setOnPreparedListener(mp ->
+        {
+            if (mp != AudioManager.mediaPlayerForSequentialAudio)
             {
-                AudioManager.adjustBackgroundMusicVolume();
+                return;
+                // The media player has been released in the meantime
+            }
+
+            AudioManager.sequentialAudioIsPrepared = true;
+            AudioManager.startSequentialAudioIfReady();
+        });
+
+        mediaPlayer.prepareAsync();
+
+        return mediaPlayer;
+    }
+
+    /**
+     * Helper method that allows the audio file with the ID audioID,
+     * which is being played in sequence, to start:
+     * the audio of a food item starts once the cards of its round have finished popping up
+     * (see the RoundSequencer class), whereas any other audio file
+     * is heard MINIMUM_TIME_BEFORE_FEEDBACK_AUDIO milliseconds after it was queued.
+     * Either way, it only starts once its media player has been prepared
+     */
+    private static void startSequentialPlayback(int audioID)
+    {
+        MediaPlayer mediaPlayer = AudioManager.mediaPlayerForSequentialAudio;
+
+        Runnable allowSequentialAudioToStart = () ->
+        {
+            if (AudioManager.mediaPlayerForSequentialAudio == mediaPlayer)
+            {
+                AudioManager.sequentialAudioMayStart = true;
+                AudioManager.startSequentialAudioIfReady();
             }
-            // Lowers the volume of the background music during audio playback of a correct food item
 
         };
 
-        int audioDelay = AnimationManager.firstCardIsAboutToPopUp ? 2000 : 800;
-        // The delay before playing the audio of the first correct food item
-        // is two seconds (2000 milliseconds),
-        // otherwise it is four fifths of a second (800 milliseconds)
+        if (Collections.foodItemAudioIDs.contains(audioID))
+        {
+            RoundSequencer.runWhenCardsHavePoppedUp(allowSequentialAudioToStart);
+        }
+        else
+        {
+            ResourceManager.postDelayed(allowSequentialAudioToStart,
+                    Math.max(0, MINIMUM_TIME_BEFORE_FEEDBACK_AUDIO - AudioClipManifest.getOnsetOffset(audioID, 0)));
+        }
+
+    }
+
+    /**
+     * Helper method that starts mediaPlayerForSequentialAudio
+     * if it has been prepared and may start, unless it has already started.
+     * If the activity is stopped, it is started when the activity is started again instead.
+     * If the audio file is that of a food item,
+     * adjusts the background music during playback
+     */
+    private static void startSequentialAudioIfReady()
+    {
+        if (AudioManager.mediaPlayerForSequentialAudio == null || !AudioManager.sequentialAudioIsPrepared
+                || !AudioManager.sequentialAudioMayStart || AudioManager.sequentialAudioHasStarted)
+        {
+            return;
+        }
+
+        if (ResourceManager.areResourcesPaused())
+        {
+            AudioManager.sequentialAudioWasPaused = true;
+            return;
+        }
+
+        AudioManager.mediaPlayerForSequentialAudio.start();
+        AudioManager.sequentialAudioHasStarted = true;
+        MetricsRegistry.increment(MetricsRegistry.COUNTER_AUDIO_CLIPS_PLAYED);
+
+        AudioManager.endTraceSectionOfCurrentClip();
+        AudioManager.traceSectionOfCurrentClip = GameTrace.ASYNC_SECTION_AUDIO_CLIP_PLAYING;
+        GameTrace.beginAsyncSection(GameTrace.ASYNC_SECTION_AUDIO_CLIP_PLAYING, AudioManager.numberOfClipsDequeued);
+
+        if (Collections.foodItemAudioIDs.contains(AudioManager.audioIDOfSequentialAudio))
+        {
+            AudioManager.adjustBackgroundMusicVolume();
+        }
+        // Lowers the volume of the background music during audio playback of a correct food item
 
-        new Handler().postDelayed(audioPlaybackRunnable, audioDelay);
     }
 
     /**
@@ -154,8 +455,35 @@ public class AudioManager
         int durationOfVolumeDecrease = 500;
         int delayForVolumeIncrease = delayForVolumeDecrease + durationOfVolumeDecrease;
 
-        new Handler().postDelayed(() -> AudioManager.mediaPlayerForBackgroundMusic.setVolume(lowVolumeLevel, lowVolumeLevel), delayForVolumeDecrease);
-        new Handler().postDelayed(() -> AudioManager.mediaPlayerForBackgroundMusic.setVolume(BACKGROUND_MUSIC_VOLUME, BACKGROUND_MUSIC_VOLUME), delayForVolumeIncrease);
+        ResourceManager.postDelayed(() -> AudioManager.setBackgroundMusicVolume(lowVolumeLevel), delayForVolumeDecrease);
+        ResourceManager.postDelayed(() -> AudioManager.setBackgroundMusicVolume(BACKGROUND_MUSIC_VOLUME), delayForVolumeIncrease);
+    }
+
+    /**
+     * Helper method that ends the async section that the audio file being played in sequence is in,
+     * if any
+     */
+    private static void endTraceSectionOfCurrentClip()
+    {
+        if (AudioManager.traceSectionOfCurrentClip != null)
+        {
+            GameTrace.endAsyncSection(AudioManager.traceSectionOfCurrentClip, AudioManager.numberOfClipsDequeued);
+            AudioManager.traceSectionOfCurrentClip = null;
+        }
+
+    }
+
+    /**
+     * Helper method that sets the volume of the background music,
+     * unless it has been released
+     */
+    private static void setBackgroundMusicVolume(float volume)
+    {
+        if (AudioManager.mediaPlayerForBackgroundMusic != null)
+        {
+            AudioManager.mediaPlayerForBackgroundMusic.setVolume(volume, volume);
+        }
+
     }
 
 }
\ No newline at end of file
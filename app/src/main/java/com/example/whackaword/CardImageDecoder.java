@@ -0,0 +1,466 @@
+package com.example.whackaword;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.util.LongSparseArray;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.util.TypedValue;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import java.util.ArrayDeque;
+
+/**
+ * The CardImageDecoder class is responsible for decoding raster images of food items
+ * (e.g. the JPEG or WebP photographs of a photo vocabulary pack) for the cards that display them,
+ * on a background thread rather than on the main thread, and at the size of the card
+ * rather than at the full resolution of the image
+ *
+ * Each image is first decoded with inSampleSize, which halves the image as many times as it can
+ * while keeping it at least as large as the card, and then scaled down to fit within the card exactly
+ * (by setting inDensity and inTargetDensity), all in a single decode.
+ * The decoded bitmap is then given to the card on the main thread
+ *
+ * Bitmaps are reused rather than allocated for every round:
+ * when a card stops displaying a decoded bitmap, the bitmap is returned to a pool,
+ * which keeps its bitmaps in buckets by their width and height,
+ * and the next image decoded at that size is decoded into a bitmap from its bucket (via inBitmap).
+ * The pool holds at most MAXIMUM_POOL_SIZE bytes, beyond which the bitmaps of the fullest bucket are recycled,
+ * so the memory of a photo deck is bounded by the bitmaps on the cards and the pool,
+ * and no bitmaps are allocated once every card size has been seen
+ *
+ * Vector drawables (i.e. the images of the default vocabulary) are not decoded by this class,
+ * since they are drawn at any size without being decoded, and are still set from their resources
+ *
+ * It contains the following class variables:
+ *
+ * decoderThread and decoderHandler, which are the background thread that images are decoded on,
+ * started when the first raster image is decoded.
+ * Each decode remembers the thread that it was started on,
+ * so that a decode started before the decoder was released is dropped rather than bound
+ * (and counted against the decodes started since)
+ *
+ * decodingOptions, which is reused for every decode on the background thread that it was created for
+ *
+ * bitmapPool and poolSize, which are the buckets of reusable bitmaps (keyed by their width and height)
+ * and the number of bytes that they hold.
+ * These are shared between the two threads, and only accessed while holding lock
+ *
+ * bitmapsOnCards, which maps the ID of each card's image view to the decoded bitmap that it displays (if any),
+ * and is only accessed on the main thread
+ *
+ * numberOfDecodesInProgress and runnableAwaitingDecodes, which are the number of images
+ * that have been requested but not yet given to their cards, and what is waiting for them to be
+ *
+ * imagesThatAreRaster, which maps the ID of each image that has been displayed
+ * to whether it is a raster image, so that its resource is only looked up once.
+ * It is only accessed on the main thread, and is kept when the decoder is released,
+ * since the IDs of the images don't change while the app is running
+ */
+public class CardImageDecoder
+{
+    private static final int MAXIMUM_POOL_SIZE = 8 * 1024 * 1024;
+    // The pool holds at most eight mebibytes of bitmaps, i.e. a few rounds' worth of cards
+
+    private static final int MAXIMUM_BITMAPS_PER_BUCKET = 9;
+    // A bucket never needs more bitmaps than there are cards on display
+
+    private static final String TAG = "CardImageDecoder";
+
+    private static final Object lock = new Object();
+    private static HandlerThread decoderThread;
+    private static Handler decoderHandler;
+    private static final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+    private static BitmapFactory.Options decodingOptions;
+    private static final LongSparseArray<ArrayDeque<Bitmap>> bitmapPool = new LongSparseArray<>();
+    private static long poolSize;
+    private static final SparseArray<Bitmap> bitmapsOnCards = new SparseArray<>();
+    private static int numberOfDecodesInProgress;
+    private static Runnable runnableAwaitingDecodes;
+    private static final SparseBooleanArray imagesThatAreRaster = new SparseBooleanArray();
+
+    private static final ManagedResource cardImageDecoder = new ManagedResource()
+    {
+        @Override
+        public void pause()
+        {
+        }
+
+        @Override
+        public void resume()
+        {
+        }
+
+        @Override
+        public void release()
+        {
+            CardImageDecoder.decoderThread.quitSafely();
+            CardImageDecoder.decoderThread = null;
+            CardImageDecoder.decoderHandler = null;
+            CardImageDecoder.decodingOptions = null;
+            CardImageDecoder.bitmapsOnCards.clear();
+            CardImageDecoder.numberOfDecodesInProgress = 0;
+            CardImageDecoder.runnableAwaitingDecodes = null;
+            // The bitmaps on the cards go with the views of the activity
+
+            synchronized (CardImageDecoder.lock)
+            {
+                for (int i = 0; i < CardImageDecoder.bitmapPool.size(); i++)
+                {
+                    for (Bitmap pooledBitmap : CardImageDecoder.bitmapPool.valueAt(i))
+                    {
+                        pooledBitmap.recycle();
+                    }
+
+                }
+
+                CardImageDecoder.bitmapPool.clear();
+                CardImageDecoder.poolSize = 0;
+            }
+
+        }
+
+        @Override
+        public boolean survivesConfigurationChanges()
+        {
+            return false;
+            // The bitmaps on the cards belong to the views of the activity
+        }
+
+        @Override
+        public String describe()
+        {
+            synchronized (CardImageDecoder.lock)
+            {
+                return "Card image decoder (" + CardImageDecoder.bitmapsOnCards.size() + " bitmaps on cards, "
+                        + CardImageDecoder.poolSize / 1024 + "KiB pooled in " + CardImageDecoder.bitmapPool.size() + " buckets, "
+                        + CardImageDecoder.numberOfDecodesInProgress + " decodes in progress)";
+            }
+
+        }
+
+    };
+
+    /**
+     * Returns true if the image whose ID is imageID is a raster image (e.g. a JPEG, PNG or WebP file),
+     * or false if it is a vector drawable (or any other drawable defined in XML)
+     */
+    public static boolean isRasterImage(Resources someResources, int imageID)
+    {
+        int index = CardImageDecoder.imagesThatAreRaster.indexOfKey(imageID);
+
+        if (index >= 0)
+        {
+            return CardImageDecoder.imagesThatAreRaster.valueAt(index);
+        }
+
+        TypedValue typedValue = new TypedValue();
+        someResources.getValue(imageID, typedValue, true);
+        boolean imageIsRaster = typedValue.string == null || !typedValue.string.toString().endsWith(".xml");
+        CardImageDecoder.imagesThatAreRaster.put(imageID, imageIsRaster);
+
+        return imageIsRaster;
+    }
+
+    /**
+     * Decodes the raster image whose ID is imageID on the background thread,
+     * at the size of aCardImageView, and then makes aCardImageView display it,
+     * unless aCardImageView has been given another image in the meantime
+     * (which is recognised by the tag of aCardImageView, i.e. the ID of the image that it should display)
+     */
+    public static void decodeOntoCard(ImageView aCardImageView, int imageID)
+    {
+        CardImageDecoder.startIfNeeded();
+
+        Resources resources = aCardImageView.getResources();
+        int targetWidth = CardImageDecoder.getTargetDimension(aCardImageView.getWidth() - aCardImageView.getPaddingLeft() - aCardImageView.getPaddingRight(),
+                aCardImageView.getLayoutParams() == null ? 0 : aCardImageView.getLayoutParams().width, resources.getDisplayMetrics().widthPixels);
+        int targetHeight = CardImageDecoder.getTargetDimension(aCardImageView.getHeight() - aCardImageView.getPaddingTop() - aCardImageView.getPaddingBottom(),
+                aCardImageView.getLayoutParams() == null ? 0 : aCardImageView.getLayoutParams().height, resources.getDisplayMetrics().heightPixels);
+        // A card that hasn't been laid out yet is sized from its layout parameters,
+        // or else limited to a third of the screen (e.g. for an image view whose width matches its card)
+
+        HandlerThread decodingThread = CardImageDecoder.decoderThread;
+        BitmapFactory.Options options = CardImageDecoder.decodingOptions;
+        CardImageDecoder.numberOfDecodesInProgress++;
+
+        CardImageDecoder.decoderHandler.post(() ->
+        {
+            Bitmap decodedBitmap = CardImageDecoder.decode(resources, imageID, targetWidth, targetHeight, options);
+            boolean bitmapWasReused = options.inBitmap != null && options.inBitmap == decodedBitmap;
+            options.inBitmap = null;
+
+            CardImageDecoder.mainThreadHandler.post(() -> CardImageDecoder.bindToCard(decodingThread, aCardImageView, imageID, decodedBitmap, bitmapWasReused));
+        });
+    }
+
+    /**
+     * Records that aCardImageView no longer displays a decoded bitmap
+     * (e.g. because it has been given a vector drawable), returning its bitmap to the pool
+     */
+    public static void onCardImageReplaced(ImageView aCardImageView)
+    {
+        Bitmap previousBitmap = CardImageDecoder.bitmapsOnCards.get(aCardImageView.getId());
+
+        if (previousBitmap != null)
+        {
+            CardImageDecoder.bitmapsOnCards.remove(aCardImageView.getId());
+            CardImageDecoder.returnToPool(previousBitmap);
+        }
+
+    }
+
+    /**
+     * Runs aRunnable once every image that has been requested has been given to its card,
+     * or straight away if none are being decoded.
+     * Only the latest runnable is kept, since only one round is displayed at a time
+     */
+    public static void runWhenImagesHaveBeenBound(Runnable aRunnable)
+    {
+        if (CardImageDecoder.numberOfDecodesInProgress == 0)
+        {
+            aRunnable.run();
+        }
+        else
+        {
+            CardImageDecoder.runnableAwaitingDecodes = aRunnable;
+        }
+
+    }
+
+    /**
+     * Helper method that starts the background thread, unless it has already been started
+     */
+    private static void startIfNeeded()
+    {
+        if (CardImageDecoder.decoderThread != null)
+        {
+            return;
+        }
+
+        CardImageDecoder.decoderThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        CardImageDecoder.decoderThread.start();
+        CardImageDecoder.decoderHandler = new Handler(CardImageDecoder.decoderThread.getLooper());
+        CardImageDecoder.decodingOptions = new BitmapFactory.Options();
+
+        ResourceManager.register(CardImageDecoder.cardImageDecoder);
+    }
+
+    /**
+     * Helper method that returns the size (in pixels) to decode an image to along one dimension:
+     * the laid out size if there is one, otherwise the size in the layout parameters if it is fixed,
+     * otherwise a third of the screen
+     */
+    private static int getTargetDimension(int laidOutSize, int layoutParameterSize, int screenSize)
+    {
+        if (laidOutSize > 0)
+        {
+            return laidOutSize;
+        }
+
+        if (layoutParameterSize > 0 && layoutParameterSize != ViewGroup.LayoutParams.MATCH_PARENT && layoutParameterSize != ViewGroup.LayoutParams.WRAP_CONTENT)
+        {
+            return layoutParameterSize;
+        }
+
+        return screenSize / 3;
+    }
+
+    /**
+     * Helper method, run on the background thread, that decodes the image whose ID is imageID
+     * so that it fits within targetWidth by targetHeight pixels (keeping its aspect ratio),
+     * into a bitmap from the pool if there is one of that size, using (and overwriting) options.
+     * Returns null if the image can't be decoded
+     */
+    private static Bitmap decode(Resources someResources, int imageID, int targetWidth, int targetHeight, BitmapFactory.Options options)
+    {
+        options.inJustDecodeBounds = true;
+        options.inScaled = false;
+        options.inSampleSize = 1;
+        options.inBitmap = null;
+        BitmapFactory.decodeResource(someResources, imageID, options);
+        options.inJustDecodeBounds = false;
+
+        if (options.outWidth <= 0 || options.outHeight <= 0)
+        {
+            return null;
+        }
+
+        float scale = Math.min(1f, Math.min((float) targetWidth / options.outWidth, (float) targetHeight / options.outHeight));
+        int decodedWidth = Math.max(1, Math.round(options.outWidth * scale));
+        int decodedHeight = Math.max(1, Math.round(options.outHeight * scale));
+        // The image is only ever scaled down, to the largest size that fits within the card
+
+        while (options.outWidth / (options.inSampleSize * 2) >= decodedWidth && options.outHeight / (options.inSampleSize * 2) >= decodedHeight)
+        {
+            options.inSampleSize *= 2;
+        }
+
+        int sampledWidth = options.outWidth / options.inSampleSize;
+
+        if (sampledWidth != decodedWidth)
+        {
+            options.inScaled = true;
+            options.inDensity = sampledWidth;
+            options.inTargetDensity = decodedWidth;
+            // The sampled image is scaled by inTargetDensity / inDensity while it is decoded
+        }
+
+        options.inMutable = true;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inBitmap = CardImageDecoder.takeFromPool(decodedWidth, decodedHeight);
+
+        try
+        {
+            return BitmapFactory.decodeResource(someResources, imageID, options);
+        }
+        catch (IllegalArgumentException e)
+        {
+            Log.w(TAG, "Could not reuse a pooled bitmap for image " + imageID, e);
+            // E.g. if the scaled size is rounded differently from the pooled bitmap's size
+
+            CardImageDecoder.returnToPool(options.inBitmap);
+            options.inBitmap = null;
+            return BitmapFactory.decodeResource(someResources, imageID, options);
+        }
+
+    }
+
+    /**
+     * Helper method, run on the main thread, that makes aCardImageView display aDecodedBitmap
+     * if it should still display the image whose ID is imageID, returning the bitmap that it displayed before to the pool,
+     * and runs what was waiting for the images to be bound once none are being decoded.
+     * The bitmap is dropped if aDecodingThread, the thread that decoded it, is no longer the decoder's thread
+     */
+    private static void bindToCard(HandlerThread aDecodingThread, ImageView aCardImageView, int imageID, Bitmap aDecodedBitmap, boolean bitmapWasReused)
+    {
+        if (aDecodingThread != CardImageDecoder.decoderThread)
+        {
+            return;
+            // The decoder has been released (and possibly started again) in the meantime,
+            // so this decode is no longer counted in numberOfDecodesInProgress
+        }
+
+        Object imageIDOnCard = aCardImageView.getTag();
+
+        if (aDecodedBitmap != null && imageIDOnCard instanceof Integer && (Integer) imageIDOnCard == imageID)
+        {
+            aCardImageView.setImageBitmap(aDecodedBitmap);
+            CardImageDecoder.onCardImageReplaced(aCardImageView);
+            CardImageDecoder.bitmapsOnCards.put(aCardImageView.getId(), aDecodedBitmap);
+            // The card stops displaying its previous bitmap before it is returned to the pool
+
+            MetricsRegistry.increment(bitmapWasReused ? MetricsRegistry.COUNTER_BITMAP_POOL_HITS : MetricsRegistry.COUNTER_BITMAP_POOL_MISSES);
+        }
+        else if (aDecodedBitmap != null)
+        {
+            CardImageDecoder.returnToPool(aDecodedBitmap);
+        }
+
+        CardImageDecoder.numberOfDecodesInProgress--;
+
+        if (CardImageDecoder.numberOfDecodesInProgress == 0 && CardImageDecoder.runnableAwaitingDecodes != null)
+        {
+            Runnable runnable = CardImageDecoder.runnableAwaitingDecodes;
+            CardImageDecoder.runnableAwaitingDecodes = null;
+            runnable.run();
+        }
+
+    }
+
+    /**
+     * Helper method that removes and returns a bitmap of aWidth by aHeight pixels from the pool,
+     * or returns null if there is none
+     */
+    private static Bitmap takeFromPool(int aWidth, int aHeight)
+    {
+        synchronized (CardImageDecoder.lock)
+        {
+            ArrayDeque<Bitmap> bucket = CardImageDecoder.bitmapPool.get(CardImageDecoder.getBucketKey(aWidth, aHeight));
+
+            if (bucket == null || bucket.isEmpty())
+            {
+                return null;
+            }
+
+            Bitmap pooledBitmap = bucket.pop();
+            CardImageDecoder.poolSize -= pooledBitmap.getAllocationByteCount();
+
+            return pooledBitmap;
+        }
+
+    }
+
+    /**
+     * Helper method that returns aBitmap to the bucket of its size in the pool,
+     * recycling it instead if its bucket is full,
+     * and recycling bitmaps from the fullest bucket while the pool holds more than MAXIMUM_POOL_SIZE bytes
+     */
+    private static void returnToPool(Bitmap aBitmap)
+    {
+        if (aBitmap == null || aBitmap.isRecycled() || !aBitmap.isMutable())
+        {
+            return;
+        }
+
+        synchronized (CardImageDecoder.lock)
+        {
+            long bucketKey = CardImageDecoder.getBucketKey(aBitmap.getWidth(), aBitmap.getHeight());
+            ArrayDeque<Bitmap> bucket = CardImageDecoder.bitmapPool.get(bucketKey);
+
+            if (bucket == null)
+            {
+                bucket = new ArrayDeque<>(MAXIMUM_BITMAPS_PER_BUCKET);
+                CardImageDecoder.bitmapPool.put(bucketKey, bucket);
+            }
+
+            if (bucket.size() >= MAXIMUM_BITMAPS_PER_BUCKET)
+            {
+                aBitmap.recycle();
+                return;
+            }
+
+            bucket.push(aBitmap);
+            CardImageDecoder.poolSize += aBitmap.getAllocationByteCount();
+
+            while (CardImageDecoder.poolSize > MAXIMUM_POOL_SIZE)
+            {
+                ArrayDeque<Bitmap> fullestBucket = null;
+
+                for (int i = 0; i < CardImageDecoder.bitmapPool.size(); i++)
+                {
+                    ArrayDeque<Bitmap> pooledBucket = CardImageDecoder.bitmapPool.valueAt(i);
+
+                    if (fullestBucket == null || pooledBucket.size() > fullestBucket.size())
+                    {
+                        fullestBucket = pooledBucket;
+                    }
+
+                }
+
+                Bitmap evictedBitmap = fullestBucket.removeLast();
+                CardImageDecoder.poolSize -= evictedBitmap.getAllocationByteCount();
+                evictedBitmap.recycle();
+                // The bitmap that was returned the longest ago
+            }
+
+        }
+
+    }
+
+    /**
+     * Helper method that returns the key of the bucket of bitmaps of aWidth by aHeight pixels
+     */
+    private static long getBucketKey(int aWidth, int aHeight)
+    {
+        return ((long) aWidth << 32) | aHeight;
+    }
+
+}
@@ -1,7 +1,5 @@
 package com.example.whackaword;
 
-import android.widget.FrameLayout;
-
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -15,12 +13,13 @@ import java.util.Set;
 /**
  * The Collections class is responsible for managing collections in the Whack-A-Word game
  *
- * It contains ten class variables:
+ * It contains nine class variables:
  *
  * foodItems, which is a set of all the food items that exist within the game
  *
- * foodCards, which is a set of all the food cards that exist within the game,
- * one for each of the existing holes
+ * foodCards, which is a list of all the food cards that exist within the game,
+ * one for each of the existing holes, in the order of the holes,
+ * so that a food card can be identified by its index (e.g. in a game state snapshot)
  *
  * availableFoodItems, which is a list of food items
  * that are currently available to be played (it varies).
@@ -38,7 +37,8 @@ import java.util.Set;
  * Since retrieving a random element of this collection requires indexing,
  * it is a list instead of a set
  *
- * (Note that the availableFoodCards list is filled when cards are hidden
+ * (Note that the availableFoodCards list is filled when cards are about to hide
+ * (once the game logic thread has evaluated the tap or timeout that hides them)
  * because food cards become newly eligible for display when cards are hidden.
  * The availableFoodItems list is not filled when cards are hidden
  * since the food items that are not on the list
@@ -64,11 +64,6 @@ import java.util.Set;
  * A user should only need to tap
  * a food item that hasn't yet been correctly tapped
  *
- * foodCardFrameLayoutsWithClickListeners, which is a set of frame layouts,
- * each of which is effectively a card with a variable image on it.
- * This set is necessary to clear all click listeners at once
- * with the clearClickListeners() method
- *
  * audioQueue, which is used to store audio IDs
  * and allow for the management of audio files
  * in a 'first-in, first-out' (FIFO) manner
@@ -87,16 +82,19 @@ import java.util.Set;
  * while if a key in the map has a value of false,
  * it would mean that a card from that pop-up time hasn't been tapped.
  * This map is necessary for the management of the duration of pop-ups
+ *
+ * Once the game logic thread has started (see the GameLogic class),
+ * audioQueue and mapOfPopUpTimesToWhetherACardHasBeenTappedOnTime are only used on the main thread,
+ * and every other collection that varies is only used on the game logic thread
  */
 public class Collections
 {
     public static Set<FoodItem> foodItems;
-    public static Set<FoodCard> foodCards;
+    public static List<FoodCard> foodCards;
     public static List<FoodItem> availableFoodItems;
     public static List<FoodCard> availableFoodCards;
     public static Map<FoodItem, FoodCard> mapOfFoodItemsToTheirFoodCards;
     public static Set<FoodItem> correctlyTappedFoodItems;
-    public static Set<FrameLayout> foodCardFrameLayoutsWithClickListeners;
     public static Queue<Integer> audioQueue;
     public static Set<Integer> foodItemAudioIDs;
     public static Map<Integer, Boolean> mapOfPopUpTimesToWhetherACardHasBeenTappedOnTime;
@@ -107,10 +105,9 @@ public class Collections
     public static void initialiseCollections()
     {
         Collections.foodItems = new HashSet<>();
-        Collections.foodCards = new HashSet<>();
+        Collections.foodCards = new ArrayList<>();
         Collections.mapOfFoodItemsToTheirFoodCards = new HashMap<>();
         Collections.correctlyTappedFoodItems = new HashSet<>();
-        Collections.foodCardFrameLayoutsWithClickListeners = new HashSet<>();
         Collections.audioQueue = new LinkedList<>();
         Collections.foodItemAudioIDs = new HashSet<>();
         Collections.mapOfPopUpTimesToWhetherACardHasBeenTappedOnTime = new HashMap<>();
@@ -163,7 +160,7 @@ public class Collections
 
     /**
      * Helper method that fills foodCards with
-     * all the food cards that exist within the game
+     * all the food cards that exist within the game, in the order of the holes
      */
     private static void fillFoodCardsSet()
     {
@@ -1,23 +1,75 @@
 package com.example.whackaword;
 
+import android.graphics.drawable.Drawable;
 import android.widget.ImageView;
 
 /**
  * The DisplayManager class is responsible for displaying food items on food cards
+ *
+ * Each card's image view is tagged with the ID of the image it is showing,
+ * so that an image that is already on a card is not decoded and set again
+ * (which is counted as an image cache hit by the MetricsRegistry class).
+ * Images that have been prefetched for a planned round by the AssetPrefetcher class
+ * are set from their already inflated drawables rather than from their resources
+ *
+ * Raster images (e.g. the photographs of a photo vocabulary pack) are instead decoded
+ * at the size of their card on a background thread by the CardImageDecoder class,
+ * and the food items are only signalled as displayed once every card has been given its decoded bitmap
  */
 public class DisplayManager
 {
+    private static final Runnable signalThatFoodItemsHaveBeenDisplayed = RoundSequencer::onFoodItemsDisplayed;
+    // The signal is kept rather than created for every round
+
     /**
-     * Causes food cards to display food items
+     * Causes the food cards of aRoundSnapshot to display their food items,
+     * and signals the RoundSequencer class that they have been displayed
+     * (once any raster images among them have been decoded)
      */
-    public static void displayFoodItemsOnCards(WhackAWordActivity aWhackAWordActivity)
+    public static void displayFoodItemsOnCards(WhackAWordActivity aWhackAWordActivity, RoundSnapshot aRoundSnapshot)
     {
-        for (FoodItem foodItem : Collections.mapOfFoodItemsToTheirFoodCards.keySet())
+        GameTrace.beginSection(GameTrace.SECTION_DISPLAY_FOOD_ITEMS);
+
+        for (int i = 0; i < aRoundSnapshot.getFoodCards().size(); i++)
         {
-            FoodCard foodCard = Collections.mapOfFoodItemsToTheirFoodCards.get(foodItem);
-            ImageView foodCardImageView = aWhackAWordActivity.findViewById(foodCard.getImageViewID());
-            foodCardImageView.setImageResource(foodItem.getImageID());
+            FoodItem foodItem = aRoundSnapshot.getFoodItems().get(i);
+            FoodCard foodCard = aRoundSnapshot.getFoodCards().get(i);
+            ImageView foodCardImageView = aWhackAWordActivity.getPlayfieldViews().getImageView(foodCard);
+            Object imageIDOnCard = foodCardImageView.getTag();
+
+            if (imageIDOnCard instanceof Integer && (Integer) imageIDOnCard == foodItem.getImageID())
+            {
+                MetricsRegistry.increment(MetricsRegistry.COUNTER_IMAGE_CACHE_HITS);
+            }
+            else if (CardImageDecoder.isRasterImage(aWhackAWordActivity.getResources(), foodItem.getImageID()))
+            {
+                foodCardImageView.setTag(foodItem.getImageID());
+                CardImageDecoder.decodeOntoCard(foodCardImageView, foodItem.getImageID());
+                MetricsRegistry.increment(MetricsRegistry.COUNTER_IMAGE_CACHE_MISSES);
+                // The tag is set first, so that the decoded bitmap is only given to the card if it still wants it
+            }
+            else
+            {
+                Drawable prefetchedImage = AssetPrefetcher.getPrefetchedImage(aWhackAWordActivity.getResources(), foodItem.getImageID());
+
+                if (prefetchedImage != null)
+                {
+                    foodCardImageView.setImageDrawable(prefetchedImage);
+                }
+                else
+                {
+                    foodCardImageView.setImageResource(foodItem.getImageID());
+                }
+
+                CardImageDecoder.onCardImageReplaced(foodCardImageView);
+                foodCardImageView.setTag(foodItem.getImageID());
+                MetricsRegistry.increment(MetricsRegistry.COUNTER_IMAGE_CACHE_MISSES);
+            }
+
         }
+
+        GameTrace.endSection();
+        CardImageDecoder.runWhenImagesHaveBeenBound(DisplayManager.signalThatFoodItemsHaveBeenDisplayed);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,189 @@
+package com.example.whackaword;
+
+/**
+ * An object of the GameEvent class represents an event of the Whack-A-Word game
+ * that is dispatched to subscribers by the GameEventPipeline class
+ *
+ * Game events are preallocated and recycled by the pipeline,
+ * so publishing one allocates nothing.
+ * Each event has a type (one of the TYPE constants) and records:
+ *
+ * - the food item that it concerns, if any
+ *   (the correct food item of a round, or the food item that was tapped)
+ * - the correct food item of the round on display at the time of the event, if any,
+ *   so that a tap can be attributed to the word that the user was asked for
+ * - the level, the count of successful taps and the pop-up at the time of the event
+ * - the number of cards on display, for an event of the type TYPE_CARDS_SHOWN
+ * - a duration in milliseconds, i.e. the time since cards last popped up
+ *   for an event of the type TYPE_CARDS_SHOWN (or -1 if they haven't yet),
+ *   and the reaction time for an event of the type TYPE_TAPPED
+ * - a flag, i.e. whether the round was planned ahead for an event of the type TYPE_ROUND_PLANNED,
+ *   and whether the tap was correct for an event of the type TYPE_TAPPED
+ * - the time of the event (in milliseconds since the epoch)
+ */
+public class GameEvent
+{
+    public static final int TYPE_ROUND_PLANNED = 0;
+    public static final int TYPE_CARDS_SHOWN = 1;
+    public static final int TYPE_TAPPED = 2;
+    public static final int TYPE_TIMED_OUT = 3;
+    public static final int TYPE_LEVEL_UP = 4;
+    public static final int TYPE_WON = 5;
+
+    private int type;
+    private FoodItem foodItem;
+    private FoodItem correctFoodItem;
+    private int level;
+    private int countOfSuccessfulTaps;
+    private int popUpNumber;
+    private int numberOfCards;
+    private long duration;
+    private boolean flag;
+    private long timeOfEvent;
+
+    /**
+     * Resets the event to a new event of the given type concerning aFoodItem (which may be null),
+     * at the level, count of successful taps and correct food item of aRoundSnapshot (which may be null)
+     * and at the current pop-up
+     */
+    void reset(int aType, FoodItem aFoodItem, RoundSnapshot aRoundSnapshot)
+    {
+        this.type = aType;
+        this.foodItem = aFoodItem;
+        this.correctFoodItem = aRoundSnapshot == null ? null : aRoundSnapshot.getCorrectFoodItem();
+        this.level = aRoundSnapshot == null ? 0 : aRoundSnapshot.getLevel();
+        this.countOfSuccessfulTaps = aRoundSnapshot == null ? 0 : aRoundSnapshot.getCountOfSuccessfulTaps();
+        this.popUpNumber = AnimationManager.numberOfPopUpTimes;
+        this.numberOfCards = 0;
+        this.duration = 0;
+        this.flag = false;
+        this.timeOfEvent = System.currentTimeMillis();
+    }
+
+    /**
+     * Clears the references to the food items of the event once it has been dispatched
+     */
+    void recycle()
+    {
+        this.foodItem = null;
+        this.correctFoodItem = null;
+    }
+
+    /**
+     * Returns the type of the event
+     */
+    public int getType()
+    {
+        return this.type;
+    }
+
+    /**
+     * Returns the food item that the event concerns, or null if it concerns none
+     */
+    public FoodItem getFoodItem()
+    {
+        return this.foodItem;
+    }
+
+    /**
+     * Returns the correct food item of the round on display at the time of the event,
+     * or null if no round was on display
+     */
+    public FoodItem getCorrectFoodItem()
+    {
+        return this.correctFoodItem;
+    }
+
+    /**
+     * Returns the level at the time of the event
+     */
+    public int getLevel()
+    {
+        return this.level;
+    }
+
+    /**
+     * Returns the count of successful taps at the time of the event
+     */
+    public int getCountOfSuccessfulTaps()
+    {
+        return this.countOfSuccessfulTaps;
+    }
+
+    /**
+     * Sets the count of successful taps at the time of the event
+     */
+    public GameEvent setCountOfSuccessfulTaps(int aCountOfSuccessfulTaps)
+    {
+        this.countOfSuccessfulTaps = aCountOfSuccessfulTaps;
+        return this;
+    }
+
+    /**
+     * Returns the pop-up at the time of the event
+     */
+    public int getPopUpNumber()
+    {
+        return this.popUpNumber;
+    }
+
+    /**
+     * Returns the number of cards on display
+     */
+    public int getNumberOfCards()
+    {
+        return this.numberOfCards;
+    }
+
+    /**
+     * Sets the number of cards on display
+     */
+    public GameEvent setNumberOfCards(int aNumberOfCards)
+    {
+        this.numberOfCards = aNumberOfCards;
+        return this;
+    }
+
+    /**
+     * Returns the duration (in milliseconds) that the event records
+     */
+    public long getDuration()
+    {
+        return this.duration;
+    }
+
+    /**
+     * Sets the duration (in milliseconds) that the event records
+     */
+    public GameEvent setDuration(long aDuration)
+    {
+        this.duration = aDuration;
+        return this;
+    }
+
+    /**
+     * Returns the flag of the event
+     */
+    public boolean getFlag()
+    {
+        return this.flag;
+    }
+
+    /**
+     * Sets the flag of the event
+     */
+    public GameEvent setFlag(boolean aFlag)
+    {
+        this.flag = aFlag;
+        return this;
+    }
+
+    /**
+     * Returns the time of the event (in milliseconds since the epoch)
+     */
+    public long getTimeOfEvent()
+    {
+        return this.timeOfEvent;
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.example.whackaword;
+
+/**
+ * The interface GameEventListener provides a callback method
+ * through which the GameEventPipeline class dispatches game events to their subscribers
+ */
+public interface GameEventListener
+{
+    /**
+     * Callback method invoked for each game event in the batch that is dispatched on a frame.
+     * The event is recycled once the batch has been dispatched, so it must not be kept
+     */
+    void onGameEvent(GameEvent aGameEvent);
+}
@@ -0,0 +1,183 @@
+package com.example.whackaword;
+
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The GameEventPipeline class is responsible for dispatching the events of the Whack-A-Word game
+ * (rounds being planned, cards being shown, taps, timeouts, level ups and wins)
+ * to the classes that keep records of them, such as the MetricsRegistry and SessionEventLog classes
+ *
+ * Publishing an event only fills in one of a fixed number of preallocated events,
+ * and the events that have been published are dispatched to every subscriber
+ * in a single batch on the next frame (via a Choreographer frame callback),
+ * so that a tap costs the same however many subscribers there are,
+ * and a subscriber never runs in the middle of the code that published the event.
+ * Events that are published while a batch is being dispatched are dispatched on the following frame.
+ *
+ * The immediate response of the game to an event (e.g. the tick, the sound effects,
+ * the card animations and the audio of the correct food item) is not dispatched through the pipeline,
+ * since it must not wait for the next frame.
+ * If more than EVENTS_PER_FRAME events are published before a frame,
+ * the events that don't fit are dropped and counted
+ *
+ * The pipeline is only used on the main thread, so no synchronisation is needed
+ *
+ * It contains the following class variables:
+ *
+ * subscribers, which is the list of listeners to which events are dispatched
+ *
+ * pendingEvents and numberOfPendingEvents, which are the events that are waiting for the next frame
+ *
+ * dispatchedEvents, which are the events of the batch being dispatched.
+ * pendingEvents and dispatchedEvents are swapped when a batch is dispatched,
+ * so that every event is reused without being allocated again
+ *
+ * dispatchIsScheduled, which records whether a frame callback has been posted
+ *
+ * numberOfDroppedEvents, which is the number of events that were dropped because the batch was full
+ */
+public class GameEventPipeline
+{
+    private static final int EVENTS_PER_FRAME = 32;
+    // A frame normally carries at most a handful of events (e.g. a tap, a level up and the cards shown next)
+
+    private static final List<GameEventListener> subscribers = new ArrayList<>();
+    private static GameEvent[] pendingEvents = GameEventPipeline.createEvents();
+    private static GameEvent[] dispatchedEvents = GameEventPipeline.createEvents();
+    private static int numberOfPendingEvents;
+    private static boolean dispatchIsScheduled;
+    private static final GameEvent droppedEvent = new GameEvent();
+    public static int numberOfDroppedEvents;
+
+    private static final Choreographer.FrameCallback batchDispatcher = frameTimeNanos -> GameEventPipeline.dispatchPendingEvents();
+
+    private static final ManagedResource eventPipeline = new ManagedResource()
+    {
+        @Override
+        public void pause()
+        {
+            GameEventPipeline.dispatchPendingEvents();
+            // Dispatches the pending events straight away, e.g. so that the session event log
+            // can write them to storage while the activity is stopped
+        }
+
+        @Override
+        public void resume()
+        {
+        }
+
+        @Override
+        public void release()
+        {
+            GameEventPipeline.dispatchPendingEvents();
+        }
+
+        @Override
+        public boolean survivesConfigurationChanges()
+        {
+            return true;
+            // The pipeline refers to no activity
+        }
+
+        @Override
+        public String describe()
+        {
+            return "Game event pipeline (" + GameEventPipeline.subscribers.size() + " subscribers, "
+                    + GameEventPipeline.numberOfPendingEvents + " pending, " + GameEventPipeline.numberOfDroppedEvents + " dropped)";
+        }
+
+    };
+
+    /**
+     * Subscribes aGameEventListener to every event published from now on,
+     * unless it is already subscribed
+     */
+    public static void subscribe(GameEventListener aGameEventListener)
+    {
+        ResourceManager.register(GameEventPipeline.eventPipeline);
+
+        if (!GameEventPipeline.subscribers.contains(aGameEventListener))
+        {
+            GameEventPipeline.subscribers.add(aGameEventListener);
+        }
+
+    }
+
+    /**
+     * Publishes an event of the given type concerning aFoodItem (which may be null)
+     * at the level and count of successful taps of the round on display,
+     * and returns it so that its other details can be set straight away.
+     * The event is dispatched on the next frame
+     */
+    public static GameEvent publish(int type, FoodItem aFoodItem)
+    {
+        if (GameEventPipeline.numberOfPendingEvents == EVENTS_PER_FRAME)
+        {
+            GameEventPipeline.numberOfDroppedEvents++;
+            return GameEventPipeline.droppedEvent;
+            // The dropped event can still be filled in, but is never dispatched
+        }
+
+        GameEvent gameEvent = GameEventPipeline.pendingEvents[GameEventPipeline.numberOfPendingEvents++];
+        gameEvent.reset(type, aFoodItem, GameLogic.getRenderedRoundSnapshot());
+
+        if (!GameEventPipeline.dispatchIsScheduled)
+        {
+            GameEventPipeline.dispatchIsScheduled = true;
+            Choreographer.getInstance().postFrameCallback(GameEventPipeline.batchDispatcher);
+        }
+
+        return gameEvent;
+    }
+
+    /**
+     * Dispatches every pending event to every subscriber, in the order they were published,
+     * without waiting for the next frame
+     */
+    public static void dispatchPendingEvents()
+    {
+        if (GameEventPipeline.dispatchIsScheduled)
+        {
+            Choreographer.getInstance().removeFrameCallback(GameEventPipeline.batchDispatcher);
+            GameEventPipeline.dispatchIsScheduled = false;
+        }
+
+        GameEvent[] batch = GameEventPipeline.pendingEvents;
+        int numberOfEventsInBatch = GameEventPipeline.numberOfPendingEvents;
+
+        GameEventPipeline.pendingEvents = GameEventPipeline.dispatchedEvents;
+        GameEventPipeline.dispatchedEvents = batch;
+        GameEventPipeline.numberOfPendingEvents = 0;
+        // Events published by a subscriber go into the other array, to be dispatched on the following frame
+
+        for (int i = 0; i < numberOfEventsInBatch; i++)
+        {
+            for (int j = 0; j < GameEventPipeline.subscribers.size(); j++)
+            {
+                GameEventPipeline.subscribers.get(j).onGameEvent(batch[i]);
+            }
+
+            batch[i].recycle();
+        }
+
+    }
+
+    /**
+     * Helper method that returns EVENTS_PER_FRAME preallocated events
+     */
+    private static GameEvent[] createEvents()
+    {
+        GameEvent[] events = new GameEvent[EVENTS_PER_FRAME];
+
+        for (int i = 0; i < EVENTS_PER_FRAME; i++)
+        {
+            events[i] = new GameEvent();
+        }
+
+        return events;
+    }
+
+}
@@ -0,0 +1,401 @@
+package com.example.whackaword;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Process;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The GameLogic class is responsible for running the rules of the Whack-A-Word game
+ * (selecting rounds, counting successful taps, levelling up and deciding when the user wins)
+ * on a dedicated game logic thread, so that rule evaluation never takes frame time
+ * away from the main thread
+ *
+ * The main thread reports each event of the game (a correct tap, an incorrect tap or a timeout)
+ * as a message to the game logic thread, and otherwise only renders:
+ * once the game logic thread has evaluated an event, it publishes an immutable RoundSnapshot
+ * of the resulting state through a single volatile write,
+ * and posts a preallocated task to the main thread that renders the latest snapshot
+ * (hiding the previous round and popping up the next one).
+ * No locks are taken on either side
+ *
+ * Once the game logic thread has started, the rule state of the game
+ * (the LevelProperties and Selector classes, and the collections of the Collections class
+ * other than audioQueue and mapOfPopUpTimesToWhetherACardHasBeenTappedOnTime)
+ * is only accessed on the game logic thread; the main thread reads snapshots instead.
+ * Before it starts (and after it has been released), the main thread may initialise
+ * or restore that state, since starting and joining the thread orders the accesses
+ *
+ * Immediate feedback for a tap (the tick, the sound effect and the colour of the card)
+ * is still given on the main thread as soon as the tap is dispatched,
+ * without waiting for the game logic thread
+ *
+ * It contains the following class variables:
+ *
+ * logicThread and logicHandler, the game logic thread and the handler of its looper.
+ * Events are sent as messages obtained from the global pool, so reporting a tap allocates nothing.
+ * logicHandler is volatile since the RoundPlanner class posts to it from its own thread
+ *
+ * latestRoundSnapshot, which is the latest snapshot published by the game logic thread.
+ * It is volatile, so the snapshot and everything it refers to are visible to the main thread once published
+ *
+ * snapshotVersion, which is the version of the latest snapshot.
+ * It is only used on the game logic thread
+ *
+ * whackAWordActivity, renderedRoundSnapshot and versionOfRenderedRound,
+ * which are the activity that renders the snapshots, the snapshot it rendered last and its version.
+ * They are only used on the main thread
+ */
+public class GameLogic
+{
+    private static final int EVENT_NEW_GAME = 0;
+    private static final int EVENT_RESUMED_GAME = 1;
+    private static final int EVENT_CORRECT_TAP = 2;
+    private static final int EVENT_INCORRECT_TAP = 3;
+    private static final int EVENT_TIMEOUT = 4;
+
+    private static final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+    private static HandlerThread logicThread;
+    private static volatile Handler logicHandler;
+    private static volatile RoundSnapshot latestRoundSnapshot;
+    private static int snapshotVersion;
+
+    private static WhackAWordActivity whackAWordActivity;
+    private static RoundSnapshot renderedRoundSnapshot;
+    private static int versionOfRenderedRound;
+
+    private static final Runnable roundRenderer = GameLogic::renderLatestRoundSnapshot;
+
+    private static final Handler.Callback eventEvaluator = message ->
+    {
+        switch (message.what)
+        {
+            case EVENT_NEW_GAME:
+                GameLogic.evaluateNewGame();
+                break;
+
+            case EVENT_RESUMED_GAME:
+                GameLogic.publish(RoundSnapshot.OUTCOME_RESUMED_GAME, false);
+                RoundPlanner.planAhead();
+                break;
+
+            case EVENT_CORRECT_TAP:
+                GameLogic.evaluateCorrectTap((FoodItem) message.obj);
+                break;
+
+            default:
+                GameLogic.evaluateTryAgain(message.what == EVENT_INCORRECT_TAP ? RoundSnapshot.OUTCOME_INCORRECT_TAP : RoundSnapshot.OUTCOME_TIMEOUT);
+        }
+
+        return true;
+    };
+
+    private static final ManagedResource gameLogicThread = new ManagedResource()
+    {
+        @Override
+        public void pause()
+        {
+        }
+
+        @Override
+        public void resume()
+        {
+        }
+
+        @Override
+        public void release()
+        {
+            GameLogic.logicThread.quitSafely();
+
+            try
+            {
+                GameLogic.logicThread.join();
+                // Once the thread has finished, the main thread may access the rule state again
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            GameLogic.logicThread = null;
+            GameLogic.logicHandler = null;
+            GameLogic.mainThreadHandler.removeCallbacks(GameLogic.roundRenderer);
+            GameLogic.whackAWordActivity = null;
+            // The activity must not outlive itself through this class
+        }
+
+        @Override
+        public boolean survivesConfigurationChanges()
+        {
+            return false;
+        }
+
+        @Override
+        public String describe()
+        {
+            RoundSnapshot roundSnapshot = GameLogic.latestRoundSnapshot;
+
+            return "Game logic thread (snapshot " + (roundSnapshot == null ? "none" : roundSnapshot.getVersion()) + " published, "
+                    + GameLogic.versionOfRenderedRound + " rendered)";
+        }
+
+    };
+
+    /**
+     * Starts the game logic thread for aWhackAWordActivity.
+     * Must be called on the main thread once the state of the game has been initialised or restored
+     */
+    public static void start(WhackAWordActivity aWhackAWordActivity)
+    {
+        GameLogic.whackAWordActivity = aWhackAWordActivity;
+        GameLogic.renderedRoundSnapshot = null;
+        GameLogic.versionOfRenderedRound = 0;
+        GameLogic.latestRoundSnapshot = null;
+
+        GameLogic.logicThread = new HandlerThread("GameLogic", Process.THREAD_PRIORITY_DISPLAY);
+        GameLogic.logicThread.start();
+        GameLogic.logicHandler = new Handler(GameLogic.logicThread.getLooper(), GameLogic.eventEvaluator);
+
+        ResourceManager.register(GameLogic.gameLogicThread);
+    }
+
+    /**
+     * Asks the game logic thread to select the first round of a new game
+     */
+    public static void newGame()
+    {
+        GameLogic.sendEvent(EVENT_NEW_GAME, null);
+    }
+
+    /**
+     * Asks the game logic thread to publish the round that has been restored
+     */
+    public static void resumeGame()
+    {
+        GameLogic.sendEvent(EVENT_RESUMED_GAME, null);
+    }
+
+    /**
+     * Reports that the correct food card, showing aFoodItem, has been tapped
+     */
+    public static void onCorrectTap(FoodItem aFoodItem)
+    {
+        GameLogic.sendEvent(EVENT_CORRECT_TAP, aFoodItem);
+    }
+
+    /**
+     * Reports that an incorrect food card, showing aFoodItem, has been tapped
+     */
+    public static void onIncorrectTap(FoodItem aFoodItem)
+    {
+        GameLogic.sendEvent(EVENT_INCORRECT_TAP, aFoodItem);
+    }
+
+    /**
+     * Reports that the cards of the current round were not tapped within their pop-up duration limit
+     */
+    public static void onTimeout()
+    {
+        GameLogic.sendEvent(EVENT_TIMEOUT, null);
+    }
+
+    /**
+     * Runs aTask on the game logic thread, unless the thread has been released
+     */
+    public static void post(Runnable aTask)
+    {
+        Handler logicHandler = GameLogic.logicHandler;
+
+        if (logicHandler != null)
+        {
+            logicHandler.post(aTask);
+        }
+
+    }
+
+    /**
+     * Returns the latest snapshot published by the game logic thread,
+     * or null if none has been published yet.
+     * May be called on any thread
+     */
+    public static RoundSnapshot getLatestRoundSnapshot()
+    {
+        return GameLogic.latestRoundSnapshot;
+    }
+
+    /**
+     * Returns the snapshot that the main thread rendered last,
+     * i.e. the round that is on display,
+     * or null if no snapshot has been rendered yet.
+     * Must be called on the main thread
+     */
+    public static RoundSnapshot getRenderedRoundSnapshot()
+    {
+        return GameLogic.renderedRoundSnapshot;
+    }
+
+    /**
+     * Returns the looper of the game logic thread, or null if it isn't running
+     */
+    public static Looper getLooper()
+    {
+        HandlerThread logicThread = GameLogic.logicThread;
+
+        return logicThread == null ? null : logicThread.getLooper();
+    }
+
+    /**
+     * Helper method that sends an event concerning aFoodItem (which may be null) to the game logic thread
+     */
+    private static void sendEvent(int event, FoodItem aFoodItem)
+    {
+        if (GameLogic.logicHandler != null)
+        {
+            Message.obtain(GameLogic.logicHandler, event, aFoodItem).sendToTarget();
+        }
+
+    }
+
+    /**
+     * Helper method, run on the game logic thread, that selects the first round of a new game
+     */
+    private static void evaluateNewGame()
+    {
+        Selector.thereAreNewFoodItems = true;
+        GameLogic.selectRound();
+        GameLogic.publish(RoundSnapshot.OUTCOME_NEW_GAME, false);
+    }
+
+    /**
+     * Helper method, run on the game logic thread, that evaluates a correct tap of aFoodItem:
+     * counts the successful tap, initialises the properties of the next level if the user has reached it,
+     * and selects the next round unless the user has won.
+     * In stress mode, once every food item has been correctly tapped, they can all be correctly tapped again
+     */
+    private static void evaluateCorrectTap(FoodItem aFoodItem)
+    {
+        LevelProperties.countOfSuccessfulTaps++;
+        Collections.correctlyTappedFoodItems.add(aFoodItem);
+
+        if (StressMode.isOn && Collections.correctlyTappedFoodItems.size() == Collections.foodItems.size())
+        {
+            Collections.correctlyTappedFoodItems.clear();
+            // Otherwise no food item would be left to be the correct one, since the game never ends
+        }
+
+        boolean userHasReachedTheNextLevel = LevelProperties.userHasReachedTheNextLevel();
+
+        if (userHasReachedTheNextLevel)
+        {
+            LevelProperties.setNextLevelProperties();
+        }
+
+        Collections.availableFoodCards = new ArrayList<>(Collections.foodCards);
+        // Every food card becomes eligible for display again once the cards have been hidden
+
+        if (!LevelProperties.userWins())
+        {
+            Collections.availableFoodItems = new ArrayList<>(Collections.foodItems);
+            Collections.mapOfFoodItemsToTheirFoodCards = new HashMap<>();
+            Selector.thereAreNewFoodItems = true;
+            GameLogic.selectRound();
+        }
+
+        GameLogic.publish(RoundSnapshot.OUTCOME_CORRECT_TAP, userHasReachedTheNextLevel);
+    }
+
+    /**
+     * Helper method, run on the game logic thread, that evaluates an incorrect tap or a timeout,
+     * either of which is the given outcome:
+     * selects the same food items to be displayed again on random food cards
+     */
+    private static void evaluateTryAgain(int outcome)
+    {
+        Collections.mapOfFoodItemsToTheirFoodCards.replaceAll(((foodItem, hiddenFoodCard) -> null));
+        // Keeps all FoodItem keys in the map while setting all their FoodCard values to null
+        // since those food items need to be displayed again
+        // on food cards which are not yet determined
+
+        Collections.availableFoodCards = new ArrayList<>(Collections.foodCards);
+        Selector.thereAreNewFoodItems = false;
+        GameLogic.selectRound();
+
+        GameLogic.publish(outcome, false);
+    }
+
+    /**
+     * Helper method, run on the game logic thread, that selects the food cards of the next round
+     * and (if it displays new food items) its correct food item,
+     * then plans the rounds that follow it, so that they can begin with their assets already prefetched
+     */
+    private static void selectRound()
+    {
+        Selector.selectFoodCardsForDisplay();
+
+        if (Selector.thereAreNewFoodItems)
+        {
+            Selector.setCorrectFoodItem();
+        }
+
+        RoundPlanner.planAhead();
+    }
+
+    /**
+     * Helper method, run on the game logic thread, that publishes a snapshot of the current state
+     * for the given outcome, and asks the main thread to render it
+     */
+    private static void publish(int outcome, boolean userHasReachedTheNextLevel)
+    {
+        GameLogic.latestRoundSnapshot = new RoundSnapshot(++GameLogic.snapshotVersion, outcome, userHasReachedTheNextLevel, LevelProperties.userWins());
+        // The single volatile write that hands the snapshot over to the main thread
+
+        GameLogic.mainThreadHandler.removeCallbacks(GameLogic.roundRenderer);
+        GameLogic.mainThreadHandler.post(GameLogic.roundRenderer);
+    }
+
+    /**
+     * Helper method, run on the main thread, that renders the latest snapshot
+     * if it hasn't been rendered yet:
+     * pops up the first round of a new or restored game,
+     * continues playing after a correct tap,
+     * or tries again after an incorrect tap or a timeout
+     */
+    private static void renderLatestRoundSnapshot()
+    {
+        RoundSnapshot roundSnapshot = GameLogic.latestRoundSnapshot;
+
+        if (GameLogic.whackAWordActivity == null || roundSnapshot == null || roundSnapshot.getVersion() == GameLogic.versionOfRenderedRound)
+        {
+            return;
+        }
+
+        RoundSnapshot previousRoundSnapshot = GameLogic.renderedRoundSnapshot;
+
+        GameLogic.renderedRoundSnapshot = roundSnapshot;
+        GameLogic.versionOfRenderedRound = roundSnapshot.getVersion();
+
+        switch (roundSnapshot.getOutcome())
+        {
+            case RoundSnapshot.OUTCOME_NEW_GAME:
+                GameLogic.whackAWordActivity.playWhackAWord();
+                break;
+
+            case RoundSnapshot.OUTCOME_RESUMED_GAME:
+                GameLogic.whackAWordActivity.resumeWhackAWord();
+                break;
+
+            case RoundSnapshot.OUTCOME_CORRECT_TAP:
+                WhackAWordActivity.continuePlaying(GameLogic.whackAWordActivity, previousRoundSnapshot);
+                break;
+
+            default:
+                WhackAWordActivity.tryAgain(GameLogic.whackAWordActivity, previousRoundSnapshot);
+        }
+
+    }
+
+}
@@ -0,0 +1,418 @@
+package com.example.whackaword;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * The GameStateSnapshot class is responsible for saving the full state of a game
+ * as a compact binary snapshot, and for restoring it,
+ * so that progress survives configuration changes and the death of the process
+ *
+ * A snapshot contains:
+ *
+ * - the current level, the number of cards to display and the count of successful taps
+ * - the number of times cards have popped up
+ * - the names of the food items that have been correctly tapped
+ * - the current round, i.e. each food item on display and the index of the food card it is on,
+ *   as well as the name of the correct food item
+ * - how long the cards of the current round have left to remain popped up,
+ *   so that the pop-up duration limit can be rescheduled with the time that remained
+ *   (or with the whole of it, if the cards haven't popped up yet)
+ * - the playback position of the background music
+ *
+ * Food items are identified by their names and food cards by their indexes in the foodCards list
+ * (see the Collections class), since the IDs of views may change from one build to the next;
+ * if any of them no longer exists when a snapshot is restored,
+ * the snapshot is discarded and a new game is started
+ *
+ * The snapshot is put into the activity's saved instance state,
+ * and is also written to SNAPSHOT_FILE_NAME on a background thread.
+ * The file is only used when there is no saved instance state,
+ * e.g. when the game is relaunched after the process was killed in the background,
+ * and only if it is younger than SNAPSHOT_FILE_EXPIRY,
+ * so that a new lesson starts with a new game
+ */
+public class GameStateSnapshot
+{
+    private static final int FORMAT_VERSION = 1;
+    private static final String BUNDLE_KEY = "game_state_snapshot";
+    private static final String SNAPSHOT_FILE_NAME = "game_state_snapshot.bin";
+    private static final String TAG = "GameStateSnapshot";
+
+    private static final long SNAPSHOT_FILE_EXPIRY = 30 * 60 * 1000;
+    // A snapshot file is only restored within thirty minutes (1800000 milliseconds) of being saved
+
+    private static final int MINIMUM_REMAINING_POP_UP_DURATION = 3000;
+    // Restored cards remain popped up for at least three seconds (3000 milliseconds)
+    // so that they are seen for a while after their pop-up animation
+
+    private static HandlerThread fileWriterThread;
+    private static Handler fileWriterHandler;
+
+    public static int remainingPopUpDuration;
+    public static int backgroundMusicPosition;
+
+    /**
+     * Saves a snapshot of the current game state into anOutState
+     * and, on a background thread, into the snapshot file.
+     * If the user has already won, deletes the snapshot file instead,
+     * since there is no game left to resume.
+     * The state is read from the latest snapshot published by the GameLogic class,
+     * since the rule state of the game belongs to the game logic thread
+     */
+    public static void save(Context aContext, Bundle anOutState)
+    {
+        RoundSnapshot roundSnapshot = GameLogic.getLatestRoundSnapshot();
+
+        if (roundSnapshot != null && roundSnapshot.userWins())
+        {
+            GameStateSnapshot.deleteSnapshotFile(aContext);
+            return;
+        }
+
+        byte[] snapshot = GameStateSnapshot.createSnapshot(roundSnapshot);
+
+        if (snapshot == null)
+        {
+            return;
+        }
+
+        anOutState.putByteArray(BUNDLE_KEY, snapshot);
+
+        GameStateSnapshot.startFileWriterThread();
+        AtomicFile snapshotFile = GameStateSnapshot.getSnapshotFile(aContext);
+        GameStateSnapshot.fileWriterHandler.post(() -> GameStateSnapshot.writeSnapshotFile(snapshotFile, snapshot));
+    }
+
+    /**
+     * Restores the game state from the snapshot in aSavedInstanceState
+     * or, if there is none, from a snapshot file that hasn't expired.
+     * Returns true if a snapshot was restored,
+     * otherwise returns false, in which case a new game should be started.
+     * Must be called before the game logic thread is started (see the GameLogic class),
+     * since it writes the rule state of the game
+     */
+    public static boolean restore(Context aContext, Bundle aSavedInstanceState)
+    {
+        byte[] snapshot = aSavedInstanceState == null ? null : aSavedInstanceState.getByteArray(BUNDLE_KEY);
+
+        if (snapshot == null)
+        {
+            snapshot = GameStateSnapshot.readSnapshotFile(aContext);
+        }
+
+        if (snapshot == null)
+        {
+            return false;
+        }
+
+        try
+        {
+            return GameStateSnapshot.applySnapshot(snapshot);
+        }
+        catch (IOException e)
+        {
+            Log.w(TAG, "Could not restore the game state snapshot", e);
+            return false;
+        }
+
+    }
+
+    /**
+     * Deletes the snapshot file, e.g. when the user has won
+     */
+    public static void deleteSnapshotFile(Context aContext)
+    {
+        AtomicFile snapshotFile = GameStateSnapshot.getSnapshotFile(aContext);
+
+        GameStateSnapshot.startFileWriterThread();
+        GameStateSnapshot.fileWriterHandler.post(snapshotFile::delete);
+    }
+
+    /**
+     * Helper method that encodes the game state of aRoundSnapshot as a snapshot,
+     * or returns null if there is no round in progress yet
+     */
+    private static byte[] createSnapshot(RoundSnapshot aRoundSnapshot)
+    {
+        if (aRoundSnapshot == null)
+        {
+            return null;
+        }
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(256);
+
+        try (DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream))
+        {
+            dataOutputStream.writeByte(FORMAT_VERSION);
+            dataOutputStream.writeLong(System.currentTimeMillis());
+
+            dataOutputStream.writeByte(aRoundSnapshot.getLevel());
+            dataOutputStream.writeByte(aRoundSnapshot.getNumberOfCardsToDisplay());
+            dataOutputStream.writeByte(aRoundSnapshot.getCountOfSuccessfulTaps());
+
+            dataOutputStream.writeInt(AnimationManager.numberOfPopUpTimes);
+
+            dataOutputStream.writeByte(aRoundSnapshot.getCorrectlyTappedFoodItems().size());
+
+            for (FoodItem foodItem : aRoundSnapshot.getCorrectlyTappedFoodItems())
+            {
+                dataOutputStream.writeUTF(foodItem.getName());
+            }
+
+            dataOutputStream.writeByte(aRoundSnapshot.getFoodItems().size());
+
+            for (int i = 0; i < aRoundSnapshot.getFoodItems().size(); i++)
+            {
+                dataOutputStream.writeUTF(aRoundSnapshot.getFoodItems().get(i).getName());
+                dataOutputStream.writeByte(Collections.foodCards.indexOf(aRoundSnapshot.getFoodCards().get(i)));
+            }
+
+            dataOutputStream.writeUTF(aRoundSnapshot.getCorrectFoodItem().getName());
+
+            dataOutputStream.writeInt(GameStateSnapshot.getRemainingPopUpDuration(aRoundSnapshot));
+
+            dataOutputStream.writeInt(AudioManager.getBackgroundMusicPosition());
+        }
+        catch (IOException e)
+        {
+            Log.w(TAG, "Could not create a game state snapshot", e);
+            return null;
+        }
+
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    /**
+     * Helper method that returns how long (in milliseconds) the cards of aRoundSnapshot have left to remain popped up:
+     * if they have popped up, the time that remains of the duration limit that they were given,
+     * otherwise the whole of the duration limit that they will be given,
+     * since the time of the latest pop-up belongs to the previous round until they pop up
+     */
+    private static int getRemainingPopUpDuration(RoundSnapshot aRoundSnapshot)
+    {
+        if (!RoundSequencer.haveCardsBeenMadeToPopUp(aRoundSnapshot))
+        {
+            return RoundSequencer.getPopUpDurationLimitAwaitingPopUp(aRoundSnapshot);
+        }
+
+        long timeSinceCardsPoppedUp = SystemClock.uptimeMillis() - AnimationManager.timeOfLatestPopUp;
+
+        return (int) Math.max(0, AnimationManager.popUpDurationLimitOfLatestPopUp - timeSinceCardsPoppedUp);
+    }
+
+    /**
+     * Helper method that decodes aSnapshot and, if every food item and food card in it exists,
+     * applies it to the level properties, animation properties, collections and selector.
+     * Returns true if the snapshot was applied, otherwise returns false.
+     * Reuses the food items and food cards that are still resident from before a configuration change,
+     * and only creates them if the process has been restarted
+     */
+    private static boolean applySnapshot(byte[] aSnapshot) throws IOException
+    {
+        DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(aSnapshot));
+
+        if (dataInputStream.readByte() != FORMAT_VERSION)
+        {
+            return false;
+        }
+
+        dataInputStream.readLong();
+        // The time at which the snapshot was saved is only needed to check the expiry of the snapshot file
+
+        int currentLevel = dataInputStream.readByte();
+        int numberOfCardsToDisplay = dataInputStream.readByte();
+        int countOfSuccessfulTaps = dataInputStream.readByte();
+        int numberOfPopUpTimes = dataInputStream.readInt();
+
+        if (Collections.foodItems == null)
+        {
+            Collections.initialiseCollections();
+        }
+
+        Map<String, FoodItem> mapOfNamesToTheirFoodItems = new HashMap<>();
+
+        for (FoodItem foodItem : Collections.foodItems)
+        {
+            mapOfNamesToTheirFoodItems.put(foodItem.getName(), foodItem);
+        }
+
+        HashSet<FoodItem> correctlyTappedFoodItems = new HashSet<>();
+        int numberOfCorrectlyTappedFoodItems = dataInputStream.readByte();
+
+        for (int i = 0; i < numberOfCorrectlyTappedFoodItems; i++)
+        {
+            FoodItem foodItem = mapOfNamesToTheirFoodItems.get(dataInputStream.readUTF());
+
+            if (foodItem == null)
+            {
+                return false;
+            }
+
+            correctlyTappedFoodItems.add(foodItem);
+        }
+
+        HashMap<FoodItem, FoodCard> mapOfFoodItemsToTheirFoodCards = new HashMap<>();
+        int numberOfFoodItemsOnDisplay = dataInputStream.readByte();
+
+        for (int i = 0; i < numberOfFoodItemsOnDisplay; i++)
+        {
+            FoodItem foodItem = mapOfNamesToTheirFoodItems.get(dataInputStream.readUTF());
+            int indexOfFoodCard = dataInputStream.readByte();
+
+            if (foodItem == null || indexOfFoodCard < 0 || indexOfFoodCard >= Collections.foodCards.size())
+            {
+                return false;
+            }
+
+            mapOfFoodItemsToTheirFoodCards.put(foodItem, Collections.foodCards.get(indexOfFoodCard));
+        }
+
+        FoodItem correctFoodItem = mapOfNamesToTheirFoodItems.get(dataInputStream.readUTF());
+
+        if (correctFoodItem == null || !mapOfFoodItemsToTheirFoodCards.containsKey(correctFoodItem))
+        {
+            return false;
+        }
+
+        GameStateSnapshot.remainingPopUpDuration = Math.max(MINIMUM_REMAINING_POP_UP_DURATION, dataInputStream.readInt());
+        GameStateSnapshot.backgroundMusicPosition = dataInputStream.readInt();
+
+        LevelProperties.currentLevel = currentLevel;
+        LevelProperties.numberOfCardsToDisplay = numberOfCardsToDisplay;
+        LevelProperties.countOfSuccessfulTaps = countOfSuccessfulTaps;
+
+        AnimationManager.firstCardIsAboutToPopUp = true;
+        // Ensures that the food items are displayed on the newly created views
+        // before the cards pop up again
+
+        AnimationManager.numberOfPopUpTimes = numberOfPopUpTimes;
+        AnimationManager.popUpBeingManaged = numberOfPopUpTimes + 1;
+        // The restored round pops up again as the next pop-up,
+        // which is therefore the next one to be managed
+
+        Collections.correctlyTappedFoodItems = correctlyTappedFoodItems;
+        Collections.mapOfFoodItemsToTheirFoodCards = mapOfFoodItemsToTheirFoodCards;
+        Collections.availableFoodItems = new ArrayList<>(Collections.foodItems);
+        Collections.availableFoodItems.removeAll(mapOfFoodItemsToTheirFoodCards.keySet());
+        Collections.availableFoodCards = new ArrayList<>(Collections.foodCards);
+        Collections.availableFoodCards.removeAll(mapOfFoodItemsToTheirFoodCards.values());
+        Collections.audioQueue = new LinkedList<>();
+        Collections.mapOfPopUpTimesToWhetherACardHasBeenTappedOnTime = new HashMap<>();
+
+        for (Map.Entry<FoodItem, FoodCard> entry : mapOfFoodItemsToTheirFoodCards.entrySet())
+        {
+            entry.getValue().setFoodItem(entry.getKey());
+        }
+
+        Selector.correctFoodItem = correctFoodItem;
+        Selector.thereAreNewFoodItems = false;
+
+        return true;
+    }
+
+    /**
+     * Helper method that returns the contents of the snapshot file,
+     * or null if it doesn't exist, can't be read or has expired
+     */
+    private static byte[] readSnapshotFile(Context aContext)
+    {
+        AtomicFile snapshotFile = GameStateSnapshot.getSnapshotFile(aContext);
+
+        if (!snapshotFile.getBaseFile().exists())
+        {
+            return null;
+        }
+
+        try
+        {
+            byte[] snapshot = snapshotFile.readFully();
+            DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(snapshot));
+            dataInputStream.readByte();
+            long timeOfSnapshot = dataInputStream.readLong();
+
+            if (System.currentTimeMillis() - timeOfSnapshot > SNAPSHOT_FILE_EXPIRY)
+            {
+                return null;
+            }
+
+            return snapshot;
+        }
+        catch (IOException e)
+        {
+            Log.w(TAG, "Could not read " + snapshotFile.getBaseFile(), e);
+            return null;
+        }
+
+    }
+
+    /**
+     * Helper method, run on the file writer thread,
+     * that replaces the contents of aSnapshotFile with aSnapshot atomically
+     */
+    private static void writeSnapshotFile(AtomicFile aSnapshotFile, byte[] aSnapshot)
+    {
+        FileOutputStream fileOutputStream = null;
+
+        try
+        {
+            fileOutputStream = aSnapshotFile.startWrite();
+            fileOutputStream.write(aSnapshot);
+            aSnapshotFile.finishWrite(fileOutputStream);
+        }
+        catch (IOException e)
+        {
+            Log.w(TAG, "Could not write " + aSnapshotFile.getBaseFile(), e);
+
+            if (fileOutputStream != null)
+            {
+                aSnapshotFile.failWrite(fileOutputStream);
+            }
+
+        }
+
+    }
+
+    /**
+     * Helper method that returns the snapshot file
+     */
+    private static AtomicFile getSnapshotFile(Context aContext)
+    {
+        return new AtomicFile(new File(aContext.getFilesDir(), SNAPSHOT_FILE_NAME));
+    }
+
+    /**
+     * Helper method that starts the thread on which the snapshot file is written,
+     * unless it has already been started
+     */
+    private static void startFileWriterThread()
+    {
+        if (GameStateSnapshot.fileWriterThread == null)
+        {
+            GameStateSnapshot.fileWriterThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+            GameStateSnapshot.fileWriterThread.start();
+            GameStateSnapshot.fileWriterHandler = new Handler(GameStateSnapshot.fileWriterThread.getLooper());
+        }
+
+    }
+
+}
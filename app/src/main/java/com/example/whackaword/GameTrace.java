@@ -0,0 +1,195 @@
+package com.example.whackaword;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ObjectAnimator;
+import android.os.Build;
+import android.os.Trace;
+import android.view.View;
+
+/**
+ * The GameTrace class is responsible for marking the stages of the game loop
+ * in system traces (e.g. those captured with Perfetto),
+ * so that a trace shows exactly where the time of each round goes
+ *
+ * It wraps three kinds of trace event from android.os.Trace:
+ *
+ * sections, which mark a stage that begins and ends on the same thread
+ * within a single call (e.g. selecting the food cards for display)
+ *
+ * async sections, which mark a stage that begins in one callback and ends in another
+ * (e.g. an animation from its start to its end).
+ * Each is identified by its name and a cookie,
+ * so that several sections of the same name can overlap (e.g. one for each card)
+ *
+ * counters, which are tracks of a value over time.
+ * Every gauge of the MetricsRegistry class is traced as a counter
+ * (e.g. the length of the audio queue and the number of running animators)
+ *
+ * Async sections and counters are only available from Android 10 (API level 29),
+ * so they are skipped on older devices.
+ *
+ * Every method checks BuildConfig.TRACING_ENABLED, which is a compile-time constant
+ * that is only true for debug builds (see app/build.gradle),
+ * so in release builds the body of every method is compiled away
+ * and the calls are left empty for R8 to remove.
+ * Section names are constants so that no strings are built to trace a stage
+ */
+public class GameTrace
+{
+    public static final String SECTION_SELECT_FOOD_CARDS = "Selector.selectFoodCardsForDisplay";
+    public static final String SECTION_DISPLAY_FOOD_ITEMS = "DisplayManager.displayFoodItemsOnCards";
+    public static final String SECTION_CREATE_AUDIO_CLIP = "AudioManager.createClip";
+    public static final String SECTION_POSITIVE_FEEDBACK = "PositiveFeedbackAnimationManager.conveyPositiveFeedback";
+
+    public static final String ASYNC_SECTION_POP_UP_ANIMATION = "PopUpAnimation";
+    public static final String ASYNC_SECTION_HIDE_CARDS_ANIMATION = "HideCardsAnimation";
+    public static final String ASYNC_SECTION_AUDIO_CLIP_QUEUED = "AudioClip.queued";
+    public static final String ASYNC_SECTION_AUDIO_CLIP_WAITING = "AudioClip.waitingToStart";
+    public static final String ASYNC_SECTION_AUDIO_CLIP_PLAYING = "AudioClip.playing";
+    public static final String ASYNC_SECTION_TICK_ANIMATION = "TickAnimation";
+    public static final String ASYNC_SECTION_CARD_COLOUR_CHANGE = "CardColourChange";
+
+    private static final AnimatorListenerAdapter popUpAnimationTracer = GameTrace.createAnimationTracer(ASYNC_SECTION_POP_UP_ANIMATION);
+    private static final AnimatorListenerAdapter hideCardsAnimationTracer = GameTrace.createAnimationTracer(ASYNC_SECTION_HIDE_CARDS_ANIMATION);
+    private static final AnimatorListenerAdapter tickAnimationTracer = GameTrace.createAnimationTracer(ASYNC_SECTION_TICK_ANIMATION);
+
+    /**
+     * Begins a section called sectionName on the current thread
+     */
+    public static void beginSection(String sectionName)
+    {
+        if (BuildConfig.TRACING_ENABLED)
+        {
+            Trace.beginSection(sectionName);
+        }
+
+    }
+
+    /**
+     * Ends the section that was most recently begun on the current thread
+     */
+    public static void endSection()
+    {
+        if (BuildConfig.TRACING_ENABLED)
+        {
+            Trace.endSection();
+        }
+
+    }
+
+    /**
+     * Begins an async section called sectionName, identified by cookie
+     */
+    public static void beginAsyncSection(String sectionName, int cookie)
+    {
+        if (BuildConfig.TRACING_ENABLED && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q)
+        {
+            Trace.beginAsyncSection(sectionName, cookie);
+        }
+
+    }
+
+    /**
+     * Ends the async section called sectionName that is identified by cookie
+     */
+    public static void endAsyncSection(String sectionName, int cookie)
+    {
+        if (BuildConfig.TRACING_ENABLED && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q)
+        {
+            Trace.endAsyncSection(sectionName, cookie);
+        }
+
+    }
+
+    /**
+     * Sets the counter track called counterName to value
+     */
+    public static void setCounter(String counterName, long value)
+    {
+        if (BuildConfig.TRACING_ENABLED && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q)
+        {
+            Trace.setCounter(counterName, value);
+        }
+
+    }
+
+    /**
+     * Traces aPopUpAnimation, which must not have been started yet,
+     * as an async section from its start to its end
+     */
+    public static void tracePopUpAnimation(ObjectAnimator aPopUpAnimation)
+    {
+        if (BuildConfig.TRACING_ENABLED)
+        {
+            aPopUpAnimation.addListener(GameTrace.popUpAnimationTracer);
+        }
+
+    }
+
+    /**
+     * Traces aHideCardsAnimation, which must not have been started yet,
+     * as an async section from its start to its end
+     */
+    public static void traceHideCardsAnimation(ObjectAnimator aHideCardsAnimation)
+    {
+        if (BuildConfig.TRACING_ENABLED)
+        {
+            aHideCardsAnimation.addListener(GameTrace.hideCardsAnimationTracer);
+        }
+
+    }
+
+    /**
+     * Traces aTickAnimation, which must not have been started yet,
+     * as an async section from its start to its end
+     */
+    public static void traceTickAnimation(Animator aTickAnimation)
+    {
+        if (BuildConfig.TRACING_ENABLED)
+        {
+            aTickAnimation.addListener(GameTrace.tickAnimationTracer);
+        }
+
+    }
+
+    /**
+     * Helper method that creates a listener that traces each animation it is added to
+     * as an async section called sectionName.
+     * The cookie is the ID of the view that the animation targets (e.g. the card),
+     * so that the animations of different cards are shown as separate slices
+     */
+    private static AnimatorListenerAdapter createAnimationTracer(String sectionName)
+    {
+        return new AnimatorListenerAdapter()
+        {
+            @Override
+            public void onAnimationStart(Animator animation)
+            {
+                GameTrace.beginAsyncSection(sectionName, GameTrace.getCookie(animation));
+            }
+
+            @Override
+            public void onAnimationEnd(Animator animation)
+            {
+                GameTrace.endAsyncSection(sectionName, GameTrace.getCookie(animation));
+            }
+
+        };
+    }
+
+    /**
+     * Helper method that returns the ID of the view that anAnimator targets,
+     * or 0 if it doesn't target a single view
+     */
+    private static int getCookie(Animator anAnimator)
+    {
+        if (anAnimator instanceof ObjectAnimator && ((ObjectAnimator) anAnimator).getTarget() instanceof View)
+        {
+            return ((View) ((ObjectAnimator) anAnimator).getTarget()).getId();
+        }
+
+        return 0;
+    }
+
+}
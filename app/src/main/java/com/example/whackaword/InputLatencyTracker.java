@@ -0,0 +1,167 @@
+package com.example.whackaword;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+
+/**
+ * The InputLatencyTracker class is responsible for measuring
+ * the latency between a finger being put down on a food card
+ * and the first frame in which the game responds to the tap,
+ * separately for each input mode,
+ * so that the touch-down mode can be compared with the click mode
+ *
+ * When a tap is committed, a frame callback is posted to the Choreographer.
+ * The feedback (e.g. the tick) is started while the tap is handled,
+ * so the next frame that is produced is the first one that can show it,
+ * and the time at which that frame is produced, less the time at which the finger was put down,
+ * is recorded as the latency of the tap
+ *
+ * It contains the following class variables, each of which is indexed by input mode:
+ *
+ * numbersOfSamples, totalLatencies and maximumLatencies,
+ * which are the number of taps measured, the sum of their latencies and the largest of them
+ *
+ * latencyHistograms, which count the latencies in buckets of
+ * HISTOGRAM_BUCKET_WIDTH milliseconds each, so that percentiles can be estimated.
+ * Latencies beyond the last bucket are counted in the last bucket
+ */
+public class InputLatencyTracker
+{
+    private static final String TAG = "InputLatencyTracker";
+
+    private static final int NUMBER_OF_INPUT_MODES = 2;
+
+    private static final int HISTOGRAM_BUCKET_WIDTH = 8;
+    // Each bucket of the histograms is eight milliseconds wide, i.e. about half a frame at 60Hz
+
+    private static final int NUMBER_OF_HISTOGRAM_BUCKETS = 64;
+    // Latencies of up to 512 milliseconds (64 buckets of 8 milliseconds) are told apart
+
+    private static final int[] numbersOfSamples = new int[NUMBER_OF_INPUT_MODES];
+    private static final long[] totalLatencies = new long[NUMBER_OF_INPUT_MODES];
+    private static final long[] maximumLatencies = new long[NUMBER_OF_INPUT_MODES];
+    private static final int[][] latencyHistograms = new int[NUMBER_OF_INPUT_MODES][NUMBER_OF_HISTOGRAM_BUCKETS];
+
+    private static long pendingTouchDownTime;
+    private static int pendingInputMode;
+    private static boolean feedbackFrameIsPending;
+
+    private static final Choreographer.FrameCallback feedbackFrameCallback = frameTimeNanos -> InputLatencyTracker.recordFeedbackFrame();
+
+    /**
+     * Records that a tap was committed in anInputMode
+     * by a finger that was put down at touchDownTime
+     * (in milliseconds since boot, as given by MotionEvent),
+     * and measures its latency once the next frame is produced
+     */
+    public static void onTapCommitted(int anInputMode, long touchDownTime)
+    {
+        if (InputLatencyTracker.feedbackFrameIsPending)
+        {
+            return;
+        }
+
+        InputLatencyTracker.pendingTouchDownTime = touchDownTime;
+        InputLatencyTracker.pendingInputMode = anInputMode;
+        InputLatencyTracker.feedbackFrameIsPending = true;
+
+        Choreographer.getInstance().postFrameCallback(InputLatencyTracker.feedbackFrameCallback);
+    }
+
+    /**
+     * Returns the mean latency (in milliseconds) of the taps measured in anInputMode,
+     * or 0 if none have been measured
+     */
+    public static long getMeanLatency(int anInputMode)
+    {
+        int numberOfSamples = InputLatencyTracker.numbersOfSamples[anInputMode];
+
+        return numberOfSamples == 0 ? 0 : InputLatencyTracker.totalLatencies[anInputMode] / numberOfSamples;
+    }
+
+    /**
+     * Returns an estimate of the given percentile (between 0 and 100)
+     * of the latencies (in milliseconds) of the taps measured in anInputMode,
+     * i.e. the upper edge of the histogram bucket in which that percentile falls,
+     * or 0 if none have been measured
+     */
+    public static long getPercentileLatency(int anInputMode, int percentile)
+    {
+        int numberOfSamples = InputLatencyTracker.numbersOfSamples[anInputMode];
+
+        if (numberOfSamples == 0)
+        {
+            return 0;
+        }
+
+        long rank = Math.max(1, ((long) numberOfSamples * percentile + 99) / 100);
+        long cumulativeCount = 0;
+
+        for (int bucket = 0; bucket < NUMBER_OF_HISTOGRAM_BUCKETS; bucket++)
+        {
+            cumulativeCount += InputLatencyTracker.latencyHistograms[anInputMode][bucket];
+
+            if (cumulativeCount >= rank)
+            {
+                return (long) (bucket + 1) * HISTOGRAM_BUCKET_WIDTH;
+            }
+
+        }
+
+        return InputLatencyTracker.maximumLatencies[anInputMode];
+    }
+
+    /**
+     * Returns a report that compares the latencies of the two input modes
+     */
+    public static String getReport()
+    {
+        StringBuilder report = new StringBuilder("Touch-down to feedback latency:\n");
+
+        for (int inputMode = 0; inputMode < NUMBER_OF_INPUT_MODES; inputMode++)
+        {
+            report.append("  ").append(InputSettings.getInputModeName(inputMode)).append(": ")
+                    .append(InputLatencyTracker.numbersOfSamples[inputMode]).append(" taps, mean ")
+                    .append(InputLatencyTracker.getMeanLatency(inputMode)).append("ms, p50 <= ")
+                    .append(InputLatencyTracker.getPercentileLatency(inputMode, 50)).append("ms, p95 <= ")
+                    .append(InputLatencyTracker.getPercentileLatency(inputMode, 95)).append("ms, max ")
+                    .append(InputLatencyTracker.maximumLatencies[inputMode]).append("ms\n");
+        }
+
+        return report.toString();
+    }
+
+    /**
+     * Logs the report if the app is debuggable
+     */
+    public static void logReport(Context aContext)
+    {
+        if ((aContext.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0)
+        {
+            Log.d(TAG, InputLatencyTracker.getReport());
+        }
+
+    }
+
+    /**
+     * Helper method that records the latency of the pending tap
+     * when the first frame after it is produced
+     */
+    private static void recordFeedbackFrame()
+    {
+        InputLatencyTracker.feedbackFrameIsPending = false;
+
+        long latency = Math.max(0, SystemClock.uptimeMillis() - InputLatencyTracker.pendingTouchDownTime);
+        int inputMode = InputLatencyTracker.pendingInputMode;
+        int bucket = (int) Math.min(latency / HISTOGRAM_BUCKET_WIDTH, NUMBER_OF_HISTOGRAM_BUCKETS - 1);
+
+        InputLatencyTracker.numbersOfSamples[inputMode]++;
+        InputLatencyTracker.totalLatencies[inputMode] += latency;
+        InputLatencyTracker.maximumLatencies[inputMode] = Math.max(InputLatencyTracker.maximumLatencies[inputMode], latency);
+        InputLatencyTracker.latencyHistograms[inputMode][bucket]++;
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.example.whackaword;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * The InputSettings class is responsible for the settings
+ * that determine how taps on food cards are recognised in the Whack-A-Word game.
+ * The settings are kept per profile (e.g. one for each child who plays the game)
+ * in shared preferences. The profile is chosen when the activity is created,
+ * and its settings are stored through the extras of the intent that starts the activity
+ * (see the WhackAWordActivity class)
+ *
+ * It contains four class variables:
+ *
+ * inputMode, which is either INPUT_MODE_CLICK,
+ * in which a tap is only committed when the finger is lifted
+ * from the same food card that it was put down on,
+ * or INPUT_MODE_TOUCH_DOWN,
+ * in which a tap is committed as soon as a finger is put down on a food card.
+ * Small children often press and hold rather than tap,
+ * so the touch-down mode gives them feedback without waiting for their finger to be lifted
+ *
+ * hitSlopInDp, which is the distance (in density-independent pixels)
+ * by which the bounds of each food card are extended when hit testing,
+ * so that a touch just outside a card still counts as a touch on it
+ *
+ * hitSlopInPixels, which is hitSlopInDp converted to pixels for the current screen
+ *
+ * profileName, which is the name of the profile whose settings are in use
+ */
+public class InputSettings
+{
+    public static final int INPUT_MODE_CLICK = 0;
+    public static final int INPUT_MODE_TOUCH_DOWN = 1;
+
+    public static final String DEFAULT_PROFILE_NAME = "default";
+
+    private static final int DEFAULT_INPUT_MODE = INPUT_MODE_CLICK;
+    private static final int DEFAULT_HIT_SLOP_IN_DP = 0;
+    private static final int MAXIMUM_HIT_SLOP_IN_DP = 48;
+    // The hit slop is limited to 48dp so that neighbouring food cards
+    // can't be tapped through each other's extended bounds
+
+    private static final String SHARED_PREFERENCES_NAME = "input_settings";
+    private static final String INPUT_MODE_KEY_PREFIX = "input_mode_";
+    private static final String HIT_SLOP_KEY_PREFIX = "hit_slop_in_dp_";
+
+    public static int inputMode = DEFAULT_INPUT_MODE;
+    public static int hitSlopInDp = DEFAULT_HIT_SLOP_IN_DP;
+    public static float hitSlopInPixels;
+    public static String profileName = DEFAULT_PROFILE_NAME;
+
+    /**
+     * Loads the input settings of the profile called aProfileName,
+     * or of the default profile if aProfileName is null
+     */
+    public static void load(Context aContext, String aProfileName)
+    {
+        InputSettings.profileName = aProfileName != null ? aProfileName : DEFAULT_PROFILE_NAME;
+
+        SharedPreferences sharedPreferences = InputSettings.getSharedPreferences(aContext);
+
+        int storedInputMode = sharedPreferences.getInt(INPUT_MODE_KEY_PREFIX + InputSettings.profileName, DEFAULT_INPUT_MODE);
+        InputSettings.inputMode = storedInputMode == INPUT_MODE_TOUCH_DOWN ? INPUT_MODE_TOUCH_DOWN : INPUT_MODE_CLICK;
+
+        int storedHitSlopInDp = sharedPreferences.getInt(HIT_SLOP_KEY_PREFIX + InputSettings.profileName, DEFAULT_HIT_SLOP_IN_DP);
+        InputSettings.hitSlopInDp = Math.max(0, Math.min(storedHitSlopInDp, MAXIMUM_HIT_SLOP_IN_DP));
+        InputSettings.hitSlopInPixels = InputSettings.hitSlopInDp * aContext.getResources().getDisplayMetrics().density;
+    }
+
+    /**
+     * Stores anInputMode and aHitSlopInDp as the input settings of the profile called aProfileName,
+     * and applies them straight away if that profile is the one in use.
+     * Throws an IllegalArgumentException if anInputMode is unknown (see the isKnownInputMode method)
+     */
+    public static void save(Context aContext, String aProfileName, int anInputMode, int aHitSlopInDp)
+    {
+        if (!InputSettings.isKnownInputMode(anInputMode))
+        {
+            throw new IllegalArgumentException("Unknown input mode: " + anInputMode);
+        }
+
+        InputSettings.getSharedPreferences(aContext).edit()
+                .putInt(INPUT_MODE_KEY_PREFIX + aProfileName, anInputMode)
+                .putInt(HIT_SLOP_KEY_PREFIX + aProfileName, aHitSlopInDp)
+                .apply();
+
+        if (aProfileName.equals(InputSettings.profileName))
+        {
+            InputSettings.load(aContext, aProfileName);
+        }
+
+    }
+
+    /**
+     * Returns true if anInputMode is either INPUT_MODE_CLICK or INPUT_MODE_TOUCH_DOWN,
+     * otherwise returns false
+     */
+    public static boolean isKnownInputMode(int anInputMode)
+    {
+        return anInputMode == INPUT_MODE_CLICK || anInputMode == INPUT_MODE_TOUCH_DOWN;
+    }
+
+    /**
+     * Returns true if taps are committed as soon as a finger is put down on a food card,
+     * otherwise returns false
+     */
+    public static boolean tapsCommitOnTouchDown()
+    {
+        return InputSettings.inputMode == INPUT_MODE_TOUCH_DOWN;
+    }
+
+    /**
+     * Returns the name of anInputMode
+     */
+    public static String getInputModeName(int anInputMode)
+    {
+        return anInputMode == INPUT_MODE_TOUCH_DOWN ? "touch-down" : "click";
+    }
+
+    /**
+     * Helper method that returns the shared preferences in which the input settings are stored
+     */
+    private static SharedPreferences getSharedPreferences(Context aContext)
+    {
+        return aContext.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+}
@@ -3,6 +3,15 @@ package com.example.whackaword;
 /**
  * The LevelProperties class is responsible for managing the properties of levels,
  * such as the current level, the number of cards to display, and the count of successful taps
+ *
+ * Once the game logic thread has started (see the GameLogic class),
+ * the level properties are only used on that thread;
+ * the main thread reads them from the latest RoundSnapshot instead
+ *
+ * In stress mode (see the StressMode class), the levels never end:
+ * the user keeps levelling up beyond LAST_LEVEL and never wins,
+ * and each level beyond it displays one more card than the level before,
+ * up to a card in every hole
  */
 public class LevelProperties
 {
@@ -40,20 +49,35 @@ public class LevelProperties
      */
     public static void setNextLevelProperties()
     {
-        if (LevelProperties.currentLevel < LAST_LEVEL)
+        if (LevelProperties.currentLevel < LAST_LEVEL || StressMode.isOn)
         {
             LevelProperties.currentLevel++;
             LevelProperties.countOfSuccessfulTaps = 0;
+            LevelProperties.numberOfCardsToDisplay = LevelProperties.getNumberOfCardsToDisplayForLevel(LevelProperties.currentLevel);
+        }
 
-            if (LevelProperties.currentLevel == 2)
-            {
-                LevelProperties.numberOfCardsToDisplay = NUMBER_OF_CARDS_TO_DISPLAY_FOR_LEVEL_2;
-            }
-            else // There are currently only three levels
-            {
-                LevelProperties.numberOfCardsToDisplay = NUMBER_OF_CARDS_TO_DISPLAY_FOR_LEVEL_3;
-            }
+    }
 
+    /**
+     * Returns the number of cards to display at the given level
+     */
+    public static int getNumberOfCardsToDisplayForLevel(int level)
+    {
+        if (level == 1)
+        {
+            return NUMBER_OF_CARDS_TO_DISPLAY_FOR_LEVEL_1;
+        }
+        else if (level == 2)
+        {
+            return NUMBER_OF_CARDS_TO_DISPLAY_FOR_LEVEL_2;
+        }
+        else if (level == LAST_LEVEL || !StressMode.isOn) // There are currently only three levels ...
+        {
+            return NUMBER_OF_CARDS_TO_DISPLAY_FOR_LEVEL_3;
+        }
+        else // ... except in stress mode
+        {
+            return Math.min(NUMBER_OF_CARDS_TO_DISPLAY_FOR_LEVEL_3 + level - LAST_LEVEL, PlayfieldBuilder.NUMBER_OF_HOLES);
         }
 
     }
@@ -64,7 +88,7 @@ public class LevelProperties
      */
     public static boolean userHasReachedTheNextLevel()
     {
-        return LevelProperties.countOfSuccessfulTaps == REQUIRED_NUMBER_OF_SUCCESSFUL_TAPS_PER_LEVEL && LevelProperties.currentLevel < LAST_LEVEL;
+        return LevelProperties.countOfSuccessfulTaps == REQUIRED_NUMBER_OF_SUCCESSFUL_TAPS_PER_LEVEL && (LevelProperties.currentLevel < LAST_LEVEL || StressMode.isOn);
     }
 
     /**
@@ -73,7 +97,7 @@ public class LevelProperties
      */
     public static boolean userWins()
     {
-        return LevelProperties.countOfSuccessfulTaps == REQUIRED_NUMBER_OF_SUCCESSFUL_TAPS_PER_LEVEL && LevelProperties.currentLevel == LAST_LEVEL;
+        return LevelProperties.countOfSuccessfulTaps == REQUIRED_NUMBER_OF_SUCCESSFUL_TAPS_PER_LEVEL && LevelProperties.currentLevel == LAST_LEVEL && !StressMode.isOn;
     }
 
 }
\ No newline at end of file
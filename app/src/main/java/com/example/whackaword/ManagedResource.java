@@ -0,0 +1,40 @@
+package com.example.whackaword;
+
+/**
+ * The interface ManagedResource provides callback methods
+ * through which the ResourceManager class ties a native or timed resource
+ * (such as a media player, a sound pool or an animation)
+ * to the lifecycle of the activity
+ */
+public interface ManagedResource
+{
+    /**
+     * Callback method invoked when the activity is stopped,
+     * which should pause the resource or trim what it holds
+     */
+    void pause();
+
+    /**
+     * Callback method invoked when the activity is started again after having been stopped,
+     * which should resume the resource cheaply, without recreating it
+     */
+    void resume();
+
+    /**
+     * Callback method invoked when the activity is destroyed,
+     * which should release the resource and any reference it holds to the activity
+     */
+    void release();
+
+    /**
+     * Returns true if the resource should be kept when the activity is destroyed
+     * only to be recreated because of a configuration change,
+     * otherwise returns false
+     */
+    boolean survivesConfigurationChanges();
+
+    /**
+     * Returns a short description of the resource for the debug report
+     */
+    String describe();
+}
@@ -0,0 +1,292 @@
+package com.example.whackaword;
+
+import java.io.PrintWriter;
+
+/**
+ * The MetricsRegistry class is responsible for collecting metrics
+ * from every manager class of the Whack-A-Word game,
+ * so that the live state of a misbehaving device can be inspected
+ * (via adb shell dumpsys activity, see the dump method in the WhackAWordActivity class)
+ *
+ * There are three kinds of metric, each identified by an int constant
+ * that indexes a preallocated array, so that recording a metric
+ * is a single array update that allocates nothing:
+ *
+ * counters, which only ever increase (e.g. the number of rounds played)
+ *
+ * gauges, which record a current value and the highest value it has reached
+ * (e.g. the depth of the audio queue)
+ *
+ * timers, which record durations in fixed buckets whose bounds are powers of two
+ * (bucket 0 holds durations under a millisecond, bucket 1 durations of one millisecond,
+ * bucket 2 durations of two to three milliseconds, bucket 3 durations of four to seven milliseconds, etc.),
+ * along with their count, total and maximum
+ *
+ * The metrics of the events of the game (rounds, taps, timeouts, level ups and wins)
+ * are recorded by gameEventRecorder, which subscribes to the GameEventPipeline class,
+ * so they are recorded in a batch on the frame after each event rather than on the tap path
+ *
+ * Metrics are only recorded on the main thread, so no synchronisation is needed
+ */
+public class MetricsRegistry
+{
+    public static final int COUNTER_ROUNDS = 0;
+    public static final int COUNTER_CORRECT_TAPS = 1;
+    public static final int COUNTER_INCORRECT_TAPS = 2;
+    public static final int COUNTER_TIMEOUTS = 3;
+    public static final int COUNTER_LEVEL_UPS = 4;
+    public static final int COUNTER_WINS = 5;
+    public static final int COUNTER_AUDIO_CLIPS_PLAYED = 6;
+    public static final int COUNTER_SOUND_EFFECTS_PLAYED = 7;
+    public static final int COUNTER_TASKS_POSTED = 8;
+    public static final int COUNTER_ANIMATORS_STARTED = 9;
+    public static final int COUNTER_IMAGE_CACHE_HITS = 10;
+    public static final int COUNTER_IMAGE_CACHE_MISSES = 11;
+    public static final int COUNTER_ROUND_PLAN_HITS = 12;
+    public static final int COUNTER_ROUND_PLAN_MISSES = 13;
+    public static final int COUNTER_AUDIO_PREFETCH_HITS = 14;
+    public static final int COUNTER_AUDIO_PREFETCH_MISSES = 15;
+    public static final int COUNTER_SOUND_EFFECTS_DROPPED = 16;
+    public static final int COUNTER_SOUND_EFFECTS_STOLEN = 17;
+    // Sound effects that were given no voice, and playing sound effects that were stopped for one that mattered more
+    // (see the SoundEffectVoiceAllocator class)
+    public static final int COUNTER_BITMAP_POOL_HITS = 18;
+    public static final int COUNTER_BITMAP_POOL_MISSES = 19;
+    // Raster images decoded into a pooled bitmap, and into a newly allocated one (see the CardImageDecoder class)
+    private static final int NUMBER_OF_COUNTERS = 20;
+
+    private static final String[] COUNTER_NAMES =
+            {
+                    "rounds", "correct_taps", "incorrect_taps", "timeouts", "level_ups", "wins",
+                    "audio_clips_played", "sound_effects_played", "tasks_posted", "animators_started",
+                    "image_cache_hits", "image_cache_misses", "round_plan_hits", "round_plan_misses",
+                    "audio_prefetch_hits", "audio_prefetch_misses", "sound_effects_dropped", "sound_effects_stolen",
+                    "bitmap_pool_hits", "bitmap_pool_misses"
+            };
+
+    public static final int GAUGE_AUDIO_QUEUE_DEPTH = 0;
+    public static final int GAUGE_RUNNING_ANIMATORS = 1;
+    public static final int GAUGE_SCHEDULED_TASKS = 2;
+    public static final int GAUGE_CARDS_ON_DISPLAY = 3;
+    private static final int NUMBER_OF_GAUGES = 4;
+
+    private static final String[] GAUGE_NAMES =
+            {
+                    "audio_queue_depth", "running_animators", "scheduled_tasks", "cards_on_display"
+            };
+
+    public static final int TIMER_TAP_REACTION = 0;
+    // From cards popping up to the tap that settles the round
+    public static final int TIMER_ROUND_DURATION = 1;
+    // From cards popping up to cards popping up again
+    public static final int TIMER_AUDIO_CLIP = 2;
+    // From a clip being taken off the audio queue to the completion of its playback
+    private static final int NUMBER_OF_TIMERS = 3;
+
+    private static final String[] TIMER_NAMES =
+            {
+                    "tap_reaction_ms", "round_duration_ms", "audio_clip_ms"
+            };
+
+    private static final int NUMBER_OF_TIMER_BUCKETS = 20;
+    // The last bucket holds durations of 2^18 milliseconds (about four and a half minutes) or more
+
+    private static final long[] counters = new long[NUMBER_OF_COUNTERS];
+    private static final long[] gauges = new long[NUMBER_OF_GAUGES];
+    private static final long[] gaugeMaximums = new long[NUMBER_OF_GAUGES];
+    private static final long[][] timerBuckets = new long[NUMBER_OF_TIMERS][NUMBER_OF_TIMER_BUCKETS];
+    private static final long[] timerCounts = new long[NUMBER_OF_TIMERS];
+    private static final long[] timerTotals = new long[NUMBER_OF_TIMERS];
+    private static final long[] timerMaximums = new long[NUMBER_OF_TIMERS];
+
+    public static final GameEventListener gameEventRecorder = gameEvent ->
+    {
+        switch (gameEvent.getType())
+        {
+            case GameEvent.TYPE_ROUND_PLANNED:
+                MetricsRegistry.increment(gameEvent.getFlag() ? COUNTER_ROUND_PLAN_HITS : COUNTER_ROUND_PLAN_MISSES);
+                break;
+
+            case GameEvent.TYPE_CARDS_SHOWN:
+                if (gameEvent.getDuration() >= 0)
+                {
+                    MetricsRegistry.recordTime(TIMER_ROUND_DURATION, gameEvent.getDuration());
+                }
+
+                MetricsRegistry.increment(COUNTER_ROUNDS);
+                MetricsRegistry.setGauge(GAUGE_CARDS_ON_DISPLAY, gameEvent.getNumberOfCards());
+                break;
+
+            case GameEvent.TYPE_TAPPED:
+                MetricsRegistry.recordTime(TIMER_TAP_REACTION, gameEvent.getDuration());
+                MetricsRegistry.increment(gameEvent.getFlag() ? COUNTER_CORRECT_TAPS : COUNTER_INCORRECT_TAPS);
+                break;
+
+            case GameEvent.TYPE_TIMED_OUT:
+                MetricsRegistry.increment(COUNTER_TIMEOUTS);
+                break;
+
+            case GameEvent.TYPE_LEVEL_UP:
+                MetricsRegistry.increment(COUNTER_LEVEL_UPS);
+                break;
+
+            case GameEvent.TYPE_WON:
+                MetricsRegistry.increment(COUNTER_WINS);
+                break;
+        }
+
+    };
+
+    /**
+     * Increments the given counter by one
+     */
+    public static void increment(int counter)
+    {
+        MetricsRegistry.counters[counter]++;
+    }
+
+    /**
+     * Returns the value of the given counter
+     */
+    public static long getCounter(int counter)
+    {
+        return MetricsRegistry.counters[counter];
+    }
+
+    /**
+     * Sets the given gauge to value,
+     * which is also traced as a counter track of the same name
+     */
+    public static void setGauge(int gauge, long value)
+    {
+        MetricsRegistry.gauges[gauge] = value;
+        GameTrace.setCounter(GAUGE_NAMES[gauge], value);
+
+        if (value > MetricsRegistry.gaugeMaximums[gauge])
+        {
+            MetricsRegistry.gaugeMaximums[gauge] = value;
+        }
+
+    }
+
+    /**
+     * Returns the current value of the given gauge
+     */
+    public static long getGauge(int gauge)
+    {
+        return MetricsRegistry.gauges[gauge];
+    }
+
+    /**
+     * Records a duration (in milliseconds) in the given timer
+     */
+    public static void recordTime(int timer, long duration)
+    {
+        long nonNegativeDuration = Math.max(0, duration);
+        int bucket = Math.min(64 - Long.numberOfLeadingZeros(nonNegativeDuration), NUMBER_OF_TIMER_BUCKETS - 1);
+
+        MetricsRegistry.timerBuckets[timer][bucket]++;
+        MetricsRegistry.timerCounts[timer]++;
+        MetricsRegistry.timerTotals[timer] += nonNegativeDuration;
+
+        if (nonNegativeDuration > MetricsRegistry.timerMaximums[timer])
+        {
+            MetricsRegistry.timerMaximums[timer] = nonNegativeDuration;
+        }
+
+    }
+
+    /**
+     * Returns the number of durations recorded in the given timer
+     */
+    public static long getTimerCount(int timer)
+    {
+        return MetricsRegistry.timerCounts[timer];
+    }
+
+    /**
+     * Prints every metric to aPrintWriter, each line starting with prefix
+     */
+    public static void dump(String prefix, PrintWriter aPrintWriter)
+    {
+        aPrintWriter.print(prefix);
+        aPrintWriter.println("Counters:");
+
+        for (int counter = 0; counter < NUMBER_OF_COUNTERS; counter++)
+        {
+            aPrintWriter.print(prefix);
+            aPrintWriter.print("  ");
+            aPrintWriter.print(COUNTER_NAMES[counter]);
+            aPrintWriter.print('=');
+            aPrintWriter.println(MetricsRegistry.counters[counter]);
+        }
+
+        MetricsRegistry.dumpHitRate(prefix, aPrintWriter, "image_cache_hit_rate", COUNTER_IMAGE_CACHE_HITS, COUNTER_IMAGE_CACHE_MISSES);
+        MetricsRegistry.dumpHitRate(prefix, aPrintWriter, "round_plan_hit_rate", COUNTER_ROUND_PLAN_HITS, COUNTER_ROUND_PLAN_MISSES);
+        MetricsRegistry.dumpHitRate(prefix, aPrintWriter, "audio_prefetch_hit_rate", COUNTER_AUDIO_PREFETCH_HITS, COUNTER_AUDIO_PREFETCH_MISSES);
+        MetricsRegistry.dumpHitRate(prefix, aPrintWriter, "bitmap_pool_hit_rate", COUNTER_BITMAP_POOL_HITS, COUNTER_BITMAP_POOL_MISSES);
+
+        aPrintWriter.print(prefix);
+        aPrintWriter.println("Gauges (current/maximum):");
+
+        for (int gauge = 0; gauge < NUMBER_OF_GAUGES; gauge++)
+        {
+            aPrintWriter.print(prefix);
+            aPrintWriter.print("  ");
+            aPrintWriter.print(GAUGE_NAMES[gauge]);
+            aPrintWriter.print('=');
+            aPrintWriter.print(MetricsRegistry.gauges[gauge]);
+            aPrintWriter.print('/');
+            aPrintWriter.println(MetricsRegistry.gaugeMaximums[gauge]);
+        }
+
+        aPrintWriter.print(prefix);
+        aPrintWriter.println("Timers (count, mean, maximum, then non-empty buckets as lower bound:count):");
+
+        for (int timer = 0; timer < NUMBER_OF_TIMERS; timer++)
+        {
+            long count = MetricsRegistry.timerCounts[timer];
+
+            aPrintWriter.print(prefix);
+            aPrintWriter.print("  ");
+            aPrintWriter.print(TIMER_NAMES[timer]);
+            aPrintWriter.print(" n=");
+            aPrintWriter.print(count);
+            aPrintWriter.print(" mean=");
+            aPrintWriter.print(count == 0 ? 0 : MetricsRegistry.timerTotals[timer] / count);
+            aPrintWriter.print(" max=");
+            aPrintWriter.print(MetricsRegistry.timerMaximums[timer]);
+
+            for (int bucket = 0; bucket < NUMBER_OF_TIMER_BUCKETS; bucket++)
+            {
+                if (MetricsRegistry.timerBuckets[timer][bucket] != 0)
+                {
+                    aPrintWriter.print(' ');
+                    aPrintWriter.print(bucket == 0 ? 0 : 1L << (bucket - 1));
+                    aPrintWriter.print(':');
+                    aPrintWriter.print(MetricsRegistry.timerBuckets[timer][bucket]);
+                }
+
+            }
+
+            aPrintWriter.println();
+        }
+
+    }
+
+    /**
+     * Helper method that prints the percentage of lookups counted by hitCounter
+     * out of those counted by hitCounter and missCounter together
+     */
+    private static void dumpHitRate(String prefix, PrintWriter aPrintWriter, String hitRateName, int hitCounter, int missCounter)
+    {
+        long lookups = MetricsRegistry.counters[hitCounter] + MetricsRegistry.counters[missCounter];
+
+        aPrintWriter.print(prefix);
+        aPrintWriter.print("  ");
+        aPrintWriter.print(hitRateName);
+        aPrintWriter.print('=');
+        aPrintWriter.println(lookups == 0 ? "n/a" : (MetricsRegistry.counters[hitCounter] * 100 / lookups) + "%");
+    }
+
+}
@@ -0,0 +1,337 @@
+package com.example.whackaword;
+
+import android.content.Context;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
+
+import androidx.constraintlayout.widget.ConstraintLayout;
+import androidx.constraintlayout.widget.Guideline;
+
+/**
+ * The PlayfieldBuilder class is responsible for building the playfield of the Whack-A-Word game in code,
+ * from the description of the board below, rather than inflating it from an XML layout,
+ * so that the reflection of the LayoutInflater is kept off the main thread at startup
+ *
+ * The playfield is a ConstraintLayout containing, from back to front:
+ * the guidelines that divide it, the sky and the ground,
+ * then for each hole the hole, its card (a frame around the image view of its food item)
+ * and the superimposed ground in front of the card, and lastly the tick.
+ * Each view is given the ID declared for it in ids.xml,
+ * so the IDs in the Collections class refer to the views that are built,
+ * and the views are returned in a PlayfieldViews object as they are built,
+ * so that the manager classes never have to search the playfield for them
+ *
+ * The board is described once for each class of screen
+ * (i.e. for small screens, and for screens of width LARGE_SCREEN_WIDTH and above,
+ * see the ScreenProperties class), in the arrays below, indexed by hole:
+ *
+ * the guidelines that each hole is constrained between (GUIDELINES_BEFORE_HOLES and GUIDELINES_AFTER_HOLES,
+ * where 0 stands for the edge of the playfield), and the row that it is in (HOLE_ROWS),
+ * which are the same for both classes of screen
+ *
+ * the biases of each hole between its guidelines, and the sizes of the holes, cards,
+ * images and superimposed ground (in dp), which differ between the classes of screen
+ *
+ * The layout parameters are kept apart from the views themselves (see the applyLayoutParameters method),
+ * so that when the class of screen changes, the PlayfieldRelayout class
+ * can give the existing views the layout parameters of the new class of screen
+ */
+public class PlayfieldBuilder
+{
+    public static final int NUMBER_OF_HOLES = 5;
+
+    private static final int[] HOLE_IDS = {R.id.hole1, R.id.hole2, R.id.hole3, R.id.hole4, R.id.hole5};
+    private static final int[] CARD_IDS = {R.id.card1, R.id.card2, R.id.card3, R.id.card4, R.id.card5};
+    private static final int[] IMAGE_VIEW_IDS =
+            {
+                    R.id.variable_food_item_for_card_1, R.id.variable_food_item_for_card_2, R.id.variable_food_item_for_card_3,
+                    R.id.variable_food_item_for_card_4, R.id.variable_food_item_for_card_5
+            };
+    private static final int[] SUPERIMPOSED_GROUND_IDS =
+            {
+                    R.id.superimposed_ground_1, R.id.superimposed_ground_2, R.id.superimposed_ground_3,
+                    R.id.superimposed_ground_4, R.id.superimposed_ground_5
+            };
+
+    private static final int[] GUIDELINE_IDS =
+            {
+                    R.id.horizontal_guideline_between_sky_and_ground, R.id.horizontal_guideline_between_first_three_holes_and_last_two,
+                    R.id.vertical_guideline_between_hole_1_and_hole_2, R.id.vertical_guideline_between_hole_2_and_hole_3,
+                    R.id.vertical_guideline_between_hole_4_and_hole_5
+            };
+    private static final boolean[] GUIDELINE_IS_HORIZONTAL = {true, true, false, false, false};
+    private static final float[] GUIDELINE_PERCENTS = {0.25f, 0.625f, 0.3333f, 0.6666f, 0.5f};
+    // The sky takes the top quarter of the playfield,
+    // the first three holes are above five eighths of its height, and the last two below it
+
+    private static final int PLAYFIELD_EDGE = ConstraintLayout.LayoutParams.PARENT_ID;
+    private static final int[] GUIDELINES_BEFORE_HOLES =
+            {
+                    PLAYFIELD_EDGE, R.id.vertical_guideline_between_hole_1_and_hole_2, R.id.vertical_guideline_between_hole_2_and_hole_3,
+                    PLAYFIELD_EDGE, R.id.vertical_guideline_between_hole_4_and_hole_5
+            };
+    private static final int[] GUIDELINES_AFTER_HOLES =
+            {
+                    R.id.vertical_guideline_between_hole_1_and_hole_2, R.id.vertical_guideline_between_hole_2_and_hole_3, PLAYFIELD_EDGE,
+                    R.id.vertical_guideline_between_hole_4_and_hole_5, PLAYFIELD_EDGE
+            };
+    private static final int[] HOLE_ROWS = {0, 0, 0, 1, 1};
+
+    private static final float[] HORIZONTAL_BIASES_OF_HOLES_ON_SMALL_SCREENS = {0.5f, 0.5f, 0.5f, 0.732f, 0.268f};
+    private static final float[] VERTICAL_BIASES_OF_HOLES_ON_SMALL_SCREENS = {0.5f, 0.5f, 0.5f, 0.8f, 0.8f};
+    private static final float[] HORIZONTAL_BIASES_OF_HOLES_ON_LARGE_SCREENS = {0.32f, 0.5f, 0.68f, 0.72f, 0.28f};
+    private static final float[] VERTICAL_BIASES_OF_HOLES_ON_LARGE_SCREENS = {0.53f, 0.53f, 0.53f, 0.15f, 0.15f};
+    // The last two holes are drawn inwards, between the first three
+
+    private static final float HOLE_WIDTH_ON_SMALL_SCREENS = 208;
+    private static final float HOLE_HEIGHT_ON_SMALL_SCREENS = 92;
+    private static final float HOLE_WIDTH_PERCENT_ON_LARGE_SCREENS = 0.183f;
+    private static final float HOLE_HEIGHT_PERCENT_ON_LARGE_SCREENS = 0.15f;
+    // On large screens, the holes are sized as a proportion of the playfield
+
+    private static final float CARD_WIDTH_ON_SMALL_SCREENS = 150;
+    private static final float CARD_HEIGHT_ON_SMALL_SCREENS = 200;
+    private static final float IMAGE_HEIGHT_ON_SMALL_SCREENS = 130;
+    private static final float IMAGE_MARGIN_ON_SMALL_SCREENS = 5;
+    private static final float CARD_WIDTH_ON_LARGE_SCREENS = 209;
+    private static final float CARD_HEIGHT_ON_LARGE_SCREENS = 350;
+    private static final float IMAGE_HEIGHT_ON_LARGE_SCREENS = 179;
+    private static final float IMAGE_MARGIN_ON_LARGE_SCREENS = 10;
+
+    private static final float SUPERIMPOSED_GROUND_WIDTH_ON_SMALL_SCREENS = 208.648f;
+    private static final float SUPERIMPOSED_GROUND_HEIGHT_ON_SMALL_SCREENS = 502.172f;
+    private static final float SUPERIMPOSED_GROUND_TOP_MARGIN_ON_SMALL_SCREENS = -45;
+    private static final float SUPERIMPOSED_GROUND_WIDTH_ON_LARGE_SCREENS = 235.39288f;
+    private static final float SUPERIMPOSED_GROUND_HEIGHT_ON_LARGE_SCREENS = 566.54132f;
+    private static final float SUPERIMPOSED_GROUND_TOP_MARGIN_ON_LARGE_SCREENS = -53.5f;
+    // The superimposed ground overlaps the lower part of the rim of its hole
+
+    private static final float TICK_WIDTH = 408;
+    private static final float TICK_HEIGHT = 92;
+
+    /**
+     * Builds the playfield for aContext,
+     * laid out for the class of screen recorded in the ScreenProperties class,
+     * and returns its views
+     */
+    public static PlayfieldViews build(Context aContext)
+    {
+        ConstraintLayout playfield = new ConstraintLayout(aContext);
+        playfield.setId(R.id.playfield);
+        playfield.setLayoutParams(new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+
+        Guideline[] guidelines = new Guideline[GUIDELINE_IDS.length];
+
+        for (int i = 0; i < GUIDELINE_IDS.length; i++)
+        {
+            guidelines[i] = new Guideline(aContext);
+            guidelines[i].setId(GUIDELINE_IDS[i]);
+            playfield.addView(guidelines[i]);
+        }
+
+        SkyView skyView = new SkyView(aContext, null);
+        skyView.setId(R.id.sky_view);
+        playfield.addView(skyView);
+
+        View groundView = new View(aContext);
+        groundView.setId(R.id.ground_view);
+        groundView.setBackgroundResource(R.drawable.background_ground);
+        playfield.addView(groundView);
+
+        ImageView[] holeViews = new ImageView[NUMBER_OF_HOLES];
+        FrameLayout[] cardViews = new FrameLayout[NUMBER_OF_HOLES];
+        ImageView[] imageViews = new ImageView[NUMBER_OF_HOLES];
+        ImageView[] superimposedGroundViews = new ImageView[NUMBER_OF_HOLES];
+
+        for (int hole = 0; hole < NUMBER_OF_HOLES; hole++)
+        {
+            ImageView holeView = new ImageView(aContext);
+            holeView.setId(HOLE_IDS[hole]);
+            holeView.setContentDescription(aContext.getString(R.string.hole));
+            holeView.setImageResource(R.drawable.hole);
+            playfield.addView(holeView);
+
+            FrameLayout cardView = new FrameLayout(aContext);
+            cardView.setId(CARD_IDS[hole]);
+            cardView.setContentDescription(aContext.getString(R.string.card));
+            cardView.setBackgroundResource(R.drawable.card);
+            playfield.addView(cardView);
+
+            ImageView foodItemImageView = new ImageView(aContext);
+            foodItemImageView.setId(IMAGE_VIEW_IDS[hole]);
+            foodItemImageView.setContentDescription(aContext.getString(R.string.variable_food_item));
+            cardView.addView(foodItemImageView);
+
+            ImageView superimposedGroundView = new ImageView(aContext);
+            superimposedGroundView.setId(SUPERIMPOSED_GROUND_IDS[hole]);
+            superimposedGroundView.setContentDescription(aContext.getString(R.string.superimposed_ground));
+            superimposedGroundView.setImageResource(R.drawable.superimposed_ground);
+            playfield.addView(superimposedGroundView);
+
+            holeViews[hole] = holeView;
+            cardViews[hole] = cardView;
+            imageViews[hole] = foodItemImageView;
+            superimposedGroundViews[hole] = superimposedGroundView;
+        }
+
+        ImageView tickView = new ImageView(aContext);
+        tickView.setId(R.id.tick);
+        tickView.setContentDescription(aContext.getString(R.string.tick));
+        tickView.setImageResource(R.drawable.tick);
+        tickView.setVisibility(View.INVISIBLE);
+        playfield.addView(tickView);
+
+        PlayfieldViews playfieldViews = new PlayfieldViews(playfield, guidelines, skyView, groundView,
+                holeViews, cardViews, imageViews, superimposedGroundViews, tickView);
+        PlayfieldBuilder.applyLayoutParameters(playfieldViews);
+
+        return playfieldViews;
+    }
+
+    /**
+     * Gives each of somePlayfieldViews (which were built by the build method)
+     * the layout parameters of the class of screen recorded in the ScreenProperties class
+     */
+    public static void applyLayoutParameters(PlayfieldViews somePlayfieldViews)
+    {
+        DisplayMetrics displayMetrics = somePlayfieldViews.getPlayfield().getResources().getDisplayMetrics();
+        boolean screenIsSmall = ScreenProperties.screenIsSmall;
+
+        for (int i = 0; i < GUIDELINE_IDS.length; i++)
+        {
+            ConstraintLayout.LayoutParams guidelineLayoutParameters = new ConstraintLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+            guidelineLayoutParameters.orientation = GUIDELINE_IS_HORIZONTAL[i] ? ConstraintLayout.LayoutParams.HORIZONTAL : ConstraintLayout.LayoutParams.VERTICAL;
+            guidelineLayoutParameters.guidePercent = GUIDELINE_PERCENTS[i];
+            somePlayfieldViews.getGuideline(i).setLayoutParams(guidelineLayoutParameters);
+        }
+
+        ConstraintLayout.LayoutParams skyLayoutParameters = new ConstraintLayout.LayoutParams(ConstraintLayout.LayoutParams.MATCH_CONSTRAINT, ConstraintLayout.LayoutParams.MATCH_CONSTRAINT);
+        skyLayoutParameters.startToStart = PLAYFIELD_EDGE;
+        skyLayoutParameters.endToEnd = PLAYFIELD_EDGE;
+        skyLayoutParameters.topToTop = PLAYFIELD_EDGE;
+        skyLayoutParameters.bottomToTop = R.id.horizontal_guideline_between_sky_and_ground;
+        somePlayfieldViews.getSkyView().setLayoutParams(skyLayoutParameters);
+
+        ConstraintLayout.LayoutParams groundLayoutParameters = new ConstraintLayout.LayoutParams(ConstraintLayout.LayoutParams.MATCH_CONSTRAINT, ConstraintLayout.LayoutParams.MATCH_CONSTRAINT);
+        groundLayoutParameters.startToStart = PLAYFIELD_EDGE;
+        groundLayoutParameters.endToEnd = PLAYFIELD_EDGE;
+        groundLayoutParameters.topToBottom = R.id.horizontal_guideline_between_sky_and_ground;
+        groundLayoutParameters.bottomToBottom = PLAYFIELD_EDGE;
+        somePlayfieldViews.getGroundView().setLayoutParams(groundLayoutParameters);
+
+        for (int hole = 0; hole < NUMBER_OF_HOLES; hole++)
+        {
+            somePlayfieldViews.getHoleView(hole).setLayoutParams(PlayfieldBuilder.createHoleLayoutParameters(hole, screenIsSmall, displayMetrics));
+
+            ConstraintLayout.LayoutParams cardLayoutParameters = new ConstraintLayout.LayoutParams(
+                    PlayfieldBuilder.toPixels(screenIsSmall ? CARD_WIDTH_ON_SMALL_SCREENS : CARD_WIDTH_ON_LARGE_SCREENS, displayMetrics),
+                    PlayfieldBuilder.toPixels(screenIsSmall ? CARD_HEIGHT_ON_SMALL_SCREENS : CARD_HEIGHT_ON_LARGE_SCREENS, displayMetrics));
+            PlayfieldBuilder.placeBelowHole(cardLayoutParameters, HOLE_IDS[hole]);
+            somePlayfieldViews.getCardView(hole).setLayoutParams(cardLayoutParameters);
+
+            FrameLayout.LayoutParams imageLayoutParameters = new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                    PlayfieldBuilder.toPixels(screenIsSmall ? IMAGE_HEIGHT_ON_SMALL_SCREENS : IMAGE_HEIGHT_ON_LARGE_SCREENS, displayMetrics));
+            int imageMargin = PlayfieldBuilder.toPixels(screenIsSmall ? IMAGE_MARGIN_ON_SMALL_SCREENS : IMAGE_MARGIN_ON_LARGE_SCREENS, displayMetrics);
+            imageLayoutParameters.setMargins(imageMargin, imageMargin, imageMargin, imageMargin);
+            somePlayfieldViews.getImageView(hole).setLayoutParams(imageLayoutParameters);
+
+            ConstraintLayout.LayoutParams superimposedGroundLayoutParameters = new ConstraintLayout.LayoutParams(
+                    PlayfieldBuilder.toPixels(screenIsSmall ? SUPERIMPOSED_GROUND_WIDTH_ON_SMALL_SCREENS : SUPERIMPOSED_GROUND_WIDTH_ON_LARGE_SCREENS, displayMetrics),
+                    PlayfieldBuilder.toPixels(screenIsSmall ? SUPERIMPOSED_GROUND_HEIGHT_ON_SMALL_SCREENS : SUPERIMPOSED_GROUND_HEIGHT_ON_LARGE_SCREENS, displayMetrics));
+            PlayfieldBuilder.placeBelowHole(superimposedGroundLayoutParameters, HOLE_IDS[hole]);
+            superimposedGroundLayoutParameters.topMargin = PlayfieldBuilder.toPixels(screenIsSmall ? SUPERIMPOSED_GROUND_TOP_MARGIN_ON_SMALL_SCREENS : SUPERIMPOSED_GROUND_TOP_MARGIN_ON_LARGE_SCREENS, displayMetrics);
+            somePlayfieldViews.getSuperimposedGroundView(hole).setLayoutParams(superimposedGroundLayoutParameters);
+        }
+
+        ConstraintLayout.LayoutParams tickLayoutParameters = new ConstraintLayout.LayoutParams(
+                PlayfieldBuilder.toPixels(TICK_WIDTH, displayMetrics), PlayfieldBuilder.toPixels(TICK_HEIGHT, displayMetrics));
+        tickLayoutParameters.startToStart = PLAYFIELD_EDGE;
+        tickLayoutParameters.endToEnd = PLAYFIELD_EDGE;
+        tickLayoutParameters.topToBottom = R.id.sky_view;
+        tickLayoutParameters.bottomToBottom = PLAYFIELD_EDGE;
+        somePlayfieldViews.getTickView().setLayoutParams(tickLayoutParameters);
+    }
+
+    /**
+     * Helper method that returns the layout parameters of the hole whose index is aHole,
+     * which is constrained between its guidelines, and within its row
+     */
+    private static ConstraintLayout.LayoutParams createHoleLayoutParameters(int aHole, boolean screenIsSmall, DisplayMetrics someDisplayMetrics)
+    {
+        ConstraintLayout.LayoutParams holeLayoutParameters;
+
+        if (screenIsSmall)
+        {
+            holeLayoutParameters = new ConstraintLayout.LayoutParams(
+                    PlayfieldBuilder.toPixels(HOLE_WIDTH_ON_SMALL_SCREENS, someDisplayMetrics), PlayfieldBuilder.toPixels(HOLE_HEIGHT_ON_SMALL_SCREENS, someDisplayMetrics));
+            holeLayoutParameters.horizontalBias = HORIZONTAL_BIASES_OF_HOLES_ON_SMALL_SCREENS[aHole];
+            holeLayoutParameters.verticalBias = VERTICAL_BIASES_OF_HOLES_ON_SMALL_SCREENS[aHole];
+        }
+        else
+        {
+            holeLayoutParameters = new ConstraintLayout.LayoutParams(ConstraintLayout.LayoutParams.MATCH_CONSTRAINT, ConstraintLayout.LayoutParams.MATCH_CONSTRAINT);
+            holeLayoutParameters.matchConstraintDefaultWidth = ConstraintLayout.LayoutParams.MATCH_CONSTRAINT_PERCENT;
+            holeLayoutParameters.matchConstraintDefaultHeight = ConstraintLayout.LayoutParams.MATCH_CONSTRAINT_PERCENT;
+            holeLayoutParameters.matchConstraintPercentWidth = HOLE_WIDTH_PERCENT_ON_LARGE_SCREENS;
+            holeLayoutParameters.matchConstraintPercentHeight = HOLE_HEIGHT_PERCENT_ON_LARGE_SCREENS;
+            holeLayoutParameters.horizontalBias = HORIZONTAL_BIASES_OF_HOLES_ON_LARGE_SCREENS[aHole];
+            holeLayoutParameters.verticalBias = VERTICAL_BIASES_OF_HOLES_ON_LARGE_SCREENS[aHole];
+        }
+
+        if (GUIDELINES_BEFORE_HOLES[aHole] == PLAYFIELD_EDGE)
+        {
+            holeLayoutParameters.startToStart = PLAYFIELD_EDGE;
+        }
+        else
+        {
+            holeLayoutParameters.startToEnd = GUIDELINES_BEFORE_HOLES[aHole];
+        }
+
+        if (GUIDELINES_AFTER_HOLES[aHole] == PLAYFIELD_EDGE)
+        {
+            holeLayoutParameters.endToEnd = PLAYFIELD_EDGE;
+        }
+        else
+        {
+            holeLayoutParameters.endToStart = GUIDELINES_AFTER_HOLES[aHole];
+        }
+
+        if (HOLE_ROWS[aHole] == 0)
+        {
+            holeLayoutParameters.topToBottom = R.id.horizontal_guideline_between_sky_and_ground;
+            holeLayoutParameters.bottomToTop = R.id.horizontal_guideline_between_first_three_holes_and_last_two;
+        }
+        else
+        {
+            holeLayoutParameters.topToTop = R.id.horizontal_guideline_between_first_three_holes_and_last_two;
+            holeLayoutParameters.bottomToBottom = PLAYFIELD_EDGE;
+        }
+
+        return holeLayoutParameters;
+    }
+
+    /**
+     * Helper method that centres a view below the hole whose ID is holeID, via someLayoutParameters
+     * (i.e. a card, which hides below its hole until it pops up, or the superimposed ground in front of it)
+     */
+    private static void placeBelowHole(ConstraintLayout.LayoutParams someLayoutParameters, int holeID)
+    {
+        someLayoutParameters.startToStart = holeID;
+        someLayoutParameters.endToEnd = holeID;
+        someLayoutParameters.topToBottom = holeID;
+    }
+
+    /**
+     * Helper method that converts aSizeInDP (in density-independent pixels) to pixels,
+     * as sizes are converted when a layout is inflated
+     */
+    private static int toPixels(float aSizeInDP, DisplayMetrics someDisplayMetrics)
+    {
+        return Math.round(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, aSizeInDP, someDisplayMetrics));
+    }
+
+}
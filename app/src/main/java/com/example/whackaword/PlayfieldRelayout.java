@@ -0,0 +1,45 @@
+package com.example.whackaword;
+
+/**
+ * The PlayfieldRelayout class is responsible for adapting the playfield to a new size or orientation
+ * in place, when the activity handles the configuration change itself
+ * (see the configChanges attribute in the AndroidManifest file),
+ * so that resizing the game (e.g. in multi-window mode or on a foldable device)
+ * costs a layout pass rather than the recreation of the activity,
+ * and the animations and audio keep running throughout
+ *
+ * Whether the screen is small is worked out again, and if it has changed
+ * (i.e. if the playfield has moved between the description of the board for small screens
+ * and that for screens of width 1200dp and above), the views of the playfield are given
+ * the layout parameters of the new class of screen by the PlayfieldBuilder class.
+ * The views themselves are kept, along with their images, translations and running animations.
+ * The translation of the cards that are popped up is then updated
+ * (see the updateUpwardsTranslation method in the AnimationManager class),
+ * and the cached layers of scenery (which are only used on small screens)
+ * are added or removed for the new class of screen,
+ * and redrawn once the playfield has been laid out again
+ */
+public class PlayfieldRelayout
+{
+    /**
+     * Adapts the playfield of aWhackAWordActivity to its current configuration
+     */
+    public static void relayout(WhackAWordActivity aWhackAWordActivity)
+    {
+        float previousUpwardsTranslation = AnimationManager.getUpwardsTranslation(aWhackAWordActivity);
+        boolean screenWasSmall = ScreenProperties.screenIsSmall;
+
+        ScreenProperties.setScreenIsSmallTo(ScreenProperties.isScreenSmall(aWhackAWordActivity));
+
+        if (ScreenProperties.screenIsSmall != screenWasSmall)
+        {
+            PlayfieldBuilder.applyLayoutParameters(aWhackAWordActivity.getPlayfieldViews());
+            // Also requests a layout of the playfield
+            SceneryCompositor.updateForScreenClass(aWhackAWordActivity);
+        }
+
+        AnimationManager.updateUpwardsTranslation(aWhackAWordActivity, previousUpwardsTranslation);
+        SceneryCompositor.rebuildLayersAfterNextLayout();
+    }
+
+}
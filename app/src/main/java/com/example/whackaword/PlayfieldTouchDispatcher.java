@@ -0,0 +1,368 @@
+package com.example.whackaword;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+import java.util.Arrays;
+
+/**
+ * The PlayfieldTouchDispatcher class is responsible for dispatching every touch on the playfield
+ * to the food card that it hits, through a single touch listener,
+ * instead of setting a click listener on each food card for each round
+ *
+ * It keeps a table of the food cards, indexed by card,
+ * which is built once when it is attached to the activity:
+ *
+ * - foodCards and foodCardViews, which are the food cards and their frame layouts
+ * - cardLefts, cardTops, cardRights and cardBottoms, which are the bounds of each frame layout
+ *   within the playfield before translation, refreshed whenever the playfield is laid out.
+ *   A card's current vertical translation is added to its bounds when hit testing,
+ *   so that touches are tested against where the card actually is during its animation
+ * - foodCardIsArmed and foodCardIsCorrect, which record whether each food card can currently be tapped
+ *   and whether it is the correct food card
+ *
+ * A round is settled by the first tap on an armed food card.
+ * In the click input mode, that is the first pointer to go up on the same armed food card
+ * that it went down on; in the touch-down input mode,
+ * it is the first pointer to go down on an armed food card (see the InputSettings class).
+ * The bounds of each card are extended by the hit slop of the current profile when hit testing.
+ * Settling the round disarms every food card before the tap is handled,
+ * so further pointers (e.g. a second finger on another card) can't tap again in the same round.
+ * Each pointer also records the round in which it went down,
+ * so that a pointer that went down in a previous round can't tap a card of the next one
+ *
+ * Hit testing only reads the preallocated arrays and the views' translations,
+ * so handling a touch allocates nothing
+ *
+ * The time at which each pointer went down is recorded
+ * so that the InputLatencyTracker class can measure the latency of the tap that settles the round
+ */
+public class PlayfieldTouchDispatcher
+{
+    private static final int MAXIMUM_NUMBER_OF_POINTERS = 10;
+    // Pointers with IDs of 10 or above are ignored; no child taps with more than ten fingers
+
+    private static final int NO_CARD = -1;
+
+    private static WhackAWordActivity whackAWordActivity;
+    private static FoodCard[] foodCards;
+    private static View[] foodCardViews;
+    private static int[] cardLefts;
+    private static int[] cardTops;
+    private static int[] cardRights;
+    private static int[] cardBottoms;
+    private static boolean[] foodCardIsArmed;
+    private static boolean[] foodCardIsCorrect;
+    private static boolean roundIsSettled = true;
+    private static int roundNumber;
+
+    private static final int[] cardIndicesOfPointers = new int[MAXIMUM_NUMBER_OF_POINTERS];
+    private static final int[] roundNumbersOfPointers = new int[MAXIMUM_NUMBER_OF_POINTERS];
+    private static final long[] touchDownTimesOfPointers = new long[MAXIMUM_NUMBER_OF_POINTERS];
+
+    private static final View.OnTouchListener touchListener = (aView, aMotionEvent) -> PlayfieldTouchDispatcher.onTouch(aMotionEvent);
+
+    private static final View.OnLayoutChangeListener layoutChangeListener = (aView, left, top, right, bottom, oldLeft, oldTop, oldRight, oldBottom) -> PlayfieldTouchDispatcher.updateCardBounds();
+
+    private static final ManagedResource playfieldTouchDispatch = new ManagedResource()
+    {
+        @Override
+        public void pause()
+        {
+            Arrays.fill(PlayfieldTouchDispatcher.cardIndicesOfPointers, NO_CARD);
+            // Touches in progress are abandoned when the activity is stopped
+        }
+
+        @Override
+        public void resume()
+        {
+        }
+
+        @Override
+        public void release()
+        {
+            PlayfieldTouchDispatcher.whackAWordActivity = null;
+            PlayfieldTouchDispatcher.foodCardViews = null;
+            PlayfieldTouchDispatcher.disarmFoodCards();
+        }
+
+        @Override
+        public boolean survivesConfigurationChanges()
+        {
+            return false;
+        }
+
+        @Override
+        public String describe()
+        {
+            return "Playfield touch dispatcher (round " + PlayfieldTouchDispatcher.roundNumber + (PlayfieldTouchDispatcher.roundIsSettled ? ", settled)" : ", armed)");
+        }
+
+    };
+
+    /**
+     * Builds the table of food cards from the food cards in Collections
+     * and the views of aWhackAWordActivity,
+     * and sets the touch listener on the playfield
+     */
+    public static void attach(WhackAWordActivity aWhackAWordActivity)
+    {
+        PlayfieldViews playfieldViews = aWhackAWordActivity.getPlayfieldViews();
+        int numberOfFoodCards = Collections.foodCards.size();
+
+        PlayfieldTouchDispatcher.whackAWordActivity = aWhackAWordActivity;
+        PlayfieldTouchDispatcher.foodCards = new FoodCard[numberOfFoodCards];
+        PlayfieldTouchDispatcher.foodCardViews = new View[numberOfFoodCards];
+        PlayfieldTouchDispatcher.cardLefts = new int[numberOfFoodCards];
+        PlayfieldTouchDispatcher.cardTops = new int[numberOfFoodCards];
+        PlayfieldTouchDispatcher.cardRights = new int[numberOfFoodCards];
+        PlayfieldTouchDispatcher.cardBottoms = new int[numberOfFoodCards];
+        PlayfieldTouchDispatcher.foodCardIsArmed = new boolean[numberOfFoodCards];
+        PlayfieldTouchDispatcher.foodCardIsCorrect = new boolean[numberOfFoodCards];
+        Arrays.fill(PlayfieldTouchDispatcher.cardIndicesOfPointers, NO_CARD);
+
+        int cardIndex = 0;
+
+        for (FoodCard foodCard : Collections.foodCards)
+        {
+            PlayfieldTouchDispatcher.foodCards[cardIndex] = foodCard;
+            PlayfieldTouchDispatcher.foodCardViews[cardIndex] = playfieldViews.getCardView(foodCard);
+            cardIndex++;
+        }
+
+        View playfield = playfieldViews.getPlayfield();
+        playfield.setOnTouchListener(PlayfieldTouchDispatcher.touchListener);
+        playfield.addOnLayoutChangeListener(PlayfieldTouchDispatcher.layoutChangeListener);
+
+        PlayfieldTouchDispatcher.updateCardBounds();
+        ResourceManager.register(PlayfieldTouchDispatcher.playfieldTouchDispatch);
+    }
+
+    /**
+     * Arms aFoodCard so that it can be tapped in the current round,
+     * recording whether it is the correct food card
+     */
+    public static void armFoodCard(FoodCard aFoodCard, boolean isCorrectFoodCard)
+    {
+        int cardIndex = PlayfieldTouchDispatcher.getCardIndex(aFoodCard);
+
+        PlayfieldTouchDispatcher.foodCardIsArmed[cardIndex] = true;
+        PlayfieldTouchDispatcher.foodCardIsCorrect[cardIndex] = isCorrectFoodCard;
+        PlayfieldTouchDispatcher.roundIsSettled = false;
+    }
+
+    /**
+     * Disarms every food card, ending the current round
+     */
+    public static void disarmFoodCards()
+    {
+        if (PlayfieldTouchDispatcher.foodCardIsArmed != null)
+        {
+            Arrays.fill(PlayfieldTouchDispatcher.foodCardIsArmed, false);
+        }
+
+        PlayfieldTouchDispatcher.roundIsSettled = true;
+        PlayfieldTouchDispatcher.roundNumber++;
+    }
+
+    /**
+     * Taps the centre of the armed correct food card (if any) with a synthetic touch,
+     * which goes through the same hit testing as a real one.
+     * Used by the automated tapper of the StressMode class
+     */
+    public static void tapCorrectFoodCard()
+    {
+        if (PlayfieldTouchDispatcher.roundIsSettled)
+        {
+            return;
+        }
+
+        for (int cardIndex = 0; cardIndex < PlayfieldTouchDispatcher.foodCards.length; cardIndex++)
+        {
+
+            if (PlayfieldTouchDispatcher.foodCardIsArmed[cardIndex] && PlayfieldTouchDispatcher.foodCardIsCorrect[cardIndex])
+            {
+                float x = (PlayfieldTouchDispatcher.cardLefts[cardIndex] + PlayfieldTouchDispatcher.cardRights[cardIndex]) / 2f;
+                float y = (PlayfieldTouchDispatcher.cardTops[cardIndex] + PlayfieldTouchDispatcher.cardBottoms[cardIndex]) / 2f
+                        + PlayfieldTouchDispatcher.foodCardViews[cardIndex].getTranslationY();
+                long now = SystemClock.uptimeMillis();
+
+                MotionEvent touchDown = MotionEvent.obtain(now, now, MotionEvent.ACTION_DOWN, x, y, 0);
+                PlayfieldTouchDispatcher.onTouch(touchDown);
+                touchDown.recycle();
+
+                MotionEvent touchUp = MotionEvent.obtain(now, now, MotionEvent.ACTION_UP, x, y, 0);
+                PlayfieldTouchDispatcher.onTouch(touchUp);
+                touchUp.recycle();
+                // The touch is dispatched straight to the touch listener, so it settles the round in either input mode
+
+                return;
+            }
+
+        }
+
+    }
+
+    /**
+     * Helper method that handles a touch on the playfield.
+     * Records which armed food card (if any) each pointer goes down on,
+     * and settles the round either straight away in the touch-down input mode,
+     * or in the click input mode, when the pointer goes up on the same armed food card
+     * in the same round that it went down in.
+     * Returns true so that the playfield receives the rest of each gesture
+     */
+    private static boolean onTouch(MotionEvent aMotionEvent)
+    {
+        int actionIndex = aMotionEvent.getActionIndex();
+        int pointerID = aMotionEvent.getPointerId(actionIndex);
+
+        switch (aMotionEvent.getActionMasked())
+        {
+            case MotionEvent.ACTION_DOWN:
+            case MotionEvent.ACTION_POINTER_DOWN:
+
+                if (pointerID < MAXIMUM_NUMBER_OF_POINTERS)
+                {
+                    PlayfieldTouchDispatcher.cardIndicesOfPointers[pointerID] = PlayfieldTouchDispatcher.findArmedCardAt(aMotionEvent.getX(actionIndex), aMotionEvent.getY(actionIndex));
+                    PlayfieldTouchDispatcher.roundNumbersOfPointers[pointerID] = PlayfieldTouchDispatcher.roundNumber;
+                    PlayfieldTouchDispatcher.touchDownTimesOfPointers[pointerID] = aMotionEvent.getEventTime();
+
+                    int cardIndex = PlayfieldTouchDispatcher.cardIndicesOfPointers[pointerID];
+
+                    if (cardIndex != NO_CARD && InputSettings.tapsCommitOnTouchDown())
+                    {
+                        PlayfieldTouchDispatcher.cardIndicesOfPointers[pointerID] = NO_CARD;
+                        PlayfieldTouchDispatcher.settleRound(cardIndex, aMotionEvent.getEventTime());
+                    }
+
+                }
+
+                break;
+
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_POINTER_UP:
+
+                if (pointerID < MAXIMUM_NUMBER_OF_POINTERS)
+                {
+                    int cardIndex = PlayfieldTouchDispatcher.cardIndicesOfPointers[pointerID];
+                    PlayfieldTouchDispatcher.cardIndicesOfPointers[pointerID] = NO_CARD;
+
+                    boolean pointerWentDownInThisRound = PlayfieldTouchDispatcher.roundNumbersOfPointers[pointerID] == PlayfieldTouchDispatcher.roundNumber;
+
+                    if (cardIndex != NO_CARD && pointerWentDownInThisRound && PlayfieldTouchDispatcher.findArmedCardAt(aMotionEvent.getX(actionIndex), aMotionEvent.getY(actionIndex)) == cardIndex)
+                    {
+                        PlayfieldTouchDispatcher.settleRound(cardIndex, PlayfieldTouchDispatcher.touchDownTimesOfPointers[pointerID]);
+                    }
+
+                }
+
+                break;
+
+            case MotionEvent.ACTION_CANCEL:
+                Arrays.fill(PlayfieldTouchDispatcher.cardIndicesOfPointers, NO_CARD);
+                break;
+
+            default:
+                break;
+        }
+
+        return true;
+    }
+
+    /**
+     * Helper method that settles the current round with a tap on the food card at cardIndex
+     * by a pointer that went down at touchDownTime:
+     * disarms every food card, then lets the TapManager class handle the tap
+     */
+    private static void settleRound(int cardIndex, long touchDownTime)
+    {
+        if (PlayfieldTouchDispatcher.roundIsSettled)
+        {
+            return;
+        }
+
+        FoodCard tappedFoodCard = PlayfieldTouchDispatcher.foodCards[cardIndex];
+        boolean isCorrectFoodCard = PlayfieldTouchDispatcher.foodCardIsCorrect[cardIndex];
+
+        PlayfieldTouchDispatcher.disarmFoodCards();
+
+        InputLatencyTracker.onTapCommitted(InputSettings.inputMode, touchDownTime);
+        TapManager.handleTap(PlayfieldTouchDispatcher.whackAWordActivity, tappedFoodCard, isCorrectFoodCard);
+    }
+
+    /**
+     * Helper method that returns the index of the armed food card at (x, y) within the playfield,
+     * taking the card's current vertical translation and the hit slop into account,
+     * or NO_CARD if there is no armed food card there
+     */
+    private static int findArmedCardAt(float x, float y)
+    {
+        if (PlayfieldTouchDispatcher.roundIsSettled)
+        {
+            return NO_CARD;
+        }
+
+        for (int cardIndex = PlayfieldTouchDispatcher.foodCards.length - 1; cardIndex >= 0; cardIndex--)
+        {
+
+            if (!PlayfieldTouchDispatcher.foodCardIsArmed[cardIndex])
+            {
+                continue;
+            }
+
+            float translationY = PlayfieldTouchDispatcher.foodCardViews[cardIndex].getTranslationY();
+            float hitSlop = InputSettings.hitSlopInPixels;
+
+            if (x >= PlayfieldTouchDispatcher.cardLefts[cardIndex] - hitSlop && x < PlayfieldTouchDispatcher.cardRights[cardIndex] + hitSlop
+                    && y >= PlayfieldTouchDispatcher.cardTops[cardIndex] + translationY - hitSlop && y < PlayfieldTouchDispatcher.cardBottoms[cardIndex] + translationY + hitSlop)
+            {
+                return cardIndex;
+            }
+
+        }
+
+        return NO_CARD;
+    }
+
+    /**
+     * Helper method that records the bounds of each food card's frame layout within the playfield
+     */
+    private static void updateCardBounds()
+    {
+        if (PlayfieldTouchDispatcher.foodCardViews == null)
+        {
+            return;
+        }
+
+        for (int cardIndex = 0; cardIndex < PlayfieldTouchDispatcher.foodCardViews.length; cardIndex++)
+        {
+            View foodCardView = PlayfieldTouchDispatcher.foodCardViews[cardIndex];
+
+            PlayfieldTouchDispatcher.cardLefts[cardIndex] = foodCardView.getLeft();
+            PlayfieldTouchDispatcher.cardTops[cardIndex] = foodCardView.getTop();
+            PlayfieldTouchDispatcher.cardRights[cardIndex] = foodCardView.getRight();
+            PlayfieldTouchDispatcher.cardBottoms[cardIndex] = foodCardView.getBottom();
+        }
+
+    }
+
+    /**
+     * Helper method that returns the index of aFoodCard in the table of food cards
+     */
+    private static int getCardIndex(FoodCard aFoodCard)
+    {
+        for (int cardIndex = 0; cardIndex < PlayfieldTouchDispatcher.foodCards.length; cardIndex++)
+        {
+
+            if (PlayfieldTouchDispatcher.foodCards[cardIndex] == aFoodCard)
+            {
+                return cardIndex;
+            }
+
+        }
+
+        throw new IllegalArgumentException("Unknown food card: " + aFoodCard);
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.example.whackaword;
+
+import android.view.View;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
+
+import androidx.constraintlayout.widget.ConstraintLayout;
+import androidx.constraintlayout.widget.Guideline;
+
+/**
+ * An object of the PlayfieldViews class holds the views of a playfield
+ * that the PlayfieldBuilder class has built, as it built them,
+ * so that the manager classes can reach the views of the playfield
+ * without searching the view hierarchy for them by their IDs
+ * (e.g. on every frame of an animation or on every tap)
+ *
+ * The views of the holes, and of the cards, images and superimposed ground below them,
+ * are indexed by hole, and the food card at each index of the foodCards list
+ * in the Collections class is the card below the hole at the same index.
+ *
+ * Objects of this class are immutable,
+ * and belong to the activity whose playfield they hold
+ */
+public class PlayfieldViews
+{
+    private final ConstraintLayout playfield;
+    private final Guideline[] guidelines;
+    private final SkyView skyView;
+    private final View groundView;
+    private final ImageView[] holeViews;
+    private final FrameLayout[] cardViews;
+    private final ImageView[] imageViews;
+    private final ImageView[] superimposedGroundViews;
+    private final ImageView tickView;
+
+    /**
+     * Constructor for objects of the class PlayfieldViews.
+     * The views at each index of someHoleViews, someCardViews, someImageViews and someSuperimposedGroundViews
+     * belong to the hole at the same index
+     */
+    public PlayfieldViews(ConstraintLayout aPlayfield, Guideline[] someGuidelines, SkyView aSkyView, View aGroundView,
+                          ImageView[] someHoleViews, FrameLayout[] someCardViews, ImageView[] someImageViews,
+                          ImageView[] someSuperimposedGroundViews, ImageView aTickView)
+    {
+        this.playfield = aPlayfield;
+        this.guidelines = someGuidelines;
+        this.skyView = aSkyView;
+        this.groundView = aGroundView;
+        this.holeViews = someHoleViews;
+        this.cardViews = someCardViews;
+        this.imageViews = someImageViews;
+        this.superimposedGroundViews = someSuperimposedGroundViews;
+        this.tickView = aTickView;
+    }
+
+    /**
+     * Returns the playfield, which contains every other view
+     */
+    public ConstraintLayout getPlayfield()
+    {
+        return this.playfield;
+    }
+
+    /**
+     * Returns the guideline at anIndex of the guidelines of the playfield
+     */
+    public Guideline getGuideline(int anIndex)
+    {
+        return this.guidelines[anIndex];
+    }
+
+    /**
+     * Returns the sky
+     */
+    public SkyView getSkyView()
+    {
+        return this.skyView;
+    }
+
+    /**
+     * Returns the ground
+     */
+    public View getGroundView()
+    {
+        return this.groundView;
+    }
+
+    /**
+     * Returns the view of the hole whose index is aHole
+     */
+    public ImageView getHoleView(int aHole)
+    {
+        return this.holeViews[aHole];
+    }
+
+    /**
+     * Returns the frame layout of the card below the hole whose index is aHole
+     */
+    public FrameLayout getCardView(int aHole)
+    {
+        return this.cardViews[aHole];
+    }
+
+    /**
+     * Returns the frame layout of aCard
+     */
+    public FrameLayout getCardView(Card aCard)
+    {
+        return this.cardViews[this.getHoleOf(aCard)];
+    }
+
+    /**
+     * Returns the image view of the card below the hole whose index is aHole
+     */
+    public ImageView getImageView(int aHole)
+    {
+        return this.imageViews[aHole];
+    }
+
+    /**
+     * Returns the image view of aCard
+     */
+    public ImageView getImageView(Card aCard)
+    {
+        return this.imageViews[this.getHoleOf(aCard)];
+    }
+
+    /**
+     * Returns the superimposed ground in front of the card below the hole whose index is aHole
+     */
+    public ImageView getSuperimposedGroundView(int aHole)
+    {
+        return this.superimposedGroundViews[aHole];
+    }
+
+    /**
+     * Returns the tick
+     */
+    public ImageView getTickView()
+    {
+        return this.tickView;
+    }
+
+    /**
+     * Helper method that returns the index of the hole that aCard is below,
+     * by comparing its ID with those of the cards (of which there are only NUMBER_OF_HOLES)
+     */
+    private int getHoleOf(Card aCard)
+    {
+        for (int hole = 0; hole < this.cardViews.length; hole++)
+        {
+            if (this.cardViews[hole].getId() == aCard.getID())
+            {
+                return hole;
+            }
+
+        }
+
+        throw new IllegalArgumentException("Unknown card: " + aCard);
+    }
+
+}
@@ -1,18 +1,18 @@
 package com.example.whackaword;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
 import android.animation.AnimatorSet;
 import android.animation.ObjectAnimator;
-import android.graphics.drawable.AnimationDrawable;
+import android.animation.ValueAnimator;
+import android.graphics.ColorFilter;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
 import android.graphics.drawable.Drawable;
-import android.os.Handler;
+import android.graphics.drawable.GradientDrawable;
 import android.view.View;
-import android.widget.FrameLayout;
 import android.widget.ImageView;
 
-import androidx.core.content.ContextCompat;
-
-import java.util.Objects;
-
 /**
  * The PositiveFeedbackAnimationManager class is responsible for
  * managing animations that provide positive feedback
@@ -21,6 +21,28 @@ import java.util.Objects;
  * It contains constant class variables for durations within positive feedback animations,
  * as well as a constant class variable for the degrees in a rotation (360),
  * used for the rotation of the tick
+ *
+ * The feedback effects are built once, when the activity is created
+ * (via the prepareFeedbackEffects method),
+ * and reused for every correct tap, so that a correct tap allocates nothing
+ * and its feedback starts within the same frame.
+ * They are held in the following class variables:
+ *
+ * tick, tickAnimation and tickRotation, which are the view of the tick, its whole animation,
+ * and the part of it that rotates the tick (which is only rebuilt if the quality tier
+ * changes the number of rotations, recorded in numberOfTickRotationsOfAnimation)
+ *
+ * colourOfCorrectlyTappedCard, which is the one drawable that is shared
+ * by every correctly tapped card while its colour changes,
+ * and cardColourFilters, which are the colour filters that tint it
+ * with each of the colours set out in the animation_colour_of_correctly_tapped_card drawables
+ *
+ * cardColourCycle, which is the animator that cycles through the tints
+ * for as long as the card is up, restoring the card's background when it ends,
+ * and cardColourIndex, which is the index of the tint that is currently applied
+ *
+ * cardWithChangingColour and originalBackgroundOfCard, which are the card whose colour is changing
+ * and the background that it is restored to
  */
 public class PositiveFeedbackAnimationManager extends AnimationManager
 {
@@ -35,150 +57,276 @@ public class PositiveFeedbackAnimationManager extends AnimationManager
 
     public static final int DEGREES_IN_A_ROTATION = 360;
 
-    /**
-     * Conveys positive feedback by
-     * playing a tick sound,
-     * displaying an animated tick,
-     * and continuously changing the colour of aFoodCard
-     */
-    public static void conveyPositiveFeedback(WhackAWordActivity aWhackAWordActivity, FoodCard aFoodCard)
+    private static final int DURATION_OF_ENLARGED_TICK = 500;
+    // An enlarged tick is shown for half a second (500 milliseconds)
+    // at the conclusion of its enlargement,
+    // right before it rotates, moves and shrinks
+
+    private static final int TICK_TRANSLATION_DISTANCE_IN_PIXELS = 1000;
+
+    private static final int CARD_COLOUR_DURATION_AFTER_FINAL_TAP = 4500;
+    private static final int CARD_COLOUR_DURATION_AFTER_NON_FINAL_TAP = 1000;
+    // Since cards remain up for longer after the final tap of the game,
+    // the card's colour changes for four and a half seconds (4500 milliseconds) in that instance,
+    // so that it would be animated for all the time that it is up;
+    // otherwise it changes for only one second (1000 milliseconds)
+    // so that not only would it be animated for all the time that it is up,
+    // but the next card coming out of that hole
+    // would not show an animated background for any amount of time
+
+    private static final int[] CARD_COLOUR_DRAWABLE_IDS =
+            {
+                    R.drawable.animation_colour_of_correctly_tapped_card_1,
+                    R.drawable.animation_colour_of_correctly_tapped_card_2,
+                    R.drawable.animation_colour_of_correctly_tapped_card_3,
+                    R.drawable.animation_colour_of_correctly_tapped_card_4
+            };
+
+    private static ImageView tick;
+    private static AnimatorSet tickAnimation;
+    private static ObjectAnimator tickRotation;
+    private static int numberOfTickRotationsOfAnimation;
+
+    private static Drawable colourOfCorrectlyTappedCard;
+    private static ColorFilter[] cardColourFilters;
+    private static ValueAnimator cardColourCycle;
+    private static int cardColourIndex;
+    private static View cardWithChangingColour;
+    private static Drawable originalBackgroundOfCard;
+
+    private static final ManagedResource feedbackEffects = new ManagedResource()
     {
-        PositiveFeedbackAnimationManager.displayAnimatedTick(aWhackAWordActivity);
-        PositiveFeedbackAnimationManager.continuouslyChangeCardColour(aWhackAWordActivity, aFoodCard);
-    }
+        @Override
+        public void pause()
+        {
+        }
+
+        @Override
+        public void resume()
+        {
+        }
+
+        @Override
+        public void release()
+        {
+            PositiveFeedbackAnimationManager.cardColourCycle.end();
+            // Restores the background of a card whose colour is still changing
+
+            PositiveFeedbackAnimationManager.tickAnimation.cancel();
+            PositiveFeedbackAnimationManager.tick = null;
+            PositiveFeedbackAnimationManager.tickAnimation = null;
+            PositiveFeedbackAnimationManager.tickRotation = null;
+            PositiveFeedbackAnimationManager.colourOfCorrectlyTappedCard = null;
+            PositiveFeedbackAnimationManager.cardColourCycle = null;
+            // The animators target views of the activity,
+            // so references to them must not outlive the activity
+        }
+
+        @Override
+        public boolean survivesConfigurationChanges()
+        {
+            return false;
+        }
+
+        @Override
+        public String describe()
+        {
+            return "Positive feedback effects";
+        }
+
+    };
+
+    private static final ValueAnimator.AnimatorUpdateListener cardColourUpdater = animation ->
+    {
+        int cardColourIndex = (int) (animation.getCurrentPlayTime() / CARD_COLOUR_DURATION) % CARD_COLOUR_DRAWABLE_IDS.length;
+
+        if (cardColourIndex != PositiveFeedbackAnimationManager.cardColourIndex)
+        {
+            PositiveFeedbackAnimationManager.cardColourIndex = cardColourIndex;
+            PositiveFeedbackAnimationManager.colourOfCorrectlyTappedCard.setColorFilter(PositiveFeedbackAnimationManager.cardColourFilters[cardColourIndex]);
+        }
+
+    };
+
+    private static final AnimatorListenerAdapter cardBackgroundRestorer = new AnimatorListenerAdapter()
+    {
+        @Override
+        public void onAnimationEnd(Animator animation)
+        {
+            View card = PositiveFeedbackAnimationManager.cardWithChangingColour;
+
+            if (card != null)
+            {
+                card.setBackground(PositiveFeedbackAnimationManager.originalBackgroundOfCard);
+                GameTrace.endAsyncSection(GameTrace.ASYNC_SECTION_CARD_COLOUR_CHANGE, card.getId());
+
+                PositiveFeedbackAnimationManager.cardWithChangingColour = null;
+                PositiveFeedbackAnimationManager.originalBackgroundOfCard = null;
+            }
+
+        }
+
+    };
 
     /**
-     * Causes the card colour to change continuously
-     * for as long as the card is up
-     *
-     * Since cards remain up for longer
-     * after the final tap of the game,
-     * delays setting the card's background back to normal
-     * by four and a half seconds (4500 milliseconds)
-     * in that instance
-     * so that it would be animated for all the time that it is up;
-     * otherwise (if it's not the final tap of the game),
-     * delays setting the card's background back to normal
-     * by only one second (1000 milliseconds)
-     * so that not only would it be animated for all the time that it is up,
-     * but the next card coming out of that hole
-     * would not show an animated background
-     * for any amount of time
+     * Builds the tick animation and the card colour cycle for aWhackAWordActivity,
+     * so that they can be reused for every correct tap
      */
-    private static void continuouslyChangeCardColour(WhackAWordActivity aWhackAWordActivity, FoodCard aFoodCard)
+    public static void prepareFeedbackEffects(WhackAWordActivity aWhackAWordActivity)
     {
-        FrameLayout foodCardFrameLayout = aWhackAWordActivity.findViewById(aFoodCard.getID());
-        Drawable originalDrawable = foodCardFrameLayout.getBackground();
-        AnimationDrawable animationDrawableForContinuouslyChangingCardColour = PositiveFeedbackAnimationManager.createAnimationDrawableForContinuouslyChangingCardColour(aWhackAWordActivity);
+        PositiveFeedbackAnimationManager.prepareTickAnimation(aWhackAWordActivity.getPlayfieldViews().getTickView());
 
-        int delayAfterFinalTap = 4500;
-        int delayAfterNonFinalTap = 1000;
+        PositiveFeedbackAnimationManager.colourOfCorrectlyTappedCard = aWhackAWordActivity.getDrawable(R.drawable.card).mutate();
+        // Mutated so that tinting it doesn't tint the background of every other card
+
+        PositiveFeedbackAnimationManager.cardColourFilters = new ColorFilter[CARD_COLOUR_DRAWABLE_IDS.length];
+
+        for (int i = 0; i < CARD_COLOUR_DRAWABLE_IDS.length; i++)
+        {
+            int[] gradientColours = ((GradientDrawable) aWhackAWordActivity.getDrawable(CARD_COLOUR_DRAWABLE_IDS[i]).getCurrent()).getColors();
+            int cardColour = SkyView.blendColours(gradientColours[0], gradientColours[gradientColours.length - 1], 0.5f);
 
-        int delayForNormalBackground = LevelProperties.userWins() ? delayAfterFinalTap : delayAfterNonFinalTap;
+            PositiveFeedbackAnimationManager.cardColourFilters[i] = new PorterDuffColorFilter(cardColour, PorterDuff.Mode.MULTIPLY);
+            // Multiplying keeps the shading of the card's white gradient and its black outline
+        }
 
-        new Handler().postDelayed(() -> foodCardFrameLayout.setBackground(originalDrawable), delayForNormalBackground);
+        PositiveFeedbackAnimationManager.cardColourCycle = ValueAnimator.ofFloat(0, 1);
+        PositiveFeedbackAnimationManager.cardColourCycle.addUpdateListener(PositiveFeedbackAnimationManager.cardColourUpdater);
+        PositiveFeedbackAnimationManager.cardColourCycle.addListener(PositiveFeedbackAnimationManager.cardBackgroundRestorer);
+        ResourceManager.trackAnimator(PositiveFeedbackAnimationManager.cardColourCycle);
 
-        foodCardFrameLayout.setBackground(animationDrawableForContinuouslyChangingCardColour);
-        animationDrawableForContinuouslyChangingCardColour.start();
+        ResourceManager.register(PositiveFeedbackAnimationManager.feedbackEffects);
     }
 
     /**
-     * Creates and returns an AnimationDrawable
-     * with frames of different colours
-     * that last for CARD_COLOUR_DURATION milliseconds
+     * Conveys positive feedback by
+     * playing a tick sound,
+     * displaying an animated tick,
+     * and continuously changing the colour of aFoodCard
+     * unless the quality tier is too low for it
      */
-    private static AnimationDrawable createAnimationDrawableForContinuouslyChangingCardColour(WhackAWordActivity aWhackAWordActivity)
+    public static void conveyPositiveFeedback(WhackAWordActivity aWhackAWordActivity, FoodCard aFoodCard)
     {
-        AnimationDrawable animationDrawable = new AnimationDrawable();
+        GameTrace.beginSection(GameTrace.SECTION_POSITIVE_FEEDBACK);
 
-        int[] drawableIDs =
-                {
-                        R.drawable.animation_colour_of_correctly_tapped_card_1,
-                        R.drawable.animation_colour_of_correctly_tapped_card_2,
-                        R.drawable.animation_colour_of_correctly_tapped_card_3,
-                        R.drawable.animation_colour_of_correctly_tapped_card_4
-                };
+        PositiveFeedbackAnimationManager.displayAnimatedTick();
 
-        for (int ID : drawableIDs)
+        if (QualityTierController.cardColourChanges())
         {
-            Drawable drawable = ContextCompat.getDrawable(aWhackAWordActivity, ID);
-            animationDrawable.addFrame(Objects.requireNonNull(drawable), CARD_COLOUR_DURATION);
+            PositiveFeedbackAnimationManager.continuouslyChangeCardColour(aWhackAWordActivity.getPlayfieldViews().getCardView(aFoodCard));
         }
 
-        return animationDrawable;
+        GameTrace.endSection();
+
     }
 
     /**
-     * Displays and animates a tick
-     * by scaling, rotating, and translating it
+     * Causes the colour of aCard to change continuously
+     * for as long as the card is up,
+     * by setting its background to the shared drawable and cycling through its tints.
+     * The card's background is set back to normal when the cycle ends
      */
-    private static void displayAnimatedTick(WhackAWordActivity aWhackAWordActivity)
+    private static void continuouslyChangeCardColour(View aCard)
     {
-        ImageView tick = aWhackAWordActivity.findViewById(R.id.tick);
-        int originalSize = 1;
-        int numberOfRotations = 10;
-        int translationDistanceInPixels = 1000;
+        PositiveFeedbackAnimationManager.cardColourCycle.end();
+        // Restores the background of any card whose colour is still changing
 
-        tick.setVisibility(View.VISIBLE);
+        PositiveFeedbackAnimationManager.cardWithChangingColour = aCard;
+        PositiveFeedbackAnimationManager.originalBackgroundOfCard = aCard.getBackground();
+        PositiveFeedbackAnimationManager.cardColourIndex = 0;
+        PositiveFeedbackAnimationManager.colourOfCorrectlyTappedCard.setColorFilter(PositiveFeedbackAnimationManager.cardColourFilters[0]);
 
-        tick.setRotation(0);
-        // Sets the tick's rotational position to 0 degrees
-        // because the ObjectAnimator doesn't reset the property to its original state
-        // for subsequent animations.
-        // Without this, the tick is only animated on its first appearance,
-        // and just appears and disappears without an animation on subsequent appearances
+        GameTrace.beginAsyncSection(GameTrace.ASYNC_SECTION_CARD_COLOUR_CHANGE, aCard.getId());
 
-        tick.setTranslationY(0);
-        // Sets the tick's vertical position to its initial vertical position
-        // because the ObjectAnimator doesn't reset the property to its original state
-        // for subsequent animations.
-        // Without this, the tick is only animated on its first appearance,
-        // and just appears and disappears without an animation on subsequent appearances
-
-        tick.setScaleX(0);
-        // Sets the tick's horizontal size to 0
-
-        tick.setScaleY(0);
-        // Sets the tick's vertical size to 0
-
-        // Note that the tick's horizontal and vertical sizes are 0 after being animated
-        // due to the horizontalShrinkage and verticalShrinkage animations,
-        // so there is no need to reset its horizontal and vertical sizes to 0
-        // after the tick has been animated.
-        // Nevertheless, it is necessary
-        // to set the horizontal and vertical sizes of the tick to 0
-        // before the first call of this method
-        // so that the tick is horizontally and vertically stretched
-        // upon the first time this method is called
-
-        ObjectAnimator horizontalStretch = ObjectAnimator.ofFloat(tick, "scaleX", originalSize);
-        ObjectAnimator verticalStretch = ObjectAnimator.ofFloat(tick, "scaleY", originalSize);
-        ObjectAnimator horizontalShrinkage = ObjectAnimator.ofFloat(tick, "scaleX", 0);
-        ObjectAnimator verticalShrinkage = ObjectAnimator.ofFloat(tick, "scaleY", 0);
-        ObjectAnimator rotation = ObjectAnimator.ofFloat(tick, "rotation", DEGREES_IN_A_ROTATION * numberOfRotations);
-        ObjectAnimator translation = ObjectAnimator.ofFloat(tick, "translationY", translationDistanceInPixels);
+        aCard.setBackground(PositiveFeedbackAnimationManager.colourOfCorrectlyTappedCard);
+        PositiveFeedbackAnimationManager.cardColourCycle.setDuration(GameLogic.getRenderedRoundSnapshot().correctTapWinsTheGame() ? CARD_COLOUR_DURATION_AFTER_FINAL_TAP : CARD_COLOUR_DURATION_AFTER_NON_FINAL_TAP);
+        PositiveFeedbackAnimationManager.cardColourCycle.start();
+    }
+
+    /**
+     * Helper method that builds the animation of aTick:
+     * it is enlarged, shown enlarged for DURATION_OF_ENLARGED_TICK milliseconds,
+     * then rotated, moved down and shrunk
+     */
+    private static void prepareTickAnimation(ImageView aTick)
+    {
+        int originalSize = 1;
+
+        ObjectAnimator horizontalStretch = ObjectAnimator.ofFloat(aTick, View.SCALE_X, 0, originalSize);
+        ObjectAnimator verticalStretch = ObjectAnimator.ofFloat(aTick, View.SCALE_Y, 0, originalSize);
+        ObjectAnimator horizontalShrinkage = ObjectAnimator.ofFloat(aTick, View.SCALE_X, originalSize, 0);
+        ObjectAnimator verticalShrinkage = ObjectAnimator.ofFloat(aTick, View.SCALE_Y, originalSize, 0);
+        ObjectAnimator rotation = ObjectAnimator.ofFloat(aTick, View.ROTATION, 0, 0);
+        ObjectAnimator translation = ObjectAnimator.ofFloat(aTick, View.TRANSLATION_Y, 0, TICK_TRANSLATION_DISTANCE_IN_PIXELS);
+        // The start and end values are all given,
+        // so that the animation doesn't depend on where the previous one left the tick.
+        // The rotation is set to the number of rotations of the quality tier when the tick is displayed
 
         AnimatorSet firstTwoAnimations = new AnimatorSet();
         AnimatorSet lastFourAnimations = new AnimatorSet();
         AnimatorSet wholeAnimation = new AnimatorSet();
 
-        int durationOfEnlargedTick = 500;
-        // An enlarged tick is shown for half a second (500 milliseconds)
-        // at the conclusion of the first two animations,
-        // right before the last four animations start playing,
-        // due to the delay of this duration
-        // that is set on the last four animations
-        // via the setStartDelay method
-
         firstTwoAnimations.playTogether(horizontalStretch, verticalStretch);
         firstTwoAnimations.setDuration(DURATION_OF_TICK_ENLARGEMENT);
         lastFourAnimations.playTogether(rotation, translation, horizontalShrinkage, verticalShrinkage);
         lastFourAnimations.setDuration(DURATION_OF_TICK_DISAPPEARANCE);
-        lastFourAnimations.setStartDelay(durationOfEnlargedTick);
+        lastFourAnimations.setStartDelay(DURATION_OF_ENLARGED_TICK);
 
         wholeAnimation.playSequentially(firstTwoAnimations, lastFourAnimations);
-        wholeAnimation.start();
-        SoundEffectsManager.playTickSoundEffect();
+        ResourceManager.trackAnimator(wholeAnimation);
+        GameTrace.traceTickAnimation(wholeAnimation);
+
+        aTick.setScaleX(0);
+        aTick.setScaleY(0);
+        // The tick is hidden by its size until it is first displayed
+
+        PositiveFeedbackAnimationManager.tick = aTick;
+        PositiveFeedbackAnimationManager.tickAnimation = wholeAnimation;
+        PositiveFeedbackAnimationManager.tickRotation = rotation;
+        PositiveFeedbackAnimationManager.numberOfTickRotationsOfAnimation = 0;
+    }
+
+    /**
+     * Displays and animates the tick
+     * by scaling, rotating (as many times as the quality tier allows), and translating it.
+     * The tick sound effect is played straight away in the touch-down input mode,
+     * otherwise it is played just as the tick has become enlarged
+     */
+    private static void displayAnimatedTick()
+    {
+        ImageView tick = PositiveFeedbackAnimationManager.tick;
+        int numberOfRotations = QualityTierController.getNumberOfTickRotations();
+
+        if (numberOfRotations != PositiveFeedbackAnimationManager.numberOfTickRotationsOfAnimation)
+        {
+            PositiveFeedbackAnimationManager.tickRotation.setFloatValues(0, DEGREES_IN_A_ROTATION * numberOfRotations);
+            PositiveFeedbackAnimationManager.numberOfTickRotationsOfAnimation = numberOfRotations;
+            // Only rebuilt when the quality tier has changed the number of rotations
+        }
+
+        PositiveFeedbackAnimationManager.tickAnimation.cancel();
+
+        tick.setVisibility(View.VISIBLE);
+
+        tick.setRotation(0);
+        tick.setTranslationY(0);
+        // Resets the rotation and vertical position of the tick,
+        // since they are left where the previous animation ended
+        // until the rotation and translation start after the tick has been enlarged
+
+        PositiveFeedbackAnimationManager.tickAnimation.start();
+
+        if (InputSettings.tapsCommitOnTouchDown())
+        {
+            SoundEffectsManager.playTickSoundEffectImmediately();
+            // In the touch-down input mode, the sound confirms the touch itself,
+            // so it is played on the same frame rather than synchronised with the enlarged tick
+        }
+        else
+        {
+            SoundEffectsManager.playTickSoundEffect();
+        }
+
     }
 
 }
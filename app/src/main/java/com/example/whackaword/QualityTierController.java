@@ -0,0 +1,382 @@
+package com.example.whackaword;
+
+import android.app.ActivityManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.view.Window;
+import android.view.WindowManager;
+
+/**
+ * The QualityTierController class is responsible for scaling the rendering quality
+ * of the Whack-A-Word game to the device and its current state,
+ * so that cheap tablets stay cool and last through a full school day
+ *
+ * The quality tier is the lowest of three tiers:
+ *
+ * - the tier of the device class, which is determined once
+ *   from whether it is a low-RAM device, its memory class, its media performance class
+ *   and its number of processors
+ * - the tier allowed by battery saver, which is QUALITY_TIER_LOW while it is on
+ * - the tier allowed by the thermal status of the device (on Android 10 and above),
+ *   which is lowered as the device heats up
+ *
+ * The quality tier scales:
+ *
+ * - the cadence of the sky animation (SKY_FRAME_DURATION_MULTIPLIERS),
+ *   whether its colours cross-fade (SKY_CROSS_FADES),
+ *   and how often the sky is redrawn while they do (SKY_FRAME_INTERVALS, in milliseconds),
+ *   since each frame of a cross-fade redraws the full width of the sky
+ * - the complexity of the positive feedback
+ *   (TICK_ROTATIONS and CARD_COLOUR_CHANGES)
+ * - the preferred refresh rate of the window (PREFERRED_REFRESH_RATES),
+ *   where 0 means that there is no preference
+ *
+ * Each of these constant arrays is indexed by quality tier
+ *
+ * Decorative animation (the sky) is suspended entirely
+ * at QUALITY_TIER_MINIMAL, when the user has won,
+ * and when the game is idle, i.e. when the user hasn't interacted with it
+ * for IDLE_TIMEOUT milliseconds by the time cards retreat unanswered.
+ * It is resumed upon the next interaction.
+ * While the activity is stopped, the sky animation is paused by the ResourceManager class
+ */
+public class QualityTierController
+{
+    public static final int QUALITY_TIER_MINIMAL = 0;
+    public static final int QUALITY_TIER_LOW = 1;
+    public static final int QUALITY_TIER_MEDIUM = 2;
+    public static final int QUALITY_TIER_HIGH = 3;
+
+    private static final int[] SKY_FRAME_DURATION_MULTIPLIERS = {1, 5, 2, 1};
+    private static final boolean[] SKY_CROSS_FADES = {false, false, true, true};
+    private static final int[] SKY_FRAME_INTERVALS = {100, 100, 50, 16};
+    private static final int[] TICK_ROTATIONS = {0, 2, 5, 10};
+    private static final boolean[] CARD_COLOUR_CHANGES = {false, true, true, true};
+    private static final float[] PREFERRED_REFRESH_RATES = {30, 30, 60, 0};
+
+    private static final int LOW_MEMORY_CLASS = 128;
+    // Devices whose heap limit is below 128 megabytes are treated as low-end devices
+
+    private static final int FEW_PROCESSORS = 4;
+    // Devices with four processors or fewer are treated as mid-range devices
+
+    private static final int IDLE_TIMEOUT = 60000;
+    // The game is idle once the user hasn't interacted with it for a minute (60000 milliseconds)
+
+    public static int qualityTier = QUALITY_TIER_HIGH;
+    private static int deviceClassQualityTier = QUALITY_TIER_HIGH;
+    private static boolean powerSaveModeIsOn;
+    private static int thermalStatus;
+    private static boolean decorativeAnimationIsSuspended;
+    private static long timeOfLatestUserInteraction;
+
+    private static PowerManager powerManager;
+    private static Context applicationContext;
+    private static Window window;
+    private static Object thermalStatusListener;
+    // Declared as an Object since PowerManager.OnThermalStatusChangedListener
+    // doesn't exist below Android 10
+
+    private static final BroadcastReceiver powerSaveModeReceiver = new BroadcastReceiver()
+    {
+        @Override
+        public void onReceive(Context aContext, Intent anIntent)
+        {
+            QualityTierController.powerSaveModeIsOn = QualityTierController.powerManager.isPowerSaveMode();
+            QualityTierController.updateQualityTier();
+        }
+
+    };
+
+    private static final ManagedResource qualityTierMonitoring = new ManagedResource()
+    {
+        @Override
+        public void pause()
+        {
+            // The listeners are cheap and are kept while the activity is stopped,
+            // so that the quality tier is up to date when it is started again
+        }
+
+        @Override
+        public void resume()
+        {
+        }
+
+        @Override
+        public void release()
+        {
+            QualityTierController.stopMonitoring();
+        }
+
+        @Override
+        public boolean survivesConfigurationChanges()
+        {
+            return false;
+        }
+
+        @Override
+        public String describe()
+        {
+            return "Quality tier monitoring (tier " + QualityTierController.qualityTier + ")";
+        }
+
+    };
+
+    /**
+     * Determines the tier of the device class,
+     * starts listening for changes to battery saver and to the thermal status of the device,
+     * and applies the resulting quality tier to the window of aWhackAWordActivity
+     */
+    public static void start(WhackAWordActivity aWhackAWordActivity)
+    {
+        QualityTierController.applicationContext = aWhackAWordActivity.getApplicationContext();
+        QualityTierController.window = aWhackAWordActivity.getWindow();
+        QualityTierController.powerManager = aWhackAWordActivity.getSystemService(PowerManager.class);
+        QualityTierController.deviceClassQualityTier = QualityTierController.getDeviceClassQualityTier(aWhackAWordActivity);
+        QualityTierController.timeOfLatestUserInteraction = SystemClock.uptimeMillis();
+
+        QualityTierController.powerSaveModeIsOn = QualityTierController.powerManager.isPowerSaveMode();
+        QualityTierController.applicationContext.registerReceiver(QualityTierController.powerSaveModeReceiver, new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q)
+        {
+            PowerManager.OnThermalStatusChangedListener onThermalStatusChangedListener = status ->
+            {
+                QualityTierController.thermalStatus = status;
+                QualityTierController.updateQualityTier();
+            };
+
+            QualityTierController.thermalStatus = QualityTierController.powerManager.getCurrentThermalStatus();
+            QualityTierController.powerManager.addThermalStatusListener(onThermalStatusChangedListener);
+            QualityTierController.thermalStatusListener = onThermalStatusChangedListener;
+        }
+
+        ResourceManager.register(QualityTierController.qualityTierMonitoring);
+
+        QualityTierController.qualityTier = QualityTierController.calculateQualityTier();
+        QualityTierController.applyPreferredRefreshRate();
+    }
+
+    /**
+     * Records that the user has just interacted with the game,
+     * resuming decorative animation if it was suspended because the game was idle
+     */
+    public static void onUserInteraction()
+    {
+        QualityTierController.timeOfLatestUserInteraction = SystemClock.uptimeMillis();
+
+        if (QualityTierController.decorativeAnimationIsSuspended)
+        {
+            QualityTierController.decorativeAnimationIsSuspended = false;
+            AnimationManager.updateSkyAnimation();
+        }
+
+    }
+
+    /**
+     * Suspends decorative animation if the user hasn't interacted with the game
+     * for IDLE_TIMEOUT milliseconds
+     */
+    public static void checkForIdleness()
+    {
+        if (SystemClock.uptimeMillis() - QualityTierController.timeOfLatestUserInteraction >= IDLE_TIMEOUT)
+        {
+            QualityTierController.suspendDecorativeAnimation();
+        }
+
+    }
+
+    /**
+     * Suspends decorative animation until the next user interaction,
+     * e.g. when the user has won and nothing else is happening
+     */
+    public static void suspendDecorativeAnimation()
+    {
+        if (!QualityTierController.decorativeAnimationIsSuspended)
+        {
+            QualityTierController.decorativeAnimationIsSuspended = true;
+            AnimationManager.updateSkyAnimation();
+        }
+
+    }
+
+    /**
+     * Returns true if decorative animation is allowed,
+     * i.e. if the quality tier is above QUALITY_TIER_MINIMAL
+     * and decorative animation is not suspended,
+     * otherwise returns false
+     */
+    public static boolean decorativeAnimationIsAllowed()
+    {
+        return QualityTierController.qualityTier > QUALITY_TIER_MINIMAL && !QualityTierController.decorativeAnimationIsSuspended;
+    }
+
+    /**
+     * Returns the number by which the duration of each sky colour is multiplied
+     */
+    public static int getSkyFrameDurationMultiplier()
+    {
+        return SKY_FRAME_DURATION_MULTIPLIERS[QualityTierController.qualityTier];
+    }
+
+    /**
+     * Returns true if the sky colours cross-fade into each other,
+     * otherwise returns false
+     */
+    public static boolean skyCrossFades()
+    {
+        return SKY_CROSS_FADES[QualityTierController.qualityTier];
+    }
+
+    /**
+     * Returns the number of milliseconds between frames of the sky while its colours cross-fade
+     */
+    public static int getSkyFrameInterval()
+    {
+        return SKY_FRAME_INTERVALS[QualityTierController.qualityTier];
+    }
+
+    /**
+     * Returns the number of rotations of the animated tick
+     */
+    public static int getNumberOfTickRotations()
+    {
+        return TICK_ROTATIONS[QualityTierController.qualityTier];
+    }
+
+    /**
+     * Returns true if a correctly tapped card continuously changes colour,
+     * otherwise returns false
+     */
+    public static boolean cardColourChanges()
+    {
+        return CARD_COLOUR_CHANGES[QualityTierController.qualityTier];
+    }
+
+    /**
+     * Helper method that recalculates the quality tier
+     * and, if it has changed, applies it to the sky animation and the window
+     */
+    private static void updateQualityTier()
+    {
+        int newQualityTier = QualityTierController.calculateQualityTier();
+
+        if (newQualityTier != QualityTierController.qualityTier)
+        {
+            QualityTierController.qualityTier = newQualityTier;
+            AnimationManager.applySkyQualityTier();
+            QualityTierController.applyPreferredRefreshRate();
+        }
+
+    }
+
+    /**
+     * Helper method that returns the lowest of the tier of the device class
+     * and the tiers allowed by battery saver and by the thermal status
+     */
+    private static int calculateQualityTier()
+    {
+        int calculatedQualityTier = QualityTierController.deviceClassQualityTier;
+
+        if (QualityTierController.powerSaveModeIsOn)
+        {
+            calculatedQualityTier = Math.min(calculatedQualityTier, QUALITY_TIER_LOW);
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q)
+        {
+            calculatedQualityTier = Math.min(calculatedQualityTier, QualityTierController.getThermalQualityTier());
+        }
+
+        return calculatedQualityTier;
+    }
+
+    /**
+     * Helper method that returns the highest tier allowed by the thermal status of the device
+     */
+    private static int getThermalQualityTier()
+    {
+        if (QualityTierController.thermalStatus >= PowerManager.THERMAL_STATUS_CRITICAL)
+        {
+            return QUALITY_TIER_MINIMAL;
+        }
+
+        if (QualityTierController.thermalStatus == PowerManager.THERMAL_STATUS_SEVERE)
+        {
+            return QUALITY_TIER_LOW;
+        }
+
+        if (QualityTierController.thermalStatus == PowerManager.THERMAL_STATUS_MODERATE)
+        {
+            return QUALITY_TIER_MEDIUM;
+        }
+
+        return QUALITY_TIER_HIGH;
+    }
+
+    /**
+     * Helper method that returns the tier of the device class
+     */
+    private static int getDeviceClassQualityTier(Context aContext)
+    {
+        ActivityManager activityManager = aContext.getSystemService(ActivityManager.class);
+
+        if (activityManager.isLowRamDevice() || activityManager.getMemoryClass() < LOW_MEMORY_CLASS)
+        {
+            return QUALITY_TIER_LOW;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && Build.VERSION.MEDIA_PERFORMANCE_CLASS >= Build.VERSION_CODES.R)
+        {
+            return QUALITY_TIER_HIGH;
+            // The device declares a media performance class,
+            // which guarantees a capable processor and graphics
+        }
+
+        if (Runtime.getRuntime().availableProcessors() <= FEW_PROCESSORS)
+        {
+            return QUALITY_TIER_MEDIUM;
+        }
+
+        return QUALITY_TIER_HIGH;
+    }
+
+    /**
+     * Helper method that asks the display to use the preferred refresh rate of the quality tier,
+     * so that devices with high refresh rates don't draw animations more often than needed
+     */
+    private static void applyPreferredRefreshRate()
+    {
+        if (QualityTierController.window == null)
+        {
+            return;
+        }
+
+        WindowManager.LayoutParams layoutParams = QualityTierController.window.getAttributes();
+        layoutParams.preferredRefreshRate = PREFERRED_REFRESH_RATES[QualityTierController.qualityTier];
+        QualityTierController.window.setAttributes(layoutParams);
+    }
+
+    /**
+     * Helper method that stops listening for changes to battery saver and the thermal status,
+     * and clears the reference to the window of the activity
+     */
+    private static void stopMonitoring()
+    {
+        QualityTierController.applicationContext.unregisterReceiver(QualityTierController.powerSaveModeReceiver);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && QualityTierController.thermalStatusListener != null)
+        {
+            QualityTierController.powerManager.removeThermalStatusListener((PowerManager.OnThermalStatusChangedListener) QualityTierController.thermalStatusListener);
+            QualityTierController.thermalStatusListener = null;
+        }
+
+        QualityTierController.window = null;
+    }
+
+}
@@ -0,0 +1,395 @@
+package com.example.whackaword;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.app.Activity;
+import android.content.pm.ApplicationInfo;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The ResourceManager class is responsible for tying every native and timed resource
+ * of the Whack-A-Word game to the lifecycle of the activity,
+ * so that nothing keeps playing, animating or holding on to the activity
+ * once it is in the background or has been destroyed
+ *
+ * It contains the following class variables:
+ *
+ * handler, through which every delayed task of the game is scheduled
+ * (via the postDelayed method) instead of through a new Handler,
+ * so that all of them can be paused, resumed and removed at once
+ *
+ * managedResources, which is a list of the resources
+ * (such as media players, the sound pool and the sky animation)
+ * that are paused when the activity is stopped,
+ * resumed when it is started again
+ * and released when it is destroyed
+ *
+ * scheduledTasks, which is a list of the delayed tasks that are yet to run.
+ * When the activity is stopped, each task is removed from the handler
+ * and the time remaining until it was due is recorded,
+ * so that it can be posted again with that delay when the activity is started again
+ *
+ * runningAnimators, which is a set of the animators that have started but not yet ended,
+ * so that they can be paused, resumed and cancelled together
+ *
+ * destroyedActivities, which is a list of weak references to destroyed activities.
+ * An activity that can still be reached some time after it was destroyed has leaked,
+ * which is shown in the debug report
+ *
+ * leakCheckHandler, through which the delayed leak check is scheduled.
+ * It is separate from handler, whose tasks are all removed when an activity is destroyed,
+ * so that the leak check of the previous activity isn't cancelled when the activity is recreated
+ * (e.g. after a configuration change)
+ *
+ * resourcesArePaused, which records whether the activity is currently stopped
+ */
+public class ResourceManager
+{
+    private static final String TAG = "ResourceManager";
+
+    private static final int LEAK_CHECK_DELAY = 5000;
+    // The debug report is logged five seconds (5000 milliseconds) after an activity is destroyed,
+    // by which time a destroyed activity that is still reachable has most likely leaked
+
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+    private static final Handler leakCheckHandler = new Handler(Looper.getMainLooper());
+    private static final List<ManagedResource> managedResources = new ArrayList<>();
+    private static final List<ScheduledTask> scheduledTasks = new ArrayList<>();
+    private static final Set<Animator> runningAnimators = new HashSet<>();
+    private static final List<WeakReference<Activity>> destroyedActivities = new ArrayList<>();
+    private static boolean resourcesArePaused;
+
+    private static final AnimatorListenerAdapter animatorTracker = new AnimatorListenerAdapter()
+    {
+        @Override
+        public void onAnimationStart(Animator animation)
+        {
+            ResourceManager.runningAnimators.add(animation);
+            MetricsRegistry.increment(MetricsRegistry.COUNTER_ANIMATORS_STARTED);
+            MetricsRegistry.setGauge(MetricsRegistry.GAUGE_RUNNING_ANIMATORS, ResourceManager.runningAnimators.size());
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animation)
+        {
+            ResourceManager.runningAnimators.remove(animation);
+            MetricsRegistry.setGauge(MetricsRegistry.GAUGE_RUNNING_ANIMATORS, ResourceManager.runningAnimators.size());
+        }
+
+    };
+    // onAnimationEnd is also called when an animator is cancelled,
+    // so a cancelled animator is removed from runningAnimators too
+
+    /**
+     * Registers aManagedResource, unless it is already registered
+     */
+    public static void register(ManagedResource aManagedResource)
+    {
+        if (!ResourceManager.managedResources.contains(aManagedResource))
+        {
+            ResourceManager.managedResources.add(aManagedResource);
+
+            if (ResourceManager.resourcesArePaused)
+            {
+                aManagedResource.pause();
+            }
+
+        }
+
+    }
+
+    /**
+     * Unregisters aManagedResource, e.g. after it has released itself
+     */
+    public static void unregister(ManagedResource aManagedResource)
+    {
+        ResourceManager.managedResources.remove(aManagedResource);
+    }
+
+    /**
+     * Schedules aRunnable to run on the main thread after delay milliseconds
+     * of the activity being started.
+     * Use this instead of a new Handler so that the task is paused with the activity
+     * and never runs after the activity has been destroyed
+     */
+    public static void postDelayed(Runnable aRunnable, long delay)
+    {
+        ScheduledTask scheduledTask = new ScheduledTask(aRunnable, delay);
+        ResourceManager.scheduledTasks.add(scheduledTask);
+        MetricsRegistry.increment(MetricsRegistry.COUNTER_TASKS_POSTED);
+        MetricsRegistry.setGauge(MetricsRegistry.GAUGE_SCHEDULED_TASKS, ResourceManager.scheduledTasks.size());
+
+        if (!ResourceManager.resourcesArePaused)
+        {
+            scheduledTask.post();
+        }
+
+    }
+
+    /**
+     * Tracks anAnimator, which must not have been started yet,
+     * so that it is paused, resumed and cancelled with the activity
+     */
+    public static void trackAnimator(Animator anAnimator)
+    {
+        anAnimator.addListener(ResourceManager.animatorTracker);
+    }
+
+    /**
+     * Returns true if the resources are paused because the activity is stopped,
+     * otherwise returns false
+     */
+    public static boolean areResourcesPaused()
+    {
+        return ResourceManager.resourcesArePaused;
+    }
+
+    /**
+     * Pauses every managed resource, scheduled task and running animator
+     * when the activity is stopped
+     */
+    public static void pauseResources()
+    {
+        if (ResourceManager.resourcesArePaused)
+        {
+            return;
+        }
+
+        ResourceManager.resourcesArePaused = true;
+
+        for (ManagedResource managedResource : ResourceManager.managedResources)
+        {
+            managedResource.pause();
+        }
+
+        for (ScheduledTask scheduledTask : ResourceManager.scheduledTasks)
+        {
+            scheduledTask.pause();
+        }
+
+        for (Animator animator : ResourceManager.runningAnimators)
+        {
+            animator.pause();
+        }
+
+    }
+
+    /**
+     * Resumes every managed resource, scheduled task and running animator
+     * when the activity is started again after having been stopped
+     */
+    public static void resumeResources()
+    {
+        if (!ResourceManager.resourcesArePaused)
+        {
+            return;
+        }
+
+        ResourceManager.resourcesArePaused = false;
+
+        for (ManagedResource managedResource : ResourceManager.managedResources)
+        {
+            managedResource.resume();
+        }
+
+        for (ScheduledTask scheduledTask : ResourceManager.scheduledTasks)
+        {
+            scheduledTask.post();
+        }
+
+        for (Animator animator : ResourceManager.runningAnimators)
+        {
+            animator.resume();
+        }
+
+    }
+
+    /**
+     * Releases the resources of anActivity when it is destroyed:
+     *
+     * - removes every scheduled task, since each one may refer to the activity
+     * - cancels every running animator, since each one refers to a view of the activity
+     * - releases every managed resource,
+     *   except those that survive configuration changes if isChangingConfigurations is true,
+     *   in which case they stay resident for the recreated activity
+     *
+     * Also keeps a weak reference to anActivity so that it can be reported if it leaks,
+     * and checks for leaks after LEAK_CHECK_DELAY milliseconds if the app is debuggable
+     */
+    public static void releaseResources(Activity anActivity, boolean isChangingConfigurations)
+    {
+        ResourceManager.handler.removeCallbacksAndMessages(null);
+        ResourceManager.scheduledTasks.clear();
+        MetricsRegistry.setGauge(MetricsRegistry.GAUGE_SCHEDULED_TASKS, 0);
+
+        for (Animator animator : new ArrayList<>(ResourceManager.runningAnimators))
+        {
+            animator.cancel();
+        }
+
+        ResourceManager.runningAnimators.clear();
+        MetricsRegistry.setGauge(MetricsRegistry.GAUGE_RUNNING_ANIMATORS, 0);
+
+        for (ManagedResource managedResource : new ArrayList<>(ResourceManager.managedResources))
+        {
+
+            if (!isChangingConfigurations || !managedResource.survivesConfigurationChanges())
+            {
+                managedResource.release();
+                ResourceManager.managedResources.remove(managedResource);
+            }
+
+        }
+
+        // resourcesArePaused is left as it is,
+        // since the activity was stopped before being destroyed:
+        // the resources that survive, and any registered by a recreated activity,
+        // are resumed when the recreated activity is started
+
+        ResourceManager.destroyedActivities.add(new WeakReference<>(anActivity));
+
+        if ((anActivity.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0)
+        {
+            ResourceManager.leakCheckHandler.postDelayed(ResourceManager::checkForLeakedActivities, LEAK_CHECK_DELAY);
+        }
+
+    }
+
+    /**
+     * Helper method that requests a garbage collection, so that destroyed activities
+     * which are merely unreachable are not reported as leaks, and then logs the debug report.
+     * Only called from the delayed leak check of a debuggable app,
+     * since a garbage collection stalls the main thread
+     */
+    private static void checkForLeakedActivities()
+    {
+        Runtime.getRuntime().gc();
+        Log.d(TAG, ResourceManager.getDebugReport());
+    }
+
+    /**
+     * Returns a report of the registered resources, pending tasks and running animators,
+     * and of any destroyed activities that are still reachable.
+     * No garbage collection is requested, so a destroyed activity is only certain to have leaked
+     * if it is reported by the leak check that runs LEAK_CHECK_DELAY milliseconds after it was destroyed
+     */
+    public static String getDebugReport()
+    {
+        StringBuilder report = new StringBuilder("Resource report:\n");
+
+        report.append("  Resources are paused: ").append(ResourceManager.resourcesArePaused).append('\n');
+        report.append("  Managed resources: ").append(ResourceManager.managedResources.size()).append('\n');
+
+        for (ManagedResource managedResource : ResourceManager.managedResources)
+        {
+            report.append("    ").append(managedResource.describe()).append('\n');
+        }
+
+        report.append("  Scheduled tasks: ").append(ResourceManager.scheduledTasks.size()).append('\n');
+
+        for (ScheduledTask scheduledTask : ResourceManager.scheduledTasks)
+        {
+            report.append("    Due in ").append(scheduledTask.getRemainingDelay()).append("ms\n");
+        }
+
+        report.append("  Running animators: ").append(ResourceManager.runningAnimators.size()).append('\n');
+
+        int numberOfLeakedActivities = 0;
+
+        for (int i = ResourceManager.destroyedActivities.size() - 1; i >= 0; i--)
+        {
+            Activity destroyedActivity = ResourceManager.destroyedActivities.get(i).get();
+
+            if (destroyedActivity == null)
+            {
+                ResourceManager.destroyedActivities.remove(i);
+                // The activity has been garbage collected, so it hasn't leaked
+            }
+            else
+            {
+                numberOfLeakedActivities++;
+                report.append("    Leaked: ").append(destroyedActivity).append('\n');
+            }
+
+        }
+
+        report.append("  Destroyed activities that are still reachable: ").append(numberOfLeakedActivities).append('\n');
+
+        return report.toString();
+    }
+
+    /**
+     * An object of the ScheduledTask class represents a delayed task
+     * that is scheduled through the ResourceManager class,
+     * and which keeps track of when it is due so that it can be paused and resumed
+     */
+    private static class ScheduledTask implements Runnable
+    {
+        private final Runnable runnable;
+        private long remainingDelay;
+        private long dueTime;
+
+        /**
+         * Constructor for objects of the class ScheduledTask
+         */
+        ScheduledTask(Runnable aRunnable, long aDelay)
+        {
+            this.runnable = aRunnable;
+            this.remainingDelay = aDelay;
+        }
+
+        /**
+         * Posts the task to the handler with the delay that remains
+         */
+        void post()
+        {
+            this.dueTime = SystemClock.uptimeMillis() + this.remainingDelay;
+            ResourceManager.handler.postAtTime(this, this.dueTime);
+        }
+
+        /**
+         * Removes the task from the handler and records the delay that remains
+         */
+        void pause()
+        {
+            ResourceManager.handler.removeCallbacks(this);
+            this.remainingDelay = Math.max(0, this.dueTime - SystemClock.uptimeMillis());
+        }
+
+        /**
+         * Returns the time (in milliseconds) until the task is due,
+         * not counting any time for which the activity is stopped
+         */
+        long getRemainingDelay()
+        {
+            if (ResourceManager.resourcesArePaused)
+            {
+                return this.remainingDelay;
+            }
+
+            return Math.max(0, this.dueTime - SystemClock.uptimeMillis());
+        }
+
+        /**
+         * Runs the task once it is due, after it has been removed from scheduledTasks
+         */
+        @Override
+        public void run()
+        {
+            ResourceManager.scheduledTasks.remove(this);
+            MetricsRegistry.setGauge(MetricsRegistry.GAUGE_SCHEDULED_TASKS, ResourceManager.scheduledTasks.size());
+            this.runnable.run();
+        }
+
+    }
+
+}
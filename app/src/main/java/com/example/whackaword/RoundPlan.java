@@ -0,0 +1,96 @@
+package com.example.whackaword;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An object of the RoundPlan class represents a round of Whack-A-Word
+ * that has been planned ahead by the RoundPlanner class:
+ * which food items are displayed on which food cards, and which food item is correct.
+ *
+ * It also records the state of the game that the round was planned for
+ * (the level, the number of cards to display and the food items correctly tapped before the round),
+ * so that it is only played if the game is still in that state when the round begins.
+ *
+ * Objects of this class are immutable,
+ * so they can be created on the planner's thread and read on the main thread
+ * (java.util.Collections is written out in full
+ * since Collections refers to the game's own Collections class)
+ */
+public class RoundPlan
+{
+    private final int level;
+    private final int numberOfCardsToDisplay;
+    private final Set<FoodItem> correctlyTappedFoodItemsBeforeRound;
+    private final List<FoodItem> foodItems;
+    private final List<FoodCard> foodCards;
+    private final FoodItem correctFoodItem;
+
+    /**
+     * Constructor for objects of the class RoundPlan.
+     * The food item at each index of someFoodItems is displayed
+     * on the food card at the same index of someFoodCards
+     */
+    public RoundPlan(int aLevel, int aNumberOfCardsToDisplay, Set<FoodItem> someCorrectlyTappedFoodItemsBeforeRound,
+                     List<FoodItem> someFoodItems, List<FoodCard> someFoodCards, FoodItem aCorrectFoodItem)
+    {
+        this.level = aLevel;
+        this.numberOfCardsToDisplay = aNumberOfCardsToDisplay;
+        this.correctlyTappedFoodItemsBeforeRound = java.util.Collections.unmodifiableSet(someCorrectlyTappedFoodItemsBeforeRound);
+        this.foodItems = java.util.Collections.unmodifiableList(someFoodItems);
+        this.foodCards = java.util.Collections.unmodifiableList(someFoodCards);
+        this.correctFoodItem = aCorrectFoodItem;
+    }
+
+    /**
+     * Returns the food items of the round
+     */
+    public List<FoodItem> getFoodItems()
+    {
+        return this.foodItems;
+    }
+
+    /**
+     * Returns the food cards of the round,
+     * each of which displays the food item at the same index
+     */
+    public List<FoodCard> getFoodCards()
+    {
+        return this.foodCards;
+    }
+
+    /**
+     * Returns the correct food item of the round
+     */
+    public FoodItem getCorrectFoodItem()
+    {
+        return this.correctFoodItem;
+    }
+
+    /**
+     * Returns true if the round was planned for aLevel
+     * and for someCorrectlyTappedFoodItems having been correctly tapped before it,
+     * otherwise returns false
+     */
+    public boolean isPlannedFor(int aLevel, Set<FoodItem> someCorrectlyTappedFoodItems)
+    {
+        return this.level == aLevel && this.correctlyTappedFoodItemsBeforeRound.equals(someCorrectlyTappedFoodItems);
+    }
+
+    /**
+     * Returns true if the round was planned for the current state of the game,
+     * i.e. for the current level and number of cards to display,
+     * and for the food items that have been correctly tapped so far,
+     * and if all of its food items and food cards are available,
+     * otherwise returns false
+     */
+    public boolean isValidForCurrentState()
+    {
+        return this.level == LevelProperties.currentLevel
+                && this.numberOfCardsToDisplay == LevelProperties.numberOfCardsToDisplay
+                && this.correctlyTappedFoodItemsBeforeRound.equals(Collections.correctlyTappedFoodItems)
+                && Collections.availableFoodItems.containsAll(this.foodItems)
+                && Collections.availableFoodCards.containsAll(this.foodCards);
+    }
+
+}
@@ -0,0 +1,359 @@
+package com.example.whackaword;
+
+import android.content.Context;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The RoundPlanner class is responsible for planning the next rounds of Whack-A-Word ahead of time,
+ * on a background thread, so that their assets can be prefetched
+ * (by the AssetPrefetcher class) before the rounds begin
+ *
+ * Each time a round begins, the planner works out the state that the game will be in
+ * once the correct food card of that round has been tapped,
+ * and plans up to NUMBER_OF_ROUNDS_TO_PLAN_AHEAD rounds from that state,
+ * simulating a correct tap (and any level up) after each planned round,
+ * under the rules of stress mode if it is on (see the StressMode class).
+ * The planned rounds follow the same rules as the Selector class:
+ * each round displays different food items on different food cards,
+ * and its correct food item is one that hasn't yet been correctly tapped.
+ *
+ * Plans that are still valid are kept, and only the missing rounds are planned.
+ * If the state of the game no longer matches the planned rounds
+ * (e.g. after an incorrect tap or a timeout, or after the game state has been restored),
+ * every planned round is discarded and the rounds are planned again.
+ * The Selector class only plays a planned round if it is still valid when the round begins,
+ * and otherwise selects the round itself as before,
+ * so a round never waits for the planner or for its assets
+ *
+ * It contains the following class variables:
+ *
+ * plannerExecutor, the single background thread on which rounds are planned and assets are prefetched.
+ * It is a plain thread rather than a HandlerThread:
+ * a MediaPlayer delivers its events to the Looper of the thread that created it, if it has one,
+ * so media players prefetched on a thread without a Looper deliver their events to the main thread
+ *
+ * plannedRounds, which is a queue of the rounds that have been planned, in the order they are to be played.
+ * Like planGeneration, it is only used on the game logic thread (see the GameLogic class),
+ * which is where rounds are selected
+ *
+ * planGeneration, which is incremented whenever planning is requested,
+ * so that plans delivered by an earlier request are ignored
+ *
+ * numberOfPlannedRounds, which is the size of plannedRounds, so that it can be described on the main thread
+ *
+ * applicationContext, through which assets are loaded on the planner's thread
+ */
+public class RoundPlanner
+{
+    public static final int NUMBER_OF_ROUNDS_TO_PLAN_AHEAD = 3;
+
+    private static final ArrayDeque<RoundPlan> plannedRounds = new ArrayDeque<>();
+    private static final Random random = new Random();
+    private static volatile ExecutorService plannerExecutor;
+    private static int planGeneration;
+    private static volatile int numberOfPlannedRounds;
+    private static Context applicationContext;
+
+    private static final ManagedResource roundPlanning = new ManagedResource()
+    {
+        @Override
+        public void pause()
+        {
+        }
+
+        @Override
+        public void resume()
+        {
+        }
+
+        @Override
+        public void release()
+        {
+            RoundPlanner.plannerExecutor.shutdownNow();
+            RoundPlanner.plannerExecutor = null;
+            AssetPrefetcher.release();
+            // The planned rounds belong to the game logic thread, which discards them
+            // once it finds that they no longer follow on from the current round
+        }
+
+        @Override
+        public boolean survivesConfigurationChanges()
+        {
+            return true;
+            // The planner only refers to the application context, not to the activity
+        }
+
+        @Override
+        public String describe()
+        {
+            return "Round planner (" + RoundPlanner.numberOfPlannedRounds + " rounds planned, " + AssetPrefetcher.describe() + ")";
+        }
+
+    };
+
+    /**
+     * Starts the planner's thread, unless it is still running from before the activity was recreated
+     */
+    public static void start(Context aContext)
+    {
+        if (RoundPlanner.plannerExecutor != null)
+        {
+            return;
+        }
+
+        RoundPlanner.applicationContext = aContext.getApplicationContext();
+        RoundPlanner.plannerExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "RoundPlanner"));
+        AssetPrefetcher.reset();
+        ResourceManager.register(RoundPlanner.roundPlanning);
+    }
+
+    /**
+     * Plans the rounds that follow the current one.
+     * Must be called on the game logic thread once the current round's correct food item has been set.
+     * Keeps the planned rounds that are still valid and plans the rest on the planner's thread,
+     * or plans every round again if the planned rounds don't follow on from the current one
+     */
+    public static void planAhead()
+    {
+        ExecutorService plannerExecutor = RoundPlanner.plannerExecutor;
+
+        if (plannerExecutor == null)
+        {
+            return;
+        }
+
+        PlanningState planningState = PlanningState.ofCurrentRound();
+
+        if (!planningState.advancePastCorrectTapOf(Selector.correctFoodItem))
+        {
+            RoundPlanner.clearPlannedRounds();
+            return;
+            // The game is won once the current round's correct food card has been tapped
+        }
+
+        RoundPlan firstPlannedRound = RoundPlanner.plannedRounds.peekFirst();
+
+        if (firstPlannedRound != null && !planningState.isStateOf(firstPlannedRound))
+        {
+            RoundPlanner.clearPlannedRounds();
+            // The planned rounds don't follow on from the current round, so they are planned again
+        }
+
+        for (RoundPlan plannedRound : RoundPlanner.plannedRounds)
+        {
+            planningState.advancePastCorrectTapOf(plannedRound.getCorrectFoodItem());
+        }
+
+        int numberOfRoundsToPlan = NUMBER_OF_ROUNDS_TO_PLAN_AHEAD - RoundPlanner.plannedRounds.size();
+        List<RoundPlan> roundsAlreadyPlanned = new ArrayList<>(RoundPlanner.plannedRounds);
+        List<FoodItem> allFoodItems = new ArrayList<>(Collections.foodItems);
+        List<FoodCard> allFoodCards = new ArrayList<>(Collections.foodCards);
+        int generation = ++RoundPlanner.planGeneration;
+        Context context = RoundPlanner.applicationContext;
+
+        plannerExecutor.execute(() ->
+        {
+            List<RoundPlan> newRounds = RoundPlanner.planRounds(planningState, numberOfRoundsToPlan, allFoodItems, allFoodCards);
+
+            GameLogic.post(() -> RoundPlanner.deliverPlannedRounds(generation, newRounds));
+
+            List<RoundPlan> allPlannedRounds = new ArrayList<>(roundsAlreadyPlanned);
+            allPlannedRounds.addAll(newRounds);
+            AssetPrefetcher.prefetch(context, allPlannedRounds);
+        });
+    }
+
+    /**
+     * Removes and returns the next planned round if it is valid for the current state of the game.
+     * Otherwise discards every planned round and returns null,
+     * in which case the round is selected on the spot.
+     * Must be called on the game logic thread
+     * (whether a round was planned is counted when it is rendered, see the WhackAWordActivity class)
+     */
+    public static RoundPlan takePlannedRound()
+    {
+        RoundPlan roundPlan = RoundPlanner.plannedRounds.pollFirst();
+        RoundPlanner.numberOfPlannedRounds = RoundPlanner.plannedRounds.size();
+
+        if (roundPlan != null && roundPlan.isValidForCurrentState())
+        {
+            return roundPlan;
+        }
+
+        RoundPlanner.clearPlannedRounds();
+        return null;
+    }
+
+    /**
+     * Helper method, run on the game logic thread, that adds newly planned rounds to the queue,
+     * unless planning has been requested again since they were planned
+     */
+    private static void deliverPlannedRounds(int generation, List<RoundPlan> newRounds)
+    {
+        if (generation == RoundPlanner.planGeneration)
+        {
+            RoundPlanner.plannedRounds.addAll(newRounds);
+            RoundPlanner.numberOfPlannedRounds = RoundPlanner.plannedRounds.size();
+        }
+
+    }
+
+    /**
+     * Helper method, run on the game logic thread, that discards every planned round
+     */
+    private static void clearPlannedRounds()
+    {
+        RoundPlanner.plannedRounds.clear();
+        RoundPlanner.numberOfPlannedRounds = 0;
+    }
+
+    /**
+     * Helper method, run on the planner's thread, that plans up to numberOfRoundsToPlan rounds
+     * from aPlanningState, stopping early if the game would be won
+     */
+    private static List<RoundPlan> planRounds(PlanningState aPlanningState, int numberOfRoundsToPlan, List<FoodItem> allFoodItems, List<FoodCard> allFoodCards)
+    {
+        List<RoundPlan> newRounds = new ArrayList<>();
+
+        for (int roundCount = 0; roundCount < numberOfRoundsToPlan; roundCount++)
+        {
+            RoundPlan roundPlan = RoundPlanner.planRound(aPlanningState, allFoodItems, allFoodCards);
+
+            if (roundPlan == null)
+            {
+                break;
+            }
+
+            newRounds.add(roundPlan);
+
+            if (!aPlanningState.advancePastCorrectTapOf(roundPlan.getCorrectFoodItem()))
+            {
+                break;
+            }
+
+        }
+
+        return newRounds;
+    }
+
+    /**
+     * Helper method, run on the planner's thread, that plans a round for aPlanningState:
+     * selects different food items for the number of cards to display at its level,
+     * including at least one that hasn't yet been correctly tapped,
+     * selects a different food card for each of them,
+     * and selects one of the food items that hasn't yet been correctly tapped as the correct one.
+     * Returns null if every food item has already been correctly tapped,
+     * or if there are fewer food items or food cards than cards to display
+     * (in which case the Selector class selects the round itself)
+     */
+    private static RoundPlan planRound(PlanningState aPlanningState, List<FoodItem> allFoodItems, List<FoodCard> allFoodCards)
+    {
+        int numberOfCardsToDisplay = LevelProperties.getNumberOfCardsToDisplayForLevel(aPlanningState.level);
+
+        List<FoodItem> foodItemsNotYetCorrectlyTapped = new ArrayList<>(allFoodItems);
+        foodItemsNotYetCorrectlyTapped.removeAll(aPlanningState.correctlyTappedFoodItems);
+
+        if (foodItemsNotYetCorrectlyTapped.isEmpty() || numberOfCardsToDisplay > allFoodItems.size()
+                || numberOfCardsToDisplay > allFoodCards.size())
+        {
+            return null;
+        }
+
+        FoodItem correctFoodItem = foodItemsNotYetCorrectlyTapped.get(RoundPlanner.random.nextInt(foodItemsNotYetCorrectlyTapped.size()));
+
+        List<FoodItem> otherFoodItems = new ArrayList<>(allFoodItems);
+        otherFoodItems.remove(correctFoodItem);
+        java.util.Collections.shuffle(otherFoodItems, RoundPlanner.random);
+
+        List<FoodItem> foodItems = new ArrayList<>(otherFoodItems.subList(0, numberOfCardsToDisplay - 1));
+        foodItems.add(RoundPlanner.random.nextInt(foodItems.size() + 1), correctFoodItem);
+        // The correct food item is placed among the others at random
+
+        List<FoodCard> foodCards = new ArrayList<>(allFoodCards);
+        java.util.Collections.shuffle(foodCards, RoundPlanner.random);
+
+        return new RoundPlan(aPlanningState.level, numberOfCardsToDisplay, new HashSet<>(aPlanningState.correctlyTappedFoodItems),
+                foodItems, new ArrayList<>(foodCards.subList(0, numberOfCardsToDisplay)), correctFoodItem);
+    }
+
+    /**
+     * An object of the PlanningState class represents the state of the game
+     * that a round is planned for:
+     * the level, the count of successful taps at that level
+     * and the food items that have been correctly tapped
+     * (out of numberOfFoodItems food items)
+     */
+    private static class PlanningState
+    {
+        private int level;
+        private int countOfSuccessfulTaps;
+        private final Set<FoodItem> correctlyTappedFoodItems;
+        private final int numberOfFoodItems;
+
+        /**
+         * Constructor for objects of the class PlanningState
+         */
+        PlanningState(int aLevel, int aCountOfSuccessfulTaps, Set<FoodItem> someCorrectlyTappedFoodItems, int aNumberOfFoodItems)
+        {
+            this.level = aLevel;
+            this.countOfSuccessfulTaps = aCountOfSuccessfulTaps;
+            this.correctlyTappedFoodItems = someCorrectlyTappedFoodItems;
+            this.numberOfFoodItems = aNumberOfFoodItems;
+        }
+
+        /**
+         * Returns the state of the game during the current round
+         */
+        static PlanningState ofCurrentRound()
+        {
+            return new PlanningState(LevelProperties.currentLevel, LevelProperties.countOfSuccessfulTaps, new HashSet<>(Collections.correctlyTappedFoodItems), Collections.foodItems.size());
+        }
+
+        /**
+         * Advances the state past a correct tap of aCorrectFoodItem, levelling up if appropriate,
+         * in the same way as the GameLogic class.
+         * Returns false if the game would be won by the tap, otherwise returns true
+         */
+        boolean advancePastCorrectTapOf(FoodItem aCorrectFoodItem)
+        {
+            this.correctlyTappedFoodItems.add(aCorrectFoodItem);
+            this.countOfSuccessfulTaps++;
+
+            if (StressMode.isOn && this.correctlyTappedFoodItems.size() == this.numberOfFoodItems)
+            {
+                this.correctlyTappedFoodItems.clear();
+            }
+
+            if (this.countOfSuccessfulTaps == LevelProperties.REQUIRED_NUMBER_OF_SUCCESSFUL_TAPS_PER_LEVEL)
+            {
+                if (this.level == LevelProperties.LAST_LEVEL && !StressMode.isOn)
+                {
+                    return false;
+                }
+
+                this.level++;
+                this.countOfSuccessfulTaps = 0;
+            }
+
+            return true;
+        }
+
+        /**
+         * Returns true if aRoundPlan was planned for this state, otherwise returns false
+         */
+        boolean isStateOf(RoundPlan aRoundPlan)
+        {
+            return aRoundPlan.isPlannedFor(this.level, this.correctlyTappedFoodItems);
+        }
+
+    }
+
+}
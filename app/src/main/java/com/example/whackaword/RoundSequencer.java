@@ -0,0 +1,307 @@
+package com.example.whackaword;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * The RoundSequencer class is responsible for starting each stage of a round of the Whack-A-Word game
+ * as soon as the stages it depends on have signalled that they have completed,
+ * instead of after delays that assume how fast the device is:
+ *
+ * the cards of a round pop up (i.e. the pop-up sound effect plays
+ * and the pop-up animation starts POP_UP_SOUND_EFFECT_LEAD milliseconds later) once
+ * - the cards of the previous round have hidden and the food items of the round have been displayed on them
+ *   (signalled by the onFoodItemsDisplayed method),
+ * - the pop-up sound effect has been loaded by the sound pool
+ *   (signalled by the onPopUpSoundEffectLoaded method),
+ * - and at least minimumTimeBeforePopUp milliseconds (scaled by the cadence of stress mode, see the StressMode class)
+ *   have passed since the round was rendered,
+ *   so that the feedback of the previous round can be seen, however fast the device is
+ *
+ * the audio of a round's correct food item starts once the cards have popped up,
+ * as far as the user can hear (i.e. the output latency of the audio route in use
+ * before the pop-up animation ends, see the AudioLatencyEstimator class),
+ * less the onset offset of its audio file (see the AudioClipManifest class),
+ * and its media player has been prepared (see the AudioManager class),
+ * so that the first sound of the word is heard just as the cards reach the top of their pop-up
+ *
+ * If the pop-up sound effect still hasn't been loaded MAXIMUM_WAIT_FOR_POP_UP_SOUND_EFFECT milliseconds
+ * after the cards would otherwise have popped up, they pop up without it,
+ * so that a sound pool that never reports the sound effect as loaded can't stall the game
+ *
+ * The minimum pacing is kept per profile in shared preferences, like the settings in the InputSettings class,
+ * and is stored through an extra of the intent that starts the activity (see the WhackAWordActivity class)
+ *
+ * It contains the following class variables:
+ *
+ * minimumTimeBeforePopUp, which is the minimum pacing of the profile in use
+ *
+ * whackAWordActivity, roundSnapshotAwaitingPopUp and popUpDurationLimit,
+ * which are the round whose cards are waiting to pop up (if any)
+ * and the duration limit that they will remain popped up for
+ *
+ * foodItemsHaveBeenDisplayed, minimumTimeBeforePopUpHasPassed and waitForPopUpSoundEffectHasEnded,
+ * which record which of the conditions for the cards to pop up have been met
+ *
+ * latestRoundSnapshot, cardsHavePoppedUp and runnableAwaitingCardsPoppingUp, which are the latest round
+ * whose cards have been made to pop up, whether they have popped up (as far as the user can hear),
+ * and what is waiting for them to do so
+ */
+public class RoundSequencer
+{
+    private static final int DEFAULT_MINIMUM_TIME_BEFORE_POP_UP = 600;
+    // By default, cards pop up at least three fifths of a second (600 milliseconds) after their round is rendered
+    private static final int MAXIMUM_MINIMUM_TIME_BEFORE_POP_UP = 3000;
+    // The minimum pacing is limited to three seconds (3000 milliseconds)
+
+    public static final int POP_UP_SOUND_EFFECT_LEAD = 250;
+    // The pop-up sound effect starts a quarter of a second (250 milliseconds)
+    // before the pop-up animation, which allows for best synchronisation
+
+    private static final int MAXIMUM_WAIT_FOR_POP_UP_SOUND_EFFECT = 1000;
+    // Cards wait at most a second (1000 milliseconds) for the pop-up sound effect to be loaded
+
+    private static final String SHARED_PREFERENCES_NAME = "round_pacing";
+    private static final String MINIMUM_TIME_BEFORE_POP_UP_KEY_PREFIX = "minimum_time_before_pop_up_";
+
+    public static int minimumTimeBeforePopUp = DEFAULT_MINIMUM_TIME_BEFORE_POP_UP;
+
+    private static WhackAWordActivity whackAWordActivity;
+    private static RoundSnapshot roundSnapshotAwaitingPopUp;
+    private static int popUpDurationLimit;
+    private static boolean foodItemsHaveBeenDisplayed;
+    private static boolean minimumTimeBeforePopUpHasPassed;
+    private static boolean waitForPopUpSoundEffectHasEnded;
+    private static RoundSnapshot latestRoundSnapshot;
+    private static boolean cardsHavePoppedUp;
+    private static Runnable runnableAwaitingCardsPoppingUp;
+
+    private static final ManagedResource roundSequence = new ManagedResource()
+    {
+        @Override
+        public void pause()
+        {
+        }
+
+        @Override
+        public void resume()
+        {
+        }
+
+        @Override
+        public void release()
+        {
+            RoundSequencer.whackAWordActivity = null;
+            RoundSequencer.roundSnapshotAwaitingPopUp = null;
+            RoundSequencer.latestRoundSnapshot = null;
+            RoundSequencer.runnableAwaitingCardsPoppingUp = null;
+            RoundSequencer.cardsHavePoppedUp = false;
+            // The round awaiting pop-up refers to the activity
+        }
+
+        @Override
+        public boolean survivesConfigurationChanges()
+        {
+            return false;
+        }
+
+        @Override
+        public String describe()
+        {
+            return "Round sequencer (" + (RoundSequencer.roundSnapshotAwaitingPopUp == null ? "no round" : "a round") + " awaiting pop-up, "
+                    + "food items displayed " + RoundSequencer.foodItemsHaveBeenDisplayed
+                    + ", pacing passed " + RoundSequencer.minimumTimeBeforePopUpHasPassed
+                    + ", pop-up sound loaded " + SoundEffectsManager.isPopUpSoundEffectLoaded() + ")";
+        }
+
+    };
+
+    /**
+     * Loads the minimum pacing of the profile in use (see the InputSettings class)
+     */
+    public static void loadPacing(Context aContext)
+    {
+        int storedMinimumTimeBeforePopUp = RoundSequencer.getSharedPreferences(aContext)
+                .getInt(MINIMUM_TIME_BEFORE_POP_UP_KEY_PREFIX + InputSettings.profileName, DEFAULT_MINIMUM_TIME_BEFORE_POP_UP);
+
+        RoundSequencer.minimumTimeBeforePopUp = Math.max(0, Math.min(storedMinimumTimeBeforePopUp, MAXIMUM_MINIMUM_TIME_BEFORE_POP_UP));
+    }
+
+    /**
+     * Stores aMinimumTimeBeforePopUp (in milliseconds) as the minimum pacing of the profile called aProfileName,
+     * and applies it from the next round if that profile is the one in use
+     */
+    public static void savePacing(Context aContext, String aProfileName, int aMinimumTimeBeforePopUp)
+    {
+        RoundSequencer.getSharedPreferences(aContext).edit()
+                .putInt(MINIMUM_TIME_BEFORE_POP_UP_KEY_PREFIX + aProfileName, aMinimumTimeBeforePopUp)
+                .apply();
+
+        if (aProfileName.equals(InputSettings.profileName))
+        {
+            RoundSequencer.loadPacing(aContext);
+        }
+
+    }
+
+    /**
+     * Returns true if the cards of aRoundSnapshot have been made to pop up,
+     * otherwise returns false, i.e. if they are waiting to pop up
+     * or haven't been made to wait yet (e.g. while the cards of the previous round are hiding)
+     */
+    public static boolean haveCardsBeenMadeToPopUp(RoundSnapshot aRoundSnapshot)
+    {
+        return RoundSequencer.latestRoundSnapshot == aRoundSnapshot && RoundSequencer.roundSnapshotAwaitingPopUp != aRoundSnapshot;
+    }
+
+    /**
+     * Returns the duration limit that the cards of aRoundSnapshot will remain popped up for
+     * if they are waiting to pop up,
+     * otherwise returns the default pop-up duration limit (see the AnimationManager class)
+     */
+    public static int getPopUpDurationLimitAwaitingPopUp(RoundSnapshot aRoundSnapshot)
+    {
+        return RoundSequencer.roundSnapshotAwaitingPopUp == aRoundSnapshot ? RoundSequencer.popUpDurationLimit : AnimationManager.POP_UP_DURATION_LIMIT;
+    }
+
+    /**
+     * Makes the cards of aRoundSnapshot pop up, for a duration limit of aPopUpDurationLimit milliseconds,
+     * as soon as the conditions for them to do so have been met
+     * (see the popUpCardsOfRound method in the AnimationManager class).
+     * Must be called before the food items of aRoundSnapshot are displayed
+     */
+    public static void awaitPopUp(WhackAWordActivity aWhackAWordActivity, RoundSnapshot aRoundSnapshot, int aPopUpDurationLimit)
+    {
+        ResourceManager.register(RoundSequencer.roundSequence);
+
+        RoundSequencer.whackAWordActivity = aWhackAWordActivity;
+        RoundSequencer.roundSnapshotAwaitingPopUp = aRoundSnapshot;
+        RoundSequencer.latestRoundSnapshot = aRoundSnapshot;
+        RoundSequencer.popUpDurationLimit = aPopUpDurationLimit;
+        RoundSequencer.foodItemsHaveBeenDisplayed = false;
+        RoundSequencer.minimumTimeBeforePopUpHasPassed = false;
+        RoundSequencer.waitForPopUpSoundEffectHasEnded = false;
+        RoundSequencer.cardsHavePoppedUp = false;
+
+        ResourceManager.postDelayed(() ->
+        {
+            if (RoundSequencer.roundSnapshotAwaitingPopUp != aRoundSnapshot)
+            {
+                return;
+                // The round has already popped up, or has been replaced
+            }
+
+            RoundSequencer.minimumTimeBeforePopUpHasPassed = true;
+
+            if (!SoundEffectsManager.isPopUpSoundEffectLoaded())
+            {
+                ResourceManager.postDelayed(() ->
+                {
+                    if (RoundSequencer.roundSnapshotAwaitingPopUp == aRoundSnapshot)
+                    {
+                        RoundSequencer.waitForPopUpSoundEffectHasEnded = true;
+                        RoundSequencer.popUpCardsIfReady();
+                    }
+
+                }, MAXIMUM_WAIT_FOR_POP_UP_SOUND_EFFECT);
+                // Only ever needed before the sound pool has finished loading, i.e. for the first round
+            }
+
+            RoundSequencer.popUpCardsIfReady();
+        }, StressMode.applyCadence(RoundSequencer.minimumTimeBeforePopUp));
+    }
+
+    /**
+     * Signals that the food items of the round awaiting pop-up have been displayed on their cards
+     */
+    public static void onFoodItemsDisplayed()
+    {
+        RoundSequencer.foodItemsHaveBeenDisplayed = true;
+        RoundSequencer.popUpCardsIfReady();
+    }
+
+    /**
+     * Signals that the sound pool has loaded the pop-up sound effect
+     */
+    public static void onPopUpSoundEffectLoaded()
+    {
+        RoundSequencer.popUpCardsIfReady();
+    }
+
+    /**
+     * Helper method that records that the cards of the latest round have popped up
+     * (as far as the user can hear), and runs what was waiting for them to do so
+     */
+    private static void onCardsHavePoppedUp()
+    {
+        RoundSequencer.cardsHavePoppedUp = true;
+
+        Runnable runnable = RoundSequencer.runnableAwaitingCardsPoppingUp;
+        RoundSequencer.runnableAwaitingCardsPoppingUp = null;
+
+        if (runnable != null)
+        {
+            runnable.run();
+        }
+
+    }
+
+    /**
+     * Runs aRunnable once the cards of the latest round have finished popping up,
+     * or straight away if they already have.
+     * Only the latest runnable is kept, since only one audio file is played at a time
+     */
+    public static void runWhenCardsHavePoppedUp(Runnable aRunnable)
+    {
+        if (RoundSequencer.cardsHavePoppedUp)
+        {
+            aRunnable.run();
+        }
+        else
+        {
+            RoundSequencer.runnableAwaitingCardsPoppingUp = aRunnable;
+        }
+
+    }
+
+    /**
+     * Helper method that makes the cards of the round awaiting pop-up pop up
+     * if every condition for them to do so has been met
+     */
+    private static void popUpCardsIfReady()
+    {
+        if (RoundSequencer.roundSnapshotAwaitingPopUp == null || !RoundSequencer.foodItemsHaveBeenDisplayed
+                || !RoundSequencer.minimumTimeBeforePopUpHasPassed
+                || !(SoundEffectsManager.isPopUpSoundEffectLoaded() || RoundSequencer.waitForPopUpSoundEffectHasEnded))
+        {
+            return;
+        }
+
+        RoundSnapshot roundSnapshot = RoundSequencer.roundSnapshotAwaitingPopUp;
+        RoundSequencer.roundSnapshotAwaitingPopUp = null;
+
+        AnimationManager.popUpCardsOfRound(RoundSequencer.whackAWordActivity, roundSnapshot, RoundSequencer.popUpDurationLimit);
+
+        int onsetOffsetOfCorrectFoodItem = AudioClipManifest.getOnsetOffset(roundSnapshot.getCorrectFoodItem().getAudioID(), 0);
+
+        ResourceManager.postDelayed(() ->
+        {
+            if (RoundSequencer.latestRoundSnapshot == roundSnapshot)
+            {
+                RoundSequencer.onCardsHavePoppedUp();
+            }
+            // Unless the cards have been hidden and another round has been made to pop up in the meantime
+
+        }, Math.max(0, AnimationManager.getTimeUntilAudioIsInStepWithCardsPoppingUp() - onsetOffsetOfCorrectFoodItem));
+        // The word is started early by its onset offset, so that its first sound rather than its start is in step
+    }
+
+    /**
+     * Helper method that returns the shared preferences in which the minimum pacing is stored
+     */
+    private static SharedPreferences getSharedPreferences(Context aContext)
+    {
+        return aContext.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+}
@@ -0,0 +1,234 @@
+package com.example.whackaword;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An object of the RoundSnapshot class is an immutable, versioned snapshot of the state of the game,
+ * which the GameLogic class publishes each time it has evaluated an event of the game
+ * (the start of a game, a tap or a timeout), for the main thread to render
+ *
+ * It contains:
+ *
+ * - the version of the snapshot, which increases with each snapshot that is published
+ * - the outcome that the snapshot was published for (one of the OUTCOME constants)
+ * - the level, the number of cards to display and the count of successful taps
+ * - the food items that have been correctly tapped
+ * - the round, i.e. each food item on display and the food card it is on
+ *   (at the same index of foodItems and foodCards), and the correct food item
+ * - whether the round displays new food items, and whether it was planned ahead by the RoundPlanner class
+ * - whether the user has reached the next level or has won
+ * - whether a correct tap in this round would win the game,
+ *   so that the feedback for the tap can be chosen without waiting for the game logic
+ *
+ * Snapshots are only created on the game logic thread,
+ * and every field is final, so a snapshot that has been published through a volatile field
+ * can be read on the main thread without any locks
+ * (java.util.Collections is written out in full
+ * since Collections refers to the game's own Collections class)
+ */
+public class RoundSnapshot
+{
+    public static final int OUTCOME_NEW_GAME = 0;
+    public static final int OUTCOME_RESUMED_GAME = 1;
+    public static final int OUTCOME_CORRECT_TAP = 2;
+    public static final int OUTCOME_INCORRECT_TAP = 3;
+    public static final int OUTCOME_TIMEOUT = 4;
+
+    private final int version;
+    private final int outcome;
+    private final int level;
+    private final int numberOfCardsToDisplay;
+    private final int countOfSuccessfulTaps;
+    private final Set<FoodItem> correctlyTappedFoodItems;
+    private final List<FoodItem> foodItems;
+    private final List<FoodCard> foodCards;
+    private final FoodItem correctFoodItem;
+    private final boolean thereAreNewFoodItems;
+    private final boolean roundWasPlanned;
+    private final boolean userHasReachedTheNextLevel;
+    private final boolean userWins;
+    private final boolean correctTapWinsTheGame;
+
+    /**
+     * Constructor for objects of the class RoundSnapshot,
+     * which captures the current state of the game
+     * (the level properties, the collections and the selector).
+     * Must only be called on the game logic thread
+     */
+    public RoundSnapshot(int aVersion, int anOutcome, boolean userHasReachedTheNextLevel, boolean userWins)
+    {
+        this.version = aVersion;
+        this.outcome = anOutcome;
+        this.level = LevelProperties.currentLevel;
+        this.numberOfCardsToDisplay = LevelProperties.numberOfCardsToDisplay;
+        this.countOfSuccessfulTaps = LevelProperties.countOfSuccessfulTaps;
+        this.correctlyTappedFoodItems = java.util.Collections.unmodifiableSet(new HashSet<>(Collections.correctlyTappedFoodItems));
+
+        List<FoodItem> foodItems = new ArrayList<>();
+        List<FoodCard> foodCards = new ArrayList<>();
+
+        for (Map.Entry<FoodItem, FoodCard> entry : Collections.mapOfFoodItemsToTheirFoodCards.entrySet())
+        {
+            if (entry.getValue() != null)
+            {
+                foodItems.add(entry.getKey());
+                foodCards.add(entry.getValue());
+            }
+
+        }
+
+        this.foodItems = java.util.Collections.unmodifiableList(foodItems);
+        this.foodCards = java.util.Collections.unmodifiableList(foodCards);
+        this.correctFoodItem = Selector.correctFoodItem;
+        this.thereAreNewFoodItems = Selector.thereAreNewFoodItems;
+        this.roundWasPlanned = Selector.roundWasPlanned;
+        this.userHasReachedTheNextLevel = userHasReachedTheNextLevel;
+        this.userWins = userWins;
+        this.correctTapWinsTheGame = !StressMode.isOn && this.level == LevelProperties.LAST_LEVEL
+                && this.countOfSuccessfulTaps + 1 == LevelProperties.REQUIRED_NUMBER_OF_SUCCESSFUL_TAPS_PER_LEVEL;
+    }
+
+    /**
+     * Returns the version of the snapshot
+     */
+    public int getVersion()
+    {
+        return this.version;
+    }
+
+    /**
+     * Returns the outcome that the snapshot was published for
+     */
+    public int getOutcome()
+    {
+        return this.outcome;
+    }
+
+    /**
+     * Returns the current level
+     */
+    public int getLevel()
+    {
+        return this.level;
+    }
+
+    /**
+     * Returns the number of cards to display at the current level
+     */
+    public int getNumberOfCardsToDisplay()
+    {
+        return this.numberOfCardsToDisplay;
+    }
+
+    /**
+     * Returns the count of successful taps at the current level
+     */
+    public int getCountOfSuccessfulTaps()
+    {
+        return this.countOfSuccessfulTaps;
+    }
+
+    /**
+     * Returns the food items that have been correctly tapped
+     */
+    public Set<FoodItem> getCorrectlyTappedFoodItems()
+    {
+        return this.correctlyTappedFoodItems;
+    }
+
+    /**
+     * Returns the food items on display
+     */
+    public List<FoodItem> getFoodItems()
+    {
+        return this.foodItems;
+    }
+
+    /**
+     * Returns the food cards on display,
+     * each of which displays the food item at the same index
+     */
+    public List<FoodCard> getFoodCards()
+    {
+        return this.foodCards;
+    }
+
+    /**
+     * Returns the food item that is displayed on aFoodCard,
+     * or null if aFoodCard is not on display
+     */
+    public FoodItem getFoodItemOn(FoodCard aFoodCard)
+    {
+        int index = this.foodCards.indexOf(aFoodCard);
+
+        return index == -1 ? null : this.foodItems.get(index);
+    }
+
+    /**
+     * Returns the food card that aFoodItem is displayed on,
+     * or null if aFoodItem is not on display
+     */
+    public FoodCard getFoodCardOf(FoodItem aFoodItem)
+    {
+        int index = this.foodItems.indexOf(aFoodItem);
+
+        return index == -1 ? null : this.foodCards.get(index);
+    }
+
+    /**
+     * Returns the correct food item of the round
+     */
+    public FoodItem getCorrectFoodItem()
+    {
+        return this.correctFoodItem;
+    }
+
+    /**
+     * Returns true if the round displays new food items,
+     * or false if it displays the same food items again (after an incorrect tap or a timeout)
+     */
+    public boolean hasNewFoodItems()
+    {
+        return this.thereAreNewFoodItems;
+    }
+
+    /**
+     * Returns true if the round was planned ahead by the RoundPlanner class,
+     * otherwise returns false
+     */
+    public boolean wasPlanned()
+    {
+        return this.roundWasPlanned;
+    }
+
+    /**
+     * Returns true if the user reached the next level with the tap that the snapshot was published for,
+     * otherwise returns false
+     */
+    public boolean userHasReachedTheNextLevel()
+    {
+        return this.userHasReachedTheNextLevel;
+    }
+
+    /**
+     * Returns true if the user has won, otherwise returns false
+     */
+    public boolean userWins()
+    {
+        return this.userWins;
+    }
+
+    /**
+     * Returns true if a correct tap in this round would win the game,
+     * otherwise returns false
+     */
+    public boolean correctTapWinsTheGame()
+    {
+        return this.correctTapWinsTheGame;
+    }
+
+}
@@ -1,7 +1,6 @@
 package com.example.whackaword;
 
 import android.content.Context;
-import android.util.DisplayMetrics;
 
 /**
  * The ScreenProperties class is responsible for managing the properties of the screen
@@ -11,6 +10,10 @@ import android.util.DisplayMetrics;
  * as well as a constant class variable for
  * the width of large screens
  * in dp (density-independent pixels)
+ *
+ * Whether the screen is small is worked out when the activity is created,
+ * and again whenever the size of the activity changes
+ * (see the PlayfieldRelayout class)
  */
 public class ScreenProperties
 {
@@ -29,13 +32,16 @@ public class ScreenProperties
      * Returns true if the screen is small,
      * i.e. has a width less than LARGE_SCREEN_WIDTH.
      * Otherwise, returns false
+     *
+     * The width is read from the current configuration of aContext,
+     * which is the width that the w1200dp resource qualifier is matched against,
+     * so that the result always agrees with the drawables that are loaded
+     * (e.g. the card, whose shape differs on large screens)
+     * (including in multi-window mode, where the activity is narrower than the display)
      */
     public static boolean isScreenSmall(Context aContext)
     {
-        DisplayMetrics displayMetrics = aContext.getResources().getDisplayMetrics();
-        // Gets the display metrics (such as screen density, width and height) of the Android device
-
-        float screenWidthInDP = displayMetrics.widthPixels / displayMetrics.density;
+        int screenWidthInDP = aContext.getResources().getConfiguration().screenWidthDp;
 
         return screenWidthInDP < LARGE_SCREEN_WIDTH;
     }
@@ -11,7 +11,7 @@ import java.util.Set;
  * It ensures that the chosen food items align with the game's rules
  * as set out in the WhackAWordActivity class
  *
- * The Selector class contains two class variables:
+ * The Selector class contains four class variables:
  *
  * correctFoodItem, which is the food item
  * whose image is on the card that the user is tasked to tap
@@ -19,6 +19,15 @@ import java.util.Set;
  * newFoodItemsAreToBeDisplayed, which records whether
  * new food items are to be displayed
  *
+ * roundWasPlanned, which records whether the round being played was planned ahead by the RoundPlanner class
+ *
+ * plannedCorrectFoodItem, which is the correct food item of the round
+ * that was planned ahead by the RoundPlanner class, if the round being played was planned,
+ * or null otherwise
+ *
+ * Like the rest of the rule state of the game,
+ * the Selector class is only used on the game logic thread once it has started (see the GameLogic class)
+ *
  * Note that food cards and food items are modelled as separate from each other,
  * even though the user is meant to understand that they are part of the same card.
  * For example, if a food item is displayed on a card,
@@ -35,6 +44,8 @@ public class Selector
 {
     public static FoodItem correctFoodItem;
     public static boolean thereAreNewFoodItems;
+    public static boolean roundWasPlanned;
+    private static FoodItem plannedCorrectFoodItem;
 
     /**
      * If new food items are to be displayed,
@@ -42,27 +53,52 @@ public class Selector
      * equal to numberOfCards,
      * and ensures that the food items to be displayed
      * are a different combination to the ones that were already displayed.
+     * The round that was planned ahead by the RoundPlanner class is used if it is still valid,
+     * so that the assets that were prefetched for it are used.
      * Otherwise, selects the same food items that were most recently displayed
      * to be displayed again on random food cards
      */
     public static void selectFoodCardsForDisplay()
     {
+        GameTrace.beginSection(GameTrace.SECTION_SELECT_FOOD_CARDS);
+
         if (Selector.thereAreNewFoodItems)
         {
-            Selector.selectNewFoodCardsForDisplay();
+            RoundPlan plannedRound = RoundPlanner.takePlannedRound();
+            Selector.roundWasPlanned = plannedRound != null;
+
+            if (plannedRound != null)
+            {
+                Selector.selectPlannedFoodCardsForDisplay(plannedRound);
+            }
+            else
+            {
+                Selector.selectNewFoodCardsForDisplay();
+            }
+
         }
         else
         {
             Selector.selectSameFoodCardsForDisplay();
         }
+
+        GameTrace.endSection();
     }
 
     /**
      * Sets the correct food item to one of the food items on display
      * that have not yet been correctly tapped
+     * (the one that was planned, if the round was planned ahead)
      */
     public static void setCorrectFoodItem()
     {
+        if (Selector.plannedCorrectFoodItem != null)
+        {
+            Selector.correctFoodItem = Selector.plannedCorrectFoodItem;
+            Selector.plannedCorrectFoodItem = null;
+            return;
+        }
+
         Set<FoodItem> foodItemsOnDisplay = Collections.mapOfFoodItemsToTheirFoodCards.keySet();
         // The food items would be 'on' display (and not just set 'for' display)
         // by the end of the animations that were started in the cardsPopUp method
@@ -108,6 +144,27 @@ public class Selector
         }
     }
 
+    /**
+     * Helper method that selects the food cards of aPlannedRound to be displayed,
+     * and assigns each one the food item that was planned for it
+     */
+    private static void selectPlannedFoodCardsForDisplay(RoundPlan aPlannedRound)
+    {
+        for (int cardIndex = 0; cardIndex < aPlannedRound.getFoodCards().size(); cardIndex++)
+        {
+            FoodItem foodItemToBeDisplayed = aPlannedRound.getFoodItems().get(cardIndex);
+            FoodCard foodCardToBeDisplayed = aPlannedRound.getFoodCards().get(cardIndex);
+
+            foodCardToBeDisplayed.setFoodItem(foodItemToBeDisplayed);
+
+            Collections.mapOfFoodItemsToTheirFoodCards.put(foodItemToBeDisplayed, foodCardToBeDisplayed);
+            Collections.availableFoodItems.remove(foodItemToBeDisplayed);
+            Collections.availableFoodCards.remove(foodCardToBeDisplayed);
+        }
+
+        Selector.plannedCorrectFoodItem = aPlannedRound.getCorrectFoodItem();
+    }
+
     /**
      * Helper method that selects
      * the same food items that were most recently displayed on food cards
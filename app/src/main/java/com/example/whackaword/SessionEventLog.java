@@ -0,0 +1,766 @@
+package com.example.whackaword;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * The SessionEventLog class is responsible for persisting the events of a session
+ * (pop-ups, correct and incorrect taps, timeouts, level-ups and wins)
+ * in an append-only binary log, so that a learning history survives the death of the process
+ *
+ * Each event is a fixed-size record of RECORD_SIZE bytes:
+ *
+ * - the event type (4 bytes)
+ * - the wall-clock time of the event in milliseconds (8 bytes)
+ * - the level at the time of the event (4 bytes)
+ * - the key of the food item that the event concerns,
+ *   which is the hash code of its name so that it remains stable between builds (4 bytes)
+ * - the ordinal number of the pop-up during which the event happened (4 bytes)
+ * - the count of successful taps at the time of the event (4 bytes)
+ * - a CRC32 checksum of the preceding 28 bytes (4 bytes)
+ *
+ * The main thread never touches the file system.
+ * recordEvent only copies the event into preallocated arrays that form a ring buffer,
+ * and a background writer thread drains the ring buffer
+ * into a memory-mapped segment file.
+ * Segments hold RECORDS_PER_SEGMENT records each and never span more than one day;
+ * when a segment is full, or when the day changes, the writer rotates to a new segment.
+ * Segments of previous days are compacted into per-day summaries
+ * (one count per event type) in DAILY_SUMMARIES_FILE_NAME and then deleted.
+ * The summaries file also lists the segments whose events it already counts,
+ * and is replaced atomically, so a segment that survives its compaction
+ * (e.g. because the process died before it was deleted) is never counted twice
+ *
+ * Events are recorded by gameEventRecorder, which subscribes to the GameEventPipeline class,
+ * so they are copied in a batch on the frame after each event rather than on the tap path
+ *
+ * The ring buffer has a single producer (the main thread) and a single consumer (the writer thread),
+ * so the only synchronisation needed is the volatile write of each index.
+ * If the ring buffer is ever full, events are dropped rather than blocking the main thread,
+ * and the number of dropped events is kept in numberOfDroppedEvents
+ */
+public class SessionEventLog
+{
+    public static final int EVENT_TYPE_POP_UP = 1;
+    public static final int EVENT_TYPE_CORRECT_TAP = 2;
+    public static final int EVENT_TYPE_INCORRECT_TAP = 3;
+    public static final int EVENT_TYPE_TIMEOUT = 4;
+    public static final int EVENT_TYPE_LEVEL_UP = 5;
+    public static final int EVENT_TYPE_WIN = 6;
+    private static final int NUMBER_OF_EVENT_TYPES = 6;
+
+    private static final int RECORD_SIZE = 32;
+    private static final int RECORD_SIZE_WITHOUT_CHECKSUM = RECORD_SIZE - 4;
+    private static final int RECORDS_PER_SEGMENT = 4096;
+    // Each segment is therefore 128 KiB
+
+    private static final int RING_BUFFER_CAPACITY = 256;
+    // Must be a power of two so that indices can be wrapped with a bit mask
+
+    private static final int DRAIN_DELAY = 200;
+    // Events are written in batches, at most a fifth of a second (200 milliseconds) after they happen
+
+    private static final long MILLISECONDS_PER_DAY = 86400000L;
+
+    private static final String LOG_DIRECTORY_NAME = "session_events";
+    private static final String SEGMENT_FILE_NAME_PREFIX = "segment_";
+    private static final String SEGMENT_FILE_NAME_SUFFIX = ".log";
+    private static final String DAILY_SUMMARIES_FILE_NAME = "daily_summaries.bin";
+    private static final String TAG = "SessionEventLog";
+
+    private static final int[] ringOfEventTypes = new int[RING_BUFFER_CAPACITY];
+    private static final long[] ringOfEventTimes = new long[RING_BUFFER_CAPACITY];
+    private static final int[] ringOfLevels = new int[RING_BUFFER_CAPACITY];
+    private static final int[] ringOfFoodItemKeys = new int[RING_BUFFER_CAPACITY];
+    private static final int[] ringOfPopUpNumbers = new int[RING_BUFFER_CAPACITY];
+    private static final int[] ringOfCountsOfSuccessfulTaps = new int[RING_BUFFER_CAPACITY];
+    private static volatile int ringHead;
+    private static volatile int ringTail;
+    private static volatile boolean drainIsScheduled;
+    public static int numberOfDroppedEvents;
+
+    private static HandlerThread writerThread;
+    private static Handler writerHandler;
+    private static final Runnable drainRunnable = SessionEventLog::drainRingBuffer;
+
+    public static final GameEventListener gameEventRecorder = gameEvent ->
+    {
+        switch (gameEvent.getType())
+        {
+            case GameEvent.TYPE_CARDS_SHOWN:
+                SessionEventLog.recordEvent(EVENT_TYPE_POP_UP, gameEvent);
+                break;
+
+            case GameEvent.TYPE_TAPPED:
+                SessionEventLog.recordEvent(gameEvent.getFlag() ? EVENT_TYPE_CORRECT_TAP : EVENT_TYPE_INCORRECT_TAP, gameEvent);
+                break;
+
+            case GameEvent.TYPE_TIMED_OUT:
+                SessionEventLog.recordEvent(EVENT_TYPE_TIMEOUT, gameEvent);
+                break;
+
+            case GameEvent.TYPE_LEVEL_UP:
+                SessionEventLog.recordEvent(EVENT_TYPE_LEVEL_UP, gameEvent);
+                break;
+
+            case GameEvent.TYPE_WON:
+                SessionEventLog.recordEvent(EVENT_TYPE_WIN, gameEvent);
+                break;
+        }
+        // Planned rounds are not part of the learning history
+
+    };
+    private static final Runnable flushRunnable = SessionEventLog::flushSegment;
+
+    // The variables below are only ever accessed on the writer thread
+    private static File logDirectory;
+    private static MappedByteBuffer currentSegment;
+    private static long currentSegmentDay;
+    private static int currentSegmentSequenceNumber;
+    private static final CRC32 crc32 = new CRC32();
+    private static final byte[] recordBytes = new byte[RECORD_SIZE];
+    private static final ByteBuffer recordBuffer = ByteBuffer.wrap(SessionEventLog.recordBytes);
+
+    /**
+     * Starts the writer thread, which opens the latest segment
+     * and compacts the segments of previous days.
+     * Does nothing if the log has already been opened by this process,
+     * for example when the activity is recreated
+     */
+    public static void open(Context aContext)
+    {
+        if (SessionEventLog.writerThread != null)
+        {
+            return;
+        }
+
+        SessionEventLog.logDirectory = new File(aContext.getFilesDir(), LOG_DIRECTORY_NAME);
+        SessionEventLog.drainIsScheduled = false;
+        // A drain that was scheduled before the log was last closed never ran
+
+        SessionEventLog.writerThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        SessionEventLog.writerThread.start();
+        SessionEventLog.writerHandler = new Handler(SessionEventLog.writerThread.getLooper());
+
+        SessionEventLog.writerHandler.post(SessionEventLog::openLog);
+    }
+
+    /**
+     * Records aGameEvent as an event of the given type,
+     * together with the food item it concerns, its time, and the level, pop-up and count of successful taps
+     * at the time it was published.
+     * Must be called on the main thread.
+     * Only writes to preallocated arrays, so it allocates nothing and performs no I/O
+     */
+    public static void recordEvent(int eventType, GameEvent aGameEvent)
+    {
+        if (SessionEventLog.writerHandler == null)
+        {
+            return;
+        }
+
+        int head = SessionEventLog.ringHead;
+
+        if (head - SessionEventLog.ringTail == RING_BUFFER_CAPACITY)
+        {
+            SessionEventLog.numberOfDroppedEvents++;
+            return;
+        }
+
+        int index = head & (RING_BUFFER_CAPACITY - 1);
+
+        SessionEventLog.ringOfEventTypes[index] = eventType;
+        SessionEventLog.ringOfEventTimes[index] = aGameEvent.getTimeOfEvent();
+        SessionEventLog.ringOfLevels[index] = aGameEvent.getLevel();
+        SessionEventLog.ringOfFoodItemKeys[index] = aGameEvent.getFoodItem() == null ? 0 : aGameEvent.getFoodItem().getName().hashCode();
+        SessionEventLog.ringOfPopUpNumbers[index] = aGameEvent.getPopUpNumber();
+        SessionEventLog.ringOfCountsOfSuccessfulTaps[index] = aGameEvent.getCountOfSuccessfulTaps();
+
+        SessionEventLog.ringHead = head + 1;
+        // The volatile write publishes the record to the writer thread
+
+        if (!SessionEventLog.drainIsScheduled)
+        {
+            SessionEventLog.drainIsScheduled = true;
+            SessionEventLog.writerHandler.postDelayed(SessionEventLog.drainRunnable, DRAIN_DELAY);
+        }
+
+    }
+
+    /**
+     * Closes the log once the writer thread has written every pending event
+     * and forced the current segment to storage,
+     * so that the next call to the open method opens it again (e.g. in tests).
+     * Does nothing if the log isn't open
+     */
+    static void close()
+    {
+        if (SessionEventLog.writerThread == null)
+        {
+            return;
+        }
+
+        SessionEventLog.writerHandler.post(SessionEventLog.flushRunnable);
+        SessionEventLog.writerThread.quitSafely();
+        SessionEventLog.writerThread = null;
+        SessionEventLog.writerHandler = null;
+    }
+
+    /**
+     * Returns the looper of the writer thread, or null if the log isn't open
+     */
+    static Looper getLooper()
+    {
+        HandlerThread writerThread = SessionEventLog.writerThread;
+
+        return writerThread == null ? null : writerThread.getLooper();
+    }
+
+    /**
+     * Asks the writer thread to write all pending events
+     * and force the current segment to storage,
+     * e.g. when the activity is stopped and the process may soon be killed
+     */
+    public static void flush()
+    {
+        if (SessionEventLog.writerHandler != null)
+        {
+            SessionEventLog.writerHandler.post(SessionEventLog.flushRunnable);
+        }
+    }
+
+    /**
+     * Helper method, run on the writer thread,
+     * that compacts the segments of previous days
+     * and maps the most recent segment of today for appending
+     */
+    private static void openLog()
+    {
+        if (!SessionEventLog.logDirectory.isDirectory() && !SessionEventLog.logDirectory.mkdirs())
+        {
+            Log.w(TAG, "Could not create " + SessionEventLog.logDirectory);
+            return;
+        }
+
+        long today = SessionEventLog.getDay(System.currentTimeMillis());
+
+        SessionEventLog.compactSegmentsBefore(today);
+
+        File[] segmentFiles = SessionEventLog.listSegmentFiles();
+        int latestSequenceNumber = -1;
+
+        for (File segmentFile : segmentFiles)
+        {
+            long[] dayAndSequenceNumber = SessionEventLog.parseSegmentFileName(segmentFile);
+
+            if (dayAndSequenceNumber != null && dayAndSequenceNumber[0] == today)
+            {
+                latestSequenceNumber = Math.max(latestSequenceNumber, (int) dayAndSequenceNumber[1]);
+            }
+
+        }
+
+        if (latestSequenceNumber < 0)
+        {
+            SessionEventLog.mapSegment(today, 0);
+        }
+        else
+        {
+            SessionEventLog.mapSegment(today, latestSequenceNumber);
+            SessionEventLog.currentSegment.position(SessionEventLog.findEndOfValidRecords(SessionEventLog.currentSegment));
+            // Appends after the last intact record,
+            // overwriting any record that was torn by the death of the process
+        }
+
+    }
+
+    /**
+     * Helper method, run on the writer thread,
+     * that copies every pending event from the ring buffer into the current segment
+     */
+    private static void drainRingBuffer()
+    {
+        SessionEventLog.drainIsScheduled = false;
+        // Both this flag and the ring indices are volatile,
+        // so if the main thread still sees the flag as set and doesn't schedule another drain,
+        // the event it has just published is guaranteed to be seen by the loop below
+
+        int tail = SessionEventLog.ringTail;
+        int head = SessionEventLog.ringHead;
+
+        while (tail != head)
+        {
+            int index = tail & (RING_BUFFER_CAPACITY - 1);
+            SessionEventLog.writeRecord(index);
+            tail++;
+            SessionEventLog.ringTail = tail;
+            head = SessionEventLog.ringHead;
+        }
+
+    }
+
+    /**
+     * Helper method, run on the writer thread,
+     * that drains the ring buffer and forces the current segment to storage
+     */
+    private static void flushSegment()
+    {
+        SessionEventLog.drainRingBuffer();
+
+        if (SessionEventLog.currentSegment != null)
+        {
+            SessionEventLog.currentSegment.force();
+        }
+
+    }
+
+    /**
+     * Helper method, run on the writer thread,
+     * that writes the event at the given index of the ring buffer into the current segment,
+     * rotating to a new segment first if the current one is full or belongs to a previous day
+     */
+    private static void writeRecord(int index)
+    {
+        long eventTime = SessionEventLog.ringOfEventTimes[index];
+        long eventDay = SessionEventLog.getDay(eventTime);
+
+        if (SessionEventLog.currentSegment == null)
+        {
+            return;
+        }
+
+        if (eventDay > SessionEventLog.currentSegmentDay)
+        {
+            SessionEventLog.currentSegment.force();
+            SessionEventLog.mapSegment(eventDay, 0);
+        }
+        else if (SessionEventLog.currentSegment.remaining() < RECORD_SIZE)
+        {
+            SessionEventLog.currentSegment.force();
+            SessionEventLog.mapSegment(eventDay, SessionEventLog.currentSegmentSequenceNumber + 1);
+        }
+
+        if (SessionEventLog.currentSegment == null)
+        {
+            return;
+        }
+
+        ByteBuffer record = SessionEventLog.recordBuffer;
+        record.clear();
+        record.putInt(SessionEventLog.ringOfEventTypes[index]);
+        record.putLong(eventTime);
+        record.putInt(SessionEventLog.ringOfLevels[index]);
+        record.putInt(SessionEventLog.ringOfFoodItemKeys[index]);
+        record.putInt(SessionEventLog.ringOfPopUpNumbers[index]);
+        record.putInt(SessionEventLog.ringOfCountsOfSuccessfulTaps[index]);
+
+        SessionEventLog.crc32.reset();
+        SessionEventLog.crc32.update(SessionEventLog.recordBytes, 0, RECORD_SIZE_WITHOUT_CHECKSUM);
+        record.putInt((int) SessionEventLog.crc32.getValue());
+
+        SessionEventLog.currentSegment.put(SessionEventLog.recordBytes);
+    }
+
+    /**
+     * Helper method, run on the writer thread,
+     * that maps the segment file with the given day and sequence number,
+     * creating it at its full size if it doesn't yet exist
+     */
+    private static void mapSegment(long day, int sequenceNumber)
+    {
+        File segmentFile = new File(SessionEventLog.logDirectory, SessionEventLog.getSegmentFileName(day, sequenceNumber));
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(segmentFile, "rw"))
+        {
+            SessionEventLog.currentSegment = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, (long) RECORD_SIZE * RECORDS_PER_SEGMENT);
+            // The mapping remains valid after the channel is closed
+
+            SessionEventLog.currentSegmentDay = day;
+            SessionEventLog.currentSegmentSequenceNumber = sequenceNumber;
+        }
+        catch (IOException e)
+        {
+            Log.w(TAG, "Could not map " + segmentFile, e);
+            SessionEventLog.currentSegment = null;
+        }
+
+    }
+
+    /**
+     * Helper method that returns the byte offset, within aSegment,
+     * just after the last of the consecutive records that have a valid checksum
+     */
+    private static int findEndOfValidRecords(ByteBuffer aSegment)
+    {
+        int offset = 0;
+
+        while (offset + RECORD_SIZE <= aSegment.capacity() && SessionEventLog.recordIsValid(aSegment, offset))
+        {
+            offset += RECORD_SIZE;
+        }
+
+        return offset;
+    }
+
+    /**
+     * Helper method that returns true if the record at the given offset of aSegment
+     * has a known event type and a valid checksum,
+     * otherwise returns false (e.g. for unwritten space or a torn record)
+     */
+    private static boolean recordIsValid(ByteBuffer aSegment, int offset)
+    {
+        int eventType = aSegment.getInt(offset);
+
+        if (eventType < EVENT_TYPE_POP_UP || eventType > NUMBER_OF_EVENT_TYPES)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < RECORD_SIZE; i++)
+        {
+            SessionEventLog.recordBytes[i] = aSegment.get(offset + i);
+        }
+
+        SessionEventLog.crc32.reset();
+        SessionEventLog.crc32.update(SessionEventLog.recordBytes, 0, RECORD_SIZE_WITHOUT_CHECKSUM);
+
+        return (int) SessionEventLog.crc32.getValue() == aSegment.getInt(offset + RECORD_SIZE_WITHOUT_CHECKSUM);
+    }
+
+    /**
+     * Helper method, run on the writer thread,
+     * that adds the counts of the valid records of every segment from before the given day
+     * to the per-day summaries, then deletes those segments.
+     * A segment that the summaries already count is not counted again but only deleted,
+     * and a segment that can't be read is left in place, uncounted,
+     * so that compaction is attempted again the next time the log is opened
+     */
+    private static void compactSegmentsBefore(long today)
+    {
+        TreeMap<Long, int[]> mapOfDaysToTheirCountsOfEvents = new TreeMap<>();
+        Set<String> namesOfCompactedSegments = new HashSet<>();
+        boolean thereAreSegmentsToCompact = false;
+
+        for (File segmentFile : SessionEventLog.listSegmentFiles())
+        {
+            long[] dayAndSequenceNumber = SessionEventLog.parseSegmentFileName(segmentFile);
+
+            if (dayAndSequenceNumber != null && dayAndSequenceNumber[0] < today)
+            {
+                thereAreSegmentsToCompact = true;
+                break;
+            }
+
+        }
+
+        if (!thereAreSegmentsToCompact)
+        {
+            return;
+        }
+
+        File dailySummariesFile = new File(SessionEventLog.logDirectory, DAILY_SUMMARIES_FILE_NAME);
+        Set<String> namesOfSegmentsAlreadyCounted = new HashSet<>();
+        SessionEventLog.readDailySummaries(dailySummariesFile, mapOfDaysToTheirCountsOfEvents, namesOfSegmentsAlreadyCounted);
+
+        for (File segmentFile : SessionEventLog.listSegmentFiles())
+        {
+            long[] dayAndSequenceNumber = SessionEventLog.parseSegmentFileName(segmentFile);
+
+            if (dayAndSequenceNumber == null || dayAndSequenceNumber[0] >= today)
+            {
+                continue;
+            }
+
+            if (namesOfSegmentsAlreadyCounted.contains(segmentFile.getName())
+                    || SessionEventLog.countEventsOfSegment(segmentFile, mapOfDaysToTheirCountsOfEvents))
+            {
+                namesOfCompactedSegments.add(segmentFile.getName());
+            }
+
+        }
+        // Only the segments that still exist are listed again,
+        // since a segment of a previous day is never created again once it has been deleted
+
+        if (namesOfCompactedSegments.isEmpty() || !SessionEventLog.writeDailySummaries(dailySummariesFile, mapOfDaysToTheirCountsOfEvents, namesOfCompactedSegments))
+        {
+            return;
+        }
+
+        for (String nameOfCompactedSegment : namesOfCompactedSegments)
+        {
+            File segmentFile = new File(SessionEventLog.logDirectory, nameOfCompactedSegment);
+
+            if (!segmentFile.delete())
+            {
+                Log.w(TAG, "Could not delete compacted segment " + segmentFile);
+            }
+
+        }
+
+    }
+
+    /**
+     * Helper method that adds the counts of the valid records of aSegmentFile,
+     * by day and event type, to aMapOfDaysToTheirCountsOfEvents.
+     * Returns true if it succeeded, otherwise returns false,
+     * in which case aMapOfDaysToTheirCountsOfEvents is left as it was
+     */
+    private static boolean countEventsOfSegment(File aSegmentFile, TreeMap<Long, int[]> aMapOfDaysToTheirCountsOfEvents)
+    {
+        TreeMap<Long, int[]> mapOfDaysToTheirCountsOfEventsInSegment = new TreeMap<>();
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(aSegmentFile, "r"))
+        {
+            ByteBuffer segment = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+            int endOfValidRecords = SessionEventLog.findEndOfValidRecords(segment);
+
+            for (int offset = 0; offset < endOfValidRecords; offset += RECORD_SIZE)
+            {
+                int eventType = segment.getInt(offset);
+
+                if (eventType < EVENT_TYPE_POP_UP || eventType > NUMBER_OF_EVENT_TYPES)
+                {
+                    continue;
+                    // Valid records only have known event types, but the counts are indexed by it
+                }
+
+                long day = SessionEventLog.getDay(segment.getLong(offset + 4));
+                int[] countsOfEvents = mapOfDaysToTheirCountsOfEventsInSegment.get(day);
+
+                if (countsOfEvents == null)
+                {
+                    countsOfEvents = new int[NUMBER_OF_EVENT_TYPES];
+                    mapOfDaysToTheirCountsOfEventsInSegment.put(day, countsOfEvents);
+                }
+
+                countsOfEvents[eventType - 1]++;
+            }
+
+        }
+        catch (IOException e)
+        {
+            Log.w(TAG, "Could not compact " + aSegmentFile, e);
+            return false;
+        }
+
+        for (long day : mapOfDaysToTheirCountsOfEventsInSegment.keySet())
+        {
+            int[] countsOfEventsInSegment = mapOfDaysToTheirCountsOfEventsInSegment.get(day);
+            int[] countsOfEvents = aMapOfDaysToTheirCountsOfEvents.get(day);
+
+            if (countsOfEvents == null)
+            {
+                aMapOfDaysToTheirCountsOfEvents.put(day, countsOfEventsInSegment);
+                continue;
+            }
+
+            for (int i = 0; i < NUMBER_OF_EVENT_TYPES; i++)
+            {
+                countsOfEvents[i] += countsOfEventsInSegment[i];
+            }
+
+        }
+        // The counts are only added once the whole segment has been read,
+        // so a segment that fails part of the way through is counted in full when it is next compacted
+
+        return true;
+    }
+
+    /**
+     * Helper method that reads the per-day summaries from aFile into aMapOfDaysToTheirCountsOfEvents,
+     * and the names of the segments that they already count into someNamesOfCompactedSegments.
+     * Each summary is the day (8 bytes), one count per event type (4 bytes each)
+     * and a CRC32 checksum of the preceding bytes (8 bytes);
+     * summaries with an invalid checksum are skipped.
+     * The summaries are followed by the number of compacted segments and the name of each
+     */
+    private static void readDailySummaries(File aFile, TreeMap<Long, int[]> aMapOfDaysToTheirCountsOfEvents, Set<String> someNamesOfCompactedSegments)
+    {
+        if (!aFile.exists())
+        {
+            return;
+        }
+
+        try (DataInputStream dataInputStream = new DataInputStream(new FileInputStream(aFile)))
+        {
+            int numberOfSummaries = dataInputStream.readInt();
+
+            for (int i = 0; i < numberOfSummaries; i++)
+            {
+                long day = dataInputStream.readLong();
+                int[] countsOfEvents = new int[NUMBER_OF_EVENT_TYPES];
+
+                for (int j = 0; j < NUMBER_OF_EVENT_TYPES; j++)
+                {
+                    countsOfEvents[j] = dataInputStream.readInt();
+                }
+
+                if (dataInputStream.readLong() == SessionEventLog.getChecksumOfSummary(day, countsOfEvents))
+                {
+                    aMapOfDaysToTheirCountsOfEvents.put(day, countsOfEvents);
+                }
+
+            }
+
+            int numberOfCompactedSegments = dataInputStream.readInt();
+
+            for (int i = 0; i < numberOfCompactedSegments; i++)
+            {
+                someNamesOfCompactedSegments.add(dataInputStream.readUTF());
+            }
+
+        }
+        catch (IOException e)
+        {
+            Log.w(TAG, "Could not read " + aFile, e);
+        }
+
+    }
+
+    /**
+     * Helper method that writes aMapOfDaysToTheirCountsOfEvents and someNamesOfCompactedSegments to aFile,
+     * via a temporary file that replaces it atomically.
+     * Returns true if it succeeded, otherwise returns false
+     */
+    private static boolean writeDailySummaries(File aFile, TreeMap<Long, int[]> aMapOfDaysToTheirCountsOfEvents, Set<String> someNamesOfCompactedSegments)
+    {
+        File temporaryFile = new File(aFile.getPath() + ".tmp");
+
+        try (FileOutputStream fileOutputStream = new FileOutputStream(temporaryFile);
+             DataOutputStream dataOutputStream = new DataOutputStream(fileOutputStream))
+        {
+            dataOutputStream.writeInt(aMapOfDaysToTheirCountsOfEvents.size());
+
+            for (long day : aMapOfDaysToTheirCountsOfEvents.keySet())
+            {
+                int[] countsOfEvents = aMapOfDaysToTheirCountsOfEvents.get(day);
+                dataOutputStream.writeLong(day);
+
+                for (int countOfEvents : countsOfEvents)
+                {
+                    dataOutputStream.writeInt(countOfEvents);
+                }
+
+                dataOutputStream.writeLong(SessionEventLog.getChecksumOfSummary(day, countsOfEvents));
+            }
+
+            dataOutputStream.writeInt(someNamesOfCompactedSegments.size());
+
+            for (String nameOfCompactedSegment : someNamesOfCompactedSegments)
+            {
+                dataOutputStream.writeUTF(nameOfCompactedSegment);
+            }
+
+            dataOutputStream.flush();
+            fileOutputStream.getFD().sync();
+        }
+        catch (IOException e)
+        {
+            Log.w(TAG, "Could not write " + temporaryFile, e);
+            return false;
+        }
+
+        return temporaryFile.renameTo(aFile);
+    }
+
+    /**
+     * Helper method that returns the CRC32 checksum of a per-day summary
+     */
+    private static long getChecksumOfSummary(long day, int[] countsOfEvents)
+    {
+        ByteBuffer summary = ByteBuffer.allocate(8 + 4 * NUMBER_OF_EVENT_TYPES);
+        summary.putLong(day);
+
+        for (int countOfEvents : countsOfEvents)
+        {
+            summary.putInt(countOfEvents);
+        }
+
+        CRC32 checksum = new CRC32();
+        checksum.update(summary.array());
+
+        return checksum.getValue();
+    }
+
+    /**
+     * Helper method that returns the name of the segment file with the given day and sequence number
+     */
+    private static String getSegmentFileName(long day, int sequenceNumber)
+    {
+        return SEGMENT_FILE_NAME_PREFIX + day + "_" + sequenceNumber + SEGMENT_FILE_NAME_SUFFIX;
+    }
+
+    /**
+     * Helper method that returns every segment file in the log directory, sorted by name
+     */
+    private static File[] listSegmentFiles()
+    {
+        File[] segmentFiles = SessionEventLog.logDirectory.listFiles((directory, name) -> name.startsWith(SEGMENT_FILE_NAME_PREFIX) && name.endsWith(SEGMENT_FILE_NAME_SUFFIX));
+
+        if (segmentFiles == null)
+        {
+            return new File[0];
+        }
+
+        Arrays.sort(segmentFiles);
+
+        return segmentFiles;
+    }
+
+    /**
+     * Helper method that returns the day and sequence number in the name of aSegmentFile,
+     * or null if its name is not that of a segment
+     */
+    private static long[] parseSegmentFileName(File aSegmentFile)
+    {
+        String name = aSegmentFile.getName();
+        String dayAndSequenceNumber = name.substring(SEGMENT_FILE_NAME_PREFIX.length(), name.length() - SEGMENT_FILE_NAME_SUFFIX.length());
+        int separatorIndex = dayAndSequenceNumber.indexOf('_');
+
+        if (separatorIndex < 0)
+        {
+            return null;
+        }
+
+        try
+        {
+            return new long[] {Long.parseLong(dayAndSequenceNumber.substring(0, separatorIndex)), Long.parseLong(dayAndSequenceNumber.substring(separatorIndex + 1))};
+        }
+        catch (NumberFormatException e)
+        {
+            return null;
+        }
+
+    }
+
+    /**
+     * Helper method that returns the number of days between the epoch and timeInMilliseconds
+     * in the device's time zone, so that a day of play is split at local midnight
+     */
+    private static long getDay(long timeInMilliseconds)
+    {
+        return (timeInMilliseconds + TimeZone.getDefault().getOffset(timeInMilliseconds)) / MILLISECONDS_PER_DAY;
+    }
+
+}
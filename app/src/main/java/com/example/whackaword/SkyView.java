@@ -0,0 +1,286 @@
+package com.example.whackaword;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.graphics.drawable.AnimationDrawable;
+import android.graphics.drawable.GradientDrawable;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * An object of the SkyView class draws the sky of the Whack-A-Word game,
+ * which changes colour every six seconds
+ * (as set out in background_sky_changing.xml,
+ * whose gradients and durations are read when the view is created)
+ *
+ * The sky is drawn in a single pass of a single linear gradient,
+ * whose top and bottom colours are interpolated from one sky to the next
+ * during the last SKY_TRANSITION_DURATION milliseconds of each sky,
+ * so that no more than one layer of sky is ever drawn
+ * (unlike the cross-fades of an AnimationDrawable, which draw and blend two layers).
+ * The gradient is only rebuilt when its colours or the height of the view change.
+ *
+ * The view only redraws itself during a transition,
+ * every frameInterval milliseconds (which is set by the quality tier),
+ * and otherwise waits without redrawing until the next transition begins.
+ * Only the view itself is invalidated, not the rest of the screen
+ *
+ * It contains the following instance variables:
+ *
+ * topColours, bottomColours and skyDurations, which are the colours and durations of each sky
+ *
+ * skyDurationMultiplier, skyColoursAreInterpolated and frameInterval,
+ * which are set by the quality tier (see the setCadence method)
+ *
+ * skyIndex and timeIntoSky, which record which sky is shown
+ * and how long (in milliseconds) it has been shown for
+ *
+ * timeOfLatestFrame, which records when the sky was last brought up to date
+ * (in milliseconds of uptime)
+ *
+ * isRunning, which records whether the sky is changing colour
+ *
+ * skyPaint, whose shader is the gradient of the sky,
+ * along with the colours and height that the gradient was built for
+ */
+public class SkyView extends View
+{
+    private static final int SKY_TRANSITION_DURATION = 2500;
+    // It takes two and a half seconds (2500 milliseconds) for one sky to turn into the next
+
+    private final int[] topColours;
+    private final int[] bottomColours;
+    private final int[] skyDurations;
+
+    private int skyDurationMultiplier = 1;
+    private boolean skyColoursAreInterpolated = true;
+    private int frameInterval;
+
+    private int skyIndex;
+    private long timeIntoSky;
+    private long timeOfLatestFrame;
+    private boolean isRunning;
+
+    private final Paint skyPaint = new Paint();
+    private int topColourOfGradient;
+    private int bottomColourOfGradient;
+    private int heightOfGradient;
+
+    private final Runnable skyFrame = this::updateSky;
+
+    /**
+     * Constructor for objects of the class SkyView,
+     * which is called when the playfield is built (see the PlayfieldBuilder class)
+     */
+    public SkyView(Context aContext, AttributeSet someAttributes)
+    {
+        super(aContext, someAttributes);
+
+        AnimationDrawable skyAnimationDrawable = (AnimationDrawable) aContext.getDrawable(R.drawable.background_sky_changing);
+        int numberOfSkies = skyAnimationDrawable.getNumberOfFrames();
+
+        this.topColours = new int[numberOfSkies];
+        this.bottomColours = new int[numberOfSkies];
+        this.skyDurations = new int[numberOfSkies];
+
+        for (int i = 0; i < numberOfSkies; i++)
+        {
+            int[] gradientColours = ((GradientDrawable) skyAnimationDrawable.getFrame(i).getCurrent()).getColors();
+            // Each frame is a selector whose only item is the shape of the gradient
+
+            this.topColours[i] = gradientColours[0];
+            this.bottomColours[i] = gradientColours[gradientColours.length - 1];
+            this.skyDurations[i] = skyAnimationDrawable.getDuration(i);
+        }
+
+    }
+
+    /**
+     * Sets how long each sky lasts (its duration multiplied by aSkyDurationMultiplier),
+     * whether the colours of each sky are interpolated into the next or change at once,
+     * and the number of milliseconds between frames while the colours are interpolated
+     */
+    public void setCadence(int aSkyDurationMultiplier, boolean skyColoursAreToBeInterpolated, int aFrameInterval)
+    {
+        this.bringSkyUpToDate();
+
+        this.skyDurationMultiplier = aSkyDurationMultiplier;
+        this.skyColoursAreInterpolated = skyColoursAreToBeInterpolated;
+        this.frameInterval = aFrameInterval;
+
+        if (this.isRunning)
+        {
+            this.removeCallbacks(this.skyFrame);
+            this.updateSky();
+        }
+
+    }
+
+    /**
+     * Starts changing the colour of the sky, continuing from the colour that is shown
+     */
+    public void start()
+    {
+        if (this.isRunning)
+        {
+            return;
+        }
+
+        this.isRunning = true;
+        this.timeOfLatestFrame = SystemClock.uptimeMillis();
+        this.updateSky();
+    }
+
+    /**
+     * Stops changing the colour of the sky, keeping the colour that is shown
+     */
+    public void stop()
+    {
+        if (!this.isRunning)
+        {
+            return;
+        }
+
+        this.bringSkyUpToDate();
+        this.isRunning = false;
+        this.removeCallbacks(this.skyFrame);
+    }
+
+    /**
+     * Returns true if the sky is changing colour, otherwise returns false
+     */
+    public boolean isRunning()
+    {
+        return this.isRunning;
+    }
+
+    @Override
+    protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight)
+    {
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+        this.updateGradient();
+    }
+
+    @Override
+    protected void onDetachedFromWindow()
+    {
+        super.onDetachedFromWindow();
+        this.stop();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas)
+    {
+        canvas.drawPaint(this.skyPaint);
+        // The canvas is clipped to the view, so this fills the view with the gradient of the sky
+    }
+
+    /**
+     * Helper method that brings the sky up to date, redraws it if its colours have changed,
+     * and schedules the next update:
+     * after frameInterval milliseconds during a transition,
+     * otherwise when the next transition begins
+     */
+    private void updateSky()
+    {
+        this.bringSkyUpToDate();
+
+        if (this.updateGradient())
+        {
+            this.invalidate();
+        }
+
+        long timeUntilTransition = this.getSkyDuration() - this.getTransitionDuration() - this.timeIntoSky;
+
+        this.postDelayed(this.skyFrame, timeUntilTransition > 0 ? timeUntilTransition : this.frameInterval);
+    }
+
+    /**
+     * Helper method that advances skyIndex and timeIntoSky
+     * by the time that has passed since the latest frame, if the sky is changing colour
+     */
+    private void bringSkyUpToDate()
+    {
+        long currentTime = SystemClock.uptimeMillis();
+
+        if (this.isRunning)
+        {
+            this.timeIntoSky += currentTime - this.timeOfLatestFrame;
+
+            while (this.timeIntoSky >= this.getSkyDuration())
+            {
+                this.timeIntoSky -= this.getSkyDuration();
+                this.skyIndex = (this.skyIndex + 1) % this.skyDurations.length;
+            }
+
+        }
+
+        this.timeOfLatestFrame = currentTime;
+    }
+
+    /**
+     * Helper method that rebuilds the gradient of the sky
+     * if its colours or the height of the view have changed.
+     * Returns true if the gradient was rebuilt, otherwise returns false
+     */
+    private boolean updateGradient()
+    {
+        int nextSkyIndex = (this.skyIndex + 1) % this.skyDurations.length;
+        long timeIntoTransition = this.timeIntoSky - (this.getSkyDuration() - this.getTransitionDuration());
+        float fraction = timeIntoTransition <= 0 ? 0 : (float) timeIntoTransition / this.getTransitionDuration();
+
+        int topColour = SkyView.blendColours(this.topColours[this.skyIndex], this.topColours[nextSkyIndex], fraction);
+        int bottomColour = SkyView.blendColours(this.bottomColours[this.skyIndex], this.bottomColours[nextSkyIndex], fraction);
+
+        if (this.skyPaint.getShader() != null && topColour == this.topColourOfGradient
+                && bottomColour == this.bottomColourOfGradient && this.getHeight() == this.heightOfGradient)
+        {
+            return false;
+        }
+
+        this.topColourOfGradient = topColour;
+        this.bottomColourOfGradient = bottomColour;
+        this.heightOfGradient = this.getHeight();
+        this.skyPaint.setShader(new LinearGradient(0, 0, 0, Math.max(1, this.heightOfGradient), topColour, bottomColour, Shader.TileMode.CLAMP));
+        return true;
+    }
+
+    /**
+     * Helper method that returns how long the current sky lasts, including its transition into the next
+     */
+    private long getSkyDuration()
+    {
+        return (long) this.skyDurations[this.skyIndex] * this.skyDurationMultiplier;
+    }
+
+    /**
+     * Helper method that returns how long the transition from one sky to the next lasts
+     */
+    private long getTransitionDuration()
+    {
+        return this.skyColoursAreInterpolated ? Math.min(SKY_TRANSITION_DURATION, this.getSkyDuration()) : 0;
+    }
+
+    /**
+     * Helper method that returns the colour that is fraction of the way from fromColour to toColour
+     */
+    static int blendColours(int fromColour, int toColour, float fraction)
+    {
+        if (fraction <= 0)
+        {
+            return fromColour;
+        }
+
+        return Color.argb(
+                Math.round(Color.alpha(fromColour) + (Color.alpha(toColour) - Color.alpha(fromColour)) * fraction),
+                Math.round(Color.red(fromColour) + (Color.red(toColour) - Color.red(fromColour)) * fraction),
+                Math.round(Color.green(fromColour) + (Color.green(toColour) - Color.green(fromColour)) * fraction),
+                Math.round(Color.blue(fromColour) + (Color.blue(toColour) - Color.blue(fromColour)) * fraction));
+    }
+
+}
@@ -0,0 +1,365 @@
+package com.example.whackaword;
+
+import android.media.SoundPool;
+import android.os.SystemClock;
+
+/**
+ * The SoundEffectVoiceAllocator class is responsible for deciding which sound effects
+ * of the Whack-A-Word game are given one of the streams (voices) of the sound pool,
+ * instead of leaving the sound pool to silently stop whichever stream it chooses
+ * when more sound effects overlap than it has streams for (e.g. around a correct tap,
+ * when the tick, hide cards and pop-up sound effects follow one another closely)
+ *
+ * Each sound effect has an explicit priority (see SOUND_EFFECT_PRIORITIES)
+ * and a duration (measured when the audio clips are preprocessed at build time, see the AudioClipManifest class,
+ * or SOUND_EFFECT_DURATIONS if the clips weren't preprocessed), from which the allocator knows
+ * which voices are still playing without asking the sound pool.
+ * A sound effect is given:
+ *
+ * - a voice that is free, where critical sound effects (i.e. the tick, which confirms a correct tap)
+ *   may also use the NUMBER_OF_RESERVED_VOICES voices that are reserved for them,
+ *   so that they are never kept waiting by the other sound effects
+ *
+ * - otherwise, the voice of the playing sound effect with the lowest priority,
+ *   if that priority is lower than its own, in which case that sound effect is stopped (stolen)
+ *
+ * - otherwise, no voice at all, in which case it is dropped
+ *
+ * A sound effect that is played before the sound pool has finished loading it
+ * is held in a queue of at most MAXIMUM_NUMBER_OF_PENDING_SOUND_EFFECTS sound effects,
+ * and played once it has loaded, unless it has waited for more than MAXIMUM_PENDING_TIME milliseconds
+ * (since by then it would no longer be in step with what it accompanies), in which case it is dropped.
+ * If the queue is full, the pending sound effect with the lowest priority is dropped
+ *
+ * Dropped and stolen sound effects are counted in the MetricsRegistry class,
+ * so that they appear in the dump of the activity
+ *
+ * It contains the following class variables:
+ *
+ * soundEffectIsLoaded, which records which sound effects the sound pool has loaded
+ *
+ * streamIDsOfVoices, soundEffectsOfVoices and endTimesOfVoices, which record the stream ID,
+ * sound effect and time (in milliseconds of uptime) at which each voice will become free
+ *
+ * pendingSoundEffects, pendingTimes and numberOfPendingSoundEffects,
+ * which are the queue of sound effects that are waiting to be loaded, oldest first,
+ * along with when each was played
+ *
+ * pauseTime, which is when the voices were paused (or -1 if they are not paused),
+ * so that the voices that were playing remain busy for the rest of their duration once resumed
+ *
+ * The allocator is only used on the main thread, and allocates nothing once the game has started
+ */
+public class SoundEffectVoiceAllocator
+{
+    public static final int SOUND_EFFECT_POP_UP = 0;
+    public static final int SOUND_EFFECT_HIDE_CARDS = 1;
+    public static final int SOUND_EFFECT_TICK = 2;
+    public static final int NUMBER_OF_SOUND_EFFECTS = 3;
+
+    private static final String[] SOUND_EFFECT_NAMES = {"pop-up", "hide cards", "tick"};
+
+    private static final int[] SOUND_EFFECT_PRIORITIES = {2, 1, 3};
+    // The tick confirms a correct tap, so it matters most,
+    // and the pop-up sound effect announces a new round, so it matters more than the end of the previous one
+
+    public static final int[] SOUND_EFFECT_AUDIO_IDS = {R.raw.cards_pop_up, R.raw.hide_cards, R.raw.correct};
+    // The audio files that the sound pool loads for each sound effect
+
+    private static final int[] SOUND_EFFECT_DURATIONS = {710, 560, 400};
+    // The lengths (in milliseconds, rounded up) of cards_pop_up.m4a, hide_cards.m4a and correct.m4a
+    // before they were trimmed of their silence
+
+    private static final boolean[] SOUND_EFFECT_IS_CRITICAL = {false, false, true};
+
+    private static final int NUMBER_OF_RESERVED_VOICES = 1;
+    public static final int NUMBER_OF_VOICES = 3;
+    // One voice is reserved for the tick and two are shared by every sound effect.
+    // The sound pool is given exactly this many streams, so that it never has to steal one itself
+
+    private static final int MAXIMUM_NUMBER_OF_PENDING_SOUND_EFFECTS = 4;
+    private static final int MAXIMUM_PENDING_TIME = 300;
+    // A sound effect waits at most three tenths of a second (300 milliseconds) for the sound pool to load it
+
+    private static final boolean[] soundEffectIsLoaded = new boolean[NUMBER_OF_SOUND_EFFECTS];
+
+    private static final int[] streamIDsOfVoices = new int[NUMBER_OF_VOICES];
+    private static final int[] soundEffectsOfVoices = new int[NUMBER_OF_VOICES];
+    private static final long[] endTimesOfVoices = new long[NUMBER_OF_VOICES];
+
+    private static final int[] pendingSoundEffects = new int[MAXIMUM_NUMBER_OF_PENDING_SOUND_EFFECTS];
+    private static final long[] pendingTimes = new long[MAXIMUM_NUMBER_OF_PENDING_SOUND_EFFECTS];
+    private static int numberOfPendingSoundEffects;
+
+    private static long pauseTime = -1;
+
+    /**
+     * Plays aSoundEffect (whose sound ID in aSoundPool is aSoundID) on a voice, if one can be allocated to it,
+     * or holds it until it has been loaded if it hasn't yet been
+     */
+    public static void play(SoundPool aSoundPool, int aSoundEffect, int aSoundID)
+    {
+        if (!SoundEffectVoiceAllocator.soundEffectIsLoaded[aSoundEffect])
+        {
+            SoundEffectVoiceAllocator.addToPendingSoundEffects(aSoundEffect);
+            return;
+        }
+
+        SoundEffectVoiceAllocator.playOnVoice(aSoundPool, aSoundEffect, aSoundID);
+    }
+
+    /**
+     * Records that aSoundPool has loaded aSoundEffect (whose sound ID is aSoundID),
+     * and plays the pending instances of it that haven't waited too long
+     */
+    public static void onSoundEffectLoaded(SoundPool aSoundPool, int aSoundEffect, int aSoundID)
+    {
+        SoundEffectVoiceAllocator.soundEffectIsLoaded[aSoundEffect] = true;
+
+        long currentTime = SystemClock.uptimeMillis();
+        int numberOfRemainingSoundEffects = 0;
+
+        for (int i = 0; i < SoundEffectVoiceAllocator.numberOfPendingSoundEffects; i++)
+        {
+            int pendingSoundEffect = SoundEffectVoiceAllocator.pendingSoundEffects[i];
+            long pendingTime = SoundEffectVoiceAllocator.pendingTimes[i];
+
+            if (pendingSoundEffect != aSoundEffect)
+            {
+                SoundEffectVoiceAllocator.pendingSoundEffects[numberOfRemainingSoundEffects] = pendingSoundEffect;
+                SoundEffectVoiceAllocator.pendingTimes[numberOfRemainingSoundEffects] = pendingTime;
+                numberOfRemainingSoundEffects++;
+                // Keeps waiting for its own sound effect to be loaded
+            }
+            else if (currentTime - pendingTime <= MAXIMUM_PENDING_TIME)
+            {
+                SoundEffectVoiceAllocator.playOnVoice(aSoundPool, aSoundEffect, aSoundID);
+            }
+            else
+            {
+                MetricsRegistry.increment(MetricsRegistry.COUNTER_SOUND_EFFECTS_DROPPED);
+            }
+
+        }
+
+        SoundEffectVoiceAllocator.numberOfPendingSoundEffects = numberOfRemainingSoundEffects;
+    }
+
+    /**
+     * Returns true if the sound pool has loaded aSoundEffect,
+     * otherwise returns false
+     */
+    public static boolean isLoaded(int aSoundEffect)
+    {
+        return SoundEffectVoiceAllocator.soundEffectIsLoaded[aSoundEffect];
+    }
+
+    /**
+     * Records that the streams of the sound pool have been paused
+     */
+    public static void onPause()
+    {
+        if (SoundEffectVoiceAllocator.pauseTime == -1)
+        {
+            SoundEffectVoiceAllocator.pauseTime = SystemClock.uptimeMillis();
+        }
+
+    }
+
+    /**
+     * Records that the streams of the sound pool have been resumed,
+     * so that the voices that were playing when they were paused remain busy for the rest of their duration
+     */
+    public static void onResume()
+    {
+        if (SoundEffectVoiceAllocator.pauseTime == -1)
+        {
+            return;
+        }
+
+        long timePaused = SystemClock.uptimeMillis() - SoundEffectVoiceAllocator.pauseTime;
+
+        for (int voice = 0; voice < NUMBER_OF_VOICES; voice++)
+        {
+            if (SoundEffectVoiceAllocator.endTimesOfVoices[voice] > SoundEffectVoiceAllocator.pauseTime)
+            {
+                SoundEffectVoiceAllocator.endTimesOfVoices[voice] += timePaused;
+            }
+
+        }
+
+        SoundEffectVoiceAllocator.pauseTime = -1;
+    }
+
+    /**
+     * Frees every voice, forgets which sound effects have been loaded
+     * and drops the pending sound effects, for when the sound pool is released
+     */
+    public static void reset()
+    {
+        for (int voice = 0; voice < NUMBER_OF_VOICES; voice++)
+        {
+            SoundEffectVoiceAllocator.endTimesOfVoices[voice] = 0;
+        }
+
+        for (int soundEffect = 0; soundEffect < NUMBER_OF_SOUND_EFFECTS; soundEffect++)
+        {
+            SoundEffectVoiceAllocator.soundEffectIsLoaded[soundEffect] = false;
+        }
+
+        SoundEffectVoiceAllocator.numberOfPendingSoundEffects = 0;
+        SoundEffectVoiceAllocator.pauseTime = -1;
+    }
+
+    /**
+     * Returns a description of which sound effect each voice is playing
+     * and how many sound effects are pending
+     */
+    public static String describe()
+    {
+        long currentTime = SystemClock.uptimeMillis();
+        StringBuilder description = new StringBuilder("voices [");
+
+        for (int voice = 0; voice < NUMBER_OF_VOICES; voice++)
+        {
+            if (voice > 0)
+            {
+                description.append(", ");
+            }
+
+            description.append(SoundEffectVoiceAllocator.endTimesOfVoices[voice] > currentTime ? SOUND_EFFECT_NAMES[SoundEffectVoiceAllocator.soundEffectsOfVoices[voice]] : "free");
+        }
+
+        return description.append("], ").append(SoundEffectVoiceAllocator.numberOfPendingSoundEffects).append(" pending").toString();
+    }
+
+    /**
+     * Helper method that plays aSoundEffect on the voice allocated to it,
+     * stopping the sound effect whose voice it takes if need be,
+     * or drops aSoundEffect if no voice can be allocated to it
+     */
+    private static void playOnVoice(SoundPool aSoundPool, int aSoundEffect, int aSoundID)
+    {
+        long currentTime = SystemClock.uptimeMillis();
+        int voice = SoundEffectVoiceAllocator.findFreeVoice(aSoundEffect, currentTime);
+
+        if (voice == -1)
+        {
+            voice = SoundEffectVoiceAllocator.findVoiceToSteal(aSoundEffect);
+
+            if (voice == -1)
+            {
+                MetricsRegistry.increment(MetricsRegistry.COUNTER_SOUND_EFFECTS_DROPPED);
+                return;
+            }
+
+            aSoundPool.stop(SoundEffectVoiceAllocator.streamIDsOfVoices[voice]);
+            MetricsRegistry.increment(MetricsRegistry.COUNTER_SOUND_EFFECTS_STOLEN);
+        }
+
+        int streamID = aSoundPool.play(aSoundID, 1, 1, SOUND_EFFECT_PRIORITIES[aSoundEffect], 0, 1f);
+
+        if (streamID == 0)
+        {
+            SoundEffectVoiceAllocator.endTimesOfVoices[voice] = 0;
+            MetricsRegistry.increment(MetricsRegistry.COUNTER_SOUND_EFFECTS_DROPPED);
+            return;
+            // A stream ID of 0 means that the sound pool couldn't play the sound effect
+        }
+
+        SoundEffectVoiceAllocator.streamIDsOfVoices[voice] = streamID;
+        SoundEffectVoiceAllocator.soundEffectsOfVoices[voice] = aSoundEffect;
+        SoundEffectVoiceAllocator.endTimesOfVoices[voice] = currentTime
+                + AudioClipManifest.getDuration(SOUND_EFFECT_AUDIO_IDS[aSoundEffect], SOUND_EFFECT_DURATIONS[aSoundEffect]);
+
+        MetricsRegistry.increment(MetricsRegistry.COUNTER_SOUND_EFFECTS_PLAYED);
+    }
+
+    /**
+     * Helper method that returns a voice that aSoundEffect may use and that is free at currentTime,
+     * preferring the reserved voices for critical sound effects, or -1 if there is none
+     */
+    private static int findFreeVoice(int aSoundEffect, long currentTime)
+    {
+        int firstVoice = SOUND_EFFECT_IS_CRITICAL[aSoundEffect] ? 0 : NUMBER_OF_RESERVED_VOICES;
+
+        for (int voice = firstVoice; voice < NUMBER_OF_VOICES; voice++)
+        {
+            if (SoundEffectVoiceAllocator.endTimesOfVoices[voice] <= currentTime)
+            {
+                return voice;
+            }
+
+        }
+
+        return -1;
+    }
+
+    /**
+     * Helper method that returns the voice that aSoundEffect may use
+     * whose sound effect has the lowest priority, provided that priority is lower than that of aSoundEffect,
+     * or -1 if there is none
+     */
+    private static int findVoiceToSteal(int aSoundEffect)
+    {
+        int firstVoice = SOUND_EFFECT_IS_CRITICAL[aSoundEffect] ? 0 : NUMBER_OF_RESERVED_VOICES;
+        int voiceToSteal = -1;
+        int lowestPriority = SOUND_EFFECT_PRIORITIES[aSoundEffect];
+
+        for (int voice = firstVoice; voice < NUMBER_OF_VOICES; voice++)
+        {
+            int priority = SOUND_EFFECT_PRIORITIES[SoundEffectVoiceAllocator.soundEffectsOfVoices[voice]];
+
+            if (priority < lowestPriority)
+            {
+                voiceToSteal = voice;
+                lowestPriority = priority;
+            }
+
+        }
+
+        return voiceToSteal;
+    }
+
+    /**
+     * Helper method that adds aSoundEffect to the queue of sound effects that are waiting to be loaded,
+     * dropping the pending sound effect with the lowest priority (possibly aSoundEffect itself) if the queue is full
+     */
+    private static void addToPendingSoundEffects(int aSoundEffect)
+    {
+        if (SoundEffectVoiceAllocator.numberOfPendingSoundEffects == MAXIMUM_NUMBER_OF_PENDING_SOUND_EFFECTS)
+        {
+            int indexToDrop = -1;
+            int lowestPriority = SOUND_EFFECT_PRIORITIES[aSoundEffect];
+
+            for (int i = 0; i < MAXIMUM_NUMBER_OF_PENDING_SOUND_EFFECTS; i++)
+            {
+                int priority = SOUND_EFFECT_PRIORITIES[SoundEffectVoiceAllocator.pendingSoundEffects[i]];
+
+                if (priority < lowestPriority)
+                {
+                    indexToDrop = i;
+                    lowestPriority = priority;
+                }
+
+            }
+
+            MetricsRegistry.increment(MetricsRegistry.COUNTER_SOUND_EFFECTS_DROPPED);
+
+            if (indexToDrop == -1)
+            {
+                return;
+                // aSoundEffect matters no more than any of the pending sound effects
+            }
+
+            System.arraycopy(SoundEffectVoiceAllocator.pendingSoundEffects, indexToDrop + 1, SoundEffectVoiceAllocator.pendingSoundEffects, indexToDrop, MAXIMUM_NUMBER_OF_PENDING_SOUND_EFFECTS - indexToDrop - 1);
+            System.arraycopy(SoundEffectVoiceAllocator.pendingTimes, indexToDrop + 1, SoundEffectVoiceAllocator.pendingTimes, indexToDrop, MAXIMUM_NUMBER_OF_PENDING_SOUND_EFFECTS - indexToDrop - 1);
+            SoundEffectVoiceAllocator.numberOfPendingSoundEffects--;
+        }
+
+        SoundEffectVoiceAllocator.pendingSoundEffects[SoundEffectVoiceAllocator.numberOfPendingSoundEffects] = aSoundEffect;
+        SoundEffectVoiceAllocator.pendingTimes[SoundEffectVoiceAllocator.numberOfPendingSoundEffects] = SystemClock.uptimeMillis();
+        SoundEffectVoiceAllocator.numberOfPendingSoundEffects++;
+    }
+
+}
@@ -3,26 +3,86 @@ package com.example.whackaword;
 import android.content.Context;
 import android.media.AudioAttributes;
 import android.media.SoundPool;
-import android.os.Handler;
 
 /**
  * The SoundEffectsManager class is responsible for managing sound effects
  * in the Whack-A-Word game
+ *
+ * The sound pool is a managed resource (soundEffects)
+ * whose streams are paused when the activity is stopped,
+ * and which is released when the activity is destroyed,
+ * unless the activity is only being recreated because of a configuration change
+ *
+ * The sound pool loads its sound effects asynchronously,
+ * and the RoundSequencer class is told once the pop-up sound effect has been loaded,
+ * so that the first cards don't pop up without it
+ *
+ * Each sound effect is played through the SoundEffectVoiceAllocator class,
+ * which gives it one of the streams of the sound pool according to its priority,
+ * and holds it until it has been loaded if it hasn't yet been.
+ * soundIDsOfSoundEffects records the sound ID of each sound effect (e.g. SOUND_EFFECT_TICK)
  */
 public class SoundEffectsManager
 {
-    private static final int MAX_SOUND_POOL_STREAMS = 2;
+    private static final int MAX_SOUND_POOL_STREAMS = SoundEffectVoiceAllocator.NUMBER_OF_VOICES;
+
+    private static final int DEFAULT_ONSET_OFFSET_OF_TICK = 100;
+    // Unless the audio clips have been preprocessed (see the AudioClipManifest class),
+    // the first sound of correct.m4a is taken to be heard a tenth of a second (100 milliseconds) after it starts
+
     private static SoundPool soundPool;
-    private static int popUpSoundID;
-    private static int hideCardsSoundID;
-    private static int tickSoundID;
+    private static final int[] soundIDsOfSoundEffects = new int[SoundEffectVoiceAllocator.NUMBER_OF_SOUND_EFFECTS];
+
+    private static final ManagedResource soundEffects = new ManagedResource()
+    {
+        @Override
+        public void pause()
+        {
+            SoundEffectsManager.soundPool.autoPause();
+            SoundEffectVoiceAllocator.onPause();
+        }
+
+        @Override
+        public void resume()
+        {
+            SoundEffectsManager.soundPool.autoResume();
+            SoundEffectVoiceAllocator.onResume();
+        }
+
+        @Override
+        public void release()
+        {
+            SoundEffectsManager.soundPool.release();
+            SoundEffectsManager.soundPool = null;
+            SoundEffectVoiceAllocator.reset();
+        }
+
+        @Override
+        public boolean survivesConfigurationChanges()
+        {
+            return true;
+        }
+
+        @Override
+        public String describe()
+        {
+            return "Sound effects sound pool (" + SoundEffectVoiceAllocator.describe() + ")";
+        }
+
+    };
 
     /**
      * Initialises the sound pool with audio attributes for game usage,
-     * and the sound IDs for each sound effect
+     * and the sound IDs for each sound effect.
+     * Does nothing if the sound pool is still resident from before the activity was recreated
      */
     public static void initialiseSoundPool(Context aContext)
     {
+        if (SoundEffectsManager.soundPool != null)
+        {
+            return;
+        }
+
         AudioAttributes audioAttributes = new AudioAttributes.Builder()
                 .setUsage(AudioAttributes.USAGE_GAME) // The audio is intended for game-related purposes
                 .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION) // The audio is meant for system sounds
@@ -33,23 +93,57 @@ public class SoundEffectsManager
                 .setAudioAttributes(audioAttributes)
                 .build();
 
-        SoundEffectsManager.popUpSoundID = SoundEffectsManager.soundPool.load(aContext, R.raw.cards_pop_up, 1);
-        SoundEffectsManager.hideCardsSoundID = SoundEffectsManager.soundPool.load(aContext, R.raw.hide_cards, 1);
-        SoundEffectsManager.tickSoundID = SoundEffectsManager.soundPool.load(aContext, R.raw.correct, 1);
+        SoundEffectsManager.soundPool.setOnLoadCompleteListener((soundPool, sampleID, status) ->
+        {
+            if (status != 0) // A status of 0 means success
+            {
+                return;
+            }
+
+            for (int soundEffect = 0; soundEffect < SoundEffectVoiceAllocator.NUMBER_OF_SOUND_EFFECTS; soundEffect++)
+            {
+                if (SoundEffectsManager.soundIDsOfSoundEffects[soundEffect] == sampleID)
+                {
+                    SoundEffectVoiceAllocator.onSoundEffectLoaded(soundPool, soundEffect, sampleID);
+                }
+
+            }
+
+            if (sampleID == SoundEffectsManager.soundIDsOfSoundEffects[SoundEffectVoiceAllocator.SOUND_EFFECT_POP_UP])
+            {
+                RoundSequencer.onPopUpSoundEffectLoaded();
+            }
+
+        });
+        // The listener is called on the main thread, since the sound pool was created on it
+
+        for (int soundEffect = 0; soundEffect < SoundEffectVoiceAllocator.NUMBER_OF_SOUND_EFFECTS; soundEffect++)
+        {
+            SoundEffectsManager.soundIDsOfSoundEffects[soundEffect] = SoundEffectsManager.soundPool.load(aContext,
+                    SoundEffectVoiceAllocator.SOUND_EFFECT_AUDIO_IDS[soundEffect], 1);
+        }
+
+        ResourceManager.register(SoundEffectsManager.soundEffects);
     }
 
     /**
-     * Plays the cards' pop-up sound effect
-     * after a delay that causes the sound effect to
-     * synchronise with the cards' pop-up animation
+     * Returns true if the sound pool has loaded the pop-up sound effect,
+     * otherwise returns false
      */
-    public static void playPopUpSoundEffect()
+    public static boolean isPopUpSoundEffectLoaded()
     {
-        long delayForPopUpSoundEffect = 1200;
-        // A delay of one and a fifth seconds (1200 milliseconds)
-        // allows for best synchronisation with the pop-up animation
+        return SoundEffectVoiceAllocator.isLoaded(SoundEffectVoiceAllocator.SOUND_EFFECT_POP_UP);
+    }
 
-        SoundEffectsManager.playSoundEffect(SoundEffectsManager.popUpSoundID, delayForPopUpSoundEffect);
+    /**
+     * Plays the cards' pop-up sound effect straight away.
+     * The RoundSequencer class starts the pop-up animation
+     * POP_UP_SOUND_EFFECT_LEAD milliseconds after it,
+     * which causes the sound effect to synchronise with the animation
+     */
+    public static void playPopUpSoundEffect()
+    {
+        SoundEffectsManager.playSoundEffectImmediately(SoundEffectVoiceAllocator.SOUND_EFFECT_POP_UP);
     }
 
     /**
@@ -71,7 +165,7 @@ public class SoundEffectsManager
 
         long delayForHideCardsSoundEffect = TapManager.correctFoodCardWasJustTapped ? delayForHideCardsSoundEffectWhenACorrectFoodCardIsTapped : generalDelayForHideCardsSoundEffect;
 
-        SoundEffectsManager.playSoundEffect(SoundEffectsManager.hideCardsSoundID, delayForHideCardsSoundEffect);
+        SoundEffectsManager.playSoundEffect(SoundEffectVoiceAllocator.SOUND_EFFECT_HIDE_CARDS, delayForHideCardsSoundEffect);
     }
 
     /**
@@ -81,22 +175,46 @@ public class SoundEffectsManager
      */
     public static void playTickSoundEffect()
     {
-        int offsetForTickEnlargementDelay = 100;
+        int offsetForTickEnlargementDelay = AudioClipManifest.getOnsetOffset(R.raw.correct, DEFAULT_ONSET_OFFSET_OF_TICK);
 
         long delayForTickSoundEffect = PositiveFeedbackAnimationManager.DURATION_OF_TICK_ENLARGEMENT - offsetForTickEnlargementDelay;
         // This delay allows the tick sound effect
         // to play at the perfect time,
-        // just as the tick has just become enlarged
+        // since its first sound is heard just as the tick has just become enlarged
+
+        SoundEffectsManager.playSoundEffect(SoundEffectVoiceAllocator.SOUND_EFFECT_TICK, delayForTickSoundEffect);
+    }
+
+    /**
+     * Plays the tick sound effect straight away,
+     * for when the tick has to respond on the same frame as the touch that caused it
+     * (i.e. in the touch-down input mode)
+     */
+    public static void playTickSoundEffectImmediately()
+    {
+        SoundEffectsManager.playSoundEffectImmediately(SoundEffectVoiceAllocator.SOUND_EFFECT_TICK);
+    }
+
+    /**
+     * Helper method that plays soundEffect straight away, on the voice allocated to it
+     * by the SoundEffectVoiceAllocator class, unless the sound pool has been released
+     */
+    private static void playSoundEffectImmediately(int soundEffect)
+    {
+        if (SoundEffectsManager.soundPool != null)
+        {
+            SoundEffectVoiceAllocator.play(SoundEffectsManager.soundPool, soundEffect, SoundEffectsManager.soundIDsOfSoundEffects[soundEffect]);
+        }
 
-        SoundEffectsManager.playSoundEffect(SoundEffectsManager.tickSoundID, delayForTickSoundEffect);
     }
 
     /**
-     * Plays a sound effect after a delay
+     * Plays soundEffect after a delay,
+     * unless the sound pool has been released in the meantime
      */
-    private static void playSoundEffect(int soundID, long delay)
+    private static void playSoundEffect(int soundEffect, long delay)
     {
-        new Handler().postDelayed(() -> soundPool.play(soundID, 1, 1, 1, 0, 1f), delay);
+        ResourceManager.postDelayed(() -> SoundEffectsManager.playSoundEffectImmediately(soundEffect), delay);
     }
 
 }
@@ -0,0 +1,483 @@
+package com.example.whackaword;
+
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.Display;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import java.io.PrintWriter;
+
+/**
+ * The StressMode class is responsible for the endless stress mode of the Whack-A-Word game,
+ * which is a built-in soak test that pushes the game loop harder and harder
+ * in order to find the point at which a device starts dropping frames
+ *
+ * Stress mode is switched on by the EXTRA_STRESS_MODE extra of the intent that starts the activity,
+ * and the automated tapper by the EXTRA_AUTO_TAP extra (see the WhackAWordActivity class), e.g. via
+ * adb shell am start -n com.example.whackaword/.WhackAWordActivity
+ * --ez com.example.whackaword.STRESS_MODE true --ez com.example.whackaword.AUTO_TAP true
+ *
+ * In stress mode:
+ *
+ * - the game never ends: the user keeps levelling up beyond the last level,
+ *   and one more card pops up at each level until a card pops up from every hole
+ *   (see the LevelProperties class)
+ * - once every food item has been correctly tapped, they can all be correctly tapped again
+ *   (see the GameLogic class)
+ * - the cadence speeds up with every successful tap in a row:
+ *   the minimum time before cards pop up (see the RoundSequencer class)
+ *   and the duration limit for cards to remain popped up (see the AnimationManager class)
+ *   are both scaled by it, and it goes back to normal after an incorrect tap or a timeout
+ * - the automated tapper (if it is on) taps the correct food card
+ *   through the PlayfieldTouchDispatcher class, AUTO_TAP_REACTION_TIME milliseconds
+ *   after the cards have popped up, so it keeps succeeding for as long as the device keeps up
+ * - an overlay shows, once a second, the rounds per minute, the mean and worst frame times
+ *   and the number of frames dropped in the past second, the depth of the audio queue,
+ *   and the number of garbage collections since stress mode started.
+ *   The first second in which more than MAXIMUM_DROPPED_FRAMES_PER_SECOND frames are dropped
+ *   is recorded (and logged) along with the level, the number of cards and the rounds per minute
+ *   at that time, i.e. the point at which the device starts dropping frames
+ * - game state snapshots are neither restored nor saved,
+ *   and neither the session event log nor the vocabulary statistics record any events,
+ *   so that a soak test never overwrites the progress or the learning records of a child
+ *   who plays on the same device
+ *
+ * The frame time is the time between consecutive frames of the main thread (via a Choreographer frame callback),
+ * so that a stall of the main thread shows up as a long frame
+ * and the frames that it dropped are counted in multiples of the refresh interval of the display
+ *
+ * isOn and autoTapperIsOn are set once, before the game logic thread and the planner's thread are started,
+ * since the rules of the game are evaluated on those threads; every other class variable is only used on the main thread:
+ *
+ * numberOfSuccessfulTapsInARow, which sets the cadence
+ *
+ * timesOfRecentRounds and numberOfRoundsRecorded, which are a ring of the times (in milliseconds of uptime)
+ * at which the latest rounds popped up, from which the rounds per minute are worked out
+ *
+ * timeOfLatestFrame, startOfSecond, numberOfFramesInSecond, totalFrameTimeInSecond,
+ * worstFrameTimeInSecond and numberOfDroppedFramesInSecond,
+ * which measure the frames of the second that is in progress (in nanoseconds)
+ *
+ * garbageCollectionCountAtStart and blockingGarbageCollectionCountAtStart,
+ * which are the counts of garbage collections of the runtime when stress mode was attached
+ *
+ * levelWhenFramesStartedDropping, numberOfCardsWhenFramesStartedDropping
+ * and roundsPerMinuteWhenFramesStartedDropping, which record the point at which the device started dropping frames
+ * (levelWhenFramesStartedDropping is 0 until it does)
+ *
+ * overlay and overlayText, which are the view that shows the statistics and the builder of its text
+ */
+public class StressMode
+{
+    private static final String TAG = "StressMode";
+
+    private static final float CADENCE_STEP = 0.9f;
+    // Each successful tap in a row makes the cadence a tenth faster ...
+    private static final float MINIMUM_CADENCE = 0.25f;
+    // ... until it is four times as fast as normal,
+    // at which the cards still remain popped up for two seconds (2000 milliseconds),
+    // long enough for the automated tapper to tap them
+
+    private static final int AUTO_TAP_REACTION_TIME = 150;
+    // The automated tapper taps a card three twentieths of a second (150 milliseconds)
+    // after it has popped up, i.e. faster than any child would
+
+    private static final int ROUND_RATE_WINDOW = 10000;
+    // The rounds per minute are worked out from the rounds of the past ten seconds (10000 milliseconds)
+    private static final int MAXIMUM_NUMBER_OF_RECENT_ROUNDS = 32;
+    // No more than 32 rounds can pop up within that window
+
+    private static final long NANOSECONDS_IN_A_SECOND = 1000000000L;
+    private static final int MAXIMUM_DROPPED_FRAMES_PER_SECOND = 3;
+    // A device is taken to have started dropping frames
+    // in the first second in which more than three frames are dropped,
+    // so that a single hiccup (e.g. a garbage collection) isn't taken for it
+
+    private static final float DEFAULT_REFRESH_RATE = 60;
+    private static final int OVERLAY_TEXT_SIZE = 12;
+    private static final int OVERLAY_BACKGROUND_COLOUR = 0x99000000;
+    // The overlay is white text on translucent black, in the top left corner of the playfield
+
+    public static boolean isOn;
+    private static boolean autoTapperIsOn;
+    private static int numberOfSuccessfulTapsInARow;
+
+    private static final long[] timesOfRecentRounds = new long[MAXIMUM_NUMBER_OF_RECENT_ROUNDS];
+    private static int numberOfRoundsRecorded;
+
+    private static long timeOfLatestFrame;
+    private static long startOfSecond;
+    private static int numberOfFramesInSecond;
+    private static long totalFrameTimeInSecond;
+    private static long worstFrameTimeInSecond;
+    private static int numberOfDroppedFramesInSecond;
+
+    private static long garbageCollectionCountAtStart;
+    private static long blockingGarbageCollectionCountAtStart;
+
+    private static int levelWhenFramesStartedDropping;
+    private static int numberOfCardsWhenFramesStartedDropping;
+    private static float roundsPerMinuteWhenFramesStartedDropping;
+
+    private static TextView overlay;
+    private static final StringBuilder overlayText = new StringBuilder();
+
+    private static final Choreographer.FrameCallback frameTimer = frameTimeNanos -> StressMode.recordFrame(frameTimeNanos);
+
+    public static final GameEventListener gameEventRecorder = gameEvent ->
+    {
+        switch (gameEvent.getType())
+        {
+            case GameEvent.TYPE_CARDS_SHOWN:
+                StressMode.recordRound(SystemClock.uptimeMillis());
+
+                if (StressMode.autoTapperIsOn)
+                {
+                    StressMode.scheduleAutoTap();
+                }
+
+                break;
+
+            case GameEvent.TYPE_TAPPED:
+                StressMode.numberOfSuccessfulTapsInARow = gameEvent.getFlag() ? StressMode.numberOfSuccessfulTapsInARow + 1 : 0;
+                break;
+
+            case GameEvent.TYPE_TIMED_OUT:
+                StressMode.numberOfSuccessfulTapsInARow = 0;
+                break;
+        }
+
+    };
+
+    private static final ManagedResource stressOverlay = new ManagedResource()
+    {
+        @Override
+        public void pause()
+        {
+            Choreographer.getInstance().removeFrameCallback(StressMode.frameTimer);
+        }
+
+        @Override
+        public void resume()
+        {
+            StressMode.startTimingFrames();
+        }
+
+        @Override
+        public void release()
+        {
+            Choreographer.getInstance().removeFrameCallback(StressMode.frameTimer);
+            StressMode.overlay = null;
+            // The overlay belongs to the activity, so a reference to it must not outlive the activity
+        }
+
+        @Override
+        public boolean survivesConfigurationChanges()
+        {
+            return false;
+        }
+
+        @Override
+        public String describe()
+        {
+            return "Stress mode (" + StressMode.numberOfSuccessfulTapsInARow + " successful taps in a row, cadence " + StressMode.getCadence() + ")";
+        }
+
+    };
+
+    /**
+     * Switches stress mode, and the automated tapper, on or off.
+     * Must be called before the game logic thread and the planner's thread are started
+     */
+    public static void configure(boolean stressModeIsOn, boolean autoTapperIsOn)
+    {
+        StressMode.isOn = stressModeIsOn;
+        StressMode.autoTapperIsOn = stressModeIsOn && autoTapperIsOn;
+    }
+
+    /**
+     * Adds the overlay to aWhackAWordActivity, subscribes to the events of the game
+     * and starts timing frames, if stress mode is on
+     */
+    public static void attach(WhackAWordActivity aWhackAWordActivity)
+    {
+        if (!StressMode.isOn)
+        {
+            return;
+        }
+
+        TextView overlay = new TextView(aWhackAWordActivity);
+        overlay.setTypeface(Typeface.MONOSPACE);
+        overlay.setTextSize(OVERLAY_TEXT_SIZE);
+        overlay.setTextColor(Color.WHITE);
+        overlay.setBackgroundColor(OVERLAY_BACKGROUND_COLOUR);
+        overlay.setImportantForAccessibility(View.IMPORTANT_FOR_ACCESSIBILITY_NO);
+        aWhackAWordActivity.addContentView(overlay, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        // The overlay isn't clickable, so touches pass through it to the playfield
+
+        StressMode.overlay = overlay;
+        StressMode.numberOfSuccessfulTapsInARow = 0;
+        StressMode.numberOfRoundsRecorded = 0;
+        StressMode.levelWhenFramesStartedDropping = 0;
+        StressMode.garbageCollectionCountAtStart = StressMode.getRuntimeStatistic("art.gc.gc-count");
+        StressMode.blockingGarbageCollectionCountAtStart = StressMode.getRuntimeStatistic("art.gc.blocking-gc-count");
+
+        GameEventPipeline.subscribe(StressMode.gameEventRecorder);
+        ResourceManager.register(StressMode.stressOverlay);
+
+        if (!ResourceManager.areResourcesPaused())
+        {
+            StressMode.startTimingFrames();
+        }
+
+    }
+
+    /**
+     * Returns the factor by which the cadence scales the time between rounds,
+     * which is 1 unless stress mode is on
+     */
+    public static float getCadence()
+    {
+        if (!StressMode.isOn)
+        {
+            return 1;
+        }
+
+        return (float) Math.max(MINIMUM_CADENCE, Math.pow(CADENCE_STEP, StressMode.numberOfSuccessfulTapsInARow));
+    }
+
+    /**
+     * Returns aDuration (in milliseconds) scaled by the cadence
+     */
+    public static int applyCadence(int aDuration)
+    {
+        return Math.round(aDuration * StressMode.getCadence());
+    }
+
+    /**
+     * Prints the statistics of the overlay, if stress mode is on
+     */
+    public static void dump(String prefix, PrintWriter aPrintWriter)
+    {
+        if (!StressMode.isOn)
+        {
+            return;
+        }
+
+        StressMode.buildOverlayText();
+
+        for (String line : StressMode.overlayText.toString().split("\n"))
+        {
+            aPrintWriter.print(prefix);
+            aPrintWriter.println(line);
+        }
+
+    }
+
+    /**
+     * Helper method that starts timing frames from the next frame
+     */
+    private static void startTimingFrames()
+    {
+        StressMode.timeOfLatestFrame = 0;
+        Choreographer.getInstance().removeFrameCallback(StressMode.frameTimer);
+        Choreographer.getInstance().postFrameCallback(StressMode.frameTimer);
+    }
+
+    /**
+     * Helper method, run on every frame, that records the time since the previous frame
+     * and the frames that were dropped in between,
+     * and updates the overlay once a second has passed
+     */
+    private static void recordFrame(long frameTimeNanos)
+    {
+        if (StressMode.timeOfLatestFrame == 0)
+        {
+            StressMode.startSecond(frameTimeNanos);
+        }
+        else
+        {
+            long frameTime = frameTimeNanos - StressMode.timeOfLatestFrame;
+            long refreshInterval = StressMode.getRefreshInterval();
+
+            StressMode.numberOfFramesInSecond++;
+            StressMode.totalFrameTimeInSecond += frameTime;
+            StressMode.worstFrameTimeInSecond = Math.max(StressMode.worstFrameTimeInSecond, frameTime);
+            StressMode.numberOfDroppedFramesInSecond += Math.max(0, (int) ((frameTime + refreshInterval / 2) / refreshInterval) - 1);
+            // A frame that took three refresh intervals dropped two frames
+        }
+
+        StressMode.timeOfLatestFrame = frameTimeNanos;
+
+        if (frameTimeNanos - StressMode.startOfSecond >= NANOSECONDS_IN_A_SECOND)
+        {
+            StressMode.checkWhetherFramesHaveStartedDropping();
+            StressMode.buildOverlayText();
+
+            if (StressMode.overlay != null)
+            {
+                StressMode.overlay.setText(StressMode.overlayText);
+            }
+
+            StressMode.startSecond(frameTimeNanos);
+        }
+
+        Choreographer.getInstance().postFrameCallback(StressMode.frameTimer);
+    }
+
+    /**
+     * Helper method that starts measuring the frames of a new second at frameTimeNanos
+     */
+    private static void startSecond(long frameTimeNanos)
+    {
+        StressMode.startOfSecond = frameTimeNanos;
+        StressMode.numberOfFramesInSecond = 0;
+        StressMode.totalFrameTimeInSecond = 0;
+        StressMode.worstFrameTimeInSecond = 0;
+        StressMode.numberOfDroppedFramesInSecond = 0;
+    }
+
+    /**
+     * Helper method that records the point at which the device started dropping frames,
+     * if it has done so for the first time in the past second
+     */
+    private static void checkWhetherFramesHaveStartedDropping()
+    {
+        RoundSnapshot roundSnapshot = GameLogic.getRenderedRoundSnapshot();
+
+        if (StressMode.levelWhenFramesStartedDropping != 0 || roundSnapshot == null
+                || StressMode.numberOfDroppedFramesInSecond <= MAXIMUM_DROPPED_FRAMES_PER_SECOND)
+        {
+            return;
+        }
+
+        StressMode.levelWhenFramesStartedDropping = roundSnapshot.getLevel();
+        StressMode.numberOfCardsWhenFramesStartedDropping = roundSnapshot.getNumberOfCardsToDisplay();
+        StressMode.roundsPerMinuteWhenFramesStartedDropping = StressMode.getRoundsPerMinute();
+
+        Log.i(TAG, "Frames started dropping at level " + StressMode.levelWhenFramesStartedDropping
+                + " (" + StressMode.numberOfCardsWhenFramesStartedDropping + " cards, "
+                + StressMode.roundsPerMinuteWhenFramesStartedDropping + " rounds per minute, "
+                + StressMode.numberOfDroppedFramesInSecond + " frames dropped in a second)");
+    }
+
+    /**
+     * Helper method that builds the text of the overlay from the statistics of the past second
+     */
+    private static void buildOverlayText()
+    {
+        RoundSnapshot roundSnapshot = GameLogic.getRenderedRoundSnapshot();
+        StringBuilder text = StressMode.overlayText;
+        int numberOfFrames = Math.max(1, StressMode.numberOfFramesInSecond);
+
+        text.setLength(0);
+        text.append("Stress mode: level ").append(roundSnapshot == null ? 0 : roundSnapshot.getLevel())
+                .append(", ").append(roundSnapshot == null ? 0 : roundSnapshot.getNumberOfCardsToDisplay())
+                .append(" cards, cadence x").append(Math.round(100 / StressMode.getCadence()) / 100f)
+                .append(StressMode.autoTapperIsOn ? ", auto tap" : "").append('\n');
+        text.append("Rounds/min: ").append(StressMode.getRoundsPerMinute()).append('\n');
+        text.append("Frame time: mean ").append(StressMode.totalFrameTimeInSecond / numberOfFrames / 100000 / 10f)
+                .append("ms, worst ").append(StressMode.worstFrameTimeInSecond / 100000 / 10f)
+                .append("ms, dropped ").append(StressMode.numberOfDroppedFramesInSecond).append('\n');
+        text.append("Audio queue: ").append(MetricsRegistry.getGauge(MetricsRegistry.GAUGE_AUDIO_QUEUE_DEPTH)).append('\n');
+        text.append("GCs: ").append(StressMode.getRuntimeStatistic("art.gc.gc-count") - StressMode.garbageCollectionCountAtStart)
+                .append(" (").append(StressMode.getRuntimeStatistic("art.gc.blocking-gc-count") - StressMode.blockingGarbageCollectionCountAtStart)
+                .append(" blocking)").append('\n');
+
+        if (StressMode.levelWhenFramesStartedDropping == 0)
+        {
+            text.append("No frames dropped yet");
+        }
+        else
+        {
+            text.append("Frames started dropping at level ").append(StressMode.levelWhenFramesStartedDropping)
+                    .append(" (").append(StressMode.numberOfCardsWhenFramesStartedDropping).append(" cards, ")
+                    .append(StressMode.roundsPerMinuteWhenFramesStartedDropping).append(" rounds/min)");
+        }
+
+    }
+
+    /**
+     * Helper method that records that a round popped up at timeOfRound (in milliseconds of uptime)
+     */
+    private static void recordRound(long timeOfRound)
+    {
+        StressMode.timesOfRecentRounds[StressMode.numberOfRoundsRecorded % MAXIMUM_NUMBER_OF_RECENT_ROUNDS] = timeOfRound;
+        StressMode.numberOfRoundsRecorded++;
+    }
+
+    /**
+     * Helper method that returns the number of rounds per minute,
+     * worked out from the rounds that popped up within the past ROUND_RATE_WINDOW milliseconds
+     */
+    private static float getRoundsPerMinute()
+    {
+        long now = SystemClock.uptimeMillis();
+        int numberOfRecentRounds = 0;
+
+        for (int i = 0; i < Math.min(StressMode.numberOfRoundsRecorded, MAXIMUM_NUMBER_OF_RECENT_ROUNDS); i++)
+        {
+            if (now - StressMode.timesOfRecentRounds[i] <= ROUND_RATE_WINDOW)
+            {
+                numberOfRecentRounds++;
+            }
+
+        }
+
+        return numberOfRecentRounds * 60000f / ROUND_RATE_WINDOW;
+    }
+
+    /**
+     * Helper method that makes the automated tapper tap the correct food card of the round on display
+     * once its cards have popped up, unless the round has changed by then
+     */
+    private static void scheduleAutoTap()
+    {
+        RoundSnapshot roundSnapshot = GameLogic.getRenderedRoundSnapshot();
+
+        ResourceManager.postDelayed(() ->
+        {
+            if (GameLogic.getRenderedRoundSnapshot() == roundSnapshot)
+            {
+                PlayfieldTouchDispatcher.tapCorrectFoodCard();
+            }
+
+        }, AnimationManager.getTimeUntilAudioIsInStepWithCardsPoppingUp() + AudioLatencyEstimator.getOutputLatency() + AUTO_TAP_REACTION_TIME);
+        // The pop-up animation is shifted by the output latency (see the AnimationManager class)
+    }
+
+    /**
+     * Helper method that returns the refresh interval of the display that the overlay is on (in nanoseconds)
+     */
+    private static long getRefreshInterval()
+    {
+        Display display = StressMode.overlay == null ? null : StressMode.overlay.getDisplay();
+        float refreshRate = display == null ? DEFAULT_REFRESH_RATE : display.getRefreshRate();
+
+        return (long) (NANOSECONDS_IN_A_SECOND / refreshRate);
+    }
+
+    /**
+     * Helper method that returns the runtime statistic called aName (see Debug.getRuntimeStat) as a number,
+     * or 0 if the runtime doesn't report it
+     */
+    private static long getRuntimeStatistic(String aName)
+    {
+        try
+        {
+            return Long.parseLong(Debug.getRuntimeStat(aName));
+        }
+        catch (NumberFormatException e)
+        {
+            return 0;
+        }
+
+    }
+
+}
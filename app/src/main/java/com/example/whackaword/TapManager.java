@@ -1,8 +1,6 @@
 package com.example.whackaword;
 
-import android.widget.FrameLayout;
-
-import java.util.HashSet;
+import android.os.SystemClock;
 
 /**
  * The TapManager class is responsible for handling user interactions
@@ -22,90 +20,72 @@ public class TapManager
     public static boolean correctFoodCardWasJustTapped;
 
     /**
-     * Sets the click listeners for
-     * all the food cards that are set for display
+     * Arms all the food cards of aRoundSnapshot
+     * so that they can be tapped in the current round
      */
-    public static void setClickListeners(WhackAWordActivity aWhackAWordActivity)
+    public static void armFoodCards(RoundSnapshot aRoundSnapshot)
     {
-        FoodCard correctFoodCard = Collections.mapOfFoodItemsToTheirFoodCards.get(Selector.correctFoodItem);
-
-        TapManager.setClickListenerForFoodCard(aWhackAWordActivity, correctFoodCard, true);
-
-        if (Collections.mapOfFoodItemsToTheirFoodCards.size() > 1)
-
-        // I.e. if there are any incorrect food items that are set for display
-        // in addition to the one correct food item ...
-
+        for (int i = 0; i < aRoundSnapshot.getFoodCards().size(); i++)
         {
-
-            for (FoodItem foodItem : Collections.mapOfFoodItemsToTheirFoodCards.keySet())
-            {
-
-                if (foodItem != Selector.correctFoodItem)
-                {
-                    FoodCard incorrectFoodCard = Collections.mapOfFoodItemsToTheirFoodCards.get(foodItem);
-
-                    TapManager.setClickListenerForFoodCard(aWhackAWordActivity, incorrectFoodCard, false);
-                    // ... set a click listener for each of their corresponding food cards
-                }
-
-            }
-
+            PlayfieldTouchDispatcher.armFoodCard(aRoundSnapshot.getFoodCards().get(i), aRoundSnapshot.getFoodItems().get(i) == aRoundSnapshot.getCorrectFoodItem());
+            // Arms the correct food card, and any incorrect food cards on display alongside it
         }
 
     }
 
     /**
-     * Clears click listeners from each food card
+     * Disarms every food card so that none of them can be tapped
      */
-    public static void clearClickListeners()
+    public static void disarmFoodCards()
     {
-        for (FrameLayout foodCardFrameLayout: Collections.foodCardFrameLayoutsWithClickListeners)
-        {
-            foodCardFrameLayout.setOnClickListener(null);
-        }
-
-        Collections.foodCardFrameLayoutsWithClickListeners = new HashSet<>();
+        PlayfieldTouchDispatcher.disarmFoodCards();
     }
 
     /**
+     * Handles the tap that settles the current round,
+     * which the PlayfieldTouchDispatcher class dispatches exactly once per round
+     *
      * When the correct food card is tapped,
      * plays the tick sound,
-     * displays an animated tick,
-     * continuously changes the card colour for the correct food card,
-     * and checks whether the user has reached the next level or has won.
-     * If the user has won, plays the 'well done' audio.
-     * If the user hasn't won, continues playing the game
+     * displays an animated tick
+     * and continuously changes the card colour for the correct food card,
+     * straight away on the main thread.
+     * The tap is then reported to the game logic thread,
+     * which checks whether the user has reached the next level or has won
+     * and publishes the outcome for the WhackAWordActivity class to render
+     * (continuing to play the game, or playing the 'well done' audio if the user has won)
      *
-     * Hides the cards when an incorrect food card is tapped,
-     * then displays random cards again with the same food items,
-     * setting click listeners for the correct and incorrect food cards
+     * When an incorrect food card is tapped,
+     * the tap is reported to the game logic thread,
+     * which selects random cards to display the same food items again;
+     * the cards are then hidden and pop up again, armed again
      */
-    private static void setClickListenerForFoodCard(WhackAWordActivity aWhackAWordActivity, FoodCard aFoodCard, boolean isCorrectFoodCard)
+    public static void handleTap(WhackAWordActivity aWhackAWordActivity, FoodCard aFoodCard, boolean isCorrectFoodCard)
     {
-        FrameLayout foodCardFrameLayout = aWhackAWordActivity.findViewById(aFoodCard.getID());
-
-        foodCardFrameLayout.setOnClickListener(v ->
-        {
-            Collections.mapOfPopUpTimesToWhetherACardHasBeenTappedOnTime.put(AnimationManager.numberOfPopUpTimes, true);
+        Collections.mapOfPopUpTimesToWhetherACardHasBeenTappedOnTime.put(AnimationManager.numberOfPopUpTimes, true);
 
-            if (isCorrectFoodCard)
-            {
-                TapManager.correctFoodCardWasJustTapped = true;
-                LevelProperties.countOfSuccessfulTaps++;
-                Collections.correctlyTappedFoodItems.add(aFoodCard.getFoodItem());
+        RoundSnapshot roundSnapshot = GameLogic.getRenderedRoundSnapshot();
+        FoodItem tappedFoodItem = roundSnapshot.getFoodItemOn(aFoodCard);
+        // Read from the snapshot on display rather than from the food card,
+        // whose food item is changed on the game logic thread
 
-                PositiveFeedbackAnimationManager.conveyPositiveFeedback(aWhackAWordActivity, aFoodCard);
-                WhackAWordActivity.continuePlaying(aWhackAWordActivity);
-            }
-            else
-            {
-                WhackAWordActivity.tryAgain(aWhackAWordActivity);
-            }
+        GameEventPipeline.publish(GameEvent.TYPE_TAPPED, tappedFoodItem)
+                .setFlag(isCorrectFoodCard)
+                .setDuration(SystemClock.uptimeMillis() - AnimationManager.timeOfLatestPopUp)
+                .setCountOfSuccessfulTaps(roundSnapshot.getCountOfSuccessfulTaps() + (isCorrectFoodCard ? 1 : 0));
+        // The count of successful taps includes a correct tap, as it will be before any level up
 
-        });
+        if (isCorrectFoodCard)
+        {
+            TapManager.correctFoodCardWasJustTapped = true;
+            PositiveFeedbackAnimationManager.conveyPositiveFeedback(aWhackAWordActivity, aFoodCard);
+            GameLogic.onCorrectTap(tappedFoodItem);
+        }
+        else
+        {
+            GameLogic.onIncorrectTap(tappedFoodItem);
+        }
 
-        Collections.foodCardFrameLayoutsWithClickListeners.add(foodCardFrameLayout);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,305 @@
+package com.example.whackaword;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * An object of the VocabularyItemStatistics class is a constant-size summary
+ * of how well the user knows a vocabulary item, which is updated in constant time
+ * with each attempt at the item and never keeps the attempts themselves
+ *
+ * An attempt is a round in which the vocabulary item is the correct one,
+ * and ends with a correct tap, an incorrect tap or a timeout.
+ * The summary records:
+ *
+ * - the number of correct taps, incorrect taps and timeouts
+ *
+ * - the exponentially decayed accuracy, i.e. the proportion of successful attempts
+ *   where each attempt counts DECAY_PER_ATTEMPT times as much as the one after it,
+ *   so that the accuracy follows what the user knows now rather than what they knew at first
+ *
+ * - the reaction times of the correct taps (from cards popping up to the tap)
+ *   in a histogram of NUMBER_OF_REACTION_TIME_BUCKETS fixed buckets,
+ *   along with their total, from which the mean and any percentile can be estimated.
+ *   Bucket 0 holds reaction times under MINIMUM_BUCKETED_REACTION_TIME,
+ *   the last bucket holds reaction times of MAXIMUM_BUCKETED_REACTION_TIME or more,
+ *   and every octave in between (e.g. 128 to 255 milliseconds) is split into four buckets of equal width,
+ *   so that each bucket is at most a quarter of its lower bound wide
+ *
+ * A summary takes about two hundred bytes, however many attempts it records.
+ * Summaries are merged by adding their counts and buckets,
+ * and by decaying the accuracy of the earlier summary by the attempts of the later one,
+ * so that the summaries of several sessions merge into the summary that a single session would have recorded
+ */
+public class VocabularyItemStatistics
+{
+    private static final double DECAY_PER_ATTEMPT = 0.8;
+    // The previous attempt counts four fifths as much as the latest one,
+    // so the decayed accuracy mostly reflects the latest five to ten attempts
+
+    private static final long MINIMUM_BUCKETED_REACTION_TIME = 128;
+    private static final long MAXIMUM_BUCKETED_REACTION_TIME = 32768;
+    // Reaction times are bucketed finely between an eighth of a second (128 milliseconds)
+    // and about thirty-three seconds (32768 milliseconds), which is beyond the pop-up duration limit
+
+    private static final int NUMBER_OF_OCTAVES = 8;
+    private static final int BUCKETS_PER_OCTAVE = 4;
+    private static final int NUMBER_OF_REACTION_TIME_BUCKETS = NUMBER_OF_OCTAVES * BUCKETS_PER_OCTAVE + 2;
+    // The two extra buckets hold the reaction times below and above the bucketed range
+
+    private int numberOfCorrectTaps;
+    private int numberOfIncorrectTaps;
+    private int numberOfTimeouts;
+    private double decayedNumberOfSuccesses;
+    private double decayedNumberOfAttempts;
+    private long totalReactionTime;
+    private final int[] reactionTimeBuckets = new int[NUMBER_OF_REACTION_TIME_BUCKETS];
+
+    /**
+     * Records a correct tap with the given reaction time (in milliseconds)
+     */
+    public void recordCorrectTap(long reactionTime)
+    {
+        this.numberOfCorrectTaps++;
+        this.recordAttempt(true);
+
+        reactionTime = Math.max(0, reactionTime);
+        this.totalReactionTime += reactionTime;
+        this.reactionTimeBuckets[VocabularyItemStatistics.getBucketOf(reactionTime)]++;
+    }
+
+    /**
+     * Records an incorrect tap, i.e. the tap of another food item while this one was asked for
+     */
+    public void recordIncorrectTap()
+    {
+        this.numberOfIncorrectTaps++;
+        this.recordAttempt(false);
+    }
+
+    /**
+     * Records a timeout, i.e. no card being tapped within the pop-up duration limit
+     * while this food item was asked for
+     */
+    public void recordTimeout()
+    {
+        this.numberOfTimeouts++;
+        this.recordAttempt(false);
+    }
+
+    /**
+     * Merges aLaterStatistics, which were recorded after these statistics (e.g. in a later session),
+     * into these statistics
+     */
+    public void mergeWith(VocabularyItemStatistics aLaterStatistics)
+    {
+        double decayOfTheseStatistics = Math.pow(DECAY_PER_ATTEMPT, aLaterStatistics.getNumberOfAttempts());
+
+        this.decayedNumberOfSuccesses = this.decayedNumberOfSuccesses * decayOfTheseStatistics + aLaterStatistics.decayedNumberOfSuccesses;
+        this.decayedNumberOfAttempts = this.decayedNumberOfAttempts * decayOfTheseStatistics + aLaterStatistics.decayedNumberOfAttempts;
+        this.numberOfCorrectTaps += aLaterStatistics.numberOfCorrectTaps;
+        this.numberOfIncorrectTaps += aLaterStatistics.numberOfIncorrectTaps;
+        this.numberOfTimeouts += aLaterStatistics.numberOfTimeouts;
+        this.totalReactionTime += aLaterStatistics.totalReactionTime;
+
+        for (int i = 0; i < NUMBER_OF_REACTION_TIME_BUCKETS; i++)
+        {
+            this.reactionTimeBuckets[i] += aLaterStatistics.reactionTimeBuckets[i];
+        }
+
+    }
+
+    /**
+     * Returns the number of correct taps
+     */
+    public int getNumberOfCorrectTaps()
+    {
+        return this.numberOfCorrectTaps;
+    }
+
+    /**
+     * Returns the number of incorrect taps
+     */
+    public int getNumberOfIncorrectTaps()
+    {
+        return this.numberOfIncorrectTaps;
+    }
+
+    /**
+     * Returns the number of timeouts
+     */
+    public int getNumberOfTimeouts()
+    {
+        return this.numberOfTimeouts;
+    }
+
+    /**
+     * Returns the number of attempts, i.e. of correct taps, incorrect taps and timeouts
+     */
+    public int getNumberOfAttempts()
+    {
+        return this.numberOfCorrectTaps + this.numberOfIncorrectTaps + this.numberOfTimeouts;
+    }
+
+    /**
+     * Returns the exponentially decayed accuracy (between 0 and 1),
+     * or -1 if there have been no attempts
+     */
+    public double getDecayedAccuracy()
+    {
+        if (this.decayedNumberOfAttempts == 0)
+        {
+            return -1;
+        }
+
+        return this.decayedNumberOfSuccesses / this.decayedNumberOfAttempts;
+    }
+
+    /**
+     * Returns the mean reaction time (in milliseconds) of the correct taps,
+     * or -1 if there have been none
+     */
+    public long getMeanReactionTime()
+    {
+        if (this.numberOfCorrectTaps == 0)
+        {
+            return -1;
+        }
+
+        return this.totalReactionTime / this.numberOfCorrectTaps;
+    }
+
+    /**
+     * Returns an estimate of the given percentile (between 0 and 100) of the reaction times (in milliseconds)
+     * of the correct taps, i.e. the middle of the bucket that the percentile falls in,
+     * or -1 if there have been no correct taps
+     */
+    public long getReactionTimePercentile(double percentile)
+    {
+        if (this.numberOfCorrectTaps == 0)
+        {
+            return -1;
+        }
+
+        long rank = (long) Math.ceil(percentile / 100 * this.numberOfCorrectTaps);
+        long numberOfReactionTimesCounted = 0;
+
+        for (int bucket = 0; bucket < NUMBER_OF_REACTION_TIME_BUCKETS; bucket++)
+        {
+            numberOfReactionTimesCounted += this.reactionTimeBuckets[bucket];
+
+            if (numberOfReactionTimesCounted >= Math.max(1, rank))
+            {
+                return (VocabularyItemStatistics.getLowerBoundOf(bucket) + VocabularyItemStatistics.getLowerBoundOf(bucket + 1)) / 2;
+            }
+
+        }
+
+        return MAXIMUM_BUCKETED_REACTION_TIME;
+    }
+
+    /**
+     * Writes the statistics to aDataOutputStream
+     */
+    public void writeTo(DataOutputStream aDataOutputStream) throws IOException
+    {
+        aDataOutputStream.writeInt(this.numberOfCorrectTaps);
+        aDataOutputStream.writeInt(this.numberOfIncorrectTaps);
+        aDataOutputStream.writeInt(this.numberOfTimeouts);
+        aDataOutputStream.writeDouble(this.decayedNumberOfSuccesses);
+        aDataOutputStream.writeDouble(this.decayedNumberOfAttempts);
+        aDataOutputStream.writeLong(this.totalReactionTime);
+        aDataOutputStream.writeByte(NUMBER_OF_REACTION_TIME_BUCKETS);
+
+        for (int numberOfReactionTimes : this.reactionTimeBuckets)
+        {
+            aDataOutputStream.writeInt(numberOfReactionTimes);
+        }
+
+    }
+
+    /**
+     * Reads and returns statistics that were written by the writeTo method from aDataInputStream
+     */
+    public static VocabularyItemStatistics readFrom(DataInputStream aDataInputStream) throws IOException
+    {
+        VocabularyItemStatistics statistics = new VocabularyItemStatistics();
+
+        statistics.numberOfCorrectTaps = aDataInputStream.readInt();
+        statistics.numberOfIncorrectTaps = aDataInputStream.readInt();
+        statistics.numberOfTimeouts = aDataInputStream.readInt();
+        statistics.decayedNumberOfSuccesses = aDataInputStream.readDouble();
+        statistics.decayedNumberOfAttempts = aDataInputStream.readDouble();
+        statistics.totalReactionTime = aDataInputStream.readLong();
+
+        if (aDataInputStream.readByte() != NUMBER_OF_REACTION_TIME_BUCKETS)
+        {
+            throw new IOException("The reaction time buckets have changed");
+        }
+
+        for (int i = 0; i < NUMBER_OF_REACTION_TIME_BUCKETS; i++)
+        {
+            statistics.reactionTimeBuckets[i] = aDataInputStream.readInt();
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Helper method that decays the earlier attempts and adds an attempt
+     */
+    private void recordAttempt(boolean wasSuccessful)
+    {
+        this.decayedNumberOfSuccesses = this.decayedNumberOfSuccesses * DECAY_PER_ATTEMPT + (wasSuccessful ? 1 : 0);
+        this.decayedNumberOfAttempts = this.decayedNumberOfAttempts * DECAY_PER_ATTEMPT + 1;
+    }
+
+    /**
+     * Returns the bucket of reactionTime,
+     * found from the position of its highest bit (its octave)
+     * and the two bits below it (its quarter of the octave).
+     * Package-private so that the bucketing can be tested
+     */
+    static int getBucketOf(long reactionTime)
+    {
+        if (reactionTime < MINIMUM_BUCKETED_REACTION_TIME)
+        {
+            return 0;
+        }
+
+        if (reactionTime >= MAXIMUM_BUCKETED_REACTION_TIME)
+        {
+            return NUMBER_OF_REACTION_TIME_BUCKETS - 1;
+        }
+
+        int highestBit = 63 - Long.numberOfLeadingZeros(reactionTime);
+        int octave = highestBit - Long.numberOfTrailingZeros(MINIMUM_BUCKETED_REACTION_TIME);
+        int quarterOfOctave = (int) (reactionTime >> (highestBit - 2)) & 3;
+
+        return 1 + octave * BUCKETS_PER_OCTAVE + quarterOfOctave;
+    }
+
+    /**
+     * Helper method that returns the lowest reaction time of aBucket,
+     * or MAXIMUM_BUCKETED_REACTION_TIME for the bucket after the last bucketed one
+     */
+    private static long getLowerBoundOf(int aBucket)
+    {
+        if (aBucket == 0)
+        {
+            return 0;
+        }
+
+        if (aBucket >= NUMBER_OF_REACTION_TIME_BUCKETS - 1)
+        {
+            return MAXIMUM_BUCKETED_REACTION_TIME;
+        }
+
+        int octave = (aBucket - 1) / BUCKETS_PER_OCTAVE;
+        int quarterOfOctave = (aBucket - 1) % BUCKETS_PER_OCTAVE;
+
+        return (MINIMUM_BUCKETED_REACTION_TIME << octave) * (BUCKETS_PER_OCTAVE + quarterOfOctave) / BUCKETS_PER_OCTAVE;
+    }
+
+}
@@ -0,0 +1,453 @@
+package com.example.whackaword;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The VocabularyStatistics class is responsible for keeping the learning statistics of each vocabulary item
+ * (its correct taps, incorrect taps, timeouts, decayed accuracy and reaction times)
+ * across sessions, as a VocabularyItemStatistics summary of constant size per vocabulary item
+ *
+ * Each tap and timeout is attributed to the correct food item of its round,
+ * i.e. the word that the user was asked for, and updates its summary in constant time
+ * via gameEventRecorder, which subscribes to the GameEventPipeline class.
+ * The statistics of a vocabulary item can be queried at any time without reading any history
+ * (see the getStatisticsOf method)
+ *
+ * The summaries are written to STATISTICS_FILE_NAME on a background thread
+ * whenever the activity is stopped, and read from it when the activity is first created.
+ * The file is read on the background thread too,
+ * and the summaries that were recorded before it has been read are merged into the ones read from it,
+ * so no attempt is lost however long the file takes to be read.
+ * If the summaries are written before they have been merged (e.g. when the activity is stopped straight away),
+ * the background thread merges them into the summaries that it read from the file before writing them,
+ * so that the file is never replaced by the summaries of this session alone.
+ * Each load is given a generation, so that summaries read by a load
+ * whose statistics have since been released are ignored rather than merged twice
+ *
+ * The statistics are only recorded and queried on the main thread, so no synchronisation is needed
+ *
+ * It contains the following class variables:
+ *
+ * mapOfNamesToTheirStatistics, which maps the name of each vocabulary item that has been attempted
+ * to its summary (vocabulary items are identified by their names, as in the GameStateSnapshot class)
+ *
+ * statisticsFile, which is the file that the summaries are written to
+ *
+ * previousStatisticsHaveBeenRead, which records whether the summaries of previous sessions
+ * have been read from the file and merged
+ *
+ * loadGeneration, which is incremented whenever the statistics are loaded or released,
+ * so that summaries read by an earlier load are ignored
+ *
+ * previousStatisticsFileContents, which holds the contents of the file as read by the current load,
+ * and is only used on the background thread once it has been read
+ *
+ * fileThread and fileHandler, which are the background thread on which the file is read and written
+ */
+public class VocabularyStatistics
+{
+    private static final int FORMAT_VERSION = 1;
+    private static final String STATISTICS_FILE_NAME = "vocabulary_statistics.bin";
+    private static final String TAG = "VocabularyStatistics";
+
+    private static final Map<String, VocabularyItemStatistics> mapOfNamesToTheirStatistics = new HashMap<>();
+    private static AtomicFile statisticsFile;
+    private static boolean previousStatisticsHaveBeenRead;
+    private static int loadGeneration;
+    private static AtomicReference<byte[]> previousStatisticsFileContents;
+    private static HandlerThread fileThread;
+    private static Handler fileHandler;
+    private static final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+
+    public static final GameEventListener gameEventRecorder = gameEvent ->
+    {
+        switch (gameEvent.getType())
+        {
+            case GameEvent.TYPE_TAPPED:
+                if (gameEvent.getCorrectFoodItem() == null)
+                {
+                    break;
+                }
+
+                if (gameEvent.getFlag())
+                {
+                    VocabularyStatistics.getOrCreateStatisticsOf(gameEvent.getCorrectFoodItem()).recordCorrectTap(gameEvent.getDuration());
+                }
+                else
+                {
+                    VocabularyStatistics.getOrCreateStatisticsOf(gameEvent.getCorrectFoodItem()).recordIncorrectTap();
+                }
+
+                break;
+
+            case GameEvent.TYPE_TIMED_OUT:
+                if (gameEvent.getFoodItem() != null)
+                {
+                    VocabularyStatistics.getOrCreateStatisticsOf(gameEvent.getFoodItem()).recordTimeout();
+                    // The food item of a timeout is the correct food item of its round
+                }
+
+                break;
+        }
+
+    };
+
+    private static final ManagedResource statisticsWriter = new ManagedResource()
+    {
+        @Override
+        public void pause()
+        {
+            VocabularyStatistics.save();
+        }
+
+        @Override
+        public void resume()
+        {
+        }
+
+        @Override
+        public void release()
+        {
+            VocabularyStatistics.save();
+            VocabularyStatistics.fileThread.quitSafely();
+            VocabularyStatistics.fileThread = null;
+            VocabularyStatistics.fileHandler = null;
+            // The pending write is completed before the thread quits
+
+            VocabularyStatistics.mapOfNamesToTheirStatistics.clear();
+            VocabularyStatistics.previousStatisticsHaveBeenRead = false;
+            VocabularyStatistics.loadGeneration++;
+            VocabularyStatistics.previousStatisticsFileContents = null;
+            // The statistics are read from the file again when the activity is next created,
+            // so they must not also be kept in memory, nor be merged with a read that is still in progress
+        }
+
+        @Override
+        public boolean survivesConfigurationChanges()
+        {
+            return true;
+            // The statistics refer to no activity
+        }
+
+        @Override
+        public String describe()
+        {
+            return "Vocabulary statistics (" + VocabularyStatistics.mapOfNamesToTheirStatistics.size() + " vocabulary items)";
+        }
+
+    };
+
+    /**
+     * Starts reading the statistics of previous sessions from the statistics file on a background thread,
+     * and subscribes to the events of the game,
+     * unless the statistics have already been loaded (e.g. before a configuration change)
+     */
+    public static void load(Context aContext)
+    {
+        if (VocabularyStatistics.fileThread != null)
+        {
+            return;
+        }
+
+        VocabularyStatistics.statisticsFile = new AtomicFile(new File(aContext.getFilesDir(), STATISTICS_FILE_NAME));
+        VocabularyStatistics.fileThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        VocabularyStatistics.fileThread.start();
+        VocabularyStatistics.fileHandler = new Handler(VocabularyStatistics.fileThread.getLooper());
+
+        int generation = ++VocabularyStatistics.loadGeneration;
+        AtomicFile statisticsFile = VocabularyStatistics.statisticsFile;
+        AtomicReference<byte[]> previousStatisticsFileContents = new AtomicReference<>(new byte[0]);
+        VocabularyStatistics.previousStatisticsFileContents = previousStatisticsFileContents;
+
+        VocabularyStatistics.fileHandler.post(() ->
+        {
+            byte[] contents = VocabularyStatistics.readStatisticsFile(statisticsFile);
+            previousStatisticsFileContents.set(contents);
+
+            Map<String, VocabularyItemStatistics> previousStatistics = VocabularyStatistics.decodeStatistics(contents);
+            VocabularyStatistics.mainThreadHandler.post(() -> VocabularyStatistics.mergeWithPreviousStatistics(generation, previousStatistics));
+        });
+
+        GameEventPipeline.subscribe(VocabularyStatistics.gameEventRecorder);
+        ResourceManager.register(VocabularyStatistics.statisticsWriter);
+    }
+
+    /**
+     * Returns the statistics of aVocabularyItem,
+     * or null if it has never been attempted
+     */
+    public static VocabularyItemStatistics getStatisticsOf(VocabularyItem aVocabularyItem)
+    {
+        return VocabularyStatistics.mapOfNamesToTheirStatistics.get(aVocabularyItem.getName());
+    }
+
+    /**
+     * Prints the statistics of every vocabulary item that has been attempted, in alphabetical order
+     */
+    public static void dump(String prefix, PrintWriter aPrintWriter)
+    {
+        aPrintWriter.print(prefix);
+        aPrintWriter.println("Vocabulary statistics (attempts: correct/incorrect/timeouts, decayed accuracy, reaction time):");
+
+        for (Map.Entry<String, VocabularyItemStatistics> entry : new TreeMap<>(VocabularyStatistics.mapOfNamesToTheirStatistics).entrySet())
+        {
+            VocabularyItemStatistics statistics = entry.getValue();
+
+            aPrintWriter.print(prefix);
+            aPrintWriter.println("  " + entry.getKey() + ": "
+                    + statistics.getNumberOfCorrectTaps() + "/" + statistics.getNumberOfIncorrectTaps() + "/" + statistics.getNumberOfTimeouts()
+                    + ", accuracy " + Math.round(statistics.getDecayedAccuracy() * 100) + "%"
+                    + ", mean " + statistics.getMeanReactionTime() + "ms"
+                    + ", p50 ~" + statistics.getReactionTimePercentile(50) + "ms"
+                    + ", p90 ~" + statistics.getReactionTimePercentile(90) + "ms");
+        }
+
+    }
+
+    /**
+     * Helper method that returns the statistics of aVocabularyItem,
+     * creating them if it has never been attempted
+     */
+    private static VocabularyItemStatistics getOrCreateStatisticsOf(VocabularyItem aVocabularyItem)
+    {
+        VocabularyItemStatistics statistics = VocabularyStatistics.mapOfNamesToTheirStatistics.get(aVocabularyItem.getName());
+
+        if (statistics == null)
+        {
+            statistics = new VocabularyItemStatistics();
+            VocabularyStatistics.mapOfNamesToTheirStatistics.put(aVocabularyItem.getName(), statistics);
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Helper method that merges the statistics recorded so far in this session
+     * into aMapOfNamesToTheirPreviousStatistics, which were read from the statistics file by the load of the given generation,
+     * and keeps the result, unless the statistics have been released since that load
+     */
+    private static void mergeWithPreviousStatistics(int generation, Map<String, VocabularyItemStatistics> aMapOfNamesToTheirPreviousStatistics)
+    {
+        if (generation != VocabularyStatistics.loadGeneration)
+        {
+            return;
+        }
+
+        VocabularyStatistics.mergeLaterStatistics(aMapOfNamesToTheirPreviousStatistics, VocabularyStatistics.mapOfNamesToTheirStatistics);
+
+        VocabularyStatistics.mapOfNamesToTheirStatistics.clear();
+        VocabularyStatistics.mapOfNamesToTheirStatistics.putAll(aMapOfNamesToTheirPreviousStatistics);
+        VocabularyStatistics.previousStatisticsHaveBeenRead = true;
+    }
+
+    /**
+     * Helper method that encodes the statistics on the main thread
+     * and writes them to the statistics file on the background thread.
+     * If the statistics of previous sessions haven't been merged yet,
+     * the background thread merges the statistics of this session into them before writing
+     */
+    private static void save()
+    {
+        if (VocabularyStatistics.fileHandler == null || VocabularyStatistics.mapOfNamesToTheirStatistics.isEmpty())
+        {
+            return;
+        }
+
+        byte[] statistics = VocabularyStatistics.encodeStatistics(VocabularyStatistics.mapOfNamesToTheirStatistics);
+
+        if (statistics == null)
+        {
+            return;
+        }
+
+        AtomicFile statisticsFile = VocabularyStatistics.statisticsFile;
+
+        if (VocabularyStatistics.previousStatisticsHaveBeenRead)
+        {
+            VocabularyStatistics.fileHandler.post(() -> VocabularyStatistics.writeStatisticsFile(statisticsFile, statistics));
+        }
+        else
+        {
+            AtomicReference<byte[]> previousStatisticsFileContents = VocabularyStatistics.previousStatisticsFileContents;
+            VocabularyStatistics.fileHandler.post(() ->
+            {
+                Map<String, VocabularyItemStatistics> allStatistics = VocabularyStatistics.decodeStatistics(previousStatisticsFileContents.get());
+                VocabularyStatistics.mergeLaterStatistics(allStatistics, VocabularyStatistics.decodeStatistics(statistics));
+                byte[] allStatisticsEncoded = VocabularyStatistics.encodeStatistics(allStatistics);
+
+                if (allStatisticsEncoded != null)
+                {
+                    VocabularyStatistics.writeStatisticsFile(statisticsFile, allStatisticsEncoded);
+                }
+
+            });
+            // The contents of the file as it was first read are used rather than the file itself,
+            // which may already hold the statistics of this session from an earlier write
+        }
+        // The file is read before it is written, since both happen in order on the same thread
+    }
+
+    /**
+     * Helper method that merges each of aMapOfNamesToTheirLaterStatistics
+     * into the statistics of the same vocabulary item in aMapOfNamesToTheirEarlierStatistics,
+     * or adds it if the vocabulary item has no earlier statistics
+     */
+    private static void mergeLaterStatistics(Map<String, VocabularyItemStatistics> aMapOfNamesToTheirEarlierStatistics,
+                                             Map<String, VocabularyItemStatistics> aMapOfNamesToTheirLaterStatistics)
+    {
+        for (Map.Entry<String, VocabularyItemStatistics> entry : aMapOfNamesToTheirLaterStatistics.entrySet())
+        {
+            VocabularyItemStatistics earlierStatistics = aMapOfNamesToTheirEarlierStatistics.get(entry.getKey());
+
+            if (earlierStatistics == null)
+            {
+                aMapOfNamesToTheirEarlierStatistics.put(entry.getKey(), entry.getValue());
+            }
+            else
+            {
+                earlierStatistics.mergeWith(entry.getValue());
+            }
+
+        }
+
+    }
+
+    /**
+     * Helper method that returns aMapOfNamesToTheirStatistics encoded in the format of the statistics file,
+     * or null if they can't be encoded
+     */
+    private static byte[] encodeStatistics(Map<String, VocabularyItemStatistics> aMapOfNamesToTheirStatistics)
+    {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(256 * aMapOfNamesToTheirStatistics.size());
+
+        try (DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream))
+        {
+            dataOutputStream.writeByte(FORMAT_VERSION);
+            dataOutputStream.writeInt(aMapOfNamesToTheirStatistics.size());
+
+            for (Map.Entry<String, VocabularyItemStatistics> entry : aMapOfNamesToTheirStatistics.entrySet())
+            {
+                dataOutputStream.writeUTF(entry.getKey());
+                entry.getValue().writeTo(dataOutputStream);
+            }
+
+        }
+        catch (IOException e)
+        {
+            Log.w(TAG, "Could not encode the vocabulary statistics", e);
+            return null;
+        }
+
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    /**
+     * Helper method that returns the statistics encoded in someStatistics,
+     * or no statistics if there are none or they can't be decoded
+     */
+    private static Map<String, VocabularyItemStatistics> decodeStatistics(byte[] someStatistics)
+    {
+        Map<String, VocabularyItemStatistics> mapOfNamesToTheirStatistics = new HashMap<>();
+
+        if (someStatistics.length == 0)
+        {
+            return mapOfNamesToTheirStatistics;
+        }
+
+        try
+        {
+            DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(someStatistics));
+
+            if (dataInputStream.readByte() != FORMAT_VERSION)
+            {
+                return mapOfNamesToTheirStatistics;
+            }
+
+            int numberOfVocabularyItems = dataInputStream.readInt();
+
+            for (int i = 0; i < numberOfVocabularyItems; i++)
+            {
+                String name = dataInputStream.readUTF();
+                mapOfNamesToTheirStatistics.put(name, VocabularyItemStatistics.readFrom(dataInputStream));
+            }
+
+        }
+        catch (IOException e)
+        {
+            Log.w(TAG, "Could not decode the vocabulary statistics", e);
+            mapOfNamesToTheirStatistics.clear();
+        }
+
+        return mapOfNamesToTheirStatistics;
+    }
+
+    /**
+     * Helper method, run on the background thread, that returns the contents of aStatisticsFile,
+     * or no contents if it doesn't exist or can't be read
+     */
+    private static byte[] readStatisticsFile(AtomicFile aStatisticsFile)
+    {
+        if (!aStatisticsFile.getBaseFile().exists())
+        {
+            return new byte[0];
+        }
+
+        try
+        {
+            return aStatisticsFile.readFully();
+        }
+        catch (IOException e)
+        {
+            Log.w(TAG, "Could not read " + aStatisticsFile.getBaseFile(), e);
+            return new byte[0];
+        }
+
+    }
+
+    /**
+     * Helper method, run on the background thread,
+     * that replaces the contents of aStatisticsFile with someStatistics atomically
+     */
+    private static void writeStatisticsFile(AtomicFile aStatisticsFile, byte[] someStatistics)
+    {
+        FileOutputStream fileOutputStream = null;
+
+        try
+        {
+            fileOutputStream = aStatisticsFile.startWrite();
+            fileOutputStream.write(someStatistics);
+            aStatisticsFile.finishWrite(fileOutputStream);
+        }
+        catch (IOException e)
+        {
+            Log.w(TAG, "Could not write " + aStatisticsFile.getBaseFile(), e);
+
+            if (fileOutputStream != null)
+            {
+                aStatisticsFile.failWrite(fileOutputStream);
+            }
+
+        }
+
+    }
+
+}
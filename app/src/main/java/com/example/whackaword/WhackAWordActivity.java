@@ -1,11 +1,16 @@
 package com.example.whackaword;
 
+import android.content.Intent;
+import android.content.res.Configuration;
 import android.os.Bundle;
+import android.util.Log;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 
 /**
  * An object of the WhackAWordActivity class represents a game called Whack-A-Word
@@ -34,12 +39,39 @@ import java.util.HashMap;
  */
 public class WhackAWordActivity extends AppCompatActivity
 {
+    private static final String TAG = "WhackAWordActivity";
+
+    public static final String EXTRA_PROFILE_NAME = "com.example.whackaword.PROFILE_NAME";
+    // The name of the profile whose input settings are used (see the InputSettings class);
+    // the default profile is used if the intent has no such extra
+
+    public static final String EXTRA_INPUT_MODE = "com.example.whackaword.INPUT_MODE";
+    public static final String EXTRA_HIT_SLOP_IN_DP = "com.example.whackaword.HIT_SLOP_IN_DP";
+    // The input mode (0 for the click mode, 1 for the touch-down mode) and hit slop (in density-independent pixels)
+    // to store as the input settings of the profile in use, which it then keeps for later games
+    // (e.g. adb shell am start -n com.example.whackaword/.WhackAWordActivity --es com.example.whackaword.PROFILE_NAME sam
+    // --ei com.example.whackaword.INPUT_MODE 1 --ei com.example.whackaword.HIT_SLOP_IN_DP 16);
+    // the stored input settings are left as they are if the intent has no such extras
+
+    public static final String EXTRA_MINIMUM_TIME_BEFORE_POP_UP = "com.example.whackaword.MINIMUM_TIME_BEFORE_POP_UP";
+    // The minimum pacing (in milliseconds) to store for the profile in use (see the RoundSequencer class),
+    // e.g. --ei com.example.whackaword.MINIMUM_TIME_BEFORE_POP_UP 1200 for a child who needs longer to see the feedback;
+    // the stored minimum pacing is left as it is if the intent has no such extra
+
+    public static final String EXTRA_STRESS_MODE = "com.example.whackaword.STRESS_MODE";
+    public static final String EXTRA_AUTO_TAP = "com.example.whackaword.AUTO_TAP";
+    // Whether the game is played in the endless stress mode, and whether its automated tapper taps the cards
+    // (see the StressMode class); the normal game is played if the intent has no such extras
+
+    private PlayfieldViews playfieldViews;
+    // The views of the playfield of the activity, as the PlayfieldBuilder class built them
+
     /**
      * This is the method that gets called when the activity is created.
      * It sets up the initial state of the game,
      * including its layout and variables,
-     * animates the sky,
-     * and calls the playWhackAWord method that starts the game
+     * animates the sky, composites the static scenery,
+     * and starts the game logic thread, which starts the game
      *
      * savedInstanceState either contains the activity's previously saved state
      * or is null if the activity has never existed before.
@@ -47,11 +79,22 @@ public class WhackAWordActivity extends AppCompatActivity
      * the values of instance variables,
      * or any other relevant data that the user would need
      * the next time the activity is created,
-     * for example after a user rotates the device from portrait to landscape mode
-     * (in which case the Activity object would be destroyed and recreated),
-     * although the screen orientation is set to landscape via the AndroidManifest file,
-     * ensuring that this does not happen
-     * and that the game is always played in landscape mode
+     * for example after a configuration change that the activity does not handle itself
+     * (in which case the Activity object would be destroyed and recreated)
+     * or after the process has been killed in the background.
+     * The screen orientation is set to landscape via the AndroidManifest file,
+     * ensuring that the game is always played in landscape mode,
+     * and changes of size and orientation (e.g. in multi-window mode or on a foldable device)
+     * are handled in place by the onConfigurationChanged method,
+     * but other configuration changes (e.g. of locale) can still recreate the activity.
+     * If a game state snapshot can be restored
+     * (from savedInstanceState or from the snapshot file),
+     * the game resumes from the restored round
+     * instead of starting again from the first level,
+     * and the sound pool and background music are only loaded
+     * if they are not still resident.
+     * In stress mode, the game always starts again from the first level,
+     * and neither the session event log nor the vocabulary statistics record it
      */
     @Override
     protected void onCreate(Bundle savedInstanceState)
@@ -62,86 +105,350 @@ public class WhackAWordActivity extends AppCompatActivity
         // to ensure proper setup and initialization of the activity,
         // e.g. toolbar, theme, backward compatibility via the AndroidX library
 
-        this.setContentView(R.layout.activity_whack_a_word);
-        // Sets up the layout of the activity
-
         ScreenProperties.setScreenIsSmallTo(ScreenProperties.isScreenSmall(this));
-        Collections.initialiseCollections();
-        LevelProperties.initialiseLevelProperties();
-        AnimationManager.initialiseAnimationProperties();
+
+        this.playfieldViews = PlayfieldBuilder.build(this);
+        this.setContentView(this.playfieldViews.getPlayfield());
+        // Sets up the layout of the activity, built in code for the class of screen rather than inflated
+        StressMode.configure(this.getIntent().getBooleanExtra(EXTRA_STRESS_MODE, false), this.getIntent().getBooleanExtra(EXTRA_AUTO_TAP, false));
+        StressMode.attach(this);
+        InputSettings.load(this, this.getIntent().getStringExtra(EXTRA_PROFILE_NAME));
+        this.storeInputSettingsFromIntent();
+        RoundSequencer.loadPacing(this);
+        this.storePacingFromIntent();
+        AudioClipManifest.load(this);
         SoundEffectsManager.initialiseSoundPool(this);
-        Selector.thereAreNewFoodItems = true;
+        AudioLatencyEstimator.start(this);
+        SessionEventLog.open(this);
+        GameEventPipeline.subscribe(MetricsRegistry.gameEventRecorder);
 
+        if (!StressMode.isOn)
+        {
+            GameEventPipeline.subscribe(SessionEventLog.gameEventRecorder);
+            VocabularyStatistics.load(this);
+        }
+
+        QualityTierController.start(this);
+        RoundPlanner.start(this);
         AnimationManager.animateSky(this);
-        AudioManager.playBackgroundMusic(this);
-        this.playWhackAWord();
+        SceneryCompositor.attach(this);
+        // The static scenery is only composited on small screens (see the SceneryCompositor class)
+        PositiveFeedbackAnimationManager.prepareFeedbackEffects(this);
+
+        if (!StressMode.isOn && GameStateSnapshot.restore(this, savedInstanceState))
+        {
+            AudioManager.playBackgroundMusic(this, GameStateSnapshot.backgroundMusicPosition);
+            PlayfieldTouchDispatcher.attach(this);
+            GameLogic.start(this);
+            GameLogic.resumeGame();
+        }
+        else
+        {
+            Collections.initialiseCollections();
+            LevelProperties.initialiseLevelProperties();
+            AnimationManager.initialiseAnimationProperties();
+
+            AudioManager.playBackgroundMusic(this, 0);
+            PlayfieldTouchDispatcher.attach(this);
+            GameLogic.start(this);
+            GameLogic.newGame();
+        }
+        // The game logic thread is only started once the state of the game has been initialised or restored,
+        // and calls the playWhackAWord or resumeWhackAWord method once it has published the first round
+
+    }
+
+    /**
+     * Helper method that stores the input mode and hit slop given by the intent's extras (if any)
+     * as the input settings of the profile in use, keeping whichever of the two isn't given.
+     * An unknown input mode is logged and ignored, keeping the stored input mode,
+     * since the activity is exported and so can be started with any extras
+     */
+    private void storeInputSettingsFromIntent()
+    {
+        Intent intent = this.getIntent();
+
+        if (intent.hasExtra(EXTRA_INPUT_MODE) || intent.hasExtra(EXTRA_HIT_SLOP_IN_DP))
+        {
+            int inputMode = intent.getIntExtra(EXTRA_INPUT_MODE, InputSettings.inputMode);
+
+            if (!InputSettings.isKnownInputMode(inputMode))
+            {
+                Log.w(TAG, "Unknown input mode " + inputMode + ", keeping the "
+                        + InputSettings.getInputModeName(InputSettings.inputMode) + " mode");
+                inputMode = InputSettings.inputMode;
+            }
+
+            InputSettings.save(this, InputSettings.profileName, inputMode,
+                    intent.getIntExtra(EXTRA_HIT_SLOP_IN_DP, InputSettings.hitSlopInDp));
+        }
+
+    }
+
+    /**
+     * Helper method that stores the minimum pacing given by the intent's extra (if any)
+     * as the minimum pacing of the profile in use
+     */
+    private void storePacingFromIntent()
+    {
+        Intent intent = this.getIntent();
+
+        if (intent.hasExtra(EXTRA_MINIMUM_TIME_BEFORE_POP_UP))
+        {
+            RoundSequencer.savePacing(this, InputSettings.profileName, intent.getIntExtra(EXTRA_MINIMUM_TIME_BEFORE_POP_UP, RoundSequencer.minimumTimeBeforePopUp));
+        }
+
+    }
+
+    /**
+     * Handles a change of the size or orientation of the activity
+     * (as declared via the configChanges attribute in the AndroidManifest file)
+     * by relaying out the playfield in place,
+     * so that the game carries on without the activity being recreated
+     * and the animations and audio keep running throughout
+     */
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig)
+    {
+        super.onConfigurationChanged(newConfig);
+        PlayfieldRelayout.relayout(this);
+    }
+
+    /**
+     * Saves a snapshot of the game state,
+     * both into outState and into the snapshot file,
+     * so that the game can be resumed if the activity is recreated,
+     * unless the game is played in stress mode
+     */
+    @Override
+    protected void onSaveInstanceState(Bundle outState)
+    {
+        super.onSaveInstanceState(outState);
+
+        if (!StressMode.isOn)
+        {
+            GameStateSnapshot.save(this, outState);
+        }
+
+    }
+
+    /**
+     * Releases the game's resources,
+     * keeping the sound pool and background music resident
+     * if the activity is only being recreated because of a configuration change
+     */
+    @Override
+    protected void onDestroy()
+    {
+        ResourceManager.releaseResources(this, this.isChangingConfigurations());
+        super.onDestroy();
+    }
+
+    /**
+     * Records every interaction of the user with the game,
+     * which resumes decorative animation if it was suspended because the game was idle
+     */
+    @Override
+    public void onUserInteraction()
+    {
+        super.onUserInteraction();
+        QualityTierController.onUserInteraction();
+    }
+
+    /**
+     * Resumes the game's resources (music, sound effects, animations and scheduled tasks)
+     * if they were paused when the activity was stopped
+     */
+    @Override
+    protected void onStart()
+    {
+        super.onStart();
+        ResourceManager.resumeResources();
+    }
+
+    /**
+     * Pauses the game's resources while the activity is not visible,
+     * and asks the session event log to write its pending events to storage,
+     * since the process may be killed at any time after the activity is stopped.
+     * Also logs the input latency report in debuggable builds
+     */
+    @Override
+    protected void onStop()
+    {
+        ResourceManager.pauseResources();
+        SessionEventLog.flush();
+        InputLatencyTracker.logReport(this);
+        super.onStop();
+    }
+
+    /**
+     * Prints the live state of the game and every metric
+     * when the activity is dumped (via adb shell dumpsys activity com.example.whackaword),
+     * so that a misbehaving device can be inspected in the field:
+     *
+     * - the level, the number of cards to display and the count of successful taps
+     * - the round, i.e. which food item is on which card and which is correct
+     *   (from the latest snapshot published by the game logic thread)
+     * - the pop-up times and whether a card was tapped on time in each
+     * - the input settings, the quality tier and the estimated audio output latency
+     * - the statistics of stress mode, if it is on (see the StressMode class)
+     * - the metrics in the MetricsRegistry class
+     * - the learning statistics of each vocabulary item in the VocabularyStatistics class
+     * - the resource report, including the delayed tasks that are pending
+     * - the input latency report
+     */
+    @Override
+    public void dump(@NonNull String prefix, @Nullable FileDescriptor fd, @NonNull PrintWriter writer, @Nullable String[] args)
+    {
+        super.dump(prefix, fd, writer, args);
+
+        String innerPrefix = prefix + "  ";
+
+        writer.print(prefix);
+        writer.println("Whack-A-Word:");
+        writer.print(innerPrefix);
+        RoundSnapshot roundSnapshot = GameLogic.getLatestRoundSnapshot();
+
+        if (roundSnapshot != null)
+        {
+            writer.println("Level " + roundSnapshot.getLevel() + ", " + roundSnapshot.getNumberOfCardsToDisplay() + " card(s) to display, " + roundSnapshot.getCountOfSuccessfulTaps() + " successful tap(s)");
+            writer.print(innerPrefix);
+            writer.println("Round (snapshot " + roundSnapshot.getVersion() + ", correct food item " + roundSnapshot.getCorrectFoodItem().getName() + "):");
+
+            for (int i = 0; i < roundSnapshot.getFoodItems().size(); i++)
+            {
+                writer.print(innerPrefix);
+                writer.println("  " + roundSnapshot.getFoodItems().get(i).getName() + " on " + this.getResources().getResourceEntryName(roundSnapshot.getFoodCards().get(i).getID()));
+            }
+
+            writer.print(innerPrefix);
+            writer.println("Correctly tapped food items: " + roundSnapshot.getCorrectlyTappedFoodItems().size());
+            writer.print(innerPrefix);
+            writer.println("Pop-up times (tapped on time): " + Collections.mapOfPopUpTimesToWhetherACardHasBeenTappedOnTime);
+        }
+        else
+        {
+            writer.println("No round has been published yet");
+        }
+
+        writer.print(innerPrefix);
+        writer.println("Pop-up being managed: " + AnimationManager.popUpBeingManaged + " of " + AnimationManager.numberOfPopUpTimes);
+        writer.print(innerPrefix);
+        writer.println("Input mode: " + InputSettings.getInputModeName(InputSettings.inputMode) + " (profile " + InputSettings.profileName + ", hit slop " + InputSettings.hitSlopInDp + "dp, minimum pacing " + RoundSequencer.minimumTimeBeforePopUp + "ms)");
+        writer.print(innerPrefix);
+        writer.println("Quality tier: " + QualityTierController.qualityTier);
+        writer.print(innerPrefix);
+        writer.println("Audio output latency: " + AudioLatencyEstimator.getOutputLatency() + "ms");
+        writer.print(innerPrefix);
+        writer.println("Audio clips with measured timings: " + AudioClipManifest.getNumberOfClips());
+        writer.print(innerPrefix);
+        writer.println("Dropped session events: " + SessionEventLog.numberOfDroppedEvents);
+
+        StressMode.dump(innerPrefix, writer);
+        MetricsRegistry.dump(innerPrefix, writer);
+        VocabularyStatistics.dump(innerPrefix, writer);
+
+        for (String line : (ResourceManager.getDebugReport() + InputLatencyTracker.getReport()).split("\n"))
+        {
+            writer.print(innerPrefix);
+            writer.println(line);
+        }
+
+    }
+
+    /**
+     * Getter for the views of the playfield of the activity
+     */
+    public PlayfieldViews getPlayfieldViews()
+    {
+        return this.playfieldViews;
     }
 
     /**
      * Plays Whack-A-Word:
      *
-     * Causes food cards to pop up,
-     * plays the correct audio,
-     * and sets click listeners for the food cards
+     * Causes the food cards of the round that has just been rendered to pop up
+     * (arming them so that they can be tapped)
+     * and plays the correct audio if the food items are new,
+     * each as soon as it is ready to (see the RoundSequencer class).
+     * The round has already been selected, and the rounds that follow it planned,
+     * on the game logic thread
      */
     public void playWhackAWord()
     {
-        Selector.selectFoodCardsForDisplay();
-        AnimationManager.cardsPopUp(this);
+        RoundSnapshot roundSnapshot = GameLogic.getRenderedRoundSnapshot();
 
-        if (Selector.thereAreNewFoodItems)
+        AnimationManager.cardsPopUp(this, roundSnapshot);
+
+        if (roundSnapshot.hasNewFoodItems())
         {
-            Selector.setCorrectFoodItem();
-            AudioManager.playAudioSequentially(this, Selector.correctFoodItem.getAudioID());
+            GameEventPipeline.publish(GameEvent.TYPE_ROUND_PLANNED, roundSnapshot.getCorrectFoodItem()).setFlag(roundSnapshot.wasPlanned());
+            AudioManager.playAudioSequentially(this, roundSnapshot.getCorrectFoodItem().getAudioID());
         }
 
-        TapManager.setClickListeners(this);
     }
 
     /**
-     * Initialises the properties of the next level if the user has reached it.
-     * If the user has won, plays the 'well done' audio and hides the cards upon audio completion.
-     * If the user hasn't won, hides the cards and plays Whack-A-Word again
+     * Resumes Whack-A-Word from a restored game state:
+     *
+     * Causes the food cards of the restored round to pop up again
+     * for the time that remained of their pop-up duration limit,
+     * arming them so that they can be tapped,
+     * and plays the audio of the correct food item again
      */
-    public static void continuePlaying(WhackAWordActivity aWhackAWordActivity)
+    public void resumeWhackAWord()
     {
-        if (LevelProperties.userHasReachedTheNextLevel())
+        RoundSnapshot roundSnapshot = GameLogic.getRenderedRoundSnapshot();
+
+        AnimationManager.cardsPopUp(this, roundSnapshot, GameStateSnapshot.remainingPopUpDuration);
+        AudioManager.playAudioSequentially(this, roundSnapshot.getCorrectFoodItem().getAudioID());
+    }
+
+    /**
+     * Renders the outcome of a correct tap, which the game logic thread has evaluated:
+     * publishes a level up if the user has reached the next level.
+     * If the user has won, plays the 'well done' audio and hides the cards of aPreviousRoundSnapshot upon audio completion.
+     * If the user hasn't won, hides the cards of aPreviousRoundSnapshot and plays Whack-A-Word again
+     */
+    public static void continuePlaying(WhackAWordActivity aWhackAWordActivity, RoundSnapshot aPreviousRoundSnapshot)
+    {
+        RoundSnapshot roundSnapshot = GameLogic.getRenderedRoundSnapshot();
+
+        if (roundSnapshot.userHasReachedTheNextLevel())
         {
-            LevelProperties.setNextLevelProperties();
+            GameEventPipeline.publish(GameEvent.TYPE_LEVEL_UP, null);
         }
 
-        if (LevelProperties.userWins())
+        if (roundSnapshot.userWins())
         {
-            AudioCompletionListener audioCompletionListener = () -> AnimationManager.hideCards(aWhackAWordActivity);
+            GameEventPipeline.publish(GameEvent.TYPE_WON, null);
+            GameStateSnapshot.deleteSnapshotFile(aWhackAWordActivity);
+
+            AudioCompletionListener audioCompletionListener = () ->
+            {
+                AnimationManager.hideCards(aWhackAWordActivity, aPreviousRoundSnapshot);
+                QualityTierController.suspendDecorativeAnimation();
+            };
 
             AudioManager.playAudioSequentially(aWhackAWordActivity, R.raw.well_done, audioCompletionListener);
         }
         else
         {
-            AnimationManager.hideCards(aWhackAWordActivity);
-            Collections.availableFoodItems = new ArrayList<>(Collections.foodItems);
-            Collections.mapOfFoodItemsToTheirFoodCards = new HashMap<>();
-            Selector.thereAreNewFoodItems = true;
+            AnimationManager.hideCards(aWhackAWordActivity, aPreviousRoundSnapshot);
             aWhackAWordActivity.playWhackAWord();
         }
 
     }
 
     /**
-     * Causes cards to hide and pop up again
+     * Renders the outcome of an incorrect tap or a timeout, which the game logic thread has evaluated:
+     * causes the cards of aPreviousRoundSnapshot to hide
+     * and the same food items to pop up again on random cards
      */
-    public static void tryAgain(WhackAWordActivity aWhackAWordActivity)
+    public static void tryAgain(WhackAWordActivity aWhackAWordActivity, RoundSnapshot aPreviousRoundSnapshot)
     {
-        AnimationManager.hideCards(aWhackAWordActivity);
-
-        Collections.mapOfFoodItemsToTheirFoodCards.replaceAll(((foodItem, hiddenFoodCard) -> null));
-        // Keeps all FoodItem keys in the map while setting all their FoodCard values to null
-        // since those food items need to be displayed again
-        // on food cards which are not yet determined
-
-        Selector.thereAreNewFoodItems = false;
-
+        AnimationManager.hideCards(aWhackAWordActivity, aPreviousRoundSnapshot);
         aWhackAWordActivity.playWhackAWord();
     }
 
-}
\ No newline at end of file
+}
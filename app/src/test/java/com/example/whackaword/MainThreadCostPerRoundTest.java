@@ -0,0 +1,382 @@
+package com.example.whackaword;
+
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadows.ShadowChoreographer;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.ShadowMediaPlayer;
+import org.robolectric.shadows.ShadowSystemClock;
+import org.robolectric.shadows.util.DataSource;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Local test that plays complete games of Whack-A-Word under Robolectric
+ * with a paused main looper and a virtual clock,
+ * and checks how much work the main thread does for each round
+ *
+ * Each round is driven through the playfield's touch listener (for correct and incorrect taps)
+ * or by letting the pop-up duration limit run out (for timeouts),
+ * and the main looper is then run task by task, advancing the virtual clock to each task,
+ * so that several seconds of gameplay take milliseconds of wall time.
+ * Before each task, the game logic thread is left to evaluate any events sent to it,
+ * so that the rounds it publishes are rendered in the same order as on a device.
+ *
+ * For each round, the following are recorded:
+ *
+ * - the number of tasks that the main looper runs (including animation frames)
+ * - the number of delayed callbacks that the game posts (via the ResourceManager class)
+ * - the number of bytes allocated on the main thread
+ *
+ * and each is asserted against a budget for that type of round,
+ * so that a regression in the hot paths of the game fails the build without a device.
+ * The budgets are the counts measured for each type of round plus a small margin
+ * (since Robolectric's own shadows also run and allocate on the main thread, a little differently each time),
+ * so that a round which runs or allocates twice as much fails
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class MainThreadCostPerRoundTest
+{
+    private static final int FRAME_INTERVAL = 16;
+    // Frames are produced every sixteen milliseconds, i.e. at about 60Hz
+
+    private static final int TIME_UNTIL_CARDS_ARE_UP = 2500;
+    // Robolectric's sound pool never reports the pop-up sound effect as loaded,
+    // so the cards wait for the minimum pacing and then for the pop-up sound effect for as long as they may
+    // (see the RoundSequencer class) and finish popping up 2350 milliseconds after a round starts,
+    // so they are tapped after two and a half seconds (2500 milliseconds)
+
+    private static final int TIME_UNTIL_NEXT_ROUND_IS_UP = 3000;
+    // After a tap, the cards hide and the next ones finish popping up
+    // within three seconds (3000 milliseconds)
+
+    private static final int MEDIA_DURATION = 1000;
+    // Every audio file is treated as lasting a second (1000 milliseconds)
+
+    private static final int BACKGROUND_MUSIC_DURATION = 10 * 60 * 1000;
+    // except the background music, which is treated as lasting ten minutes (600000 milliseconds),
+    // since Robolectric's media player re-posts its playback events without end once a looping audio file wraps,
+    // which would swamp the main looper with tasks that a device never runs
+
+    private static final int CORRECT_TAP_TASK_BUDGET = 190;
+    // Frames are only produced while something is animating, so a correct tap runs 158 to 162 tasks
+    private static final int WINNING_TAP_TASK_BUDGET = 340;
+    // The correct tap that wins the game runs 292 tasks, since the positive feedback is longer
+    private static final int INCORRECT_TAP_TASK_BUDGET = 110;
+    private static final int TIMEOUT_TASK_BUDGET = 110;
+    // An incorrect tap or a timeout runs 88 to 91 tasks
+
+    private static final int CORRECT_TAP_CALLBACK_BUDGET = 10;
+    // A correct tap posts 8 callbacks: tick sound, hide sound, minimum pacing, wait for the pop-up sound effect,
+    // start of the word, pop-up duration limit and two background music volume changes, with headroom for two more
+    private static final int INCORRECT_TAP_CALLBACK_BUDGET = 6;
+    // An incorrect tap posts 5 callbacks: hide sound, minimum pacing, wait for the pop-up sound effect,
+    // start of the word and pop-up duration limit, with headroom for one more
+    private static final int TIMEOUT_CALLBACK_BUDGET = 6;
+    // A timeout also posts 5 callbacks, since it also tries again
+    private static final int WINNING_TAP_CALLBACK_BUDGET = 3;
+    // The correct tap that wins the game posts 2 callbacks, since no round follows it, with headroom for one more
+
+    private static final long CORRECT_TAP_ALLOCATION_BUDGET = 2400 * 1024;
+    // A correct tap allocates 1.5 to 1.9 mebibytes, mostly in Robolectric's shadows of the animation frames
+    private static final long INCORRECT_TAP_ALLOCATION_BUDGET = 1024 * 1024;
+    // An incorrect tap allocates 0.6 to 0.8 mebibytes
+    private static final long TIMEOUT_ALLOCATION_BUDGET = 512 * 1024;
+    // A timeout allocates about 0.4 mebibytes
+
+    private static final long CLASS_LOADING_ALLOCATION_ALLOWANCE = 6 * 1024 * 1024;
+    // The first round of each type measured in the test process also loads and initialises the classes
+    // of the code paths that it runs, which allocates up to about 4.8 mebibytes more, once only
+    private static final Set<String> typesOfRoundsMeasured = new HashSet<>();
+
+    private ActivityController<WhackAWordActivity> activityController;
+    private WhackAWordActivity whackAWordActivity;
+    private ShadowLooper mainLooper;
+    private int numberOfTasksRun;
+
+    @Before
+    public void setUp() throws IllegalAccessException
+    {
+        ShadowChoreographer.setFrameDelay(Duration.ofMillis(FRAME_INTERVAL));
+
+        for (Field field : R.raw.class.getFields())
+        {
+            int audioID = field.getInt(null);
+            int mediaDuration = audioID == R.raw.background_music ? BACKGROUND_MUSIC_DURATION : MEDIA_DURATION;
+            DataSource dataSource = DataSource.toDataSource("android.resource://com.example.whackaword/" + audioID);
+            ShadowMediaPlayer.addMediaInfo(dataSource, new ShadowMediaPlayer.MediaInfo(mediaDuration, 0));
+        }
+        // The media players of the game are given their audio files as android.resource:// URIs
+        // (whether by MediaPlayer.create or by setDataSource and prepareAsync in the AudioManager class),
+        // and Robolectric only plays a URI that has been given a duration, so that its completion listener is called
+
+        this.mainLooper = shadowOf(Looper.getMainLooper());
+        this.activityController = Robolectric.buildActivity(WhackAWordActivity.class).setup();
+        this.whackAWordActivity = this.activityController.get();
+
+        this.runFor(TIME_UNTIL_CARDS_ARE_UP);
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.activityController.pause().stop().destroy();
+    }
+
+    @Test
+    public void correctTaps_stayWithinBudget()
+    {
+        for (int round = 0; round < LevelProperties.REQUIRED_NUMBER_OF_SUCCESSFUL_TAPS_PER_LEVEL; round++)
+        {
+            RoundCost roundCost = this.measureRound(() -> this.tapFoodCard(this.getCorrectFoodCard()), TIME_UNTIL_NEXT_ROUND_IS_UP);
+
+            roundCost.assertWithinBudget("correct tap", CORRECT_TAP_TASK_BUDGET, CORRECT_TAP_CALLBACK_BUDGET, CORRECT_TAP_ALLOCATION_BUDGET);
+        }
+
+    }
+
+    @Test
+    public void incorrectTaps_stayWithinBudget()
+    {
+        for (int round = 0; round < LevelProperties.REQUIRED_NUMBER_OF_SUCCESSFUL_TAPS_PER_LEVEL; round++)
+        {
+            this.tapFoodCard(this.getCorrectFoodCard());
+            this.runFor(TIME_UNTIL_NEXT_ROUND_IS_UP);
+        }
+        // Incorrect food cards only pop up from the second level onwards
+
+        for (int round = 0; round < 3; round++)
+        {
+            RoundCost roundCost = this.measureRound(() -> this.tapFoodCard(this.getIncorrectFoodCard()), TIME_UNTIL_NEXT_ROUND_IS_UP);
+
+            roundCost.assertWithinBudget("incorrect tap", INCORRECT_TAP_TASK_BUDGET, INCORRECT_TAP_CALLBACK_BUDGET, INCORRECT_TAP_ALLOCATION_BUDGET);
+        }
+
+    }
+
+    @Test
+    public void timeouts_stayWithinBudget()
+    {
+        for (int round = 0; round < 3; round++)
+        {
+            long timeUntilTimeout = AnimationManager.timeOfLatestPopUp + AnimationManager.POP_UP_DURATION_LIMIT - SystemClock.uptimeMillis();
+            RoundCost roundCost = this.measureRound(() -> { }, timeUntilTimeout + TIME_UNTIL_CARDS_ARE_UP);
+
+            roundCost.assertWithinBudget("timeout", TIMEOUT_TASK_BUDGET, TIMEOUT_CALLBACK_BUDGET, TIMEOUT_ALLOCATION_BUDGET);
+        }
+
+    }
+
+    @Test
+    public void completeGame_isWonWithinBudget()
+    {
+        int numberOfCorrectTapsToWin = LevelProperties.LAST_LEVEL * LevelProperties.REQUIRED_NUMBER_OF_SUCCESSFUL_TAPS_PER_LEVEL;
+
+        for (int round = 0; round < numberOfCorrectTapsToWin; round++)
+        {
+            if (round % 2 == 1 && GameLogic.getLatestRoundSnapshot().getFoodCards().size() > 1)
+            {
+                RoundCost roundCost = this.measureRound(() -> this.tapFoodCard(this.getIncorrectFoodCard()), TIME_UNTIL_NEXT_ROUND_IS_UP);
+                roundCost.assertWithinBudget("incorrect tap", INCORRECT_TAP_TASK_BUDGET, INCORRECT_TAP_CALLBACK_BUDGET, INCORRECT_TAP_ALLOCATION_BUDGET);
+            }
+
+            RoundCost roundCost = this.measureRound(() -> this.tapFoodCard(this.getCorrectFoodCard()), TIME_UNTIL_NEXT_ROUND_IS_UP);
+
+            if (round == numberOfCorrectTapsToWin - 1)
+            {
+                roundCost.assertWithinBudget("winning tap", WINNING_TAP_TASK_BUDGET, WINNING_TAP_CALLBACK_BUDGET, CORRECT_TAP_ALLOCATION_BUDGET);
+            }
+            else
+            {
+                roundCost.assertWithinBudget("correct tap", CORRECT_TAP_TASK_BUDGET, CORRECT_TAP_CALLBACK_BUDGET, CORRECT_TAP_ALLOCATION_BUDGET);
+            }
+
+        }
+
+        assertTrue("The game should be won after " + numberOfCorrectTapsToWin + " correct taps", GameLogic.getLatestRoundSnapshot().userWins());
+    }
+
+    /**
+     * Performs action, then runs the main looper for duration milliseconds of virtual time,
+     * and returns what the main thread did in that time
+     */
+    private RoundCost measureRound(Runnable action, long duration)
+    {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadID = Thread.currentThread().getId();
+
+        int tasksBefore = this.numberOfTasksRun;
+        long callbacksBefore = MetricsRegistry.getCounter(MetricsRegistry.COUNTER_TASKS_POSTED);
+        long allocatedBytesBefore = threadMXBean.getThreadAllocatedBytes(threadID);
+
+        action.run();
+        this.runFor(duration);
+
+        return new RoundCost(
+                this.numberOfTasksRun - tasksBefore,
+                MetricsRegistry.getCounter(MetricsRegistry.COUNTER_TASKS_POSTED) - callbacksBefore,
+                threadMXBean.getThreadAllocatedBytes(threadID) - allocatedBytesBefore);
+    }
+
+    /**
+     * Runs the main looper one task at a time for duration milliseconds of virtual time,
+     * advancing the virtual clock to each task when it is due, and counts the tasks
+     */
+    private void runFor(long duration)
+    {
+        long endTime = SystemClock.uptimeMillis() + duration;
+
+        while (true)
+        {
+            this.runGameLogic();
+
+            if (!this.mainLooper.isIdle())
+            {
+                this.mainLooper.runOneTask();
+                this.numberOfTasksRun++;
+                continue;
+            }
+
+            long nextTaskTime = this.mainLooper.getNextScheduledTaskTime().toMillis();
+
+            if (nextTaskTime == 0 || nextTaskTime > endTime)
+            {
+                break;
+            }
+
+            ShadowSystemClock.advanceBy(Duration.ofMillis(Math.max(0, nextTaskTime - SystemClock.uptimeMillis())));
+        }
+
+        ShadowSystemClock.advanceBy(Duration.ofMillis(Math.max(0, endTime - SystemClock.uptimeMillis())));
+    }
+
+    /**
+     * Taps aFoodCard by sending a touch down and up at its centre
+     * to the playfield, as it is currently translated
+     */
+    private void tapFoodCard(FoodCard aFoodCard)
+    {
+        View playfield = this.whackAWordActivity.findViewById(R.id.playfield);
+        View foodCardView = this.whackAWordActivity.findViewById(aFoodCard.getID());
+
+        float x = foodCardView.getLeft() + foodCardView.getWidth() / 2f;
+        float y = foodCardView.getTop() + foodCardView.getTranslationY() + foodCardView.getHeight() / 2f;
+        long downTime = SystemClock.uptimeMillis();
+
+        MotionEvent down = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, x, y, 0);
+        MotionEvent up = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_UP, x, y, 0);
+
+        playfield.dispatchTouchEvent(down);
+        playfield.dispatchTouchEvent(up);
+
+        down.recycle();
+        up.recycle();
+    }
+
+    /**
+     * Waits for the game logic thread to evaluate every event that has been sent to it,
+     * so that the rounds it publishes are posted to the main looper before it is checked for tasks.
+     * The game logic thread runs outside of the main looper, so its work is not counted
+     */
+    private void runGameLogic()
+    {
+        Looper gameLogicLooper = GameLogic.getLooper();
+
+        if (gameLogicLooper != null)
+        {
+            shadowOf(gameLogicLooper).idle();
+        }
+
+    }
+
+    /**
+     * Returns the food card that shows the correct food item
+     */
+    private FoodCard getCorrectFoodCard()
+    {
+        RoundSnapshot roundSnapshot = GameLogic.getLatestRoundSnapshot();
+        FoodCard correctFoodCard = roundSnapshot.getFoodCardOf(roundSnapshot.getCorrectFoodItem());
+        assertNotNull("The correct food item should be on a card", correctFoodCard);
+
+        return correctFoodCard;
+    }
+
+    /**
+     * Returns a food card that shows an incorrect food item
+     */
+    private FoodCard getIncorrectFoodCard()
+    {
+        RoundSnapshot roundSnapshot = GameLogic.getLatestRoundSnapshot();
+
+        for (int i = 0; i < roundSnapshot.getFoodItems().size(); i++)
+        {
+            if (roundSnapshot.getFoodItems().get(i) != roundSnapshot.getCorrectFoodItem())
+            {
+                return roundSnapshot.getFoodCards().get(i);
+            }
+
+        }
+
+        throw new AssertionError("An incorrect food item should be on a card");
+    }
+
+    /**
+     * An object of the RoundCost class represents the work that the main thread did in a round
+     */
+    private static class RoundCost
+    {
+        private final int numberOfTasks;
+        private final long numberOfPostedCallbacks;
+        private final long allocatedBytes;
+
+        /**
+         * Constructor for objects of the class RoundCost
+         */
+        RoundCost(int aNumberOfTasks, long aNumberOfPostedCallbacks, long anAllocatedBytes)
+        {
+            this.numberOfTasks = aNumberOfTasks;
+            this.numberOfPostedCallbacks = aNumberOfPostedCallbacks;
+            this.allocatedBytes = anAllocatedBytes;
+        }
+
+        /**
+         * Asserts that the round, which is of the type called roundType,
+         * stayed within the given budgets for tasks, posted callbacks and allocations
+         */
+        void assertWithinBudget(String roundType, int taskBudget, int postedCallbackBudget, long allocationBudget)
+        {
+            if (MainThreadCostPerRoundTest.typesOfRoundsMeasured.add(roundType))
+            {
+                allocationBudget += CLASS_LOADING_ALLOCATION_ALLOWANCE;
+            }
+
+            assertTrue(roundType + " ran " + this.numberOfTasks + " main thread tasks (budget " + taskBudget + ")", this.numberOfTasks <= taskBudget);
+            assertTrue(roundType + " posted " + this.numberOfPostedCallbacks + " callbacks (budget " + postedCallbackBudget + ")", this.numberOfPostedCallbacks <= postedCallbackBudget);
+            assertTrue(roundType + " allocated " + this.allocatedBytes + " bytes (budget " + allocationBudget + ")", this.allocatedBytes <= allocationBudget);
+        }
+
+    }
+
+}
@@ -0,0 +1,419 @@
+package com.example.whackaword;
+
+import android.content.Context;
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Local test that records events into the session event log under Robolectric
+ * and checks the files that it writes:
+ *
+ * - that each event is written as a record with a valid checksum
+ * - that a torn final record (e.g. from the death of the process) is overwritten when the log is reopened
+ * - that the log rotates to a new segment when a segment is full
+ * - that the segments of previous days are compacted into daily summaries,
+ *   that a segment which survives its compaction is not counted twice,
+ *   and that a record of an unknown type is not counted
+ *
+ * The writer thread is waited for after every batch of events.
+ * The game's classes read the real wall-clock time, so the segments of previous days
+ * are written by the test itself, in the same format, before the log is opened
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class SessionEventLogTest
+{
+    private static final int RECORD_SIZE = 32;
+    private static final int RECORDS_PER_SEGMENT = 4096;
+    private static final int RING_BUFFER_CAPACITY = 256;
+    private static final long MILLISECONDS_PER_DAY = 86400000L;
+    // The same as in the SessionEventLog class, whose file format is checked here
+
+    private static final int UNKNOWN_EVENT_TYPE = 9;
+
+    private static final int LEVEL = 2;
+    private static final int COUNT_OF_SUCCESSFUL_TAPS = 1;
+    private static final int POP_UP_NUMBER = 7;
+
+    private Context context;
+    private File logDirectory;
+    private FoodItem foodItem;
+    private RoundSnapshot roundSnapshot;
+    private final GameEvent gameEvent = new GameEvent();
+
+    @Before
+    public void setUp()
+    {
+        this.closeLog();
+        // In case an earlier test in the same sandbox left the log open
+
+        this.context = RuntimeEnvironment.getApplication();
+        this.logDirectory = new File(this.context.getFilesDir(), "session_events");
+
+        Collections.initialiseCollections();
+        this.foodItem = Collections.foodItems.iterator().next();
+
+        LevelProperties.currentLevel = LEVEL;
+        LevelProperties.countOfSuccessfulTaps = COUNT_OF_SUCCESSFUL_TAPS;
+        Selector.correctFoodItem = this.foodItem;
+        AnimationManager.numberOfPopUpTimes = POP_UP_NUMBER;
+        this.roundSnapshot = new RoundSnapshot(1, RoundSnapshot.OUTCOME_NEW_GAME, false, false);
+
+        this.openLog();
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.closeLog();
+    }
+
+    @Test
+    public void recordedEvent_isWrittenAsAChecksummedRecord() throws IOException
+    {
+        this.recordEvents(SessionEventLog.EVENT_TYPE_CORRECT_TAP, 1);
+        long timeOfEvent = this.gameEvent.getTimeOfEvent();
+        this.closeLog();
+
+        File[] segmentFiles = this.listSegmentFiles();
+        assertEquals("One segment should have been created", 1, segmentFiles.length);
+
+        ByteBuffer segment = this.readFile(segmentFiles[0]);
+        assertEquals("The segment should have its full size", RECORD_SIZE * RECORDS_PER_SEGMENT, segment.capacity());
+        assertEquals(SessionEventLog.EVENT_TYPE_CORRECT_TAP, segment.getInt(0));
+        assertEquals(timeOfEvent, segment.getLong(4));
+        assertEquals(LEVEL, segment.getInt(12));
+        assertEquals(this.foodItem.getName().hashCode(), segment.getInt(16));
+        assertEquals(POP_UP_NUMBER, segment.getInt(20));
+        assertEquals(COUNT_OF_SUCCESSFUL_TAPS, segment.getInt(24));
+        assertTrue("The record should have a valid checksum", this.recordIsValid(segment, 0));
+        assertEquals("Nothing should be written after the record", 0, segment.getInt(RECORD_SIZE));
+    }
+
+    @Test
+    public void tornFinalRecord_isOverwrittenWhenTheLogIsReopened() throws IOException
+    {
+        this.recordEvents(SessionEventLog.EVENT_TYPE_CORRECT_TAP, 3);
+        this.closeLog();
+
+        File segmentFile = this.listSegmentFiles()[0];
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(segmentFile, "rw"))
+        {
+            randomAccessFile.seek(2 * RECORD_SIZE + 20);
+            randomAccessFile.write(new byte[RECORD_SIZE - 20]);
+        }
+        // Tears the third record by zeroing everything after its first 20 bytes,
+        // as if the process had died while it was being written
+
+        this.openLog();
+        this.recordEvents(SessionEventLog.EVENT_TYPE_TIMEOUT, 1);
+        this.closeLog();
+
+        ByteBuffer segment = this.readFile(segmentFile);
+        assertTrue(this.recordIsValid(segment, 0));
+        assertTrue(this.recordIsValid(segment, RECORD_SIZE));
+        assertEquals("The torn record should have been overwritten", SessionEventLog.EVENT_TYPE_TIMEOUT, segment.getInt(2 * RECORD_SIZE));
+        assertTrue(this.recordIsValid(segment, 2 * RECORD_SIZE));
+        assertEquals("Nothing should be written after the new record", 0, segment.getInt(3 * RECORD_SIZE));
+    }
+
+    @Test
+    public void fullSegment_rotatesToTheNextSegmentOfTheDay() throws IOException
+    {
+        this.recordEvents(SessionEventLog.EVENT_TYPE_POP_UP, RECORDS_PER_SEGMENT + 1);
+
+        File[] segmentFiles = this.listSegmentFiles();
+        assertEquals("A full segment should rotate to the next segment of the day", 2, segmentFiles.length);
+        assertEquals(this.getDayOfSegment(segmentFiles[0]), this.getDayOfSegment(segmentFiles[1]));
+        assertTrue(segmentFiles[0].getName().endsWith("_0.log"));
+        assertTrue(segmentFiles[1].getName().endsWith("_1.log"));
+        assertEquals(RECORDS_PER_SEGMENT, this.countValidRecords(segmentFiles[0]));
+        assertEquals(1, this.countValidRecords(segmentFiles[1]));
+    }
+
+    @Test
+    public void segmentsOfPreviousDays_areCompactedIntoDailySummaries() throws IOException
+    {
+        this.closeLog();
+
+        long timeYesterday = System.currentTimeMillis() - MILLISECONDS_PER_DAY;
+        long yesterday = this.getDay(timeYesterday);
+        File segmentFile = this.writeSegment(yesterday, 0, timeYesterday,
+                SessionEventLog.EVENT_TYPE_CORRECT_TAP, SessionEventLog.EVENT_TYPE_CORRECT_TAP, SessionEventLog.EVENT_TYPE_CORRECT_TAP,
+                SessionEventLog.EVENT_TYPE_INCORRECT_TAP, SessionEventLog.EVENT_TYPE_INCORRECT_TAP, SessionEventLog.EVENT_TYPE_TIMEOUT);
+        File secondSegmentFile = this.writeSegment(yesterday, 1, timeYesterday, SessionEventLog.EVENT_TYPE_WIN);
+
+        this.openLog();
+
+        assertFalse("The compacted segments should have been deleted", segmentFile.exists() || secondSegmentFile.exists());
+
+        TreeMap<Long, int[]> mapOfDaysToTheirCountsOfEvents = this.readDailySummaries();
+        assertEquals(1, mapOfDaysToTheirCountsOfEvents.size());
+        assertArrayEquals(new int[] {0, 3, 2, 1, 0, 1}, mapOfDaysToTheirCountsOfEvents.get(yesterday));
+    }
+
+    @Test
+    public void segmentThatSurvivesItsCompaction_isNotCountedTwice() throws IOException
+    {
+        this.closeLog();
+
+        long timeYesterday = System.currentTimeMillis() - MILLISECONDS_PER_DAY;
+        long yesterday = this.getDay(timeYesterday);
+        File segmentFile = this.writeSegment(yesterday, 0, timeYesterday,
+                SessionEventLog.EVENT_TYPE_CORRECT_TAP, SessionEventLog.EVENT_TYPE_CORRECT_TAP);
+
+        this.openLog();
+        this.closeLog();
+
+        this.writeSegment(yesterday, 0, timeYesterday, SessionEventLog.EVENT_TYPE_CORRECT_TAP, SessionEventLog.EVENT_TYPE_CORRECT_TAP);
+        // As if the segment could not be deleted after the summaries that count it were written
+
+        this.openLog();
+
+        assertFalse("The surviving segment should have been deleted", segmentFile.exists());
+        assertArrayEquals(new int[] {0, 2, 0, 0, 0, 0}, this.readDailySummaries().get(yesterday));
+    }
+
+    @Test
+    public void recordOfUnknownType_isNotCounted() throws IOException
+    {
+        this.closeLog();
+
+        long timeYesterday = System.currentTimeMillis() - MILLISECONDS_PER_DAY;
+        long yesterday = this.getDay(timeYesterday);
+        this.writeSegment(yesterday, 0, timeYesterday, SessionEventLog.EVENT_TYPE_POP_UP, UNKNOWN_EVENT_TYPE, SessionEventLog.EVENT_TYPE_POP_UP);
+        // The record of the unknown type has a valid checksum, so only its type shows that it can't be counted
+
+        this.openLog();
+
+        assertArrayEquals("Only the records before the unknown one should be counted",
+                new int[] {1, 0, 0, 0, 0, 0}, this.readDailySummaries().get(yesterday));
+    }
+
+    /**
+     * Opens the log and waits for the writer thread to open the latest segment
+     * (and to compact the segments of previous days)
+     */
+    private void openLog()
+    {
+        SessionEventLog.open(this.context);
+        this.waitForWriterThread();
+    }
+
+    /**
+     * Closes the log, if it is open, and waits for the writer thread to finish
+     */
+    private void closeLog()
+    {
+        Looper writerLooper = SessionEventLog.getLooper();
+
+        if (writerLooper == null)
+        {
+            return;
+        }
+
+        SessionEventLog.close();
+
+        try
+        {
+            writerLooper.getThread().join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+    }
+
+    /**
+     * Records numberOfEvents events of the given type, concerning foodItem,
+     * and waits for the writer thread to write them.
+     * The writer thread is waited for whenever the ring buffer is full,
+     * so that no event is dropped
+     */
+    private void recordEvents(int eventType, int numberOfEvents)
+    {
+        for (int i = 1; i <= numberOfEvents; i++)
+        {
+            this.gameEvent.reset(GameEvent.TYPE_TAPPED, this.foodItem, this.roundSnapshot);
+            SessionEventLog.recordEvent(eventType, this.gameEvent);
+
+            if (i % RING_BUFFER_CAPACITY == 0)
+            {
+                this.waitForWriterThread();
+            }
+
+        }
+
+        this.waitForWriterThread();
+        assertEquals("No event should have been dropped", 0, SessionEventLog.numberOfDroppedEvents);
+    }
+
+    /**
+     * Asks the writer thread to write every pending event and waits for it to do so
+     */
+    private void waitForWriterThread()
+    {
+        SessionEventLog.flush();
+        shadowOf(SessionEventLog.getLooper()).idle();
+    }
+
+    /**
+     * Returns every segment file in the log directory, sorted by name
+     */
+    private File[] listSegmentFiles()
+    {
+        File[] segmentFiles = this.logDirectory.listFiles((directory, name) -> name.startsWith("segment_"));
+        assertTrue("The log directory should exist", segmentFiles != null);
+        Arrays.sort(segmentFiles);
+
+        return segmentFiles;
+    }
+
+    /**
+     * Writes the segment file of the given day and sequence number,
+     * with one valid record of each of the given event types, all at timeOfEvents,
+     * as the writer thread would have written it on that day.
+     * Returns the segment file
+     */
+    private File writeSegment(long day, int sequenceNumber, long timeOfEvents, int... eventTypes) throws IOException
+    {
+        assertTrue("The log directory should exist", this.logDirectory.isDirectory() || this.logDirectory.mkdirs());
+        File segmentFile = new File(this.logDirectory, "segment_" + day + "_" + sequenceNumber + ".log");
+        ByteBuffer segment = ByteBuffer.allocate(RECORD_SIZE * eventTypes.length);
+        CRC32 crc32 = new CRC32();
+
+        for (int eventType : eventTypes)
+        {
+            int offset = segment.position();
+            segment.putInt(eventType);
+            segment.putLong(timeOfEvents);
+            segment.putInt(LEVEL);
+            segment.putInt(this.foodItem.getName().hashCode());
+            segment.putInt(POP_UP_NUMBER);
+            segment.putInt(COUNT_OF_SUCCESSFUL_TAPS);
+
+            crc32.reset();
+            crc32.update(segment.array(), offset, RECORD_SIZE - 4);
+            segment.putInt((int) crc32.getValue());
+        }
+
+        Files.write(segmentFile.toPath(), segment.array());
+
+        return segmentFile;
+    }
+
+    /**
+     * Returns the day (in the default time zone) of the given time,
+     * in the same way as the SessionEventLog class names its segments
+     */
+    private long getDay(long timeInMilliseconds)
+    {
+        return (timeInMilliseconds + TimeZone.getDefault().getOffset(timeInMilliseconds)) / MILLISECONDS_PER_DAY;
+    }
+
+    /**
+     * Returns the day in the name of aSegmentFile
+     */
+    private long getDayOfSegment(File aSegmentFile)
+    {
+        String name = aSegmentFile.getName();
+
+        return Long.parseLong(name.substring("segment_".length(), name.lastIndexOf('_')));
+    }
+
+    /**
+     * Returns the contents of aFile
+     */
+    private ByteBuffer readFile(File aFile) throws IOException
+    {
+        return ByteBuffer.wrap(Files.readAllBytes(aFile.toPath()));
+    }
+
+    /**
+     * Returns the number of consecutive valid records at the start of aSegmentFile
+     */
+    private int countValidRecords(File aSegmentFile) throws IOException
+    {
+        ByteBuffer segment = this.readFile(aSegmentFile);
+        int numberOfValidRecords = 0;
+
+        while ((numberOfValidRecords + 1) * RECORD_SIZE <= segment.capacity() && this.recordIsValid(segment, numberOfValidRecords * RECORD_SIZE))
+        {
+            numberOfValidRecords++;
+        }
+
+        return numberOfValidRecords;
+    }
+
+    /**
+     * Returns true if the record at the given offset of aSegment has a valid checksum,
+     * otherwise returns false
+     */
+    private boolean recordIsValid(ByteBuffer aSegment, int offset)
+    {
+        CRC32 crc32 = new CRC32();
+        crc32.update(aSegment.array(), offset, RECORD_SIZE - 4);
+
+        return aSegment.getInt(offset) != 0 && (int) crc32.getValue() == aSegment.getInt(offset + RECORD_SIZE - 4);
+    }
+
+    /**
+     * Returns the counts of events of each day in the daily summaries file
+     */
+    private TreeMap<Long, int[]> readDailySummaries() throws IOException
+    {
+        TreeMap<Long, int[]> mapOfDaysToTheirCountsOfEvents = new TreeMap<>();
+
+        try (DataInputStream dataInputStream = new DataInputStream(new FileInputStream(new File(this.logDirectory, "daily_summaries.bin"))))
+        {
+            int numberOfSummaries = dataInputStream.readInt();
+
+            for (int i = 0; i < numberOfSummaries; i++)
+            {
+                long day = dataInputStream.readLong();
+                int[] countsOfEvents = new int[6];
+
+                for (int j = 0; j < countsOfEvents.length; j++)
+                {
+                    countsOfEvents[j] = dataInputStream.readInt();
+                }
+
+                dataInputStream.readLong();
+                mapOfDaysToTheirCountsOfEvents.put(day, countsOfEvents);
+            }
+
+        }
+
+        return mapOfDaysToTheirCountsOfEvents;
+    }
+
+}
@@ -0,0 +1,216 @@
+package com.example.whackaword;
+
+import android.media.SoundPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Local test that plays sound effects through the voice allocator under Robolectric,
+ * with a virtual clock, and checks which of them are given a voice:
+ *
+ * - that a sound effect steals the voice of a playing sound effect with a lower priority,
+ *   and is dropped if every voice it may use plays one with the same or a higher priority
+ * - that the tick is given the reserved voice when the shared voices are busy,
+ *   and that the other sound effects never use it
+ * - that a sound effect played before it has loaded is held until it has loaded,
+ *   unless it has waited too long or the queue is full of sound effects that matter more
+ *
+ * Which voices are busy is read from the allocator's description,
+ * and what was stolen or dropped from the counters of the MetricsRegistry class
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class SoundEffectVoiceAllocatorTest
+{
+    private static final int POP_UP_DURATION = 710;
+    private static final int MAXIMUM_PENDING_TIME = 300;
+    private static final int MAXIMUM_NUMBER_OF_PENDING_SOUND_EFFECTS = 4;
+    // The same as in the SoundEffectVoiceAllocator class, whose allocation is checked here
+
+    private SoundPool soundPool;
+    private final int[] soundIDs = new int[SoundEffectVoiceAllocator.NUMBER_OF_SOUND_EFFECTS];
+    private long numberOfSoundEffectsStolenBefore;
+    private long numberOfSoundEffectsDroppedBefore;
+
+    @Before
+    public void setUp()
+    {
+        SoundEffectVoiceAllocator.reset();
+
+        this.soundPool = new SoundPool.Builder().setMaxStreams(SoundEffectVoiceAllocator.NUMBER_OF_VOICES).build();
+
+        for (int soundEffect = 0; soundEffect < SoundEffectVoiceAllocator.NUMBER_OF_SOUND_EFFECTS; soundEffect++)
+        {
+            this.soundIDs[soundEffect] = this.soundPool.load(RuntimeEnvironment.getApplication(), SoundEffectVoiceAllocator.SOUND_EFFECT_AUDIO_IDS[soundEffect], 1);
+        }
+
+        this.numberOfSoundEffectsStolenBefore = MetricsRegistry.getCounter(MetricsRegistry.COUNTER_SOUND_EFFECTS_STOLEN);
+        this.numberOfSoundEffectsDroppedBefore = MetricsRegistry.getCounter(MetricsRegistry.COUNTER_SOUND_EFFECTS_DROPPED);
+    }
+
+    @After
+    public void tearDown()
+    {
+        SoundEffectVoiceAllocator.reset();
+        this.soundPool.release();
+    }
+
+    @Test
+    public void soundEffect_stealsTheVoiceOfALowerPriority()
+    {
+        this.loadAllSoundEffects();
+
+        this.play(SoundEffectVoiceAllocator.SOUND_EFFECT_POP_UP);
+        this.play(SoundEffectVoiceAllocator.SOUND_EFFECT_HIDE_CARDS);
+        assertEquals("voices [free, pop-up, hide cards], 0 pending", SoundEffectVoiceAllocator.describe());
+
+        this.play(SoundEffectVoiceAllocator.SOUND_EFFECT_POP_UP);
+        assertEquals("The pop-up sound effect should steal the voice of the hide cards sound effect",
+                "voices [free, pop-up, pop-up], 0 pending", SoundEffectVoiceAllocator.describe());
+        assertEquals(1, this.getNumberOfSoundEffectsStolen());
+
+        this.play(SoundEffectVoiceAllocator.SOUND_EFFECT_HIDE_CARDS);
+        this.play(SoundEffectVoiceAllocator.SOUND_EFFECT_POP_UP);
+        assertEquals("Neither sound effect should steal a voice from one with the same or a higher priority",
+                "voices [free, pop-up, pop-up], 0 pending", SoundEffectVoiceAllocator.describe());
+        assertEquals(1, this.getNumberOfSoundEffectsStolen());
+        assertEquals(2, this.getNumberOfSoundEffectsDropped());
+
+        this.advanceClockBy(POP_UP_DURATION);
+        this.play(SoundEffectVoiceAllocator.SOUND_EFFECT_HIDE_CARDS);
+        assertEquals("The voices should be free once their sound effects have ended",
+                "voices [free, hide cards, free], 0 pending", SoundEffectVoiceAllocator.describe());
+        assertEquals(1, this.getNumberOfSoundEffectsStolen());
+    }
+
+    @Test
+    public void tick_isGivenTheReservedVoice()
+    {
+        this.loadAllSoundEffects();
+
+        this.play(SoundEffectVoiceAllocator.SOUND_EFFECT_HIDE_CARDS);
+        this.play(SoundEffectVoiceAllocator.SOUND_EFFECT_HIDE_CARDS);
+        this.play(SoundEffectVoiceAllocator.SOUND_EFFECT_POP_UP);
+        assertEquals("The pop-up sound effect should never use the reserved voice",
+                "voices [free, pop-up, hide cards], 0 pending", SoundEffectVoiceAllocator.describe());
+
+        this.play(SoundEffectVoiceAllocator.SOUND_EFFECT_TICK);
+        assertEquals("The tick should use the reserved voice without stealing one",
+                "voices [tick, pop-up, hide cards], 0 pending", SoundEffectVoiceAllocator.describe());
+        assertEquals(1, this.getNumberOfSoundEffectsStolen());
+
+        this.play(SoundEffectVoiceAllocator.SOUND_EFFECT_TICK);
+        assertEquals("A second tick should steal the voice with the lowest priority",
+                "voices [tick, pop-up, tick], 0 pending", SoundEffectVoiceAllocator.describe());
+        assertEquals(2, this.getNumberOfSoundEffectsStolen());
+        assertEquals(2, shadowOf(this.soundPool).getResourcePlaybacks(R.raw.correct).size());
+    }
+
+    @Test
+    public void pendingSoundEffect_isPlayedOnceLoaded()
+    {
+        this.play(SoundEffectVoiceAllocator.SOUND_EFFECT_TICK);
+        this.play(SoundEffectVoiceAllocator.SOUND_EFFECT_POP_UP);
+        assertEquals("voices [free, free, free], 2 pending", SoundEffectVoiceAllocator.describe());
+
+        this.load(SoundEffectVoiceAllocator.SOUND_EFFECT_TICK);
+        assertEquals("Only the tick should be played, since only it has loaded",
+                "voices [tick, free, free], 1 pending", SoundEffectVoiceAllocator.describe());
+
+        this.advanceClockBy(MAXIMUM_PENDING_TIME + 1);
+        this.load(SoundEffectVoiceAllocator.SOUND_EFFECT_POP_UP);
+        assertEquals("The pop-up sound effect should be dropped, since it waited too long",
+                "voices [tick, free, free], 0 pending", SoundEffectVoiceAllocator.describe());
+        assertEquals(1, this.getNumberOfSoundEffectsDropped());
+        assertEquals(0, shadowOf(this.soundPool).getResourcePlaybacks(R.raw.cards_pop_up).size());
+    }
+
+    @Test
+    public void fullQueue_dropsTheLowestPriority()
+    {
+        for (int i = 0; i < MAXIMUM_NUMBER_OF_PENDING_SOUND_EFFECTS; i++)
+        {
+            this.play(SoundEffectVoiceAllocator.SOUND_EFFECT_POP_UP);
+        }
+
+        this.play(SoundEffectVoiceAllocator.SOUND_EFFECT_HIDE_CARDS);
+        assertEquals("The hide cards sound effect should be dropped, since it matters least",
+                "voices [free, free, free], 4 pending", SoundEffectVoiceAllocator.describe());
+        assertEquals(1, this.getNumberOfSoundEffectsDropped());
+
+        this.play(SoundEffectVoiceAllocator.SOUND_EFFECT_TICK);
+        assertEquals("The tick should take the place of a pending pop-up sound effect",
+                "voices [free, free, free], 4 pending", SoundEffectVoiceAllocator.describe());
+        assertEquals(2, this.getNumberOfSoundEffectsDropped());
+
+        this.load(SoundEffectVoiceAllocator.SOUND_EFFECT_TICK);
+        assertEquals("voices [tick, free, free], 3 pending", SoundEffectVoiceAllocator.describe());
+    }
+
+    /**
+     * Helper method that plays aSoundEffect through the voice allocator
+     */
+    private void play(int aSoundEffect)
+    {
+        SoundEffectVoiceAllocator.play(this.soundPool, aSoundEffect, this.soundIDs[aSoundEffect]);
+    }
+
+    /**
+     * Helper method that tells the voice allocator that aSoundEffect has loaded
+     */
+    private void load(int aSoundEffect)
+    {
+        SoundEffectVoiceAllocator.onSoundEffectLoaded(this.soundPool, aSoundEffect, this.soundIDs[aSoundEffect]);
+    }
+
+    /**
+     * Helper method that tells the voice allocator that every sound effect has loaded
+     */
+    private void loadAllSoundEffects()
+    {
+        for (int soundEffect = 0; soundEffect < SoundEffectVoiceAllocator.NUMBER_OF_SOUND_EFFECTS; soundEffect++)
+        {
+            this.load(soundEffect);
+        }
+
+    }
+
+    /**
+     * Helper method that advances the virtual clock by someMilliseconds
+     */
+    private void advanceClockBy(long someMilliseconds)
+    {
+        ShadowSystemClock.advanceBy(Duration.ofMillis(someMilliseconds));
+    }
+
+    /**
+     * Helper method that returns the number of sound effects that have been stolen since the test began
+     */
+    private long getNumberOfSoundEffectsStolen()
+    {
+        return MetricsRegistry.getCounter(MetricsRegistry.COUNTER_SOUND_EFFECTS_STOLEN) - this.numberOfSoundEffectsStolenBefore;
+    }
+
+    /**
+     * Helper method that returns the number of sound effects that have been dropped since the test began
+     */
+    private long getNumberOfSoundEffectsDropped()
+    {
+        return MetricsRegistry.getCounter(MetricsRegistry.COUNTER_SOUND_EFFECTS_DROPPED) - this.numberOfSoundEffectsDroppedBefore;
+    }
+
+}
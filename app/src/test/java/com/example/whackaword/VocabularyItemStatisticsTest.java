@@ -0,0 +1,127 @@
+package com.example.whackaword;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local test of the constant-size summary of a vocabulary item, which runs on the JVM without Robolectric:
+ *
+ * - that reaction times fall into the buckets of their octave and quarter of an octave,
+ *   with the times outside the bucketed range in the first and last buckets
+ * - that merging the summaries of two sessions gives the summary that a single session would have recorded
+ * - that percentiles are estimated from the middle of the bucket that they fall in
+ */
+public class VocabularyItemStatisticsTest
+{
+    private static final int LAST_BUCKET = 33;
+    private static final double DELTA = 1e-9;
+    // The same as in the VocabularyItemStatistics class, whose buckets are checked here
+
+    @Test
+    public void reactionTimes_fallIntoTheBucketsOfTheirOctaveAndQuarter()
+    {
+        assertEquals(0, VocabularyItemStatistics.getBucketOf(0));
+        assertEquals(0, VocabularyItemStatistics.getBucketOf(127));
+        assertEquals(1, VocabularyItemStatistics.getBucketOf(128));
+        assertEquals(1, VocabularyItemStatistics.getBucketOf(159));
+        assertEquals(2, VocabularyItemStatistics.getBucketOf(160));
+        assertEquals(4, VocabularyItemStatistics.getBucketOf(255));
+        assertEquals(5, VocabularyItemStatistics.getBucketOf(256));
+        assertEquals(12, VocabularyItemStatistics.getBucketOf(1000));
+        assertEquals(LAST_BUCKET - 1, VocabularyItemStatistics.getBucketOf(32767));
+        assertEquals(LAST_BUCKET, VocabularyItemStatistics.getBucketOf(32768));
+        assertEquals(LAST_BUCKET, VocabularyItemStatistics.getBucketOf(Long.MAX_VALUE));
+
+        for (long reactionTime = 1; reactionTime < 40000; reactionTime++)
+        {
+            int bucket = VocabularyItemStatistics.getBucketOf(reactionTime);
+            int previousBucket = VocabularyItemStatistics.getBucketOf(reactionTime - 1);
+
+            assertTrue("The buckets should never go down (at " + reactionTime + "ms)", bucket >= previousBucket);
+            assertTrue("No bucket should be skipped (at " + reactionTime + "ms)", bucket <= previousBucket + 1);
+        }
+
+    }
+
+    @Test
+    public void mergedSessions_matchASingleSession()
+    {
+        VocabularyItemStatistics earlierSession = new VocabularyItemStatistics();
+        earlierSession.recordCorrectTap(300);
+        earlierSession.recordIncorrectTap();
+        earlierSession.recordCorrectTap(1000);
+
+        VocabularyItemStatistics laterSession = new VocabularyItemStatistics();
+        laterSession.recordTimeout();
+        laterSession.recordCorrectTap(500);
+
+        VocabularyItemStatistics singleSession = new VocabularyItemStatistics();
+        singleSession.recordCorrectTap(300);
+        singleSession.recordIncorrectTap();
+        singleSession.recordCorrectTap(1000);
+        singleSession.recordTimeout();
+        singleSession.recordCorrectTap(500);
+
+        earlierSession.mergeWith(laterSession);
+
+        assertEquals(3, earlierSession.getNumberOfCorrectTaps());
+        assertEquals(1, earlierSession.getNumberOfIncorrectTaps());
+        assertEquals(1, earlierSession.getNumberOfTimeouts());
+        assertEquals(5, earlierSession.getNumberOfAttempts());
+        assertEquals(singleSession.getDecayedAccuracy(), earlierSession.getDecayedAccuracy(), DELTA);
+        assertEquals(600, earlierSession.getMeanReactionTime());
+
+        for (int percentile = 0; percentile <= 100; percentile += 10)
+        {
+            assertEquals(singleSession.getReactionTimePercentile(percentile), earlierSession.getReactionTimePercentile(percentile));
+        }
+
+    }
+
+    @Test
+    public void mergedSessions_weighTheLaterAttemptsMore()
+    {
+        VocabularyItemStatistics earlierSession = new VocabularyItemStatistics();
+        earlierSession.recordIncorrectTap();
+        earlierSession.recordIncorrectTap();
+
+        VocabularyItemStatistics laterSession = new VocabularyItemStatistics();
+        laterSession.recordCorrectTap(300);
+        laterSession.recordCorrectTap(300);
+
+        earlierSession.mergeWith(laterSession);
+
+        assertEquals(2, earlierSession.getNumberOfCorrectTaps());
+        assertEquals(2, earlierSession.getNumberOfIncorrectTaps());
+        assertTrue("The later correct taps should count for more than half", earlierSession.getDecayedAccuracy() > 0.5);
+    }
+
+    @Test
+    public void percentiles_areTheMiddlesOfTheirBuckets()
+    {
+        VocabularyItemStatistics statistics = new VocabularyItemStatistics();
+        assertEquals("There should be no percentile without correct taps", -1, statistics.getReactionTimePercentile(50));
+        assertEquals(-1, statistics.getMeanReactionTime());
+        assertEquals(-1, statistics.getDecayedAccuracy(), DELTA);
+
+        for (int i = 0; i < 9; i++)
+        {
+            statistics.recordCorrectTap(100);
+        }
+
+        statistics.recordCorrectTap(1000);
+
+        assertEquals(64, statistics.getReactionTimePercentile(0));
+        assertEquals(64, statistics.getReactionTimePercentile(50));
+        assertEquals(64, statistics.getReactionTimePercentile(90));
+        assertEquals(960, statistics.getReactionTimePercentile(100));
+        // 100ms is in the bucket below 128ms, and 1000ms is in the bucket from 896ms up to 1024ms
+
+        statistics.recordCorrectTap(40000);
+        assertEquals(32768, statistics.getReactionTimePercentile(100));
+        // Reaction times beyond the bucketed range are all estimated as its end
+    }
+
+}